@@ -0,0 +1,471 @@
+package com.github.jkaste03.uefa_cc_sim;
+
+import java.util.List;
+
+import com.github.jkaste03.uefa_cc_sim.enums.CompetitionData.RoundType;
+import com.github.jkaste03.uefa_cc_sim.model.Trace;
+
+/**
+ * The options of a simulation run from the command line.
+ * <p>
+ * Options are given as {@code --name value} pairs, apart from the flags
+ * {@code --fast}, {@code --compare} and {@code --help}. Every option has a
+ * default, so a run without arguments simulates one iteration of the full
+ * competition on all available processors.
+ */
+public class CommandLineOptions {
+    /**
+     * What a run simulates.
+     */
+    public enum Mode {
+        /**
+         * Runs the full {@code Rounds} object model, including the league phase
+         * draws, and records how often each club reaches each round.
+         */
+        FULL,
+        /**
+         * Runs the qualifying rounds in the batch engine and records how often each
+         * club reaches each round.
+         */
+        QUALIFIERS,
+        /**
+         * Draws every round from fixed pots without playing matches and records the
+         * opponent pairings.
+         */
+        DRAWS,
+        /**
+         * Scores the tie predictions of historical Elo ratings against the actual
+         * outcomes of past seasons, without simulating.
+         */
+        BACKTEST,
+        /**
+         * Fits the parameters of the match model to historical match results and
+         * writes them to the output file, without simulating.
+         */
+        CALIBRATE,
+        /**
+         * Captures snapshots of the rounds at a qualifying round draw and runs the
+         * iterations as continuations of each, recording how often each club
+         * reaches each round per snapshot.
+         */
+        BRANCH,
+        /**
+         * Runs the qualifying rounds of each what-if scenario of a file in the batch
+         * engine and records how often each club reaches each round per scenario.
+         */
+        SCENARIOS,
+        /**
+         * Computes the probability of each club reaching each round of the
+         * qualifying tree without sampling iterations, approximately, with the
+         * {@code AnalyticQualifyingEngine}.
+         */
+        ANALYTIC
+    }
+
+    /**
+     * The format of the output file.
+     */
+    public enum Format {
+        CSV, JSON
+    }
+
+    static final String USAGE = """
+            Usage: UefaCCSim [options]
+              --iterations <n>   iterations to simulate (default 1)
+              --threads <n>      worker threads (default: available processors)
+              --seed <n>         master seed all iterations derive from (default 0)
+              --mode <mode>      full, qualifiers, draws, backtest, calibrate, branch,
+                                 scenarios or analytic (default full)
+              --batch-size <n>   iterations per batch in qualifiers and scenarios mode
+                                 (default 64)
+              --fast             settle ties from exact tie probabilities
+              --warmup <n>       iterations to run and discard before timing (default 0)
+              --replay <n>       replay iteration n of the full mode and print its events
+              --trace <level>    off, ties or all: print the last events of each thread
+              --branch-at <type> q1, q2, q3 or playoff: the draw branch mode captures
+                                 snapshots after (default q3)
+              --snapshots <n>    snapshots to branch from in branch mode (default 1)
+              --scenarios <path> what-if scenarios (JSON) for scenarios mode
+              --compare          compare each scenario to the first one with common
+                                 random numbers instead of running them separately
+              --targets <clubs>  comma-separated clubs to importance-sample the paths of
+                                 in scenarios mode, with --fast
+              --tilt <p>         probability the targets are tilted to advance from a tie
+                                 with (default 0.75)
+              --elo <source>     api, none or the path of a ClubElo CSV file (default api)
+              --elo-cache <dir>  directory to cache the ratings of the api in
+                                 (default: ~/.uefa-cc-sim/elo)
+              --elo-archive <path>
+                                 archive of historical Elo ratings for backtest and
+                                 calibrate mode
+              --elo-history <dir>
+                                 dated ClubElo CSV files to build the archive from first
+              --results <path>   past tie outcomes (date,club1,club2,winner) for backtest mode
+              --matches <path>   past match results for calibrate mode
+              --match-model <path>
+                                 play matches, or predict the ties of backtest mode, with
+                                 the parameters written by calibrate mode
+              --real-results <path>
+                                 real draws and results of the qualifying rounds so far
+              --serve <port>     serve the results of full, qualifiers or draws mode over
+                                 HTTP on a local port while and after running, until
+                                 interrupted
+              --output <path>    file to write the results to (default: none)
+              --format <format>  csv or json (default csv)
+              --help             print this message""";
+
+    private long iterations = 1;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long seed;
+    private Mode mode = Mode.FULL;
+    private int batchSize = 64;
+    private boolean fast;
+    private long warmup;
+    private long replay = -1;
+    private Trace.Level trace = Trace.Level.OFF;
+    private RoundType branchAt = RoundType.Q3;
+    private int snapshots = 1;
+    private String scenarios;
+    private boolean compare;
+    private List<String> targets;
+    private double tilt = 0.75;
+    private String elo = "api";
+    private String eloCache;
+    private String eloArchive;
+    private String eloHistory;
+    private String results;
+    private String matches;
+    private String matchModel;
+    private String realResults;
+    private int serve = -1;
+    private String output;
+    private Format format = Format.CSV;
+    private boolean help;
+
+    /**
+     * Parses the command line arguments.
+     *
+     * @param args the arguments.
+     * @return the parsed options.
+     * @throws IllegalArgumentException if an option is unknown, misses its value
+     *                                  or has an invalid value.
+     */
+    public static CommandLineOptions parse(String[] args) {
+        CommandLineOptions options = new CommandLineOptions();
+        for (int i = 0; i < args.length; i++) {
+            String name = args[i];
+            switch (name) {
+                case "--fast" -> options.fast = true;
+                case "--compare" -> options.compare = true;
+                case "--help", "-h" -> options.help = true;
+                case "--iterations" -> options.iterations = parsePositive(name, value(args, ++i, name));
+                case "--threads" -> options.threads = (int) parsePositive(name, value(args, ++i, name));
+                case "--seed" -> options.seed = parseLong(name, value(args, ++i, name));
+                case "--mode" -> options.mode = parseEnum(Mode.class, name, value(args, ++i, name));
+                case "--batch-size" -> options.batchSize = (int) parsePositive(name, value(args, ++i, name));
+                case "--warmup" -> options.warmup = parseLong(name, value(args, ++i, name));
+                case "--replay" -> options.replay = parseLong(name, value(args, ++i, name));
+                case "--trace" -> options.trace = parseEnum(Trace.Level.class, name, value(args, ++i, name));
+                case "--branch-at" -> options.branchAt = parseEnum(RoundType.class, name, value(args, ++i, name));
+                case "--snapshots" -> options.snapshots = (int) parsePositive(name, value(args, ++i, name));
+                case "--scenarios" -> options.scenarios = value(args, ++i, name);
+                case "--targets" -> options.targets = List.of(value(args, ++i, name).split("\\s*,\\s*"));
+                case "--tilt" -> options.tilt = parseDouble(name, value(args, ++i, name));
+                case "--elo" -> options.elo = value(args, ++i, name);
+                case "--elo-cache" -> options.eloCache = value(args, ++i, name);
+                case "--elo-archive" -> options.eloArchive = value(args, ++i, name);
+                case "--elo-history" -> options.eloHistory = value(args, ++i, name);
+                case "--results" -> options.results = value(args, ++i, name);
+                case "--matches" -> options.matches = value(args, ++i, name);
+                case "--match-model" -> options.matchModel = value(args, ++i, name);
+                case "--real-results" -> options.realResults = value(args, ++i, name);
+                case "--serve" -> options.serve = (int) parseLong(name, value(args, ++i, name));
+                case "--output" -> options.output = value(args, ++i, name);
+                case "--format" -> options.format = parseEnum(Format.class, name, value(args, ++i, name));
+                default -> throw new IllegalArgumentException("Unknown option: " + name);
+            }
+        }
+        if (options.warmup < 0) {
+            throw new IllegalArgumentException("--warmup must not be negative.");
+        }
+        if (options.replay < -1) {
+            throw new IllegalArgumentException("--replay must not be negative.");
+        }
+        if (options.replay >= 0 && options.mode != Mode.FULL) {
+            throw new IllegalArgumentException("--replay is only supported in full mode.");
+        }
+        if (options.mode == Mode.BACKTEST && (options.eloArchive == null || options.results == null)) {
+            throw new IllegalArgumentException("The backtest mode needs --elo-archive and --results.");
+        }
+        if (options.realResults != null && options.mode != Mode.FULL && options.mode != Mode.BRANCH) {
+            throw new IllegalArgumentException("--real-results is only supported in full and branch mode.");
+        }
+        if (options.branchAt.compareTo(RoundType.LEAGUE_PHASE) >= 0) {
+            throw new IllegalArgumentException("--branch-at must be a qualifying round.");
+        }
+        if (options.mode == Mode.SCENARIOS && options.scenarios == null) {
+            throw new IllegalArgumentException("The scenarios mode needs --scenarios.");
+        }
+        if (options.compare && options.mode != Mode.SCENARIOS) {
+            throw new IllegalArgumentException("--compare is only supported in scenarios mode.");
+        }
+        if (options.targets != null && (options.mode != Mode.SCENARIOS || !options.fast || options.compare)) {
+            throw new IllegalArgumentException("--targets is only supported in scenarios mode with --fast, "
+                    + "without --compare.");
+        }
+        if (!(options.tilt >= 0 && options.tilt < 1)) {
+            throw new IllegalArgumentException("--tilt must be at least 0 and below 1.");
+        }
+        if (options.matchModel != null && (options.fast || (options.mode != Mode.FULL
+                && options.mode != Mode.BRANCH && options.mode != Mode.BACKTEST))) {
+            throw new IllegalArgumentException(
+                    "--match-model is only supported in full, branch and backtest mode, without --fast.");
+        }
+        if (options.serve > 65535 || options.serve < -1) {
+            throw new IllegalArgumentException("--serve must be a port number.");
+        }
+        if (options.serve >= 0 && options.mode != Mode.FULL && options.mode != Mode.QUALIFIERS
+                && options.mode != Mode.DRAWS) {
+            throw new IllegalArgumentException("--serve is only supported in full, qualifiers and draws mode.");
+        }
+        if (options.mode == Mode.CALIBRATE
+                && (options.eloArchive == null || options.matches == null || options.output == null)) {
+            throw new IllegalArgumentException("The calibrate mode needs --elo-archive, --matches and --output.");
+        }
+        return options;
+    }
+
+    private static String value(String[] args, int i, String name) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException(name + " needs a value.");
+        }
+        return args[i];
+    }
+
+    private static long parseLong(String name, String value) {
+        try {
+            return Long.parseLong(value.replace("_", ""));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " needs a number, got " + value + ".");
+        }
+    }
+
+    private static double parseDouble(String name, String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " needs a number, got " + value + ".");
+        }
+    }
+
+    private static long parsePositive(String name, String value) {
+        long number = parseLong(name, value);
+        if (number < 1) {
+            throw new IllegalArgumentException(name + " must be positive.");
+        }
+        return number;
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String name, String value) {
+        try {
+            return Enum.valueOf(type, value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid value for " + name + ": " + value + ".");
+        }
+    }
+
+    public long getIterations() {
+        return iterations;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public boolean isFast() {
+        return fast;
+    }
+
+    public long getWarmup() {
+        return warmup;
+    }
+
+    /**
+     * Returns the index of the iteration to replay instead of running the
+     * simulation.
+     *
+     * @return the iteration index, or -1 if no iteration is to be replayed.
+     */
+    public long getReplay() {
+        return replay;
+    }
+
+    public Trace.Level getTrace() {
+        return trace;
+    }
+
+    /**
+     * Returns the type of the rounds the branch mode captures its snapshots
+     * after the draw of.
+     *
+     * @return the round type.
+     */
+    public RoundType getBranchAt() {
+        return branchAt;
+    }
+
+    public int getSnapshots() {
+        return snapshots;
+    }
+
+    /**
+     * Returns the path of the what-if scenarios to run.
+     *
+     * @return the path, or null if none is given.
+     */
+    public String getScenarios() {
+        return scenarios;
+    }
+
+    /**
+     * Returns whether the scenarios are compared to the first one instead of
+     * being run separately.
+     *
+     * @return true to compare the scenarios.
+     */
+    public boolean isCompare() {
+        return compare;
+    }
+
+    /**
+     * Returns the names of the clubs whose paths are importance-sampled.
+     *
+     * @return the club names, or null to sample without importance sampling.
+     */
+    public List<String> getTargets() {
+        return targets;
+    }
+
+    /**
+     * Returns the probability that the target clubs are tilted to advance from a
+     * tie with under importance sampling.
+     *
+     * @return the probability, in [0, 1).
+     */
+    public double getTilt() {
+        return tilt;
+    }
+
+    /**
+     * Returns where the Elo ratings are read from.
+     *
+     * @return "api" for the ClubElo API, "none" for no ratings, or the path of a
+     *         CSV file.
+     */
+    public String getElo() {
+        return elo;
+    }
+
+    /**
+     * Returns the directory to cache the ratings of the ClubElo API in.
+     *
+     * @return the path, or null for the default directory.
+     */
+    public String getEloCache() {
+        return eloCache;
+    }
+
+    /**
+     * Returns the path of the archive of historical Elo ratings.
+     *
+     * @return the path, or null if none is given.
+     */
+    public String getEloArchive() {
+        return eloArchive;
+    }
+
+    /**
+     * Returns the directory of dated ClubElo CSV files to build the archive from.
+     *
+     * @return the path, or null if the archive is not to be built.
+     */
+    public String getEloHistory() {
+        return eloHistory;
+    }
+
+    /**
+     * Returns the path of the file of past tie outcomes.
+     *
+     * @return the path, or null if none is given.
+     */
+    public String getResults() {
+        return results;
+    }
+
+    /**
+     * Returns the path of the file of past match results.
+     *
+     * @return the path, or null if none is given.
+     */
+    public String getMatches() {
+        return matches;
+    }
+
+    /**
+     * Returns the path of the match model parameters to play matches with.
+     *
+     * @return the path, or null to play with uniform scorelines.
+     */
+    public String getMatchModel() {
+        return matchModel;
+    }
+
+    /**
+     * Returns the path of the real draws and results to start the iterations
+     * from.
+     *
+     * @return the path, or null to simulate every round.
+     */
+    public String getRealResults() {
+        return realResults;
+    }
+
+    /**
+     * Returns the local port to serve the results on.
+     *
+     * @return the port, 0 for any free port, or -1 if the results are not
+     *         served.
+     */
+    public int getServe() {
+        return serve;
+    }
+
+    /**
+     * Returns the path of the output file.
+     *
+     * @return the path, or null if no results are to be written.
+     */
+    public String getOutput() {
+        return output;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public boolean isHelp() {
+        return help;
+    }
+}
@@ -0,0 +1,260 @@
+package com.github.jkaste03.uefa_cc_sim;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.jkaste03.uefa_cc_sim.engine.SimulationPlan;
+import com.github.jkaste03.uefa_cc_sim.engine.TieProbabilities;
+import com.github.jkaste03.uefa_cc_sim.model.ClubIdWrapper;
+import com.github.jkaste03.uefa_cc_sim.model.ClubRepository;
+import com.github.jkaste03.uefa_cc_sim.model.ClubSlot;
+import com.github.jkaste03.uefa_cc_sim.model.DoubleLeggedTieWrapper;
+import com.github.jkaste03.uefa_cc_sim.model.Round;
+import com.github.jkaste03.uefa_cc_sim.model.Rounds;
+import com.github.jkaste03.uefa_cc_sim.model.SimulationListener;
+import com.github.jkaste03.uefa_cc_sim.model.Trace;
+import com.github.jkaste03.uefa_cc_sim.service.ClubEloDataLoader;
+import com.github.jkaste03.uefa_cc_sim.service.EloRatingProvider;
+
+/**
+ * Holds everything one simulation needs: its club repository, the loaded
+ * rounds with their Elo data, the compiled plan, the simulation settings and
+ * the iteration counter.
+ * <p>
+ * Nothing here is static, so several contexts, for instance for different
+ * datasets or scenarios, can be simulated side by side in one JVM. The
+ * settings must be made before the {@code SimulationThread}s of the context
+ * are started.
+ */
+public class SimulationContext {
+    private final Rounds rounds;
+    private final AtomicLong claimedIterations = new AtomicLong();
+    private long maxIterations = 1;
+    private SimulationPlan plan;
+    private int batchSize;
+    private long seed;
+    private TieProbabilities tieProbabilities;
+    private boolean drawOnly;
+    private int[][] drawEntrants;
+    private Trace.Level traceLevel = Trace.Level.OFF;
+
+    /**
+     * Constructs a context by loading the rounds and clubs into a new club
+     * repository.
+     */
+    public SimulationContext() {
+        this(new Rounds(new ClubRepository()));
+    }
+
+    /**
+     * Constructs a context by loading the rounds and clubs into a new club
+     * repository, with the Elo ratings of the given provider.
+     *
+     * @param eloRatingProvider the provider of the club Elo ratings.
+     */
+    public SimulationContext(EloRatingProvider eloRatingProvider) {
+        this(new Rounds(new ClubRepository(), eloRatingProvider));
+    }
+
+    /**
+     * Constructs a context for rounds that have already been loaded. The rounds
+     * are used as a template and are never run themselves.
+     *
+     * @param rounds the loaded rounds, not yet run.
+     */
+    public SimulationContext(Rounds rounds) {
+        this.rounds = rounds;
+    }
+
+    public Rounds getRounds() {
+        return rounds;
+    }
+
+    public ClubRepository getClubRepository() {
+        return rounds.getClubRepository();
+    }
+
+    public ClubEloDataLoader getClubEloDataLoader() {
+        return rounds.getClubEloDataLoader();
+    }
+
+    /**
+     * Returns the compiled round graph of the rounds, compiling it on first use.
+     *
+     * @return the compiled plan.
+     */
+    public synchronized SimulationPlan getPlan() {
+        if (plan == null) {
+            plan = SimulationPlan.compile(rounds);
+        }
+        return plan;
+    }
+
+    public long getMaxIterations() {
+        return maxIterations;
+    }
+
+    public void setMaxIterations(long maxIterations) {
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * Claims the next iterations to simulate.
+     *
+     * @param count the number of iterations to claim.
+     * @return the index of the first claimed iteration. Only the iterations below
+     *         {@link #getMaxIterations()} are to be simulated.
+     */
+    public long claimIterations(int count) {
+        return claimedIterations.getAndAdd(count);
+    }
+
+    /**
+     * Checks if the simulation runs in batch mode.
+     *
+     * @return true if the threads run batches with a {@code BatchSimulator}.
+     */
+    public boolean isBatchMode() {
+        return batchSize > 0;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Sets the master seed every iteration derives its random numbers from, in
+     * all modes.
+     *
+     * @param seed the master seed.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Enables batch mode for simulation threads started after this call.
+     *
+     * @param batchSize the number of iterations each thread advances per pass.
+     * @param seed      the master seed the iterations derive their random numbers
+     *                  from.
+     */
+    public void setBatchMode(int batchSize, long seed) {
+        getPlan();
+        this.batchSize = batchSize;
+        this.seed = seed;
+    }
+
+    public TieProbabilities getTieProbabilities() {
+        return tieProbabilities;
+    }
+
+    /**
+     * Enables the fast outcome mode for simulation threads started after this
+     * call, in both the object and batch modes.
+     *
+     * @param tieProbabilities the tie probabilities to settle ties with, or null
+     *                         to play the legs.
+     */
+    public void setFastOutcome(TieProbabilities tieProbabilities) {
+        this.tieProbabilities = tieProbabilities;
+    }
+
+    public Trace.Level getTraceLevel() {
+        return traceLevel;
+    }
+
+    /**
+     * Sets what the simulation threads started after this call, and replays,
+     * record to the trace of their rounds. The batch mode records no trace.
+     *
+     * @param traceLevel the level to record at.
+     */
+    public void setTraceLevel(Trace.Level traceLevel) {
+        this.traceLevel = traceLevel;
+    }
+
+    /**
+     * Checks if the simulation runs in draw-only mode.
+     *
+     * @return true if the threads only draw the rounds, without playing matches.
+     */
+    public boolean isDrawOnly() {
+        return drawOnly;
+    }
+
+    /**
+     * Enables or disables the draw-only mode for simulation threads started
+     * after this call. In draw-only mode, each iteration draws every round again
+     * from the same fixed pots, see {@link #getDrawEntrants()}, and counts the
+     * pairings, without playing any matches.
+     *
+     * @param drawOnly true to enable the draw-only mode.
+     */
+    public void setDrawOnly(boolean drawOnly) {
+        this.drawOnly = drawOnly;
+    }
+
+    /**
+     * Returns the clubs each round is drawn from in draw-only mode, running one
+     * simulation of a copy of the rounds on first use. The run is iteration 0
+     * of the master seed, and fixes the clubs of every round; all threads draw
+     * from these same clubs.
+     *
+     * @return the ids of the clubs of each round, indexed like
+     *         {@code Rounds.getRounds()}.
+     */
+    public synchronized int[][] getDrawEntrants() {
+        if (drawEntrants == null) {
+            Rounds roundsCopy = UefaCCSim.deepCopy(rounds);
+            roundsCopy.seedIteration(seed, 0);
+            roundsCopy.run("Draw setup");
+            List<Round> roundList = roundsCopy.getRounds();
+            drawEntrants = new int[roundList.size()][];
+            for (int r = 0; r < drawEntrants.length; r++) {
+                List<ClubSlot> clubSlots = roundList.get(r).getClubSlots();
+                drawEntrants[r] = new int[clubSlots.size()];
+                for (int i = 0; i < clubSlots.size(); i++) {
+                    drawEntrants[r][i] = resolveId(clubSlots.get(i));
+                }
+            }
+        }
+        return drawEntrants;
+    }
+
+    /**
+     * Replays a single iteration of the object model on a copy of the rounds,
+     * sending its events to a listener. The iteration gets the same random
+     * numbers as in a run of the simulation threads with the same master seed
+     * and fast outcome setting, so an odd result of a long run can be reproduced
+     * from its iteration index without repeating the run.
+     *
+     * @param iteration the index of the iteration to replay.
+     * @param listener  the listener to receive the events of the iteration, or
+     *                  null.
+     * @return the rounds as they are after the iteration, holding its trace.
+     */
+    public Rounds replay(long iteration, SimulationListener listener) {
+        Rounds roundsCopy = UefaCCSim.deepCopy(rounds);
+        roundsCopy.setFastOutcome(tieProbabilities);
+        roundsCopy.setListener(listener);
+        roundsCopy.getTrace().setLevel(traceLevel);
+        roundsCopy.seedIteration(seed, iteration);
+        roundsCopy.run("Replay " + iteration);
+        return roundsCopy;
+    }
+
+    /**
+     * Returns the id of the club a club slot of a played round refers to.
+     */
+    private static int resolveId(ClubSlot clubSlot) {
+        while (clubSlot instanceof DoubleLeggedTieWrapper wrapper) {
+            clubSlot = wrapper.getCorrectClub();
+        }
+        return ((ClubIdWrapper) clubSlot).getId();
+    }
+}
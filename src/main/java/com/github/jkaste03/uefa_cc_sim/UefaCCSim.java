@@ -1,63 +1,557 @@
 package com.github.jkaste03.uefa_cc_sim;
 
+import java.io.*;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import com.github.jkaste03.uefa_cc_sim.CommandLineOptions.Mode;
+import com.github.jkaste03.uefa_cc_sim.engine.AnalyticQualifyingEngine;
+import com.github.jkaste03.uefa_cc_sim.engine.MatchCalibrator;
+import com.github.jkaste03.uefa_cc_sim.engine.MatchModel;
+import com.github.jkaste03.uefa_cc_sim.engine.PairedDifference;
+import com.github.jkaste03.uefa_cc_sim.engine.PairingMatrix;
+import com.github.jkaste03.uefa_cc_sim.engine.ReachCounter;
+import com.github.jkaste03.uefa_cc_sim.engine.ReachProbabilities;
+import com.github.jkaste03.uefa_cc_sim.engine.Scenario;
+import com.github.jkaste03.uefa_cc_sim.engine.ScenarioResult;
+import com.github.jkaste03.uefa_cc_sim.engine.TieProbabilities;
+import com.github.jkaste03.uefa_cc_sim.engine.WeightedReachCounter;
+import com.github.jkaste03.uefa_cc_sim.model.EventLog;
 import com.github.jkaste03.uefa_cc_sim.model.Rounds;
+import com.github.jkaste03.uefa_cc_sim.model.RoundsSnapshot;
+import com.github.jkaste03.uefa_cc_sim.model.Trace;
+import com.github.jkaste03.uefa_cc_sim.server.ResultServer;
+import com.github.jkaste03.uefa_cc_sim.service.EloArchive;
+import com.github.jkaste03.uefa_cc_sim.service.EloRatingProvider;
+import com.github.jkaste03.uefa_cc_sim.service.FileEloProvider;
+import com.github.jkaste03.uefa_cc_sim.service.HistoricalMatchLoader;
+import com.github.jkaste03.uefa_cc_sim.service.HttpEloProvider;
+import com.github.jkaste03.uefa_cc_sim.service.MatchModelFile;
+import com.github.jkaste03.uefa_cc_sim.service.RealResultsLoader;
+import com.github.jkaste03.uefa_cc_sim.service.ResultWriter;
+import com.github.jkaste03.uefa_cc_sim.service.ScenarioFile;
+import com.github.jkaste03.uefa_cc_sim.threads.BacktestRunner;
+import com.github.jkaste03.uefa_cc_sim.threads.ScenarioRunner;
 import com.github.jkaste03.uefa_cc_sim.threads.SimulationThread;
-import java.io.*;
+import com.github.jkaste03.uefa_cc_sim.threads.SnapshotRunner;
 
 public class UefaCCSim {
+    // The match model calibration starts from: a typical home advantage and about
+    // 1.3 goals per club and leg between equal clubs.
+    private static final MatchModel DEFAULT_MATCH_MODEL = new MatchModel(60, 0.002, 1.3, 0);
+    private static final long PUBLISH_INTERVAL_MILLIS = 500;
 
     /**
-     * The main method that runs the simulation.
+     * The main method that runs the simulation. See {@link CommandLineOptions}
+     * for the arguments. Prints the time taken by each phase of the run and the
+     * number of iterations per second.
      *
-     * @param args Command line arguments (not used).
+     * @param args Command line arguments.
      */
     public static void main(String[] args) {
-        // Create a new instance of Rounds
-        Rounds rounds = new Rounds();
-        SimulationThread.setRounds(rounds);
+        CommandLineOptions options;
+        try {
+            options = CommandLineOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(CommandLineOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+        if (options.isHelp()) {
+            System.out.println(CommandLineOptions.USAGE);
+            return;
+        }
+        long startTime = System.nanoTime();
 
-        // Determine the number of available processors
-        int availableProcessors = Runtime.getRuntime().availableProcessors();
-        System.out.println("Available processors: " + availableProcessors);
+        // Score historical ratings instead of simulating
+        if (options.getMode() == Mode.BACKTEST) {
+            try {
+                runBacktest(options);
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Backtest failed: " + e.getMessage());
+                System.exit(1);
+            }
+            System.out.println("Total time taken: " + (System.nanoTime() - startTime) / 1_000_000 + " milliseconds");
+            return;
+        }
 
-        // Set the number of threads to the number of available processors
-        int numberOfThreads = availableProcessors;
+        // Fit the match model instead of simulating
+        if (options.getMode() == Mode.CALIBRATE) {
+            try {
+                runCalibration(options);
+            } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+                System.err.println("Calibration failed: " + e.getMessage());
+                System.exit(1);
+            }
+            System.out.println("Total time taken: " + (System.nanoTime() - startTime) / 1_000_000 + " milliseconds");
+            return;
+        }
 
-        // Create an array to hold the threads
-        SimulationThread[] threads = new SimulationThread[numberOfThreads];
+        // Create a new simulation context, loading the rounds and clubs
+        long phaseStart = System.nanoTime();
+        EloRatingProvider eloRatingProvider = eloRatingProvider(options);
+        // Let a background refresh of the ratings finish however the run ends, so a
+        // download is never cut off
+        Runtime.getRuntime().addShutdownHook(new Thread(eloRatingProvider::awaitRefresh));
+        SimulationContext context = new SimulationContext(eloRatingProvider);
+        if (options.getMatchModel() != null) {
+            try {
+                context.getRounds().setMatchModel(MatchModelFile.read(Path.of(options.getMatchModel())));
+            } catch (IOException e) {
+                System.err.println("Could not read " + options.getMatchModel() + ": " + e.getMessage());
+                System.exit(1);
+            }
+        }
+        if (options.getRealResults() != null) {
+            try {
+                context.getRounds().setRealResults(
+                        RealResultsLoader.load(Path.of(options.getRealResults()), context.getClubRepository()));
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Could not read " + options.getRealResults() + ": " + e.getMessage());
+                System.exit(1);
+            }
+        }
+        printPhase("Load", phaseStart);
 
-        // Record the start time
-        long startTime = System.currentTimeMillis();
+        // Compile what the mode runs on
+        phaseStart = System.nanoTime();
+        TieProbabilities tieProbabilities = options.isFast()
+                ? new TieProbabilities(context.getClubRepository().getClubCount())
+                : null;
+        configure(context, options, options.getIterations(), tieProbabilities);
+        printPhase("Compile", phaseStart);
 
-        // Create and start multiple threads for simulation
-        for (int i = 0; i < numberOfThreads; i++) {
-            threads[i] = new SimulationThread("SimulationThread-" + (i + 1));
-            threads[i].start();
-            // // Create a deep copy of the rounds object to reuse the same data without
-            // // interacting with json
-            // Rounds roundsCopy = UefaCCSim.deepCopy(rounds);
-            // // Run the simulation with the copied rounds object
-            // roundsCopy.run("threadName");
+        // Run continuations of mid-season snapshots instead of whole iterations
+        if (options.getMode() == Mode.BRANCH) {
+            try {
+                runBranches(context, options);
+            } catch (IOException e) {
+                System.err.println("Could not write " + options.getOutput() + ": " + e.getMessage());
+                System.exit(1);
+            }
+            System.out.println("Total time taken: " + (System.nanoTime() - startTime) / 1_000_000 + " milliseconds");
+            return;
         }
 
-        // Wait for all threads to finish
-        for (int i = 0; i < numberOfThreads; i++) {
+        // Compute the reach probabilities of the qualifying tree instead of sampling
+        if (options.getMode() == Mode.ANALYTIC) {
             try {
-                threads[i].join();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+                runAnalytic(context, options);
+            } catch (IOException e) {
+                System.err.println("Could not write " + options.getOutput() + ": " + e.getMessage());
+                System.exit(1);
             }
+            System.out.println("Total time taken: " + (System.nanoTime() - startTime) / 1_000_000 + " milliseconds");
+            return;
         }
 
-        // Record the end time
-        long endTime = System.currentTimeMillis();
+        // Run what-if scenarios of the loaded dataset instead of the dataset itself
+        if (options.getMode() == Mode.SCENARIOS) {
+            try {
+                runScenarios(context, options);
+            } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+                System.err.println("Scenarios failed: " + e.getMessage());
+                System.exit(1);
+            }
+            System.out.println("Total time taken: " + (System.nanoTime() - startTime) / 1_000_000 + " milliseconds");
+            return;
+        }
+
+        // Replay a single iteration with its events instead of running them all
+        if (options.getReplay() >= 0) {
+            EventLog eventLog = new EventLog();
+            Rounds rounds = context.replay(options.getReplay(), eventLog);
+            System.out.println("Replay of iteration " + options.getReplay() + " with seed " + options.getSeed());
+            System.out.println(eventLog);
+            printTrace("Replay", rounds.getTrace(), context);
+            return;
+        }
+
+        // Warm up the JIT on a separate context sharing the loaded rounds
+        if (options.getWarmup() > 0) {
+            phaseStart = System.nanoTime();
+            SimulationContext warmupContext = new SimulationContext(context.getRounds());
+            configure(warmupContext, options, options.getWarmup(), tieProbabilities);
+            runThreads(warmupContext, options.getThreads());
+            printPhase("Warmup", phaseStart);
+        }
+
+        System.out.println("Running " + options.getIterations() + " iterations in " + options.getMode()
+                + " mode on " + options.getThreads() + " threads");
+        ResultServer server = null;
+        if (options.getServe() >= 0) {
+            try {
+                server = new ResultServer(options.getServe());
+            } catch (IOException e) {
+                System.err.println("Could not serve on port " + options.getServe() + ": " + e.getMessage());
+                System.exit(1);
+            }
+            server.start();
+            System.out.println("Serving results on http://127.0.0.1:" + server.getPort());
+        }
+        phaseStart = System.nanoTime();
+        SimulationThread[] threads = server != null
+                ? runAndPublish(server, context, options.getThreads())
+                : runThreads(context, options.getThreads());
+        long runNanos = System.nanoTime() - phaseStart;
+        printPhase("Run", phaseStart);
+        System.out.printf("Throughput: %.1f iterations/s%n", options.getIterations() * 1e9 / runNanos);
+        for (SimulationThread thread : threads) {
+            printTrace(thread.getName(), thread.getTrace(), context);
+        }
+
+        if (options.getOutput() != null) {
+            phaseStart = System.nanoTime();
+            try {
+                writeResults(context, threads, options);
+            } catch (IOException e) {
+                System.err.println("Could not write " + options.getOutput() + ": " + e.getMessage());
+                System.exit(1);
+            }
+            printPhase("Write", phaseStart);
+        }
+
+        // Let the Elo ratings finish loading even if the mode did not need them, so
+        // a download is never cut off
+        context.getRounds().awaitLoaded();
 
         // Calculate and print the total time taken
-        System.out.println("Total time taken: " + (endTime - startTime) + " milliseconds");
+        System.out.println("Total time taken: " + (System.nanoTime() - startTime) / 1_000_000 + " milliseconds");
+
+        if (server != null) {
+            serveUntilInterrupted(server);
+        }
+    }
+
+    /**
+     * Keeps serving the final results until the JVM is shut down, e.g. by
+     * Ctrl-C, then stops the server.
+     */
+    private static void serveUntilInterrupted(ResultServer server) {
+        System.out.println("Serving the final results until interrupted");
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(1);
+            stopped.countDown();
+        }));
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Builds the Elo archive if asked to, and scores its ratings against the past
+     * outcomes of the options.
+     */
+    private static void runBacktest(CommandLineOptions options) throws IOException {
+        Path archivePath = Path.of(options.getEloArchive());
+        long phaseStart = System.nanoTime();
+        if (options.getEloHistory() != null) {
+            EloArchive.build(Path.of(options.getEloHistory()), archivePath);
+            printPhase("Build archive", phaseStart);
+            phaseStart = System.nanoTime();
+        }
+        EloArchive archive = EloArchive.open(archivePath);
+        MatchModel matchModel = options.getMatchModel() != null
+                ? MatchModelFile.read(Path.of(options.getMatchModel()))
+                : DEFAULT_MATCH_MODEL;
+        List<BacktestRunner.Outcome> outcomes = BacktestRunner.readOutcomes(Path.of(options.getResults()));
+        printPhase("Load", phaseStart);
+
+        phaseStart = System.nanoTime();
+        List<BacktestRunner.Score> scores = new BacktestRunner(archive, matchModel, options.getThreads()).run(outcomes);
+        printPhase("Run", phaseStart);
+        BacktestRunner.Score total = new BacktestRunner.Score(null, null);
+        for (BacktestRunner.Score score : scores) {
+            System.out.printf(Locale.ROOT, "%s (ratings of %s): %d ties, %d skipped, Brier %.4f, log loss %.4f%n",
+                    score.getDrawDate(), score.getRatingsDate(), score.getTies(), score.getSkipped(),
+                    score.getBrierScore(), score.getLogLoss());
+            total.merge(score);
+        }
+        System.out.printf(Locale.ROOT, "Total: %d ties, %d skipped, Brier %.4f, log loss %.4f%n", total.getTies(),
+                total.getSkipped(), total.getBrierScore(), total.getLogLoss());
+    }
+
+    /**
+     * Fits the match model to the past match results of the options, rated from
+     * the Elo archive, and writes its parameters to the output file.
+     */
+    private static void runCalibration(CommandLineOptions options) throws IOException {
+        long phaseStart = System.nanoTime();
+        EloArchive archive = EloArchive.open(Path.of(options.getEloArchive()));
+        try (MatchCalibrator calibrator = new MatchCalibrator(options.getThreads())) {
+            int skipped = HistoricalMatchLoader.load(Path.of(options.getMatches()), archive, calibrator);
+            printPhase("Load", phaseStart);
+            System.out.println("Calibrating on " + calibrator.getMatchCount() + " matches and "
+                    + calibrator.getShootoutCount() + " shootouts, " + skipped + " matches skipped");
+
+            phaseStart = System.nanoTime();
+            MatchModel model = calibrator.calibrate(DEFAULT_MATCH_MODEL);
+            printPhase("Run", phaseStart);
+            System.out.printf(Locale.ROOT, "Log-likelihood %.3f after %d evaluations%n",
+                    calibrator.logLikelihood(model), calibrator.getEvaluations());
+            System.out.println(model);
+            MatchModelFile.write(Path.of(options.getOutput()), model);
+        }
+    }
+
+    /**
+     * Captures the snapshots of the options and runs the iterations as
+     * continuations of each, writing the reach probabilities per snapshot.
+     */
+    private static void runBranches(SimulationContext context, CommandLineOptions options) throws IOException {
+        SnapshotRunner runner = new SnapshotRunner(context, options.getThreads());
+        long phaseStart = System.nanoTime();
+        List<RoundsSnapshot> snapshots = runner.capture(options.getBranchAt(), options.getSnapshots());
+        printPhase("Capture", phaseStart);
+
+        System.out.println("Running " + options.getIterations() + " continuations of " + snapshots.size()
+                + " snapshots after the " + options.getBranchAt() + " draw on " + options.getThreads() + " threads");
+        phaseStart = System.nanoTime();
+        List<ReachCounter> reachCounters = runner.run(snapshots, options.getIterations());
+        long runNanos = System.nanoTime() - phaseStart;
+        printPhase("Run", phaseStart);
+        System.out.printf("Throughput: %.1f continuations/s%n",
+                options.getIterations() * snapshots.size() * 1e9 / runNanos);
+
+        if (options.getOutput() != null) {
+            phaseStart = System.nanoTime();
+            ResultWriter.writeSnapshotReach(Path.of(options.getOutput()), options.getFormat(), context.getPlan(),
+                    context.getClubRepository(), reachCounters);
+            printPhase("Write", phaseStart);
+        }
+    }
+
+    /**
+     * Computes the reach probabilities of the qualifying tree with the analytic
+     * engine and writes them like those of the qualifiers mode.
+     */
+    private static void runAnalytic(SimulationContext context, CommandLineOptions options) throws IOException {
+        System.out.println("Computing the reach probabilities analytically");
+        long phaseStart = System.nanoTime();
+        ReachProbabilities reachProbabilities = new AnalyticQualifyingEngine(context.getPlan()).run();
+        printPhase("Run", phaseStart);
+
+        if (options.getOutput() != null) {
+            phaseStart = System.nanoTime();
+            ResultWriter.writeReach(Path.of(options.getOutput()), options.getFormat(), context.getPlan(),
+                    context.getClubRepository(), reachProbabilities);
+            printPhase("Write", phaseStart);
+        }
+    }
+
+    /**
+     * Runs the scenarios of the options for their iterations each, writing the
+     * reach probabilities per scenario, or compares them to the first one, or
+     * importance-samples the paths of the target clubs in each.
+     */
+    private static void runScenarios(SimulationContext context, CommandLineOptions options) throws IOException {
+        long phaseStart = System.nanoTime();
+        List<Scenario> scenarios = ScenarioFile.read(Path.of(options.getScenarios()));
+        printPhase("Load scenarios", phaseStart);
+
+        ScenarioRunner runner = new ScenarioRunner(context, options.getThreads());
+        if (options.isCompare()) {
+            compareScenarios(context, options, runner, scenarios);
+            return;
+        }
+        if (options.getTargets() != null) {
+            runImportanceSampled(context, options, runner, scenarios);
+            return;
+        }
+        System.out.println("Running " + options.getIterations() + " iterations of " + scenarios.size()
+                + " scenarios on " + options.getThreads() + " threads");
+        phaseStart = System.nanoTime();
+        List<ScenarioResult> results = runner.run(scenarios, options.getIterations());
+        long runNanos = System.nanoTime() - phaseStart;
+        printPhase("Run", phaseStart);
+        System.out.printf("Throughput: %.1f iterations/s%n",
+                options.getIterations() * scenarios.size() * 1e9 / runNanos);
+
+        if (options.getOutput() != null) {
+            phaseStart = System.nanoTime();
+            ResultWriter.writeScenarioReach(Path.of(options.getOutput()), options.getFormat(),
+                    context.getClubRepository(), results);
+            printPhase("Write", phaseStart);
+        }
     }
 
     /**
-     * Creates a deep copy of the given object using serialization.
+     * Runs every scenario with importance sampling of the paths of the target
+     * clubs, writing the weighted reach probabilities with their standard
+     * errors.
+     */
+    private static void runImportanceSampled(SimulationContext context, CommandLineOptions options,
+            ScenarioRunner runner, List<Scenario> scenarios) throws IOException {
+        List<String> scenarioNames = new ArrayList<>();
+        List<WeightedReachCounter> counters = new ArrayList<>();
+        System.out.println("Running " + options.getIterations() + " iterations of " + scenarios.size()
+                + " scenarios tilted towards " + String.join(", ", options.getTargets()) + " on "
+                + options.getThreads() + " threads");
+        long phaseStart = System.nanoTime();
+        for (Scenario scenario : scenarios) {
+            scenarioNames.add(scenario.getName());
+            counters.add(runner.runImportanceSampled(scenario, options.getTargets(), options.getTilt(),
+                    options.getIterations()));
+        }
+        printPhase("Run", phaseStart);
+
+        if (options.getOutput() != null) {
+            phaseStart = System.nanoTime();
+            ResultWriter.writeWeightedReach(Path.of(options.getOutput()), options.getFormat(), context.getPlan(),
+                    context.getClubRepository(), scenarioNames, counters);
+            printPhase("Write", phaseStart);
+        }
+    }
+
+    /**
+     * Compares every scenario after the first to the first one with common
+     * random numbers, writing the paired differences.
+     */
+    private static void compareScenarios(SimulationContext context, CommandLineOptions options,
+            ScenarioRunner runner, List<Scenario> scenarios) throws IOException {
+        if (scenarios.size() < 2) {
+            throw new IllegalArgumentException("Comparing needs a baseline and at least one variant scenario.");
+        }
+        Scenario baseline = scenarios.get(0);
+        List<String> variantNames = new ArrayList<>();
+        List<PairedDifference> differences = new ArrayList<>();
+        System.out.println("Comparing " + (scenarios.size() - 1) + " scenarios to " + baseline.getName() + " over "
+                + options.getIterations() + " paired iterations on " + options.getThreads() + " threads");
+        long phaseStart = System.nanoTime();
+        for (Scenario variant : scenarios.subList(1, scenarios.size())) {
+            variantNames.add(variant.getName());
+            differences.add(runner.compare(baseline, variant, options.getIterations()));
+        }
+        printPhase("Run", phaseStart);
+
+        if (options.getOutput() != null) {
+            phaseStart = System.nanoTime();
+            ResultWriter.writeDifferences(Path.of(options.getOutput()), options.getFormat(), context.getPlan(),
+                    context.getClubRepository(), variantNames, differences);
+            printPhase("Write", phaseStart);
+        }
+    }
+
+    /**
+     * Returns the provider of the Elo ratings chosen by the options.
+     */
+    private static EloRatingProvider eloRatingProvider(CommandLineOptions options) {
+        return switch (options.getElo()) {
+            case "api" -> options.getEloCache() != null ? new HttpEloProvider(Path.of(options.getEloCache()))
+                    : EloRatingProvider.defaultProvider();
+            case "none" -> EloRatingProvider.fixed(Map.of());
+            default -> new FileEloProvider(Path.of(options.getElo()));
+        };
+    }
+
+    /**
+     * Applies the mode and settings of the options to a context, and compiles
+     * what the mode runs on.
+     */
+    private static void configure(SimulationContext context, CommandLineOptions options, long iterations,
+            TieProbabilities tieProbabilities) {
+        context.setMaxIterations(iterations);
+        context.setFastOutcome(tieProbabilities);
+        context.setSeed(options.getSeed());
+        context.setTraceLevel(options.getTrace());
+        if (options.getMode() == Mode.QUALIFIERS || options.getMode() == Mode.SCENARIOS) {
+            context.setBatchMode(options.getBatchSize(), options.getSeed());
+        } else if (options.getMode() == Mode.DRAWS) {
+            context.setDrawOnly(true);
+            context.getDrawEntrants();
+        }
+    }
+
+    /**
+     * Runs the simulation threads of a context until all iterations are done.
+     *
+     * @return the finished threads, holding the results they recorded.
+     */
+    private static SimulationThread[] runThreads(SimulationContext context, int threadCount) {
+        SimulationThread[] threads = new SimulationThread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new SimulationThread("SimulationThread-" + (i + 1), context);
+            threads[i].start();
+        }
+        for (SimulationThread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for the simulation threads", e);
+            }
+        }
+        return threads;
+    }
+
+    /**
+     * Runs the simulation threads of the context while publishing their interim
+     * and final results on the server.
+     */
+    private static SimulationThread[] runAndPublish(ResultServer server, SimulationContext context,
+            int threadCount) {
+        try {
+            return server.runAndPublish(context, threadCount, PUBLISH_INTERVAL_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the simulation threads", e);
+        }
+    }
+
+    /**
+     * Merges the results of the threads and writes them to the output file.
+     */
+    private static void writeResults(SimulationContext context, SimulationThread[] threads,
+            CommandLineOptions options) throws IOException {
+        Path path = Path.of(options.getOutput());
+        switch (options.getMode()) {
+            case FULL, QUALIFIERS -> {
+                ReachCounter reachCounter = new ReachCounter(context.getPlan());
+                for (SimulationThread thread : threads) {
+                    reachCounter.merge(thread.getReachCounter());
+                }
+                ResultWriter.writeReach(path, options.getFormat(), context.getPlan(), context.getClubRepository(),
+                        reachCounter);
+            }
+            case DRAWS -> {
+                PairingMatrix pairingMatrix = new PairingMatrix(context.getPlan().getRoundCount(),
+                        context.getClubRepository().getClubCount());
+                for (SimulationThread thread : threads) {
+                    pairingMatrix.merge(thread.getPairingMatrix());
+                }
+                ResultWriter.writePairings(path, options.getFormat(), context.getPlan(),
+                        context.getClubRepository(), pairingMatrix);
+            }
+        }
+    }
+
+    /**
+     * Prints the events of a trace, if it has recorded any.
+     */
+    private static void printTrace(String owner, Trace trace, SimulationContext context) {
+        if (trace == null || trace.getCount() == 0) {
+            return;
+        }
+        System.out.println("Trace of " + owner + ":");
+        trace.format(context.getClubRepository()).forEach(System.out::println);
+    }
+
+    private static void printPhase(String phase, long startNanos) {
+        System.out.println(phase + ": " + (System.nanoTime() - startNanos) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Creates a deep copy of the given object using serialization. A copy of
+     * rounds shares the loaded Elo ratings of the original, which are not
+     * serialized.
      *
      * @param <T>    The type of the object to be copied.
      * @param object The object to be copied.
@@ -73,7 +567,11 @@ public class UefaCCSim {
             out.flush();
             ByteArrayInputStream bis = new ByteArrayInputStream(bos.toByteArray());
             ObjectInputStream in = new ObjectInputStream(bis);
-            return (T) in.readObject();
+            T copy = (T) in.readObject();
+            if (object instanceof Rounds rounds) {
+                ((Rounds) copy).getClubEloDataLoader().shareRatings(rounds.getClubEloDataLoader());
+            }
+            return copy;
         } catch (IOException | ClassNotFoundException e) {
             throw new RuntimeException("Deep copy failed", e);
         }
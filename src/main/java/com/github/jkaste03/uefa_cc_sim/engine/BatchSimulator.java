@@ -0,0 +1,675 @@
+package com.github.jkaste03.uefa_cc_sim.engine;
+
+import java.util.Arrays;
+
+/**
+ * Simulates the qualifying rounds for many independent iterations at once.
+ * <p>
+ * Instead of walking a {@code Rounds} object graph per iteration, the batch
+ * simulator advances a batch of iterations (lanes) through each round
+ * together. All per-iteration state lives in primitive arrays laid out as
+ * {@code [lanes x slots]} and {@code [lanes x ties]}, so each step of a round
+ * (seeding, draw, forwarding and play) is a loop over the lanes.
+ * <p>
+ * The arrays are lane-major: the slots and ties of one lane are contiguous,
+ * and the lane is the outer loop of every step. Seeding sorts a lane's slots,
+ * and the draw picks opponents one after another from what is left in that
+ * lane, so these steps cannot run across lanes in lockstep anyway; with a
+ * lane-major layout they work on one short contiguous run per lane. The one
+ * step that is data-parallel, sampling goals, draws all four legs of every
+ * tie of a round in a lane as one contiguous run of counters, which the
+ * {@link GoalSampler} vectorises just as well as a run across lanes. A
+ * slot-major layout with the lanes innermost would only add strided access
+ * to the draw.
+ * <p>
+ * A club slot is encoded as an int. Non-negative values are club ids, while
+ * negative values refer to the winner or loser of a tie by its global tie
+ * index (see {@link #tieRef(int, boolean)}). A tie reference is resolved to a
+ * club id once the tie has been played, and until then it is seeded and drawn
+ * using both clubs of the tie, just like a {@code DoubleLeggedTieWrapper}.
+ * <p>
+ * Goals are sampled by a {@link GoalSampler} from a {@link GoalTable}, using
+ * counter-based random numbers keyed by the iteration and the global tie
+ * index. In fast outcome mode, ties are settled from {@link TieProbabilities}
+ * instead. Every other decision point of a round (the draw, the ties whose
+ * losers skip a round, and the shootouts) reads its own
+ * {@link CounterRandom#substream(long, int) substream} of the iteration. The
+ * random numbers of a decision point therefore only depend on the master
+ * seed, the iteration index and the decision point, which gives common random
+ * numbers: two plans simulated with the same seed, e.g. a baseline and a
+ * {@link Scenario}, see the same randomness in every iteration, and only
+ * differ where the plans make them differ.
+ * <p>
+ * In fast outcome mode, the simulator can also importance sample: ties of
+ * chosen target clubs are tilted in their favour, and each iteration carries
+ * the likelihood ratio of its outcomes as a weight, to be recorded in a
+ * {@link WeightedReachCounter}. The weighted estimates stay unbiased, while
+ * rare paths of the target clubs are simulated far more often.
+ * <p>
+ * Rounds are processed in the same order as {@code Rounds.runQRounds}, so the
+ * draws of a round type are made before the ties of the previous round type
+ * have been played. A batch simulator is not thread-safe; each worker uses its
+ * own instance.
+ */
+public class BatchSimulator {
+    private final SimulationPlan plan;
+    private final int lanes;
+    private final long seed;
+    private final GoalTable goalTable;
+    private final GoalSampler goalSampler;
+    private final int tieTotal;
+    private final int[] tieRound;
+
+    // Club slots per round, laid out as [lane * slotCount + slot].
+    private final int[][] slots;
+    // Number of slots filled so far in each round. Equal for all lanes.
+    private final int[] fill;
+    // Tie data, laid out as [lane * tieTotal + tie].
+    private final int[] tieHome;
+    private final int[] tieAway;
+    private final int[] homeGoals;
+    private final int[] awayGoals;
+    private final int[] winner;
+    private final int[] loser;
+    private final boolean[] played;
+    private final long[] laneKey;
+    private int activeLanes;
+    private TieProbabilities tieProbabilities;
+
+    // Importance sampling: the target clubs, the probability a target club is
+    // tilted to advance, and the likelihood ratio of each lane.
+    private boolean[] isTarget;
+    private double targetAdvances;
+    private final double[] weight;
+
+    // The substream read by nextInt, and the position of its next number.
+    private long streamKey;
+    private int streamCounter;
+
+    // Scratch arrays for seeding and drawing a single lane.
+    private final float[] keys;
+    private final int[] order;
+    private final int[] countryA;
+    private final int[] countryB;
+    private final int[] remaining;
+    private final int[] deferred;
+    // Scratch arrays for sampling the legs of a round in a single lane.
+    private final int[] legGoals;
+    private final int[] legRows;
+
+    // The decision points of a round, each reading its own substream.
+    private static final int DRAW_STREAM = 0;
+    private static final int SKIP_STREAM = 1;
+    private static final int SHOOTOUT_STREAM = 2;
+    private static final int STREAMS_PER_ROUND = 3;
+    // Attempts at drawing a round in one lane before giving up.
+    private static final int MAX_DRAW_ATTEMPTS = 1000;
+
+    /**
+     * Constructs a batch simulator for the given plan, where each club scores
+     * between 0 and 3 goals per leg like in {@code Tie.genScoreline}.
+     *
+     * @param plan  the compiled round graph to simulate.
+     * @param lanes the maximum number of iterations simulated per batch.
+     * @param seed  the master seed. Each iteration derives its random numbers
+     *              from the master seed and its iteration index.
+     */
+    public BatchSimulator(SimulationPlan plan, int lanes, long seed) {
+        this(plan, lanes, seed, GoalTable.uniform(3), GoalSampler.create());
+    }
+
+    /**
+     * Constructs a batch simulator for the given plan.
+     *
+     * @param plan        the compiled round graph to simulate.
+     * @param lanes       the maximum number of iterations simulated per batch.
+     * @param seed        the master seed. Each iteration derives its random
+     *                    numbers from the master seed and its iteration index.
+     * @param goalTable   the goal distribution of a club in a leg. Every leg
+     *                    uses the first row of the table.
+     * @param goalSampler the sampler drawing goals from the table.
+     */
+    public BatchSimulator(SimulationPlan plan, int lanes, long seed, GoalTable goalTable,
+            GoalSampler goalSampler) {
+        if (lanes < 1) {
+            throw new IllegalArgumentException("A batch must have at least one lane.");
+        }
+        this.plan = plan;
+        this.lanes = lanes;
+        this.seed = seed;
+        this.goalTable = goalTable;
+        this.goalSampler = goalSampler;
+        this.tieTotal = plan.getTieTotal();
+
+        int roundCount = plan.getRoundCount();
+        tieRound = new int[tieTotal];
+        slots = new int[roundCount][];
+        for (int r = 0; r < roundCount; r++) {
+            slots[r] = new int[lanes * plan.getSlotCount(r)];
+            for (int t = 0; t < plan.getTieCount(r); t++) {
+                tieRound[plan.getTieBase(r) + t] = r;
+            }
+        }
+        fill = new int[roundCount];
+        played = new boolean[roundCount];
+
+        tieHome = new int[lanes * tieTotal];
+        tieAway = new int[lanes * tieTotal];
+        homeGoals = new int[lanes * tieTotal];
+        awayGoals = new int[lanes * tieTotal];
+        winner = new int[lanes * tieTotal];
+        loser = new int[lanes * tieTotal];
+        laneKey = new long[lanes];
+        weight = new double[lanes];
+
+        int maxSlots = plan.getMaxSlotCount();
+        keys = new float[maxSlots];
+        order = new int[maxSlots];
+        countryA = new int[maxSlots];
+        countryB = new int[maxSlots];
+        remaining = new int[maxSlots];
+        deferred = new int[maxSlots];
+        legGoals = new int[2 * maxSlots];
+        legRows = new int[2 * maxSlots];
+    }
+
+    public SimulationPlan getPlan() {
+        return plan;
+    }
+
+    public int getLanes() {
+        return lanes;
+    }
+
+    /**
+     * Enables or disables the fast outcome mode. In fast outcome mode, the legs
+     * of a tie are not sampled. Instead, the tie is settled with a single
+     * uniform number compared to the probability that its first-leg home club
+     * advances, and no goals are recorded.
+     *
+     * @param tieProbabilities the tie probabilities to settle ties with, or null
+     *                         to sample the legs.
+     */
+    public void setFastOutcome(TieProbabilities tieProbabilities) {
+        this.tieProbabilities = tieProbabilities;
+    }
+
+    /**
+     * Enables or disables importance sampling. Each tie between a target club
+     * and another club is settled as if the target club advanced with at least
+     * the given probability, and the weight of the lane is multiplied by the
+     * likelihood ratio of the outcome. Importance sampling requires the fast
+     * outcome mode, and the results must be recorded with
+     * {@link #record(WeightedReachCounter)}.
+     *
+     * @param targets        the ids of the target clubs, or null to disable
+     *                       importance sampling.
+     * @param targetAdvances the probability, below 1, that a target club is
+     *                       tilted to advance from a tie.
+     * @throws IllegalArgumentException if the probability is not in [0, 1).
+     */
+    public void setImportanceSampling(int[] targets, double targetAdvances) {
+        if (targets == null) {
+            isTarget = null;
+            return;
+        }
+        if (!(targetAdvances >= 0 && targetAdvances < 1)) {
+            throw new IllegalArgumentException("Tilted probability must be in [0, 1): " + targetAdvances);
+        }
+        isTarget = new boolean[plan.getClubCount()];
+        for (int target : targets) {
+            isTarget[target] = true;
+        }
+        this.targetAdvances = targetAdvances;
+    }
+
+    /**
+     * Returns the likelihood ratio of a lane in the last batch, which is 1
+     * unless importance sampling is enabled.
+     *
+     * @param lane the lane.
+     * @return the weight of the lane.
+     */
+    public double getWeight(int lane) {
+        return weight[lane];
+    }
+
+    public int getActiveLanes() {
+        return activeLanes;
+    }
+
+    /**
+     * Simulates all qualifying rounds for a batch of consecutive iterations.
+     *
+     * @param firstIteration the index of the iteration simulated in lane 0.
+     * @param laneCount      the number of iterations to simulate, at most the
+     *                       number of lanes.
+     */
+    public void runBatch(long firstIteration, int laneCount) {
+        if (laneCount < 1 || laneCount > lanes) {
+            throw new IllegalArgumentException("Lane count must be between 1 and " + lanes + ".");
+        }
+        activeLanes = laneCount;
+        for (int k = 0; k < laneCount; k++) {
+            laneKey[k] = CounterRandom.key(seed, firstIteration + k);
+        }
+        Arrays.fill(weight, 1.0);
+        if (isTarget != null && tieProbabilities == null) {
+            throw new IllegalStateException("Importance sampling requires the fast outcome mode.");
+        }
+        fillEntrants();
+        Arrays.fill(played, false);
+
+        int[][] stages = plan.getQualifyingStages();
+        for (int r : stages[0]) {
+            seedDraw(r);
+        }
+        for (int s = 0; s < stages.length; s++) {
+            for (int r : stages[s]) {
+                resolveTies(r);
+            }
+            for (int r : stages[s]) {
+                forward(r);
+            }
+            if (s + 1 < stages.length) {
+                for (int r : stages[s + 1]) {
+                    seedDraw(r);
+                }
+            }
+            for (int r : stages[s]) {
+                play(r);
+            }
+        }
+    }
+
+    /**
+     * Adds the clubs taking part in every round in the last batch to the counter.
+     *
+     * @param counter the counter to record to.
+     */
+    public void record(ReachCounter counter) {
+        if (isTarget != null) {
+            throw new IllegalStateException("Importance sampled iterations must be recorded with their weights.");
+        }
+        for (int r = 0; r < slots.length; r++) {
+            int n = plan.getSlotCount(r);
+            int[] roundSlots = slots[r];
+            for (int k = 0; k < activeLanes; k++) {
+                int offset = k * n;
+                for (int i = 0; i < n; i++) {
+                    counter.increment(r, resolve(roundSlots[offset + i], k));
+                }
+            }
+        }
+        counter.addIterations(activeLanes);
+    }
+
+    /**
+     * Adds the clubs taking part in every round in the last batch to the
+     * counter, weighted by the likelihood ratio of their lanes.
+     *
+     * @param counter the counter to record to.
+     */
+    public void record(WeightedReachCounter counter) {
+        for (int r = 0; r < slots.length; r++) {
+            int n = plan.getSlotCount(r);
+            int[] roundSlots = slots[r];
+            for (int k = 0; k < activeLanes; k++) {
+                int offset = k * n;
+                for (int i = 0; i < n; i++) {
+                    counter.add(r, resolve(roundSlots[offset + i], k), weight[k]);
+                }
+            }
+        }
+        counter.addIterations(activeLanes);
+    }
+
+    /**
+     * Returns the club in a slot of a round in the last batch. Slots referring
+     * to ties are resolved to the club that went through.
+     *
+     * @param round the round index.
+     * @param lane  the lane.
+     * @param slot  the slot within the round.
+     * @return the id of the club in the slot.
+     */
+    public int getClub(int round, int lane, int slot) {
+        return resolve(slots[round][lane * plan.getSlotCount(round) + slot], lane);
+    }
+
+    /**
+     * Encodes a reference to the winner or loser of a tie as a slot value.
+     *
+     * @param tie   the global tie index.
+     * @param loser true to refer to the loser, false to refer to the winner.
+     * @return the encoded slot value, which is always negative.
+     */
+    static int tieRef(int tie, boolean loser) {
+        return ~((tie << 1) | (loser ? 1 : 0));
+    }
+
+    private void fillEntrants() {
+        for (int r = 0; r < slots.length; r++) {
+            int[] entrants = plan.getEntrants(r);
+            int n = plan.getSlotCount(r);
+            for (int k = 0; k < activeLanes; k++) {
+                System.arraycopy(entrants, 0, slots[r], k * n, entrants.length);
+            }
+            fill[r] = entrants.length;
+        }
+    }
+
+    /**
+     * Resolves a slot value to a club id. The slot must hold a club or refer to
+     * a tie that has been played.
+     */
+    private int resolve(int ref, int lane) {
+        if (ref >= 0) {
+            return ref;
+        }
+        int decoded = ~ref;
+        int index = lane * tieTotal + (decoded >>> 1);
+        return (decoded & 1) != 0 ? loser[index] : winner[index];
+    }
+
+    /**
+     * Replaces references to ties of the previous round type with the clubs
+     * that went through, before the ties of the round are played.
+     */
+    private void resolveTies(int round) {
+        int base = plan.getTieBase(round);
+        int ties = plan.getTieCount(round);
+        for (int k = 0; k < activeLanes; k++) {
+            int offset = k * tieTotal + base;
+            for (int t = offset; t < offset + ties; t++) {
+                tieHome[t] = resolve(tieHome[t], k);
+                tieAway[t] = resolve(tieAway[t], k);
+            }
+        }
+    }
+
+    /**
+     * Registers the winner and loser of every tie in the round for the next
+     * rounds. Mirrors {@code QRound.regTiesForNextRounds}: a random selection of
+     * ties sends its loser past the secondary round when the round requires it.
+     */
+    private void forward(int round) {
+        int base = plan.getTieBase(round);
+        int ties = plan.getTieCount(round);
+        int primary = plan.getNextPrimary(round);
+        int secondary = plan.getNextSecondary(round);
+        int skipTarget = plan.getSkipTarget(round);
+        int skip = plan.getSkipCount(round);
+
+        for (int k = 0; k < activeLanes; k++) {
+            int primaryOffset = k * plan.getSlotCount(primary) + fill[primary];
+            for (int t = 0; t < ties; t++) {
+                slots[primary][primaryOffset + t] = tieRef(base + t, false);
+            }
+            if (secondary < 0) {
+                continue;
+            }
+            // Pick the ties whose losers skip the secondary round.
+            for (int t = 0; t < ties; t++) {
+                order[t] = t;
+            }
+            openStream(k, round, SKIP_STREAM);
+            for (int i = 0; i < skip; i++) {
+                int j = i + nextInt(ties - i);
+                int swap = order[i];
+                order[i] = order[j];
+                order[j] = swap;
+            }
+            if (skip > 0) {
+                int skipOffset = k * plan.getSlotCount(skipTarget) + fill[skipTarget];
+                for (int i = 0; i < skip; i++) {
+                    slots[skipTarget][skipOffset + i] = tieRef(base + order[i], true);
+                }
+            }
+            int secondaryOffset = k * plan.getSlotCount(secondary) + fill[secondary];
+            for (int i = skip; i < ties; i++) {
+                slots[secondary][secondaryOffset + i - skip] = tieRef(base + order[i], true);
+            }
+        }
+
+        fill[primary] += ties;
+        if (secondary >= 0) {
+            if (skip > 0) {
+                fill[skipTarget] += skip;
+            }
+            fill[secondary] += ties - skip;
+        }
+    }
+
+    /**
+     * Seeds and draws the round in every lane. Mirrors {@code QRound.seed} and
+     * {@code QRound.draw}: slots are sorted by ranking, the best half is seeded,
+     * and seeded clubs with at least one illegal opponent are drawn first.
+     */
+    private void seedDraw(int round) {
+        int n = plan.getSlotCount(round);
+        if (fill[round] != n) {
+            throw new IllegalStateException(plan.getRoundName(round) + " has " + fill[round] + " of " + n
+                    + " club slots filled.");
+        }
+        int[] roundSlots = slots[round];
+
+        for (int k = 0; k < activeLanes; k++) {
+            int offset = k * n;
+            for (int i = 0; i < n; i++) {
+                int ref = roundSlots[offset + i];
+                if (ref < 0 && played[tieRound[(~ref) >>> 1]]) {
+                    // The tie was played in an earlier round type; use the club directly.
+                    ref = resolve(ref, k);
+                    roundSlots[offset + i] = ref;
+                }
+                if (ref >= 0) {
+                    keys[i] = plan.getRanking(ref);
+                    countryA[i] = plan.getCountry(ref);
+                    countryB[i] = -1;
+                } else {
+                    int decoded = ~ref;
+                    int tie = k * tieTotal + (decoded >>> 1);
+                    float homeRanking = plan.getRanking(tieHome[tie]);
+                    float awayRanking = plan.getRanking(tieAway[tie]);
+                    keys[i] = (decoded & 1) != 0 ? Math.max(homeRanking, awayRanking)
+                            : Math.min(homeRanking, awayRanking);
+                    countryA[i] = plan.getCountry(tieHome[tie]);
+                    countryB[i] = plan.getCountry(tieAway[tie]);
+                }
+                order[i] = i;
+            }
+            sortOrderByKey(n);
+
+            openStream(k, round, DRAW_STREAM);
+            int attempts = 0;
+            while (!drawLane(round, k, offset, n)) {
+                // Drawing the constrained slots first can still leave a slot without a
+                // legal opponent. Draw the lane again, reading on in the same substream.
+                if (++attempts == MAX_DRAW_ATTEMPTS) {
+                    throw new IllegalStateException("No legal draw of " + plan.getRoundName(round) + " found in "
+                            + MAX_DRAW_ATTEMPTS + " attempts.");
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws the seeded slots of a round against the unseeded slots in one lane,
+     * with the slots sorted by the order array.
+     *
+     * @return false if a seeded slot was left without a legal opponent, in which
+     *         case the ties of the lane are incomplete.
+     */
+    private boolean drawLane(int round, int lane, int offset, int n) {
+        int half = n / 2;
+        int[] roundSlots = slots[round];
+        int remainingCount = n - half;
+        System.arraycopy(order, half, remaining, 0, remainingCount);
+        int tie = lane * tieTotal + plan.getTieBase(round);
+        int deferredCount = 0;
+
+        // First, draw opponents for seeded slots with at least one illegal opponent left.
+        for (int i = 0; i < half; i++) {
+            int seeded = order[i];
+            int legal = 0;
+            for (int j = 0; j < remainingCount; j++) {
+                if (!isIllegal(seeded, remaining[j])) {
+                    legal++;
+                }
+            }
+            if (legal == remainingCount) {
+                deferred[deferredCount++] = seeded;
+                continue;
+            }
+            if (legal == 0) {
+                return false;
+            }
+            int pick = nextInt(legal);
+            int j = 0;
+            while (isIllegal(seeded, remaining[j]) || pick-- > 0) {
+                j++;
+            }
+            int opponent = remaining[j];
+            remaining[j] = remaining[--remainingCount];
+            addTie(tie++, roundSlots[offset + seeded], roundSlots[offset + opponent]);
+        }
+        // Then, draw opponents for the remaining seeded slots.
+        for (int i = 0; i < deferredCount; i++) {
+            int j = nextInt(remainingCount);
+            int opponent = remaining[j];
+            remaining[j] = remaining[--remainingCount];
+            addTie(tie++, roundSlots[offset + deferred[i]], roundSlots[offset + opponent]);
+        }
+        return true;
+    }
+
+    private void addTie(int tie, int seeded, int unseeded) {
+        if (nextInt(2) == 0) {
+            tieHome[tie] = seeded;
+            tieAway[tie] = unseeded;
+        } else {
+            tieHome[tie] = unseeded;
+            tieAway[tie] = seeded;
+        }
+    }
+
+    /**
+     * Starts reading the substream of a decision point of a round in a lane.
+     */
+    private void openStream(int lane, int round, int decision) {
+        streamKey = CounterRandom.substream(laneKey[lane], round * STREAMS_PER_ROUND + decision);
+        streamCounter = 0;
+    }
+
+    /**
+     * Returns the next number of the open substream, uniform in [0, bound).
+     */
+    private int nextInt(int bound) {
+        return CounterRandom.nextInt(streamKey, streamCounter++, bound);
+    }
+
+    /**
+     * Checks if two slots of the lane currently being drawn may not meet.
+     */
+    private boolean isIllegal(int slot1, int slot2) {
+        int a1 = countryA[slot1];
+        int b1 = countryB[slot1];
+        int a2 = countryA[slot2];
+        int b2 = countryB[slot2];
+        return plan.isIllegalCountryPair(a1, a2)
+                || (b2 >= 0 && plan.isIllegalCountryPair(a1, b2))
+                || (b1 >= 0 && (plan.isIllegalCountryPair(b1, a2)
+                        || (b2 >= 0 && plan.isIllegalCountryPair(b1, b2))));
+    }
+
+    /**
+     * Stable insertion sort of the first n entries of the order array by key.
+     * Rounds hold at most a few dozen slots, where this beats a general sort.
+     */
+    private void sortOrderByKey(int n) {
+        for (int i = 1; i < n; i++) {
+            int slot = order[i];
+            float key = keys[slot];
+            int j = i - 1;
+            while (j >= 0 && keys[order[j]] > key) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = slot;
+        }
+    }
+
+    /**
+     * Plays both legs of every tie in the round for all lanes. The four goal
+     * counts of a tie (each club in each leg) are sampled in one pass over the
+     * round, and a level aggregate is settled by a coin flip, as in
+     * {@code DoubleLeggedTie}.
+     */
+    private void play(int round) {
+        if (tieProbabilities != null) {
+            playFastOutcome(round);
+            return;
+        }
+        int base = plan.getTieBase(round);
+        int ties = plan.getTieCount(round);
+        // Samples are laid out in four blocks of one entry per tie: the home club
+        // in leg 1, the away club in leg 1, the home club in leg 2 and the away
+        // club in leg 2. Counter 4 * base + i is unique to each sample of the round.
+        int samples = 4 * ties;
+        for (int k = 0; k < activeLanes; k++) {
+            goalSampler.sample(goalTable, laneKey[k], 4 * base, samples, legRows, 0, legGoals, 0);
+            long shootoutKey = CounterRandom.substream(laneKey[k], round * STREAMS_PER_ROUND + SHOOTOUT_STREAM);
+            int offset = k * tieTotal + base;
+            // The first-leg home club is the away club in leg 2, and vice versa.
+            for (int t = 0; t < ties; t++) {
+                homeGoals[offset + t] = legGoals[t] + legGoals[3 * ties + t];
+                awayGoals[offset + t] = legGoals[ties + t] + legGoals[2 * ties + t];
+            }
+            for (int i = 0; i < ties; i++) {
+                int t = offset + i;
+                // Shootouts read the substream at the tie's position, so they do not
+                // depend on how many other ties of the round went to a shootout.
+                boolean homeWins = homeGoals[t] > awayGoals[t]
+                        || (homeGoals[t] == awayGoals[t] && CounterRandom.nextInt(shootoutKey, i, 2) == 0);
+                winner[t] = homeWins ? tieHome[t] : tieAway[t];
+                loser[t] = homeWins ? tieAway[t] : tieHome[t];
+            }
+        }
+        played[round] = true;
+    }
+
+    /**
+     * Settles the ties of a round with one uniform number each, using the
+     * counter of the tie's first sample in {@link #play(int)}.
+     */
+    private void playFastOutcome(int round) {
+        int base = plan.getTieBase(round);
+        int ties = plan.getTieCount(round);
+        for (int k = 0; k < activeLanes; k++) {
+            int offset = k * tieTotal + base;
+            for (int i = 0; i < ties; i++) {
+                int t = offset + i;
+                float u = CounterRandom.uniform(laneKey[k], 4 * (base + i));
+                double p = tieProbabilities.club1Advances(tieHome[t], tieAway[t]);
+                boolean homeWins;
+                if (isTarget != null && isTarget[tieHome[t]] != isTarget[tieAway[t]]) {
+                    // Tilt the tie towards the target club, and weigh the outcome by
+                    // its true probability over its tilted probability.
+                    boolean homeIsTarget = isTarget[tieHome[t]];
+                    double tilted = Math.max(homeIsTarget ? p : 1 - p, targetAdvances);
+                    double q = homeIsTarget ? tilted : 1 - tilted;
+                    homeWins = u < q;
+                    weight[k] *= homeWins ? p / q : (1 - p) / (1 - q);
+                } else {
+                    homeWins = u < p;
+                }
+                homeGoals[t] = -1;
+                awayGoals[t] = -1;
+                winner[t] = homeWins ? tieHome[t] : tieAway[t];
+                loser[t] = homeWins ? tieAway[t] : tieHome[t];
+            }
+        }
+        played[round] = true;
+    }
+}
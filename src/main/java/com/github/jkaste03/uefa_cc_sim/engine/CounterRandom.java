@@ -0,0 +1,117 @@
+package com.github.jkaste03.uefa_cc_sim.engine;
+
+/**
+ * Counter-based random numbers for the batch engine.
+ * <p>
+ * A random number is a pure function of a key and a counter, so any number in
+ * a stream can be computed directly and in any order, without state. That
+ * lets the same numbers be generated one at a time by scalar code and many at
+ * a time in vector lanes, and makes every iteration reproducible from the
+ * master seed and its iteration index alone.
+ * <p>
+ * Keys are 64 bits wide, so the streams of distinct iterations do not
+ * collide in any realistic run. The number at a position is the SplitMix64
+ * finalizer applied to the key xored with the mixed counter, so two keys give
+ * unrelated streams however close they are, rather than shifted copies of one
+ * sequence.
+ */
+public final class CounterRandom {
+    static final long MIX_MULTIPLIER_1 = 0xbf58476d1ce4e5b9L;
+    static final long MIX_MULTIPLIER_2 = 0x94d049bb133111ebL;
+    /**
+     * Scales the top 24 bits of a mixed value into [0, 1).
+     */
+    static final float FLOAT_UNIT = 0x1.0p-24f;
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private CounterRandom() {
+    }
+
+    /**
+     * Derives the key of an iteration's random stream from the master seed and
+     * the iteration index.
+     *
+     * @param seed      the master seed.
+     * @param iteration the iteration index.
+     * @return the key of the iteration's stream.
+     */
+    public static long key(long seed, long iteration) {
+        return iterationSeed(seed, iteration);
+    }
+
+    /**
+     * Derives the 64-bit seed of an iteration from the master seed and the
+     * iteration index, for generators that are seeded rather than keyed, such as
+     * the one of the {@code Rounds} object model.
+     *
+     * @param seed      the master seed.
+     * @param iteration the iteration index.
+     * @return the seed of the iteration.
+     */
+    public static long iterationSeed(long seed, long iteration) {
+        return mix64(seed + mix64(iteration));
+    }
+
+    /**
+     * Returns the uniform number at a position in a stream.
+     *
+     * @param key     the key of the stream.
+     * @param counter the position in the stream, must not be negative.
+     * @return a uniform number in [0, 1) with 24 bits of precision.
+     */
+    public static float uniform(long key, int counter) {
+        return (int) (at(key, counter) >>> 40) * FLOAT_UNIT;
+    }
+
+    /**
+     * Derives the key of a substream of an iteration's stream. Each decision
+     * point of an iteration (e.g. the draw of a round) reads its own substream,
+     * so the numbers it gets do not depend on how many numbers other decision
+     * points used.
+     *
+     * @param key    the key of the iteration's stream.
+     * @param stream the index of the substream.
+     * @return the key of the substream.
+     */
+    public static long substream(long key, int stream) {
+        // Substreams are numbered from -1 down, so their keys are never a number
+        // of the stream itself, whose counters are not negative
+        return mix64(key ^ mix64(-1L - stream));
+    }
+
+    /**
+     * Returns the integer at a position in a stream, uniform in [0, bound). The
+     * top 32 bits of the mixed value are scaled to the bound, so the bias is at
+     * most bound / 2^32.
+     *
+     * @param key     the key of the stream.
+     * @param counter the position in the stream, must not be negative.
+     * @param bound   the upper bound (exclusive), must be positive.
+     * @return a number in [0, bound).
+     */
+    public static int nextInt(long key, int counter, int bound) {
+        return (int) (((at(key, counter) >>> 32) * bound) >>> 32);
+    }
+
+    /**
+     * Returns the mixed 64-bit value at a position in a stream.
+     */
+    private static long at(long key, int counter) {
+        return mix64(key ^ mix64(counter));
+    }
+
+    /**
+     * The SplitMix64 finalizer, used to derive well-spread seeds from the master
+     * seed and consecutive iteration indices, and to mix keys with counters.
+     *
+     * @param z the value to mix.
+     * @return the mixed value.
+     */
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * MIX_MULTIPLIER_1;
+        z = (z ^ (z >>> 27)) * MIX_MULTIPLIER_2;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.jkaste03.uefa_cc_sim.engine;
+
+/**
+ * Samples goals for many legs at once from a {@link GoalTable}.
+ * <p>
+ * This is the scalar implementation. When the {@code jdk.incubator.vector}
+ * module is available, {@link #create()} returns a {@code VectorGoalSampler}
+ * that produces exactly the same goals using vector lanes. The vector class
+ * is only compiled by the {@code vector} Maven profile and only loaded in
+ * that case, so the engine runs unchanged on a JVM started without
+ * {@code --add-modules jdk.incubator.vector}.
+ */
+public class GoalSampler {
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_SAMPLER = "com.github.jkaste03.uefa_cc_sim.engine.VectorGoalSampler";
+
+    /**
+     * Returns the fastest sampler available in this JVM.
+     *
+     * @return a vector sampler if the Vector API module is available, otherwise
+     *         a scalar sampler.
+     */
+    public static GoalSampler create() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            try {
+                return (GoalSampler) Class.forName(VECTOR_SAMPLER).getDeclaredConstructor().newInstance();
+            } catch (ClassNotFoundException e) {
+                // Built without the vector profile
+            } catch (ReflectiveOperationException | LinkageError e) {
+                System.err.println("Could not load the vector goal sampler: " + e);
+            }
+        }
+        return new GoalSampler();
+    }
+
+    /**
+     * Samples goals for a run of consecutive positions in a random stream.
+     * Position {@code i} uses the uniform number at counter
+     * {@code counterBase + i} and the goal distribution in row
+     * {@code rows[rowOffset + i]}.
+     *
+     * @param table       the goal distributions.
+     * @param key         the key of the random stream.
+     * @param counterBase the counter of the first position.
+     * @param count       the number of positions to sample.
+     * @param rows        the goal table row of each position. Ignored when the
+     *                    table has a single row.
+     * @param rowOffset   the index of the first position in rows.
+     * @param goals       the array receiving the goals.
+     * @param goalsOffset the index of the first position in goals.
+     */
+    public void sample(GoalTable table, long key, int counterBase, int count, int[] rows, int rowOffset,
+            int[] goals, int goalsOffset) {
+        sampleScalar(table, key, counterBase, 0, count, rows, rowOffset, goals, goalsOffset);
+    }
+
+    /**
+     * Samples positions {@code from} to {@code to} (exclusive) one at a time.
+     */
+    protected static void sampleScalar(GoalTable table, long key, int counterBase, int from, int to, int[] rows,
+            int rowOffset, int[] goals, int goalsOffset) {
+        boolean singleRow = table.getRowCount() == 1;
+        for (int i = from; i < to; i++) {
+            float u = CounterRandom.uniform(key, counterBase + i);
+            goals[goalsOffset + i] = table.lookup(singleRow ? 0 : rows[rowOffset + i], u);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.github.jkaste03.uefa_cc_sim.engine;
+
+/**
+ * Goal distributions for one club in one leg, stored as rows of a cumulative
+ * distribution table.
+ * <p>
+ * Each row describes the number of goals a club scores in a leg, from 0 up to
+ * {@link #getMaxGoals()}. Row {@code r} holds {@code P(goals <= g)} for
+ * {@code g = 0 .. maxGoals - 1} at {@code cdf[r * maxGoals + g]}; the last
+ * entry, which is always 1, is left out. A uniform number {@code u} in [0, 1)
+ * is turned into goals by counting the entries of the row that are at most
+ * {@code u}, which needs no branches and works the same in vector lanes.
+ */
+public class GoalTable {
+    private final float[] cdf;
+    private final int maxGoals;
+    private final int rowCount;
+
+    /**
+     * Constructs a goal table from the probability of each number of goals.
+     *
+     * @param pmfRows one row per distribution, where {@code pmfRows[r][g]} is the
+     *                probability of scoring g goals. All rows must have the same
+     *                length.
+     */
+    public GoalTable(double[][] pmfRows) {
+        rowCount = pmfRows.length;
+        maxGoals = pmfRows[0].length - 1;
+        cdf = new float[rowCount * maxGoals];
+        for (int r = 0; r < rowCount; r++) {
+            if (pmfRows[r].length != maxGoals + 1) {
+                throw new IllegalArgumentException("All goal distributions must have the same length.");
+            }
+            double cumulative = 0;
+            for (int g = 0; g < maxGoals; g++) {
+                cumulative += pmfRows[r][g];
+                cdf[r * maxGoals + g] = (float) cumulative;
+            }
+        }
+    }
+
+    /**
+     * Returns a table with a single row where every number of goals from 0 to
+     * maxGoals is equally likely. With maxGoals 3, this is the distribution used
+     * by {@code Tie.genScoreline}.
+     *
+     * @param maxGoals the highest number of goals.
+     * @return the goal table.
+     */
+    public static GoalTable uniform(int maxGoals) {
+        double[] pmf = new double[maxGoals + 1];
+        for (int g = 0; g <= maxGoals; g++) {
+            pmf[g] = 1.0 / (maxGoals + 1);
+        }
+        return new GoalTable(new double[][] { pmf });
+    }
+
+    /**
+     * Returns the flattened cumulative distribution table, laid out as
+     * {@code [row * maxGoals + goals]}. The array must not be modified.
+     *
+     * @return the cumulative distribution table.
+     */
+    public float[] getCdf() {
+        return cdf;
+    }
+
+    public int getMaxGoals() {
+        return maxGoals;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Returns the probability of scoring exactly the given number of goals.
+     *
+     * @param row   the row of the distribution.
+     * @param goals the number of goals.
+     * @return the probability of the number of goals.
+     */
+    public double getProbability(int row, int goals) {
+        if (goals < 0 || goals > maxGoals) {
+            return 0.0;
+        }
+        double upper = goals == maxGoals ? 1.0 : cdf[row * maxGoals + goals];
+        double lower = goals == 0 ? 0.0 : cdf[row * maxGoals + goals - 1];
+        return upper - lower;
+    }
+
+    /**
+     * Looks up the number of goals for a uniform number in a row.
+     *
+     * @param row the row of the distribution.
+     * @param u   a uniform number in [0, 1).
+     * @return the number of goals.
+     */
+    public int lookup(int row, float u) {
+        int offset = row * maxGoals;
+        int goals = 0;
+        for (int g = 0; g < maxGoals; g++) {
+            goals += u >= cdf[offset + g] ? 1 : 0;
+        }
+        return goals;
+    }
+}
@@ -0,0 +1,281 @@
+package com.github.jkaste03.uefa_cc_sim.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fits the parameters of a {@link MatchModel} to historical results by
+ * maximizing their log-likelihood.
+ * <p>
+ * The matches are kept in primitive arrays of the rating difference and the
+ * goals of each club. The log-likelihood of a candidate model is summed over
+ * them on a {@link ForkJoinPool}, splitting the matches in halves until a part
+ * is small enough to sum on one thread. The log-likelihood has no usable
+ * derivatives in closed form for all parameters together, so it is maximized
+ * with the derivative-free Nelder-Mead simplex method.
+ * <p>
+ * A calibrator owns its pool, so it must be closed once it is no longer used.
+ */
+public class MatchCalibrator implements AutoCloseable {
+    // Parts of at most this many matches are summed without splitting further.
+    private static final int SPLIT_THRESHOLD = 2048;
+    private static final int MAX_EVALUATIONS = 2000;
+    private static final double TOLERANCE = 1e-9;
+    // The initial step of each parameter of the simplex: home advantage, goal
+    // rate per Elo point, log base goal rate and shootout bias.
+    private static final double[] INITIAL_STEPS = { 20, 0.001, 0.1, 0.05 };
+
+    private final ForkJoinPool pool;
+    private float[] ratingDifferences = new float[64];
+    private int[] homeGoals = new int[64];
+    private int[] awayGoals = new int[64];
+    private int matchCount;
+    private int shootouts;
+    private int shootoutHomeWins;
+    private int evaluations;
+
+    /**
+     * Constructs a calibrator without matches.
+     *
+     * @param parallelism the number of threads to sum the log-likelihood on.
+     */
+    public MatchCalibrator(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Adds the result of a match.
+     *
+     * @param homeRating the Elo rating of the home club on the match day.
+     * @param awayRating the Elo rating of the away club on the match day.
+     * @param homeGoals  the goals of the home club.
+     * @param awayGoals  the goals of the away club.
+     */
+    public void addMatch(float homeRating, float awayRating, int homeGoals, int awayGoals) {
+        if (matchCount == ratingDifferences.length) {
+            ratingDifferences = Arrays.copyOf(ratingDifferences, matchCount * 2);
+            this.homeGoals = Arrays.copyOf(this.homeGoals, matchCount * 2);
+            this.awayGoals = Arrays.copyOf(this.awayGoals, matchCount * 2);
+        }
+        ratingDifferences[matchCount] = homeRating - awayRating;
+        this.homeGoals[matchCount] = homeGoals;
+        this.awayGoals[matchCount] = awayGoals;
+        matchCount++;
+    }
+
+    /**
+     * Adds the result of a penalty shootout.
+     *
+     * @param homeWon true if the club playing the second leg at home won it.
+     */
+    public void addShootout(boolean homeWon) {
+        shootouts++;
+        if (homeWon) {
+            shootoutHomeWins++;
+        }
+    }
+
+    public int getMatchCount() {
+        return matchCount;
+    }
+
+    public int getShootoutCount() {
+        return shootouts;
+    }
+
+    /**
+     * Returns the number of times the log-likelihood was evaluated by the last
+     * call to {@link #calibrate(MatchModel)}.
+     *
+     * @return the number of evaluations.
+     */
+    public int getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * Returns the log-likelihood of the matches and shootouts under a model.
+     *
+     * @param model the model.
+     * @return the log-likelihood.
+     */
+    public double logLikelihood(MatchModel model) {
+        double goals = pool.invoke(new LogLikelihoodTask(model, 0, matchCount));
+        double homeWin = model.shootoutHomeWin();
+        double shootoutTerm = (shootoutHomeWins > 0 ? shootoutHomeWins * Math.log(homeWin) : 0)
+                + (shootouts > shootoutHomeWins ? (shootouts - shootoutHomeWins) * Math.log(1 - homeWin) : 0);
+        return goals + shootoutTerm;
+    }
+
+    /**
+     * Shuts down the threads the log-likelihood is summed on, waiting for a sum
+     * in progress to finish.
+     */
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    /**
+     * Finds the model of the highest log-likelihood with the Nelder-Mead method,
+     * starting from a model.
+     *
+     * @param start the model to start from.
+     * @return the fitted model.
+     * @throws IllegalStateException if there are no matches.
+     */
+    public MatchModel calibrate(MatchModel start) {
+        if (matchCount == 0) {
+            throw new IllegalStateException("There are no matches to calibrate on.");
+        }
+        evaluations = 0;
+        int n = INITIAL_STEPS.length;
+        double[][] simplex = new double[n + 1][];
+        double[] values = new double[n + 1];
+        simplex[0] = toParameters(start);
+        for (int i = 0; i < n; i++) {
+            simplex[i + 1] = simplex[0].clone();
+            simplex[i + 1][i] += INITIAL_STEPS[i];
+        }
+        for (int i = 0; i <= n; i++) {
+            values[i] = cost(simplex[i]);
+        }
+
+        Integer[] order = new Integer[n + 1];
+        while (evaluations < MAX_EVALUATIONS) {
+            // Order the vertices from best to worst.
+            for (int i = 0; i <= n; i++) {
+                order[i] = i;
+            }
+            double[] sortValues = values;
+            Arrays.sort(order, (a, b) -> Double.compare(sortValues[a], sortValues[b]));
+            double[][] sortedSimplex = new double[n + 1][];
+            double[] sortedValues = new double[n + 1];
+            for (int i = 0; i <= n; i++) {
+                sortedSimplex[i] = simplex[order[i]];
+                sortedValues[i] = values[order[i]];
+            }
+            simplex = sortedSimplex;
+            values = sortedValues;
+            if (Math.abs(values[n] - values[0]) <= TOLERANCE * (Math.abs(values[0]) + TOLERANCE)) {
+                break;
+            }
+
+            double[] centroid = new double[n];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    centroid[j] += simplex[i][j] / n;
+                }
+            }
+            double[] reflected = step(centroid, simplex[n], 1);
+            double reflectedValue = cost(reflected);
+            if (reflectedValue < values[0]) {
+                double[] expanded = step(centroid, simplex[n], 2);
+                double expandedValue = cost(expanded);
+                if (expandedValue < reflectedValue) {
+                    simplex[n] = expanded;
+                    values[n] = expandedValue;
+                } else {
+                    simplex[n] = reflected;
+                    values[n] = reflectedValue;
+                }
+            } else if (reflectedValue < values[n - 1]) {
+                simplex[n] = reflected;
+                values[n] = reflectedValue;
+            } else {
+                // Contract towards the better of the worst vertex and its reflection.
+                boolean outside = reflectedValue < values[n];
+                double[] contracted = step(centroid, simplex[n], outside ? 0.5 : -0.5);
+                double contractedValue = cost(contracted);
+                if (contractedValue < Math.min(reflectedValue, values[n])) {
+                    simplex[n] = contracted;
+                    values[n] = contractedValue;
+                } else {
+                    // Shrink all vertices towards the best one.
+                    for (int i = 1; i <= n; i++) {
+                        for (int j = 0; j < n; j++) {
+                            simplex[i][j] = simplex[0][j] + 0.5 * (simplex[i][j] - simplex[0][j]);
+                        }
+                        values[i] = cost(simplex[i]);
+                    }
+                }
+            }
+        }
+
+        int best = 0;
+        for (int i = 1; i <= n; i++) {
+            if (values[i] < values[best]) {
+                best = i;
+            }
+        }
+        return toModel(simplex[best]);
+    }
+
+    /**
+     * Returns the point {@code centroid + coefficient * (centroid - worst)}.
+     */
+    private static double[] step(double[] centroid, double[] worst, double coefficient) {
+        double[] point = new double[centroid.length];
+        for (int j = 0; j < point.length; j++) {
+            point[j] = centroid[j] + coefficient * (centroid[j] - worst[j]);
+        }
+        return point;
+    }
+
+    /**
+     * Returns the negative log-likelihood of a parameter vector, or infinity if
+     * the parameters are not a valid model.
+     */
+    private double cost(double[] parameters) {
+        evaluations++;
+        if (!(Math.abs(parameters[3]) < 0.5)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double logLikelihood = logLikelihood(toModel(parameters));
+        return Double.isNaN(logLikelihood) ? Double.POSITIVE_INFINITY : -logLikelihood;
+    }
+
+    // The base goal rate is optimized on a log scale, so it stays positive.
+    private static double[] toParameters(MatchModel model) {
+        return new double[] { model.getHomeAdvantage(), model.getGoalRatePerEloPoint(),
+                Math.log(model.getBaseGoalRate()), model.getShootoutHomeBias() };
+    }
+
+    private static MatchModel toModel(double[] parameters) {
+        return new MatchModel(parameters[0], parameters[1], Math.exp(parameters[2]), parameters[3]);
+    }
+
+    /**
+     * Sums the log-likelihood of the goals of a range of matches, splitting the
+     * range in halves while it is large.
+     */
+    private final class LogLikelihoodTask extends RecursiveTask<Double> {
+        private final MatchModel model;
+        private final int from;
+        private final int to;
+
+        LogLikelihoodTask(MatchModel model, int from, int to) {
+            this.model = model;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Double compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                double sum = 0;
+                for (int m = from; m < to; m++) {
+                    sum += MatchModel.logPoisson(homeGoals[m], model.goalRate(ratingDifferences[m], 0, true))
+                            + MatchModel.logPoisson(awayGoals[m], model.goalRate(0, ratingDifferences[m], false));
+                }
+                return sum;
+            }
+            int middle = (from + to) >>> 1;
+            LogLikelihoodTask left = new LogLikelihoodTask(model, from, middle);
+            left.fork();
+            double right = new LogLikelihoodTask(model, middle, to).compute();
+            return left.join() + right;
+        }
+    }
+}
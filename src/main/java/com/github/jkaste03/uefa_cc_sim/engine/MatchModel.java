@@ -0,0 +1,203 @@
+package com.github.jkaste03.uefa_cc_sim.engine;
+
+import java.io.Serializable;
+import java.util.Random;
+
+/**
+ * A match model where the goals of each club in a leg are Poisson distributed
+ * with a rate set by the Elo ratings of both clubs.
+ * <p>
+ * The goal rate of a club is {@code baseGoalRate * exp(goalRatePerEloPoint * d)},
+ * where {@code d} is its rating minus the rating of its opponent, plus the
+ * home advantage for the home club and minus it for the away club. A level
+ * aggregate goes to a penalty shootout that the club playing the second leg
+ * at home wins with probability {@code 0.5 + shootoutHomeBias}.
+ * <p>
+ * The parameters are fitted to historical results by {@link MatchCalibrator}.
+ * A model is immutable.
+ */
+public final class MatchModel implements Serializable {
+    // Goals above this are not sampled; the chance of more is negligible.
+    private static final int MAX_GOALS = 15;
+    // log(g!) for the goals of a leg, so the likelihood needs no loop.
+    private static final double[] LOG_FACTORIAL = new double[32];
+
+    static {
+        for (int g = 2; g < LOG_FACTORIAL.length; g++) {
+            LOG_FACTORIAL[g] = LOG_FACTORIAL[g - 1] + Math.log(g);
+        }
+    }
+
+    private final double homeAdvantage;
+    private final double goalRatePerEloPoint;
+    private final double baseGoalRate;
+    private final double shootoutHomeBias;
+
+    /**
+     * Constructs a match model.
+     *
+     * @param homeAdvantage       the Elo points the home club is rated up by.
+     * @param goalRatePerEloPoint the change of the log goal rate per Elo point of
+     *                            difference.
+     * @param baseGoalRate        the goal rate of a club against an equal
+     *                            opponent on neutral ground, above 0.
+     * @param shootoutHomeBias    the probability above 0.5 that the second-leg
+     *                            home club wins a shootout, between -0.5 and 0.5.
+     */
+    public MatchModel(double homeAdvantage, double goalRatePerEloPoint, double baseGoalRate,
+            double shootoutHomeBias) {
+        if (!(baseGoalRate > 0) || !(Math.abs(shootoutHomeBias) <= 0.5)) {
+            throw new IllegalArgumentException(
+                    "The base goal rate must be positive and the shootout bias within 0.5.");
+        }
+        this.homeAdvantage = homeAdvantage;
+        this.goalRatePerEloPoint = goalRatePerEloPoint;
+        this.baseGoalRate = baseGoalRate;
+        this.shootoutHomeBias = shootoutHomeBias;
+    }
+
+    public double getHomeAdvantage() {
+        return homeAdvantage;
+    }
+
+    public double getGoalRatePerEloPoint() {
+        return goalRatePerEloPoint;
+    }
+
+    public double getBaseGoalRate() {
+        return baseGoalRate;
+    }
+
+    public double getShootoutHomeBias() {
+        return shootoutHomeBias;
+    }
+
+    /**
+     * Returns the expected goals of a club in a leg.
+     *
+     * @param rating         the Elo rating of the club.
+     * @param opponentRating the Elo rating of the opponent.
+     * @param home           true if the club plays at home.
+     * @return the goal rate.
+     */
+    public double goalRate(double rating, double opponentRating, boolean home) {
+        double difference = rating - opponentRating + (home ? homeAdvantage : -homeAdvantage);
+        return baseGoalRate * Math.exp(goalRatePerEloPoint * difference);
+    }
+
+    /**
+     * Returns the probability that the club playing the second leg at home wins
+     * a penalty shootout.
+     *
+     * @return the probability.
+     */
+    public double shootoutHomeWin() {
+        return 0.5 + shootoutHomeBias;
+    }
+
+    /**
+     * Returns the exact probability that a club advances from a double-legged
+     * tie it starts at home, as the tie is played by {@code DoubleLeggedTie}:
+     * the Poisson goals of both legs are convolved into the distribution of
+     * aggregate goals of each club, with goals capped like
+     * {@link #sampleGoals(Random, double)}, and a level aggregate is settled by
+     * the shootout model.
+     *
+     * @param rating1 the Elo rating of the club playing the first leg at home.
+     * @param rating2 the Elo rating of the club playing the second leg at home.
+     * @return the probability that the first club advances.
+     */
+    public double club1Advances(double rating1, double rating2) {
+        double[] goals1 = aggregate(goalRate(rating1, rating2, true), goalRate(rating1, rating2, false));
+        double[] goals2 = aggregate(goalRate(rating2, rating1, false), goalRate(rating2, rating1, true));
+
+        // P(goals1 > goals2) + P(goals1 == goals2) * P(club 1 wins the shootout)
+        double win = 0;
+        double level = 0;
+        double below = 0; // P(goals2 < g1), accumulated as g1 grows
+        for (int g1 = 0; g1 < goals1.length; g1++) {
+            win += goals1[g1] * below;
+            level += goals1[g1] * goals2[g1];
+            below += goals2[g1];
+        }
+        return win + level * (1.0 - shootoutHomeWin());
+    }
+
+    /**
+     * Convolves the goals of a club in two legs into the distribution of its
+     * aggregate goals.
+     */
+    private static double[] aggregate(double rateLeg1, double rateLeg2) {
+        double[] leg1 = goalDistribution(rateLeg1);
+        double[] leg2 = goalDistribution(rateLeg2);
+        double[] result = new double[2 * MAX_GOALS + 1];
+        for (int a = 0; a <= MAX_GOALS; a++) {
+            for (int b = 0; b <= MAX_GOALS; b++) {
+                result[a + b] += leg1[a] * leg2[b];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the distribution of the goals of a club in a leg, with the chance
+     * of more than the goals sampled added to the most goals sampled.
+     */
+    private static double[] goalDistribution(double rate) {
+        double[] distribution = new double[MAX_GOALS + 1];
+        double p = Math.exp(-rate);
+        double cumulative = 0;
+        for (int g = 0; g < MAX_GOALS; g++) {
+            distribution[g] = p;
+            cumulative += p;
+            p *= rate / (g + 1);
+        }
+        distribution[MAX_GOALS] = Math.max(0, 1 - cumulative);
+        return distribution;
+    }
+
+    /**
+     * Samples the goals of a club in a leg by inverting the Poisson distribution
+     * with one uniform number.
+     *
+     * @param random the random numbers to sample with.
+     * @param rate   the goal rate.
+     * @return the goals, at most 15.
+     */
+    public static int sampleGoals(Random random, double rate) {
+        double u = random.nextDouble();
+        double p = Math.exp(-rate);
+        double cumulative = p;
+        int goals = 0;
+        while (u >= cumulative && goals < MAX_GOALS) {
+            goals++;
+            p *= rate / goals;
+            cumulative += p;
+        }
+        return goals;
+    }
+
+    /**
+     * Returns the log-probability of the goals of a club under a Poisson rate.
+     *
+     * @param goals the goals scored.
+     * @param rate  the goal rate.
+     * @return the log-probability.
+     */
+    public static double logPoisson(int goals, double rate) {
+        double logProbability = goals * Math.log(rate) - rate;
+        if (goals < LOG_FACTORIAL.length) {
+            return logProbability - LOG_FACTORIAL[goals];
+        }
+        for (int g = 2; g <= goals; g++) {
+            logProbability -= Math.log(g);
+        }
+        return logProbability;
+    }
+
+    @Override
+    public String toString() {
+        return "MatchModel [homeAdvantage=" + homeAdvantage + ", goalRatePerEloPoint=" + goalRatePerEloPoint
+                + ", baseGoalRate=" + baseGoalRate + ", shootoutHomeBias=" + shootoutHomeBias + "]";
+    }
+}
@@ -0,0 +1,132 @@
+package com.github.jkaste03.uefa_cc_sim.engine;
+
+import java.util.List;
+
+import com.github.jkaste03.uefa_cc_sim.model.ClubIdWrapper;
+import com.github.jkaste03.uefa_cc_sim.model.ClubSlot;
+import com.github.jkaste03.uefa_cc_sim.model.DoubleLeggedTieWrapper;
+import com.github.jkaste03.uefa_cc_sim.model.Tie;
+
+/**
+ * Counts how often each pair of clubs is drawn against each other, per round,
+ * over a number of draws.
+ * <p>
+ * Each round has a dense clubs x clubs matrix of counts, and a pairing is
+ * counted in both directions, so the matrix of a round is symmetric. A club
+ * slot referring to a tie counts as the club that went through, or as both
+ * clubs of the tie if it has not been played.
+ * <p>
+ * A matrix is not thread-safe. Each worker keeps its own matrix, and the
+ * matrices are merged once the workers are done.
+ */
+public class PairingMatrix {
+    private final int clubCount;
+    private final int[][] counts;
+    private final long[] draws;
+    // Scratch arrays for the club ids of the two slots of a tie.
+    private final int[] homeIds;
+    private final int[] awayIds;
+
+    /**
+     * Constructs an empty matrix.
+     *
+     * @param roundCount the number of rounds, indexed as in {@code Rounds}.
+     * @param clubCount  the size of the club id space.
+     */
+    public PairingMatrix(int roundCount, int clubCount) {
+        this.clubCount = clubCount;
+        counts = new int[roundCount][];
+        draws = new long[roundCount];
+        homeIds = new int[clubCount];
+        awayIds = new int[clubCount];
+    }
+
+    /**
+     * Records the ties of one draw of a round.
+     *
+     * @param round the round index.
+     * @param ties  the ties drawn.
+     */
+    public void record(int round, List<Tie> ties) {
+        int[] matrix = counts[round];
+        if (matrix == null) {
+            matrix = new int[clubCount * clubCount];
+            counts[round] = matrix;
+        }
+        for (Tie tie : ties) {
+            int homeCount = collectIds(tie.getClubSlot1(), homeIds, 0);
+            int awayCount = collectIds(tie.getClubSlot2(), awayIds, 0);
+            for (int i = 0; i < homeCount; i++) {
+                for (int j = 0; j < awayCount; j++) {
+                    matrix[homeIds[i] * clubCount + awayIds[j]]++;
+                    matrix[awayIds[j] * clubCount + homeIds[i]]++;
+                }
+            }
+        }
+        draws[round]++;
+    }
+
+    /**
+     * Adds the club ids a club slot stands for to the array.
+     *
+     * @return the number of ids in the array.
+     */
+    private static int collectIds(ClubSlot clubSlot, int[] ids, int count) {
+        if (clubSlot instanceof ClubIdWrapper club) {
+            ids[count++] = club.getId();
+        } else if (clubSlot instanceof DoubleLeggedTieWrapper wrapper) {
+            ClubSlot correctClub = wrapper.getCorrectClub();
+            if (correctClub != null) {
+                count = collectIds(correctClub, ids, count);
+            } else {
+                count = collectIds(wrapper.getTie().getClubSlot1(), ids, count);
+                count = collectIds(wrapper.getTie().getClubSlot2(), ids, count);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Adds all counts of another matrix of the same size to this matrix.
+     *
+     * @param other the matrix to merge into this one.
+     */
+    public void merge(PairingMatrix other) {
+        for (int r = 0; r < counts.length; r++) {
+            if (other.counts[r] == null) {
+                continue;
+            }
+            if (counts[r] == null) {
+                counts[r] = new int[clubCount * clubCount];
+            }
+            int[] matrix = counts[r];
+            int[] otherMatrix = other.counts[r];
+            for (int i = 0; i < matrix.length; i++) {
+                matrix[i] += otherMatrix[i];
+            }
+            draws[r] += other.draws[r];
+        }
+    }
+
+    public int getCount(int round, int clubId1, int clubId2) {
+        return counts[round] == null ? 0 : counts[round][clubId1 * clubCount + clubId2];
+    }
+
+    public long getDraws(int round) {
+        return draws[round];
+    }
+
+    /**
+     * Returns the share of draws of the round in which the two clubs were drawn
+     * against each other.
+     *
+     * @param round   the round index.
+     * @param clubId1 the id of the first club.
+     * @param clubId2 the id of the second club.
+     * @return the estimated probability of the pairing, or 0 if the round has not
+     *         been drawn.
+     */
+    public double getProbability(int round, int clubId1, int clubId2) {
+        return draws[round] == 0 ? 0.0 : (double) getCount(round, clubId1, clubId2) / draws[round];
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.jkaste03.uefa_cc_sim.engine;
+
+/**
+ * Counts how often each club reaches each round over a number of simulated
+ * iterations.
+ * <p>
+ * A counter is not thread-safe. Each worker keeps its own counter, and the
+ * counters are merged once the workers are done.
+ */
+public class ReachCounter {
+    private final long[][] counts;
+    private long iterations;
+
+    /**
+     * Constructs an empty counter covering all rounds and clubs of the plan.
+     *
+     * @param plan the plan whose rounds and clubs are counted.
+     */
+    public ReachCounter(SimulationPlan plan) {
+        counts = new long[plan.getRoundCount()][plan.getClubCount()];
+    }
+
+    /**
+     * Records that a club took part in a round in one iteration.
+     *
+     * @param round  the round index.
+     * @param clubId the id of the club.
+     */
+    public void increment(int round, int clubId) {
+        counts[round][clubId]++;
+    }
+
+    /**
+     * Adds to the number of iterations the counts were recorded over.
+     *
+     * @param count the number of iterations to add.
+     */
+    public void addIterations(long count) {
+        iterations += count;
+    }
+
+    /**
+     * Adds all counts of another counter for the same plan to this counter.
+     *
+     * @param other the counter to merge into this one.
+     */
+    public void merge(ReachCounter other) {
+        for (int r = 0; r < counts.length; r++) {
+            long[] row = counts[r];
+            long[] otherRow = other.counts[r];
+            for (int c = 0; c < row.length; c++) {
+                row[c] += otherRow[c];
+            }
+        }
+        iterations += other.iterations;
+    }
+
+    public long getCount(int round, int clubId) {
+        return counts[round][clubId];
+    }
+
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Returns the share of iterations in which the club took part in the round.
+     *
+     * @param round  the round index.
+     * @param clubId the id of the club.
+     * @return the estimated probability of the club reaching the round, or 0 if
+     *         no iterations have been recorded.
+     */
+    public double getProbability(int round, int clubId) {
+        return iterations == 0 ? 0.0 : (double) counts[round][clubId] / iterations;
+    }
+}
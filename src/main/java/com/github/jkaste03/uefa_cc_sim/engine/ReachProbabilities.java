@@ -0,0 +1,49 @@
+package com.github.jkaste03.uefa_cc_sim.engine;
+
+/**
+ * The probability of each club taking part in each round, as computed by the
+ * {@link AnalyticQualifyingEngine}.
+ */
+public class ReachProbabilities {
+    private final double[][] probabilities;
+
+    /**
+     * Constructs reach probabilities from a table laid out as
+     * {@code [round][clubId]}. The table is not copied.
+     *
+     * @param probabilities the probability of each club reaching each round.
+     */
+    public ReachProbabilities(double[][] probabilities) {
+        this.probabilities = probabilities;
+    }
+
+    public int getRoundCount() {
+        return probabilities.length;
+    }
+
+    /**
+     * Returns the probability that the club takes part in the round.
+     *
+     * @param round  the round index.
+     * @param clubId the id of the club.
+     * @return the probability of the club reaching the round.
+     */
+    public double getProbability(int round, int clubId) {
+        return probabilities[round][clubId];
+    }
+
+    /**
+     * Returns the expected number of clubs taking part in the round, which equals
+     * the number of slots of the round when the probabilities are consistent.
+     *
+     * @param round the round index.
+     * @return the sum of the reach probabilities of the round.
+     */
+    public double getExpectedClubCount(int round) {
+        double sum = 0;
+        for (double probability : probabilities[round]) {
+            sum += probability;
+        }
+        return sum;
+    }
+}
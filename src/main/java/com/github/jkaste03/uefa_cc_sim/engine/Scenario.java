@@ -0,0 +1,148 @@
+package com.github.jkaste03.uefa_cc_sim.engine;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.github.jkaste03.uefa_cc_sim.model.ClubRepository;
+
+/**
+ * A what-if variant of a base dataset, described as a few small deltas: clubs
+ * with another ranking, or clubs entering another round.
+ * <p>
+ * A scenario is compiled into an overlay of the base {@link SimulationPlan},
+ * so the round graph and all unchanged arrays are shared with the base plan
+ * and with every other scenario compiled from it. Clubs and rounds are
+ * referred to by name, as in the JSON data.
+ * <p>
+ * Example usage:
+ *
+ * <pre>
+ * Scenario scenario = new Scenario("Molde in Q3")
+ *         .moveClub("Molde", "EUROPA_LEAGUE Q3 MAIN_PATH")
+ *         .setRanking("Molde", 40f);
+ * </pre>
+ */
+public class Scenario {
+    private final String name;
+    private final Map<String, Float> rankings = new LinkedHashMap<>();
+    private final Map<String, String> moves = new LinkedHashMap<>();
+
+    /**
+     * Constructs a scenario without any deltas, which compiles to the base plan.
+     *
+     * @param name the name the results of the scenario are reported under.
+     */
+    public Scenario(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gives a club another ranking.
+     *
+     * @param clubName the name of the club.
+     * @param ranking  the new ranking of the club.
+     * @return this scenario.
+     */
+    public Scenario setRanking(String clubName, float ranking) {
+        rankings.put(clubName, ranking);
+        return this;
+    }
+
+    /**
+     * Lets a club enter another round instead of the round it enters in the base
+     * dataset. The numbers of clubs entering the rounds must stay valid, e.g. by
+     * moving another club the other way.
+     *
+     * @param clubName  the name of the club.
+     * @param roundName the name of the round the club enters instead.
+     * @return this scenario.
+     */
+    public Scenario moveClub(String clubName, String roundName) {
+        moves.put(clubName, roundName);
+        return this;
+    }
+
+    /**
+     * Compiles the scenario into an overlay of the base plan.
+     *
+     * @param base           the plan of the base dataset.
+     * @param clubRepository the repository the base plan was compiled from.
+     * @return the plan of the scenario.
+     * @throws IllegalArgumentException if a club or round is unknown, or a moved
+     *                                  club does not enter any round.
+     * @throws IllegalStateException    if a qualifying round would get an odd
+     *                                  number of club slots.
+     */
+    public SimulationPlan compile(SimulationPlan base, ClubRepository clubRepository) {
+        float[] ranking = null;
+        if (!rankings.isEmpty()) {
+            ranking = new float[base.getClubCount()];
+            for (int id = 0; id < ranking.length; id++) {
+                ranking[id] = base.getRanking(id);
+            }
+            for (Map.Entry<String, Float> entry : rankings.entrySet()) {
+                ranking[clubId(entry.getKey(), clubRepository)] = entry.getValue();
+            }
+        }
+
+        int[][] entrants = new int[base.getRoundCount()][];
+        for (int r = 0; r < entrants.length; r++) {
+            entrants[r] = base.getEntrants(r);
+        }
+        for (Map.Entry<String, String> move : moves.entrySet()) {
+            int id = clubId(move.getKey(), clubRepository);
+            int target = base.getRoundIndex(move.getValue());
+            if (target < 0) {
+                throw new IllegalArgumentException("Unknown round: " + move.getValue());
+            }
+            int source = roundOf(id, entrants);
+            if (source < 0) {
+                throw new IllegalArgumentException(move.getKey() + " does not enter any round.");
+            }
+            entrants[source] = without(entrants[source], id);
+            entrants[target] = Arrays.copyOf(entrants[target], entrants[target].length + 1);
+            entrants[target][entrants[target].length - 1] = id;
+        }
+
+        return base.overlay(entrants, ranking);
+    }
+
+    private static int clubId(String clubName, ClubRepository clubRepository) {
+        int id = clubRepository.getIdByName(clubName);
+        if (id < 0) {
+            throw new IllegalArgumentException("Unknown club: " + clubName);
+        }
+        return id;
+    }
+
+    private static int roundOf(int id, int[][] entrants) {
+        for (int r = 0; r < entrants.length; r++) {
+            for (int entrant : entrants[r]) {
+                if (entrant == id) {
+                    return r;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static int[] without(int[] ids, int id) {
+        int[] result = new int[ids.length - 1];
+        for (int i = 0, j = 0; i < ids.length; i++) {
+            if (ids[i] != id) {
+                result[j++] = ids[i];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Scenario [name=" + name + ", rankings=" + rankings + ", moves=" + moves + "]";
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.jkaste03.uefa_cc_sim.engine;
+
+/**
+ * The reach counts of one simulated {@link Scenario}, together with the plan
+ * they were counted on.
+ */
+public class ScenarioResult {
+    private final Scenario scenario;
+    private final SimulationPlan plan;
+    private final ReachCounter reachCounter;
+
+    /**
+     * Constructs the result of a scenario.
+     *
+     * @param scenario     the simulated scenario.
+     * @param plan         the plan the scenario was compiled to.
+     * @param reachCounter the reach counts of all iterations of the scenario.
+     */
+    public ScenarioResult(Scenario scenario, SimulationPlan plan, ReachCounter reachCounter) {
+        this.scenario = scenario;
+        this.plan = plan;
+        this.reachCounter = reachCounter;
+    }
+
+    public Scenario getScenario() {
+        return scenario;
+    }
+
+    public SimulationPlan getPlan() {
+        return plan;
+    }
+
+    public ReachCounter getReachCounter() {
+        return reachCounter;
+    }
+
+    /**
+     * Returns the share of the scenario's iterations in which the club took part
+     * in the round.
+     *
+     * @param round  the round index.
+     * @param clubId the id of the club.
+     * @return the estimated probability of the club reaching the round.
+     */
+    public double getProbability(int round, int clubId) {
+        return reachCounter.getProbability(round, clubId);
+    }
+}
@@ -0,0 +1,390 @@
+package com.github.jkaste03.uefa_cc_sim.engine;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.jkaste03.uefa_cc_sim.enums.CompetitionData.RoundType;
+import com.github.jkaste03.uefa_cc_sim.enums.Country;
+import com.github.jkaste03.uefa_cc_sim.model.Club;
+import com.github.jkaste03.uefa_cc_sim.model.ClubIdWrapper;
+import com.github.jkaste03.uefa_cc_sim.model.ClubRepository;
+import com.github.jkaste03.uefa_cc_sim.model.ClubSlot;
+import com.github.jkaste03.uefa_cc_sim.model.LeaguePhaseRound;
+import com.github.jkaste03.uefa_cc_sim.model.PoliticalTieRestrictions;
+import com.github.jkaste03.uefa_cc_sim.model.QRound;
+import com.github.jkaste03.uefa_cc_sim.model.Round;
+import com.github.jkaste03.uefa_cc_sim.model.Rounds;
+
+/**
+ * A compiled, read-only form of the round graph held by {@link Rounds}.
+ * <p>
+ * Rounds are addressed by their index in {@link Rounds#getRounds()}, and all
+ * links, entrants and club attributes are flattened into primitive arrays so
+ * that engines working on many iterations at once never have to walk the
+ * object graph or look up clubs in the {@link ClubRepository}.
+ * <p>
+ * Ties are given a global index: the ties of round {@code r} occupy the range
+ * {@code [getTieBase(r), getTieBase(r) + getTieCount(r))}. Because every
+ * qualifying round always has the same number of clubs, slot and tie counts
+ * are fixed at compile time.
+ * <p>
+ * A plan can be overlaid with other entrants and rankings, for instance for a
+ * {@link Scenario}. The overlay shares the round graph and all unchanged
+ * arrays with the plan it is derived from.
+ */
+public class SimulationPlan {
+    private final String[] roundNames;
+    private final RoundType[] roundTypes;
+    private final boolean[] leaguePhase;
+    private final int[] nextPrimary;
+    private final int[] nextSecondary;
+    private final int[] skipTarget;
+    // The qualifying rounds, which decide how many losers skip; null for league phases.
+    private final QRound[] qualifyingRounds;
+    private final int[][] entrants;
+    private final int[][] qualifyingStages;
+    private final int[] leaguePhaseRounds;
+
+    // Derived from the entrants by countSlots().
+    private final int[] skipCount;
+    private final int[] slotCount;
+    private final int[] tieBase;
+    private int tieTotal;
+    private int maxSlotCount;
+
+    private final int clubCount;
+    private final float[] ranking;
+    private final int[] country;
+    private final int countryCount;
+    private final boolean[] illegalCountryPair;
+
+    private SimulationPlan(List<Round> roundList, ClubRepository clubRepository) {
+        int roundCount = roundList.size();
+        Map<Round, Integer> index = new IdentityHashMap<>();
+        for (int r = 0; r < roundCount; r++) {
+            index.put(roundList.get(r), r);
+        }
+
+        Round[] rounds = roundList.toArray(new Round[0]);
+        roundNames = new String[roundCount];
+        roundTypes = new RoundType[roundCount];
+        leaguePhase = new boolean[roundCount];
+        nextPrimary = new int[roundCount];
+        nextSecondary = new int[roundCount];
+        skipTarget = new int[roundCount];
+        qualifyingRounds = new QRound[roundCount];
+        skipCount = new int[roundCount];
+        entrants = new int[roundCount][];
+        slotCount = new int[roundCount];
+        tieBase = new int[roundCount];
+
+        int maxClubId = -1;
+        for (int r = 0; r < roundCount; r++) {
+            Round round = rounds[r];
+            roundNames[r] = round.getName();
+            roundTypes[r] = round.getRoundType();
+            leaguePhase[r] = round instanceof LeaguePhaseRound;
+            nextPrimary[r] = indexOf(index, round.getNextPrimaryRnd());
+            nextSecondary[r] = indexOf(index, round.getNextSecondaryRnd());
+            skipTarget[r] = round.getNextSecondaryRnd() != null
+                    ? indexOf(index, round.getNextSecondaryRnd().getNextPrimaryRnd())
+                    : -1;
+            qualifyingRounds[r] = round instanceof QRound qRound ? qRound : null;
+
+            List<ClubSlot> clubSlots = round.getClubSlots();
+            entrants[r] = new int[clubSlots.size()];
+            for (int i = 0; i < clubSlots.size(); i++) {
+                entrants[r][i] = ((ClubIdWrapper) clubSlots.get(i)).getId();
+                maxClubId = Math.max(maxClubId, entrants[r][i]);
+            }
+        }
+
+        // Group the qualifying rounds by round type, in the same order as
+        // Rounds.runQRounds processes them.
+        List<int[]> stages = new ArrayList<>();
+        for (RoundType roundType : RoundType.values()) {
+            if (roundType == RoundType.LEAGUE_PHASE) {
+                break;
+            }
+            stages.add(roundsOfType(roundType));
+        }
+        qualifyingStages = stages.toArray(new int[0][]);
+        leaguePhaseRounds = roundsOfType(RoundType.LEAGUE_PHASE);
+
+        countSlots();
+
+        // Flatten the club attributes used for seeding and draw restrictions.
+        clubCount = maxClubId + 1;
+        ranking = new float[clubCount];
+        country = new int[clubCount];
+        for (int[] roundEntrants : entrants) {
+            for (int id : roundEntrants) {
+                Club club = clubRepository.getClub(id);
+                ranking[id] = club.getRanking();
+                country[id] = club.getCountry().ordinal();
+            }
+        }
+        Country[] countries = Country.values();
+        countryCount = countries.length;
+        illegalCountryPair = new boolean[countryCount * countryCount];
+        for (Country c1 : countries) {
+            for (Country c2 : countries) {
+                illegalCountryPair[c1.ordinal() * countryCount + c2.ordinal()] = c1 == c2
+                        || PoliticalTieRestrictions.isProhibited(c1, c2);
+            }
+        }
+    }
+
+    /**
+     * Constructs an overlay of a plan with other entrants or rankings. Everything
+     * else is shared with the base plan.
+     */
+    private SimulationPlan(SimulationPlan base, int[][] entrants, float[] ranking) {
+        roundNames = base.roundNames;
+        roundTypes = base.roundTypes;
+        leaguePhase = base.leaguePhase;
+        nextPrimary = base.nextPrimary;
+        nextSecondary = base.nextSecondary;
+        skipTarget = base.skipTarget;
+        qualifyingRounds = base.qualifyingRounds;
+        qualifyingStages = base.qualifyingStages;
+        leaguePhaseRounds = base.leaguePhaseRounds;
+        this.entrants = entrants;
+
+        int roundCount = roundNames.length;
+        skipCount = new int[roundCount];
+        slotCount = new int[roundCount];
+        tieBase = new int[roundCount];
+        countSlots();
+
+        clubCount = base.clubCount;
+        this.ranking = ranking != null ? ranking : base.ranking;
+        country = base.country;
+        countryCount = base.countryCount;
+        illegalCountryPair = base.illegalCountryPair;
+    }
+
+    /**
+     * Returns an overlay of this plan. Arrays that are passed unchanged are shared
+     * with this plan, and no array is copied; the caller must not modify the
+     * arrays afterwards.
+     *
+     * @param entrants the clubs entering each round.
+     * @param ranking  the ranking of each club, or null to keep the rankings of
+     *                 this plan.
+     * @return the overlaid plan.
+     * @throws IllegalStateException if a qualifying round would get an odd number
+     *                               of club slots.
+     */
+    public SimulationPlan overlay(int[][] entrants, float[] ranking) {
+        return new SimulationPlan(this, entrants, ranking);
+    }
+
+    /**
+     * Derives the slot, skip and tie counts of every round from the entrants.
+     */
+    private void countSlots() {
+        for (int r = 0; r < entrants.length; r++) {
+            slotCount[r] = entrants[r].length;
+        }
+
+        // Propagate slot counts through the graph stage by stage. Every tie sends
+        // its winner to the next primary round and its loser to the next secondary
+        // round, or past it when the tie is among those skipping it.
+        int ties = 0;
+        for (int[] stage : qualifyingStages) {
+            for (int r : stage) {
+                if (slotCount[r] % 2 != 0) {
+                    throw new IllegalStateException(roundNames[r] + " has an odd number of club slots.");
+                }
+                int tieCount = slotCount[r] / 2;
+                tieBase[r] = ties;
+                ties += tieCount;
+                // At most every loser can skip, like in QRound.regTiesForNextRounds
+                skipCount[r] = skipTarget[r] >= 0
+                        ? Math.min(tieCount, Math.max(0, qualifyingRounds[r].noOfClubsCanSkipSecondary(tieCount)))
+                        : 0;
+                slotCount[nextPrimary[r]] += tieCount;
+                if (nextSecondary[r] >= 0) {
+                    if (skipCount[r] > 0) {
+                        slotCount[skipTarget[r]] += skipCount[r];
+                    }
+                    slotCount[nextSecondary[r]] += tieCount - skipCount[r];
+                }
+            }
+        }
+        for (int r : leaguePhaseRounds) {
+            tieBase[r] = ties;
+        }
+        tieTotal = ties;
+
+        int max = 0;
+        for (int count : slotCount) {
+            max = Math.max(max, count);
+        }
+        maxSlotCount = max;
+    }
+
+    /**
+     * Compiles the round graph of the given rounds. The rounds must not have been
+     * run yet, so that their club slots hold only the clubs entering each round.
+     *
+     * @param rounds the rounds to compile.
+     * @return the compiled plan.
+     */
+    public static SimulationPlan compile(Rounds rounds) {
+        return new SimulationPlan(rounds.getRounds(), rounds.getClubRepository());
+    }
+
+    private static int indexOf(Map<Round, Integer> index, Round round) {
+        return round == null ? -1 : index.get(round);
+    }
+
+    private int[] roundsOfType(RoundType roundType) {
+        int count = 0;
+        for (RoundType type : roundTypes) {
+            if (type == roundType) {
+                count++;
+            }
+        }
+        int[] result = new int[count];
+        for (int r = 0, i = 0; r < roundTypes.length; r++) {
+            if (roundTypes[r] == roundType) {
+                result[i++] = r;
+            }
+        }
+        return result;
+    }
+
+    public int getRoundCount() {
+        return roundNames.length;
+    }
+
+    public String getRoundName(int round) {
+        return roundNames[round];
+    }
+
+    /**
+     * Returns the index of the round with the given name.
+     *
+     * @param name the name of the round, as returned by {@code Round.getName()}.
+     * @return the round index, or -1 if there is no such round.
+     */
+    public int getRoundIndex(String name) {
+        for (int r = 0; r < roundNames.length; r++) {
+            if (roundNames[r].equals(name)) {
+                return r;
+            }
+        }
+        return -1;
+    }
+
+    public RoundType getRoundType(int round) {
+        return roundTypes[round];
+    }
+
+    public boolean isLeaguePhase(int round) {
+        return leaguePhase[round];
+    }
+
+    public int getNextPrimary(int round) {
+        return nextPrimary[round];
+    }
+
+    public int getNextSecondary(int round) {
+        return nextSecondary[round];
+    }
+
+    /**
+     * Returns the round that losers skip to when they skip the next secondary
+     * round, or -1 if the round has no secondary round.
+     *
+     * @param round the round index.
+     * @return the index of the round losers skip to.
+     */
+    public int getSkipTarget(int round) {
+        return skipTarget[round];
+    }
+
+    /**
+     * Returns the number of ties in the round whose loser skips the next
+     * secondary round.
+     *
+     * @param round the round index.
+     * @return the number of ties whose loser skips the secondary round.
+     */
+    public int getSkipCount(int round) {
+        return skipCount[round];
+    }
+
+    public int[] getEntrants(int round) {
+        return entrants[round];
+    }
+
+    public int getSlotCount(int round) {
+        return slotCount[round];
+    }
+
+    public int getMaxSlotCount() {
+        return maxSlotCount;
+    }
+
+    public int getTieCount(int round) {
+        return leaguePhase[round] ? 0 : slotCount[round] / 2;
+    }
+
+    public int getTieBase(int round) {
+        return tieBase[round];
+    }
+
+    public int getTieTotal() {
+        return tieTotal;
+    }
+
+    /**
+     * Returns the qualifying rounds grouped by round type (Q1, Q2, Q3, play-off),
+     * in the order the simulation processes them.
+     *
+     * @return the round indices of each qualifying stage.
+     */
+    public int[][] getQualifyingStages() {
+        return qualifyingStages;
+    }
+
+    public int[] getLeaguePhaseRounds() {
+        return leaguePhaseRounds;
+    }
+
+    /**
+     * Returns the size of the club id space, i.e. one more than the highest club
+     * id entering any round.
+     *
+     * @return the number of club ids covered by the plan.
+     */
+    public int getClubCount() {
+        return clubCount;
+    }
+
+    public float getRanking(int clubId) {
+        return ranking[clubId];
+    }
+
+    public int getCountry(int clubId) {
+        return country[clubId];
+    }
+
+    /**
+     * Checks if clubs from the two countries may not be drawn against each other
+     * in a qualifying round, either because the countries are the same or because
+     * of political restrictions.
+     *
+     * @param country1 the ordinal of the first country.
+     * @param country2 the ordinal of the second country.
+     * @return true if the pair is illegal, false otherwise.
+     */
+    public boolean isIllegalCountryPair(int country1, int country2) {
+        return illegalCountryPair[country1 * countryCount + country2];
+    }
+}
@@ -0,0 +1,129 @@
+package com.github.jkaste03.uefa_cc_sim.engine;
+
+/**
+ * Computes and caches the exact probability that the first club of a
+ * double-legged tie advances.
+ * <p>
+ * The probability is found by convolving the per-leg goal distributions of
+ * each club into a distribution of aggregate goals, and settling a level
+ * aggregate with a penalty shootout model. Club 1 plays the first leg at
+ * home, club 2 the second leg, like in {@code DoubleLeggedTie}.
+ * <p>
+ * Results are cached in a dense table keyed by (first-leg home club id,
+ * first-leg away club id). The whole table is computed on first use, by one
+ * thread while the others wait, and published through a volatile field. From
+ * then on, every thread reads the same complete table without locking.
+ */
+public class TieProbabilities {
+    private final GoalTable goalTable;
+    private final double shootoutHomeWin;
+    private final int clubCount;
+    private volatile double[] cache;
+
+    /**
+     * Constructs tie probabilities for the goal distribution used by
+     * {@code Tie.genScoreline}, where shootouts are a coin flip.
+     *
+     * @param clubCount the size of the club id space to cache.
+     */
+    public TieProbabilities(int clubCount) {
+        this(clubCount, GoalTable.uniform(3), 0.5);
+    }
+
+    /**
+     * Constructs tie probabilities for the given goal distributions.
+     *
+     * @param clubCount       the size of the club id space to cache.
+     * @param goalTable       the goal distribution of a club in a leg.
+     * @param shootoutHomeWin the probability that the club playing the second
+     *                        leg at home wins a penalty shootout.
+     */
+    public TieProbabilities(int clubCount, GoalTable goalTable, double shootoutHomeWin) {
+        this.goalTable = goalTable;
+        this.shootoutHomeWin = shootoutHomeWin;
+        this.clubCount = clubCount;
+    }
+
+    /**
+     * Returns the probability that club 1 advances from a double-legged tie
+     * where it plays the first leg at home.
+     *
+     * @param club1 the id of the club playing the first leg at home.
+     * @param club2 the id of the club playing the second leg at home.
+     * @return the probability that club 1 advances.
+     */
+    public double club1Advances(int club1, int club2) {
+        if (club1 >= clubCount || club2 >= clubCount) {
+            return compute(club1, club2);
+        }
+        double[] table = cache;
+        if (table == null) {
+            table = fillCache();
+        }
+        return table[club1 * clubCount + club2];
+    }
+
+    /**
+     * Computes the probability of every pair of cached club ids, unless another
+     * thread already has.
+     *
+     * @return the complete table.
+     */
+    private synchronized double[] fillCache() {
+        if (cache == null) {
+            double[] table = new double[clubCount * clubCount];
+            for (int club1 = 0; club1 < clubCount; club1++) {
+                for (int club2 = 0; club2 < clubCount; club2++) {
+                    table[club1 * clubCount + club2] = compute(club1, club2);
+                }
+            }
+            cache = table;
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the goal table row describing the goals a club scores in a leg.
+     * Every leg uses the first row of the table.
+     *
+     * @param club     the id of the scoring club.
+     * @param opponent the id of the opponent.
+     * @param home     true if the club plays the leg at home.
+     * @return the goal table row of the leg.
+     */
+    protected int legRow(int club, int opponent, boolean home) {
+        return 0;
+    }
+
+    private double compute(int club1, int club2) {
+        double[] goals1 = aggregate(legRow(club1, club2, true), legRow(club1, club2, false));
+        double[] goals2 = aggregate(legRow(club2, club1, false), legRow(club2, club1, true));
+
+        // P(goals1 > goals2) + P(goals1 == goals2) * P(club 1 wins the shootout)
+        double win = 0;
+        double level = 0;
+        double below = 0; // P(goals2 < g1), accumulated as g1 grows
+        for (int g1 = 0; g1 < goals1.length; g1++) {
+            win += goals1[g1] * below;
+            level += goals1[g1] * goals2[g1];
+            below += goals2[g1];
+        }
+        return win + level * (1.0 - shootoutHomeWin);
+    }
+
+    /**
+     * Convolves the goal distributions of two legs into the distribution of
+     * aggregate goals.
+     */
+    private double[] aggregate(int rowLeg1, int rowLeg2) {
+        int maxGoals = goalTable.getMaxGoals();
+        double[] result = new double[2 * maxGoals + 1];
+        for (int a = 0; a <= maxGoals; a++) {
+            double pa = goalTable.getProbability(rowLeg1, a);
+            for (int b = 0; b <= maxGoals; b++) {
+                result[a + b] += pa * goalTable.getProbability(rowLeg2, b);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,79 @@
+package com.github.jkaste03.uefa_cc_sim.engine;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A {@link GoalSampler} that generates uniforms and looks up goals in vector
+ * lanes using the incubating Vector API.
+ * <p>
+ * Each lane computes the same counter-based random number and the same table
+ * lookup as the scalar sampler, so both produce identical goals. The random
+ * numbers are mixed in 64-bit lanes, and the lookups run in 32-bit lanes of
+ * half the vector size, so both have the same number of lanes. Positions left
+ * over after the last full vector are sampled by the scalar code.
+ * <p>
+ * Only created through {@link GoalSampler#create()}, which checks that the
+ * {@code jdk.incubator.vector} module is present first.
+ */
+class VectorGoalSampler extends GoalSampler {
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    private static final VectorShape HALF_SHAPE = VectorShape.forBitSize(LONGS.vectorBitSize() / 2);
+    private static final VectorSpecies<Integer> INTS = VectorSpecies.of(int.class, HALF_SHAPE);
+    private static final VectorSpecies<Float> FLOATS = VectorSpecies.of(float.class, HALF_SHAPE);
+
+    // Gather indices of the table entries for one vector, reused between calls.
+    private final int[] gatherIndex = new int[INTS.length()];
+
+    @Override
+    public void sample(GoalTable table, long key, int counterBase, int count, int[] rows, int rowOffset,
+            int[] goals, int goalsOffset) {
+        float[] cdf = table.getCdf();
+        int maxGoals = table.getMaxGoals();
+        boolean singleRow = table.getRowCount() == 1;
+        LongVector iota = LongVector.zero(LONGS).addIndex(1);
+
+        int upper = INTS.loopBound(count);
+        int i = 0;
+        for (; i < upper; i += INTS.length()) {
+            // The counters mixed, xored with the key and mixed again.
+            LongVector h = mix64(iota.add(counterBase + i)).lanewise(VectorOperators.XOR, key);
+            FloatVector u = ((FloatVector) mix64(h).lanewise(VectorOperators.LSHR, 40)
+                    .convertShape(VectorOperators.L2F, FLOATS, 0))
+                    .mul(CounterRandom.FLOAT_UNIT);
+
+            // Count the entries of each lane's cumulative distribution at or below u.
+            IntVector sampled = IntVector.zero(INTS);
+            if (singleRow) {
+                for (int g = 0; g < maxGoals; g++) {
+                    VectorMask<Float> reached = u.compare(VectorOperators.GE, cdf[g]);
+                    sampled = sampled.add(1, reached.cast(INTS));
+                }
+            } else {
+                IntVector rowStart = IntVector.fromArray(INTS, rows, rowOffset + i).mul(maxGoals);
+                for (int g = 0; g < maxGoals; g++) {
+                    rowStart.add(g).intoArray(gatherIndex, 0);
+                    FloatVector entry = FloatVector.fromArray(FLOATS, cdf, 0, gatherIndex, 0);
+                    VectorMask<Float> reached = u.compare(VectorOperators.GE, entry);
+                    sampled = sampled.add(1, reached.cast(INTS));
+                }
+            }
+            sampled.intoArray(goals, goalsOffset + i);
+        }
+        sampleScalar(table, key, counterBase, i, count, rows, rowOffset, goals, goalsOffset);
+    }
+
+    /**
+     * The SplitMix64 finalizer of {@link CounterRandom}, in each lane.
+     */
+    private static LongVector mix64(LongVector z) {
+        z = z.lanewise(VectorOperators.XOR, z.lanewise(VectorOperators.LSHR, 30)).mul(CounterRandom.MIX_MULTIPLIER_1);
+        z = z.lanewise(VectorOperators.XOR, z.lanewise(VectorOperators.LSHR, 27)).mul(CounterRandom.MIX_MULTIPLIER_2);
+        return z.lanewise(VectorOperators.XOR, z.lanewise(VectorOperators.LSHR, 31));
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.jkaste03.uefa_cc_sim.engine;
+
+/**
+ * Accumulates weighted reach counts of importance sampled iterations.
+ * <p>
+ * Each iteration counts with its likelihood ratio instead of 1, so the mean
+ * weight per iteration is an unbiased estimate of the probability of a club
+ * reaching a round, even though the iterations were simulated with tilted
+ * tie outcomes. The squared weights are kept as well, to estimate the
+ * standard error.
+ * <p>
+ * A counter is not thread-safe. Each worker keeps its own counter, and the
+ * counters are merged once the workers are done.
+ */
+public class WeightedReachCounter {
+    private final double[][] sums;
+    private final double[][] squares;
+    private long iterations;
+
+    /**
+     * Constructs an empty counter covering all rounds and clubs of the plan.
+     *
+     * @param plan the plan whose rounds and clubs are counted.
+     */
+    public WeightedReachCounter(SimulationPlan plan) {
+        sums = new double[plan.getRoundCount()][plan.getClubCount()];
+        squares = new double[plan.getRoundCount()][plan.getClubCount()];
+    }
+
+    /**
+     * Records that a club took part in a round in one iteration.
+     *
+     * @param round  the round index.
+     * @param clubId the id of the club.
+     * @param weight the likelihood ratio of the iteration.
+     */
+    public void add(int round, int clubId, double weight) {
+        sums[round][clubId] += weight;
+        squares[round][clubId] += weight * weight;
+    }
+
+    /**
+     * Adds to the number of iterations the counts were recorded over.
+     *
+     * @param count the number of iterations to add.
+     */
+    public void addIterations(long count) {
+        iterations += count;
+    }
+
+    /**
+     * Adds all counts of another counter for the same plan to this counter.
+     *
+     * @param other the counter to merge into this one.
+     */
+    public void merge(WeightedReachCounter other) {
+        for (int r = 0; r < sums.length; r++) {
+            for (int c = 0; c < sums[r].length; c++) {
+                sums[r][c] += other.sums[r][c];
+                squares[r][c] += other.squares[r][c];
+            }
+        }
+        iterations += other.iterations;
+    }
+
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Returns the estimated probability of the club reaching the round.
+     *
+     * @param round  the round index.
+     * @param clubId the id of the club.
+     * @return the mean weight per iteration, or 0 if no iterations have been
+     *         recorded.
+     */
+    public double getProbability(int round, int clubId) {
+        return iterations == 0 ? 0.0 : sums[round][clubId] / iterations;
+    }
+
+    /**
+     * Returns the standard error of {@link #getProbability(int, int)}.
+     *
+     * @param round  the round index.
+     * @param clubId the id of the club.
+     * @return the standard error, or infinity if fewer than two iterations have
+     *         been recorded.
+     */
+    public double getStandardError(int round, int clubId) {
+        if (iterations < 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double mean = getProbability(round, clubId);
+        double variance = (squares[round][clubId] - mean * sums[round][clubId]) / (iterations - 1);
+        return Math.sqrt(Math.max(variance, 0.0) / iterations);
+    }
+}
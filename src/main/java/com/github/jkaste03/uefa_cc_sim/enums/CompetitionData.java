@@ -40,6 +40,91 @@ public final class CompetitionData {
         MAIN_PATH;
     }
 
+    /**
+     * Enum identifying each round of the simulation. The constants are declared
+     * in the order of {@code Rounds.getRounds()}, so the ordinal of a round's id
+     * is its index there.
+     * <p>
+     * The name of each round, which is also its key in the JSON data, is built
+     * once here, so identifying a round never builds strings.
+     */
+    public enum RoundId {
+        UCL_Q1_CP(Tournament.CHAMPIONS_LEAGUE, RoundType.Q1, PathType.CHAMPIONS_PATH),
+        UEL_Q1_MP(Tournament.EUROPA_LEAGUE, RoundType.Q1, PathType.MAIN_PATH),
+        UECL_Q1_MP(Tournament.CONFERENCE_LEAGUE, RoundType.Q1, PathType.MAIN_PATH),
+        UCL_Q2_CP(Tournament.CHAMPIONS_LEAGUE, RoundType.Q2, PathType.CHAMPIONS_PATH),
+        UCL_Q2_LP(Tournament.CHAMPIONS_LEAGUE, RoundType.Q2, PathType.LEAGUE_PATH),
+        UEL_Q2_MP(Tournament.EUROPA_LEAGUE, RoundType.Q2, PathType.MAIN_PATH),
+        UECL_Q2_MP(Tournament.CONFERENCE_LEAGUE, RoundType.Q2, PathType.MAIN_PATH),
+        UECL_Q2_CP(Tournament.CONFERENCE_LEAGUE, RoundType.Q2, PathType.CHAMPIONS_PATH),
+        UCL_Q3_CP(Tournament.CHAMPIONS_LEAGUE, RoundType.Q3, PathType.CHAMPIONS_PATH),
+        UCL_Q3_LP(Tournament.CHAMPIONS_LEAGUE, RoundType.Q3, PathType.LEAGUE_PATH),
+        UEL_Q3_MP(Tournament.EUROPA_LEAGUE, RoundType.Q3, PathType.MAIN_PATH),
+        UEL_Q3_CP(Tournament.EUROPA_LEAGUE, RoundType.Q3, PathType.CHAMPIONS_PATH),
+        UECL_Q3_MP(Tournament.CONFERENCE_LEAGUE, RoundType.Q3, PathType.MAIN_PATH),
+        UECL_Q3_CP(Tournament.CONFERENCE_LEAGUE, RoundType.Q3, PathType.CHAMPIONS_PATH),
+        UCL_PO_CP(Tournament.CHAMPIONS_LEAGUE, RoundType.PLAYOFF, PathType.CHAMPIONS_PATH),
+        UCL_PO_LP(Tournament.CHAMPIONS_LEAGUE, RoundType.PLAYOFF, PathType.LEAGUE_PATH),
+        UEL_PO(Tournament.EUROPA_LEAGUE, RoundType.PLAYOFF, PathType.MAIN_PATH),
+        UECL_PO_MP(Tournament.CONFERENCE_LEAGUE, RoundType.PLAYOFF, PathType.MAIN_PATH),
+        UECL_PO_CP(Tournament.CONFERENCE_LEAGUE, RoundType.PLAYOFF, PathType.CHAMPIONS_PATH),
+        UCL_LP(Tournament.CHAMPIONS_LEAGUE, RoundType.LEAGUE_PHASE, null),
+        UEL_LP(Tournament.EUROPA_LEAGUE, RoundType.LEAGUE_PHASE, null),
+        UECL_LP(Tournament.CONFERENCE_LEAGUE, RoundType.LEAGUE_PHASE, null);
+
+        private final Tournament tournament;
+        private final RoundType roundType;
+        private final PathType pathType;
+        private final String name;
+
+        RoundId(Tournament tournament, RoundType roundType, PathType pathType) {
+            this.tournament = tournament;
+            this.roundType = roundType;
+            this.pathType = pathType;
+            this.name = tournament + " " + roundType + (pathType != null ? " " + pathType : "");
+        }
+
+        /**
+         * Returns the id of the round of a tournament, round type and path type.
+         *
+         * @param tournament the tournament of the round.
+         * @param roundType  the type of the round.
+         * @param pathType   the path of the round, or null for a league phase.
+         * @return the id of the round.
+         * @throws IllegalArgumentException if the simulation has no such round.
+         */
+        public static RoundId of(Tournament tournament, RoundType roundType, PathType pathType) {
+            for (RoundId id : values()) {
+                if (id.tournament == tournament && id.roundType == roundType && id.pathType == pathType) {
+                    return id;
+                }
+            }
+            throw new IllegalArgumentException("No round " + tournament + " " + roundType + " " + pathType);
+        }
+
+        public Tournament getTournament() {
+            return tournament;
+        }
+
+        public RoundType getRoundType() {
+            return roundType;
+        }
+
+        public PathType getPathType() {
+            return pathType;
+        }
+
+        /**
+         * Returns the name of the round, e.g. "CHAMPIONS_LEAGUE Q1 CHAMPIONS_PATH"
+         * or "EUROPA_LEAGUE LEAGUE_PHASE".
+         *
+         * @return the name of the round.
+         */
+        public String getName() {
+            return name;
+        }
+    }
+
     /**
      * Private constructor to prevent instantiation.
      */
@@ -1,5 +1,6 @@
 package com.github.jkaste03.uefa_cc_sim.model;
 
+import java.io.Serializable;
 import java.util.Objects;
 
 import com.github.jkaste03.uefa_cc_sim.enums.Country;
@@ -7,8 +8,7 @@ import com.github.jkaste03.uefa_cc_sim.enums.Country;
 /**
  * Class representing a club in the UEFA competitions.
  */
-public class Club {
-    private static int id_counter = 0;
+public class Club implements Serializable {
     private int id;
     private String name;
     private Country country;
@@ -19,14 +19,13 @@ public class Club {
     // * ranking. The UEFA ranking is adjusted to also include national associations
     // * ranked above the club.
     // * <p>
-    // * The club's unique id is auto-assigned.
+    // * The club's unique id is assigned by the ClubRepository.
     // *
     // * @param name the club's name
     // * @param country the club's country
     // * @param ranking the club's adjusted UEFA ranking
     // */
     // public Club(String name, Country country, float ranking) {
-    // this.id = id_counter++;
     // this.name = name;
     // this.country = country;
     // this.ranking = ranking;
@@ -36,8 +35,8 @@ public class Club {
         return id;
     }
 
-    public void setId() {
-        this.id = id_counter++;
+    public void setId(int id) {
+        this.id = id;
     }
 
     public String getName() {
@@ -10,28 +10,31 @@ import com.github.jkaste03.uefa_cc_sim.enums.Country;
  * <p>
  * This wrapper delegates the retrieval of club details (such as name, ranking,
  * and associated countries)
- * to the Clubs repository using the stored identifier. It provides a convenient
+ * to the club repository of its simulation using the stored identifier. It provides a convenient
  * abstraction to access a
  * club's properties without holding a direct reference to the Club object.
  * <p>
  * Example usage:
  * 
  * <pre>
- * ClubIdWrapper wrapper = new ClubIdWrapper(5);
+ * ClubIdWrapper wrapper = new ClubIdWrapper(5, clubRepository);
  * String clubName = wrapper.getName();
  * float clubRanking = wrapper.getRanking();
  * </pre>
  */
 public class ClubIdWrapper implements Serializable, ClubSlot {
     private int id;
+    private ClubRepository clubRepository;
 
     /**
      * Constructs a ClubIdWrapper with the specified club id.
      *
-     * @param id the unique identifier of the club
+     * @param id             the unique identifier of the club
+     * @param clubRepository the repository holding the club
      */
-    public ClubIdWrapper(int id) {
+    public ClubIdWrapper(int id, ClubRepository clubRepository) {
         this.id = id;
+        this.clubRepository = clubRepository;
     }
 
     public int getId() {
@@ -77,7 +80,7 @@ public class ClubIdWrapper implements Serializable, ClubSlot {
     }
 
     private Club getClub(int id) {
-        return ClubRepository.getClub(id);
+        return clubRepository.getClub(id);
     }
 
     @Override
@@ -1,61 +1,84 @@
 package com.github.jkaste03.uefa_cc_sim.model;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * This class serves as a repository for managing club instances in the UEFA
  * competition simulations. It provides methods to store and retrieve clubs
- * based on a unique identifier. All clubs are stored in a static map, ensuring
- * consistent access throughout the application.
+ * based on a unique identifier. Each simulation owns its own repository, so
+ * several datasets can be simulated side by side in one JVM.
  * <p>
  * The ClubRepository class functions as the storage location where all
  * simulation data produced through the simulations is stored for all clubs.
  */
-public class ClubRepository {
+public class ClubRepository implements Serializable {
     /*
-     * The static map of clubs, where the key is the club's id and the value is the
-     * Club instance.
+     * The clubs of the repository, indexed by id. Ids are assigned by the
+     * repository in the order the clubs are added, starting from 0.
      */
-    private static Map<Integer, Club> clubs = new HashMap<>();
+    private final List<Club> clubs = new ArrayList<>();
 
     /*
      * The name of the club that won the last UEFA Champions League. This is needed
      * decide the UCL seeding pots.
      */
-    public static String lastUclWinnerName;
+    private String lastUclWinnerName;
 
     /*
-     * Retrieves the club with the specified id from the static map of clubs.
+     * The id of the last UEFA Champions League winner, resolved from the name
+     * when it is set, or -1 if the club is not in the repository.
      */
-    public static Club getClub(int id) {
+    private int lastUclWinnerId = -1;
+
+    /*
+     * Retrieves the club with the specified id.
+     */
+    public Club getClub(int id) {
         return clubs.get(id);
     }
 
-    public static String getLastUclWinnerName() {
+    public int getClubCount() {
+        return clubs.size();
+    }
+
+    public String getLastUclWinnerName() {
         return lastUclWinnerName;
     }
 
-    public static void setLastUclWinnerName(String name) {
+    public int getLastUclWinnerId() {
+        return lastUclWinnerId;
+    }
+
+    /*
+     * Sets the name of the last UEFA Champions League winner and resolves its id.
+     * The clubs must be added before.
+     */
+    public void setLastUclWinnerName(String name) {
         lastUclWinnerName = name;
+        lastUclWinnerId = name != null ? getIdByName(name) : -1;
     }
 
     /*
-     ** Retrieves a club's id by its name from the static map of clubs.
+     ** Retrieves a club's id by its name.
      */
-    public static int getIdByName(String name) {
-        return clubs.entrySet().stream()
-                .filter(entry -> entry.getValue().getName().equals(name))
-                .map(Map.Entry::getKey)
-                .findFirst()
-                .orElse(-1); // Return -1 if the club is not found
+    public int getIdByName(String name) {
+        for (Club club : clubs) {
+            if (club.getName().equals(name)) {
+                return club.getId();
+            }
+        }
+        return -1; // Return -1 if the club is not found
     }
 
     /*
-     * Adds a club to the static map of clubs. This method is used to populate the
-     * repository with club data, which can be used for simulations and other
+     * Adds a club to the repository and assigns it the next free id. This method
+     * is used to populate the repository with club data, which can be used for
+     * simulations and other
      */
-    public static void addClub(Club club) {
-        clubs.put(club.getId(), club);
+    public synchronized void addClub(Club club) {
+        club.setId(clubs.size());
+        clubs.add(club);
     }
-}
\ No newline at end of file
+}
@@ -34,4 +34,13 @@ public interface ClubSlot {
      * only the ranking of the club that determines the seeding is considered.
      */
     public abstract float getRanking();
+
+    /*
+     * Retrieves the club slot this slot stands for once the ties it depends on
+     * have been played. A club resolves to itself, and the winner or loser of an
+     * unplayed tie resolves to itself until the tie has been played.
+     */
+    public default ClubSlot resolve() {
+        return this;
+    }
 }
\ No newline at end of file
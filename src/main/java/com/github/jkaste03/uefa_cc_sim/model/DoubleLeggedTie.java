@@ -2,6 +2,9 @@ package com.github.jkaste03.uefa_cc_sim.model;
 
 import java.util.Random;
 
+import com.github.jkaste03.uefa_cc_sim.engine.MatchModel;
+import com.github.jkaste03.uefa_cc_sim.engine.TieProbabilities;
+
 /**
  * Represents a double-legged tie between two clubs.
  * <p>
@@ -12,6 +15,13 @@ import java.util.Random;
 public class DoubleLeggedTie extends Tie {
     private int club1GoalsLeg1 = -1;
     private int club2GoalsLeg1 = -1;
+    // The best and worst ranking of the two club slots, kept up to date with the
+    // slots so that seeding by the tie reads a field.
+    private float bestRanking;
+    private float worstRanking;
+    // The slots standing for the winner and the loser of the tie, created once.
+    private final DoubleLeggedTieWrapper winnerSlot = new DoubleLeggedTieWrapper(this, false);
+    private final DoubleLeggedTieWrapper loserSlot = new DoubleLeggedTieWrapper(this, true);
 
     /**
      * Constructs a new double-legged tie with the specified club slots.
@@ -21,6 +31,66 @@ public class DoubleLeggedTie extends Tie {
      */
     public DoubleLeggedTie(ClubSlot club1, ClubSlot club2) {
         super(club1, club2);
+        updateRankings();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Also clears the first-leg goals.
+     */
+    @Override
+    public void reset(ClubSlot clubSlot1, ClubSlot clubSlot2) {
+        super.reset(clubSlot1, clubSlot2);
+        club1GoalsLeg1 = -1;
+        club2GoalsLeg1 = -1;
+        updateRankings();
+    }
+
+    @Override
+    public void setClubSlot1(ClubSlot club1) {
+        super.setClubSlot1(club1);
+        updateRankings();
+    }
+
+    @Override
+    public void setClubSlot2(ClubSlot club2) {
+        super.setClubSlot2(club2);
+        updateRankings();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Also updates the rankings of the tie to those of the resolved slots.
+     */
+    @Override
+    public void updateClubSlotsIfTie() {
+        super.updateClubSlotsIfTie();
+        updateRankings();
+    }
+
+    /**
+     * Reads the rankings of the club slots once into the best and worst
+     * ranking of the tie.
+     */
+    private void updateRankings() {
+        float ranking1 = clubSlot1.getRanking();
+        float ranking2 = clubSlot2.getRanking();
+        bestRanking = Math.min(ranking1, ranking2);
+        worstRanking = Math.max(ranking1, ranking2);
+    }
+
+    /**
+     * Returns the club slot standing for the winner or the loser of this tie in
+     * a later round. The same two slots are returned for the lifetime of the
+     * tie, so passing a tie on allocates nothing.
+     *
+     * @param loser true for the loser, false for the winner.
+     * @return the slot of the winner or the loser.
+     */
+    public DoubleLeggedTieWrapper getWrapper(boolean loser) {
+        return loser ? loserSlot : winnerSlot;
     }
 
     /**
@@ -30,32 +100,151 @@ public class DoubleLeggedTie extends Tie {
      * scores for each leg and determining the winner based on the aggregate score.
      */
     @Override
-    public void play() {
+    public void play(Random random) {
         if (club1GoalsLeg1 == -1) {
-            int[] results1 = genScoreline();
+            int[] results1 = genScoreline(random);
             club1GoalsLeg1 = results1[0];
             club2GoalsLeg1 = results1[1];
-
-            // System.out.println(getScorelineLeg1());
         } else {
-            int[] results2 = genScoreline();
+            int[] results2 = genScoreline(random);
             club1Goals = club1GoalsLeg1 + results2[0];
             club2Goals = club2GoalsLeg1 + results2[1];
 
-            genWinner();
+            genWinner(random);
+        }
+    }
+
+    /**
+     * Plays the next leg of the tie with a match model, drawing the goals of each
+     * club from its current Elo rating. A level aggregate is settled by a
+     * penalty shootout with the model's bias towards club 2, which plays the
+     * second leg at home.
+     *
+     * @param random     the random numbers to play the leg with.
+     * @param matchModel the model to play with, or null to play like
+     *                   {@link #play(Random)}.
+     * @param eloRatings the current ratings of the clubs.
+     */
+    public void play(Random random, MatchModel matchModel, EloRatings eloRatings) {
+        if (matchModel == null) {
+            play(random);
+            return;
+        }
+        float rating1 = eloRatings.getRating(((ClubIdWrapper) clubSlot1).getId());
+        float rating2 = eloRatings.getRating(((ClubIdWrapper) clubSlot2).getId());
+        if (club1GoalsLeg1 == -1) {
+            club1GoalsLeg1 = MatchModel.sampleGoals(random, matchModel.goalRate(rating1, rating2, true));
+            club2GoalsLeg1 = MatchModel.sampleGoals(random, matchModel.goalRate(rating2, rating1, false));
+        } else {
+            club1Goals = club1GoalsLeg1 + MatchModel.sampleGoals(random, matchModel.goalRate(rating1, rating2, false));
+            club2Goals = club2GoalsLeg1 + MatchModel.sampleGoals(random, matchModel.goalRate(rating2, rating1, true));
+            boolean club1Wins = club1Goals > club2Goals
+                    || (club1Goals == club2Goals && random.nextDouble() >= matchModel.shootoutHomeWin());
+            this.winner = club1Wins ? (ClubIdWrapper) clubSlot1 : (ClubIdWrapper) clubSlot2;
+        }
+    }
+
+    /**
+     * Settles the tie without playing its legs. A single uniform number is
+     * compared to the probability that club 1 advances, so no scoreline is
+     * recorded.
+     *
+     * @param tieProbabilities the probabilities to settle the tie with.
+     * @param random           the random numbers to settle the tie with.
+     */
+    public void playFastOutcome(TieProbabilities tieProbabilities, Random random) {
+        double club1Advances = tieProbabilities.club1Advances(((ClubIdWrapper) clubSlot1).getId(),
+                ((ClubIdWrapper) clubSlot2).getId());
+        this.winner = random.nextDouble() < club1Advances ? (ClubIdWrapper) clubSlot1 : (ClubIdWrapper) clubSlot2;
+    }
 
-            // System.out.println(getScoreline());
+    /**
+     * Sets the next leg of the tie to its real result instead of playing it.
+     *
+     * @param pinnedTie the real tie.
+     * @return true if the leg was set, false if it has no real result yet and
+     *         must be played.
+     * @throws IllegalStateException if the clubs of the tie are not those of the
+     *                               real tie.
+     */
+    boolean playPinned(RealResults.PinnedTie pinnedTie) {
+        if (club1GoalsLeg1 == -1) {
+            if (!pinnedTie.isLeg1Played()) {
+                return false;
+            }
+            checkPinnedClubs(pinnedTie);
+            club1GoalsLeg1 = pinnedTie.getClub1GoalsLeg1();
+            club2GoalsLeg1 = pinnedTie.getClub2GoalsLeg1();
+        } else {
+            if (!pinnedTie.isLeg2Played()) {
+                return false;
+            }
+            checkPinnedClubs(pinnedTie);
+            club1Goals = club1GoalsLeg1 + pinnedTie.getClub1GoalsLeg2();
+            club2Goals = club2GoalsLeg1 + pinnedTie.getClub2GoalsLeg2();
+            setPinnedWinner(pinnedTie);
         }
+        return true;
     }
 
     /**
-     * Generates the scoreline for the first leg of the tie.
+     * Settles the tie with the club that advanced from the real tie.
      *
-     * @return a string representing the scoreline of the first leg.
+     * @param pinnedTie the real tie.
+     * @return true if the tie was settled, false if the real tie is not decided
+     *         yet.
+     * @throws IllegalStateException if the clubs of the tie are not those of the
+     *                               real tie.
      */
-    private String getScorelineLeg1() {
-        return clubSlot1.getName() + " " + club1GoalsLeg1 + " - " + club2GoalsLeg1 + " " + clubSlot2.getName()
-                + ". First leg played.";
+    boolean settlePinned(RealResults.PinnedTie pinnedTie) {
+        if (pinnedTie.getWinnerId() == -1) {
+            return false;
+        }
+        checkPinnedClubs(pinnedTie);
+        setPinnedWinner(pinnedTie);
+        return true;
+    }
+
+    private void setPinnedWinner(RealResults.PinnedTie pinnedTie) {
+        this.winner = pinnedTie.getWinnerId() == pinnedTie.getClub1Id() ? clubSlot1 : clubSlot2;
+    }
+
+    /**
+     * Checks that the clubs of the tie are those of a real tie. They are not if
+     * an earlier round was simulated where it should have had real results.
+     */
+    private void checkPinnedClubs(RealResults.PinnedTie pinnedTie) {
+        if (((ClubIdWrapper) clubSlot1).getId() != pinnedTie.getClub1Id()
+                || ((ClubIdWrapper) clubSlot2).getId() != pinnedTie.getClub2Id()) {
+            throw new IllegalStateException("The real result of a tie was given, but " + getName()
+                    + " is not that tie. Are the results of an earlier round missing?");
+        }
+    }
+
+    /**
+     * Sets the results of the tie to those captured in a snapshot.
+     *
+     * @param club1GoalsLeg1 the goals of club 1 in the first leg, or -1.
+     * @param club2GoalsLeg1 the goals of club 2 in the first leg, or -1.
+     * @param club1Goals     the aggregate goals of club 1, or -1.
+     * @param club2Goals     the aggregate goals of club 2, or -1.
+     * @param winner         1 or 2 for the club slot that advanced, or 0 if the
+     *                       tie is not decided.
+     */
+    void restore(int club1GoalsLeg1, int club2GoalsLeg1, int club1Goals, int club2Goals, int winner) {
+        this.club1GoalsLeg1 = club1GoalsLeg1;
+        this.club2GoalsLeg1 = club2GoalsLeg1;
+        this.club1Goals = club1Goals;
+        this.club2Goals = club2Goals;
+        this.winner = winner == 0 ? null : winner == 1 ? clubSlot1 : clubSlot2;
+    }
+
+    int getClub1GoalsLeg1() {
+        return club1GoalsLeg1;
+    }
+
+    int getClub2GoalsLeg1() {
+        return club2GoalsLeg1;
     }
 
     /**
@@ -63,7 +252,7 @@ public class DoubleLeggedTie extends Tie {
      *
      * @return a string representing the scoreline of the tie.
      */
-    private String getScoreline() {
+    String getScoreline() {
         return clubSlot2.getName() + " " + club2Goals + " (" + (club2Goals - club2GoalsLeg1) + ") - ("
                 + (club1Goals - club1GoalsLeg1) + ") " + club1Goals + " " + clubSlot1.getName() + ". Winner: "
                 + winner.getName();
@@ -81,17 +270,18 @@ public class DoubleLeggedTie extends Tie {
      * @return the ranking of the club as a float.
      */
     public float getRanking(boolean worstRankForSeeding) {
-        return worstRankForSeeding ? Math.max(clubSlot1.getRanking(), clubSlot2.getRanking())
-                : Math.min(clubSlot1.getRanking(), clubSlot2.getRanking());
+        return worstRankForSeeding ? worstRanking : bestRanking;
     }
 
     /**
      * Determines the winner of the tie based on the total goals scored by each
      * club. If total goals are equal, a random winner is chosen (penalty shootout).
+     *
+     * @param random the random numbers to settle a penalty shootout with.
      */
-    private void genWinner() {
+    private void genWinner(Random random) {
         boolean club1Wins = club1Goals > club2Goals ||
-                (club1Goals == club2Goals && new Random().nextBoolean());
+                (club1Goals == club2Goals && random.nextBoolean());
 
         this.winner = club1Wins ? (ClubIdWrapper) clubSlot1 : (ClubIdWrapper) clubSlot2;
     }
@@ -12,10 +12,14 @@ import com.github.jkaste03.uefa_cc_sim.enums.Country;
  * name, ranking, and associated countries) to the underlying DoubleLeggedTie.
  * It provides a convenient abstraction to access a tie's properties while also
  * having a flag that indicates which ranking should be used for seeding.
+ * <p>
+ * Each double-legged tie creates its winner and loser wrappers once, see
+ * {@link DoubleLeggedTie#getWrapper(boolean)}, and they are reused with the
+ * tie from one iteration to the next.
  */
 public class DoubleLeggedTieWrapper implements ClubSlot {
-    private DoubleLeggedTie tie;
-    private boolean worstRankForSeeding;
+    private final DoubleLeggedTie tie;
+    private final boolean worstRankForSeeding;
 
     /**
      * Constructs a DoubleLeggedTieWrapper with the specified double-legged tie and
@@ -34,18 +38,10 @@ public class DoubleLeggedTieWrapper implements ClubSlot {
         return tie;
     }
 
-    public void setTie(DoubleLeggedTie tie) {
-        this.tie = tie;
-    }
-
     public boolean isWorstRankForSeeding() {
         return worstRankForSeeding;
     }
 
-    public void setWorstRankForSeeding(boolean worstRankForSeeding) {
-        this.worstRankForSeeding = worstRankForSeeding;
-    }
-
     /**
      * {@inheritDoc}
      * <p>
@@ -89,9 +85,24 @@ public class DoubleLeggedTieWrapper implements ClubSlot {
      * @return the ClubSlot representing the correct club for seeding.
      */
     public ClubSlot getCorrectClub() {
+        if (tie.getWinner() == null) {
+            return null;
+        }
         return worstRankForSeeding ? tie.getLoser() : tie.getWinner();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Returns the correct club once the tie has been played, and this wrapper
+     * until then.
+     */
+    @Override
+    public ClubSlot resolve() {
+        ClubSlot correctClub = getCorrectClub();
+        return correctClub != null ? correctClub : this;
+    }
+
     @Override
     public String toString() {
         return "DoubleLeggedTieWrapper [dLTie=" + tie + ", worstRankForSeeding=" + worstRankForSeeding + "]";
@@ -0,0 +1,138 @@
+package com.github.jkaste03.uefa_cc_sim.model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import com.github.jkaste03.uefa_cc_sim.service.ClubEloDataLoader;
+
+/**
+ * The Elo ratings of the clubs during one iteration of a simulation.
+ * <p>
+ * A rating is the loaded rating of the club, which is read-only, plus the
+ * change from the matches the club has played in the iteration so far. The
+ * changes are kept in a float array indexed by club id, so updating a rating
+ * after a match is a few array writes. The changes are set back to zero by
+ * {@link #clear()} between iterations. The ratings are owned by one
+ * {@link Rounds} object and must not be shared between threads.
+ */
+public class EloRatings implements Serializable {
+    // The weight of one match in the rating changes.
+    private static final float K_FACTOR = 20f;
+
+    private final ClubEloDataLoader clubEloDataLoader;
+    private final float[] deltas;
+
+    /**
+     * Constructs the ratings of a simulation, with no changes yet.
+     *
+     * @param clubEloDataLoader the loaded ratings.
+     * @param clubCount         the number of clubs of the simulation.
+     */
+    public EloRatings(ClubEloDataLoader clubEloDataLoader, int clubCount) {
+        this.clubEloDataLoader = clubEloDataLoader;
+        this.deltas = new float[clubCount];
+    }
+
+    /**
+     * Returns the current rating of a club.
+     *
+     * @param clubId the id of the club.
+     * @return the loaded rating plus the change in this iteration.
+     */
+    public float getRating(int clubId) {
+        return (float) clubEloDataLoader.getEloRating(clubId) + deltas[clubId];
+    }
+
+    /**
+     * Returns the change of the rating of a club in this iteration.
+     *
+     * @param clubId the id of the club.
+     * @return the points gained, or lost if negative.
+     */
+    public float getDelta(int clubId) {
+        return deltas[clubId];
+    }
+
+    /**
+     * Returns the score a club is expected to get against an opponent by their
+     * ratings, from 0 for a certain loss to 1 for a certain win.
+     *
+     * @param rating         the rating of the club.
+     * @param opponentRating the rating of the opponent.
+     * @return the expected score.
+     */
+    public static float expectedScore(float rating, float opponentRating) {
+        return 1f / (1f + (float) Math.pow(10, (opponentRating - rating) / 400f));
+    }
+
+    /**
+     * Updates the ratings of two clubs after a match between them. The points
+     * the home club gains are the ones the away club loses.
+     *
+     * @param homeId    the id of the home club.
+     * @param awayId    the id of the away club.
+     * @param homeGoals the goals of the home club.
+     * @param awayGoals the goals of the away club.
+     */
+    public void update(int homeId, int awayId, int homeGoals, int awayGoals) {
+        float expected = expectedScore(getRating(homeId), getRating(awayId));
+        float result = homeGoals > awayGoals ? 1f : homeGoals == awayGoals ? 0.5f : 0f;
+        float change = K_FACTOR * goalFactor(Math.abs(homeGoals - awayGoals)) * (result - expected);
+        deltas[homeId] += change;
+        deltas[awayId] -= change;
+    }
+
+    /**
+     * Updates the ratings after a leg of a double-legged tie has been played.
+     * The first leg is played at the home of club 1, the second at the home of
+     * club 2.
+     *
+     * @param tie the tie, just after one of its legs has been played.
+     */
+    void update(DoubleLeggedTie tie) {
+        int id1 = ((ClubIdWrapper) tie.getClubSlot1()).getId();
+        int id2 = ((ClubIdWrapper) tie.getClubSlot2()).getId();
+        if (tie.getWinner() == null) {
+            update(id1, id2, tie.getClub1GoalsLeg1(), tie.getClub2GoalsLeg1());
+        } else {
+            update(id2, id1, tie.club2Goals - tie.getClub2GoalsLeg1(), tie.club1Goals - tie.getClub1GoalsLeg1());
+        }
+    }
+
+    /**
+     * Returns a copy of the changes of all ratings.
+     *
+     * @return the changes, indexed by club id.
+     */
+    float[] getDeltas() {
+        return deltas.clone();
+    }
+
+    /**
+     * Sets the changes of all ratings, as returned by {@link #getDeltas()}.
+     *
+     * @param deltas the changes, indexed by club id.
+     */
+    void setDeltas(float[] deltas) {
+        System.arraycopy(deltas, 0, this.deltas, 0, this.deltas.length);
+    }
+
+    /**
+     * Sets all changes back to zero, so the ratings are the loaded ones again.
+     */
+    public void clear() {
+        Arrays.fill(deltas, 0f);
+    }
+
+    /**
+     * Returns the factor a rating change is scaled by for a goal difference: 1
+     * for a draw or a one-goal win, 1.5 for two goals and (11 + n) / 8 for n
+     * goals above that.
+     */
+    private static float goalFactor(int goalDifference) {
+        if (goalDifference <= 1) {
+            return 1f;
+        }
+        return goalDifference == 2 ? 1.5f : (11f + goalDifference) / 8f;
+    }
+}
@@ -0,0 +1,46 @@
+package com.github.jkaste03.uefa_cc_sim.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link SimulationListener} that records every draw and result of a run as
+ * lines of text, for instance to inspect a replayed iteration.
+ */
+public class EventLog implements SimulationListener {
+    private final List<String> events = new ArrayList<>();
+
+    @Override
+    public void roundDrawn(Round round, long drawNanos) {
+        events.add(round.getName() + " drawn in " + drawNanos / 1000 + " us:");
+        for (Tie tie : round.getTies()) {
+            events.add("  " + tie.getName());
+        }
+    }
+
+    @Override
+    public void roundPlayed(Round round) {
+        events.add(round.getName() + " played:");
+        for (Tie tie : round.getTies()) {
+            if (tie instanceof DoubleLeggedTie doubleLeggedTie && tie.club1Goals >= 0) {
+                events.add("  " + doubleLeggedTie.getScoreline());
+            } else {
+                events.add("  " + tie.getName() + ". Winner: " + tie.getWinner().getName());
+            }
+        }
+    }
+
+    /**
+     * Returns the recorded events in the order they happened.
+     *
+     * @return the lines of the log.
+     */
+    public List<String> getEvents() {
+        return events;
+    }
+
+    @Override
+    public String toString() {
+        return String.join(System.lineSeparator(), events);
+    }
+}
@@ -3,7 +3,6 @@ package com.github.jkaste03.uefa_cc_sim.model;
 import java.util.ArrayList;
 import java.util.List;
 import com.github.jkaste03.uefa_cc_sim.enums.CompetitionData;
-import com.github.jkaste03.uefa_cc_sim.service.ClubEloDataLoader;
 
 /**
  * Class representing a league phase in the UEFA competitions.
@@ -20,23 +19,23 @@ public abstract class LeaguePhaseRound extends Round {
      *                   initialized.
      */
     public LeaguePhaseRound(CompetitionData.Tournament tournament) {
-        super(tournament, CompetitionData.RoundType.LEAGUE_PHASE);
+        super(CompetitionData.RoundId.of(tournament, CompetitionData.RoundType.LEAGUE_PHASE, null));
         pots = new ArrayList<>();
     }
 
+    public List<List<ClubSlot>> getPots() {
+        return pots;
+    }
+
     /**
      * {@inheritDoc}
      * <p>
-     * Returns a string representation of the qualifying round, including the
-     * tournament and round type.
+     * Also clears the pots.
      */
     @Override
-    public String getName() {
-        return super.getName() + " " + CompetitionData.RoundType.LEAGUE_PHASE;
-    }
-
-    public List<List<ClubSlot>> getPots() {
-        return pots;
+    public void reset() {
+        super.reset();
+        pots.clear();
     }
 
     /**
@@ -55,13 +54,12 @@ public abstract class LeaguePhaseRound extends Round {
      * This method is currently not implemented and will throw an
      * UnsupportedOperationException.
      *
-     * @param clubEloDataLoader the data loader for club Elo ratings.
+     * @param eloRatings the ratings of the iteration, updated with the results.
      */
     @Override
-    public void play(ClubEloDataLoader clubEloDataLoader) {
+    public void play(EloRatings eloRatings) {
         // TODO Auto-generated method stub
         throw new UnsupportedOperationException("Unimplemented method 'play'");
-        // Todo: Update the clubEloDataLoader with the new Elo ratings after the matches
     }
 
     @Override
@@ -3,11 +3,10 @@ package com.github.jkaste03.uefa_cc_sim.model;
 import java.util.List;
 
 import com.github.jkaste03.uefa_cc_sim.enums.CompetitionData;
-import com.github.jkaste03.uefa_cc_sim.enums.CompetitionData.Tournament;
-import com.github.jkaste03.uefa_cc_sim.service.ClubEloDataLoader;
+import com.github.jkaste03.uefa_cc_sim.engine.TieProbabilities;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 
 /**
  * Class representing a qualifying round in the UEFA competitions.
@@ -15,12 +14,20 @@ import java.util.Collections;
 public class QRound extends Round {
     // Constants for clubs skipping a round (e.g., UCL Q1 CP to UECL Q3 CP)
     private final static int UCL_Q1_CP_TIES_NO_REBALANCE = 16;
-    private final static String ROUND_CLUBS_SKIP_TO = Tournament.CONFERENCE_LEAGUE + " " + CompetitionData.RoundType.Q3
-            + " " + CompetitionData.PathType.CHAMPIONS_PATH;
+    private final static CompetitionData.RoundId ROUND_CLUBS_SKIP_TO = CompetitionData.RoundId.UECL_Q3_CP;
+    private static final int MAX_DRAW_ATTEMPTS = 1000;
 
     private CompetitionData.PathType pathType;
     private List<ClubSlot> seededClubSlots = new ArrayList<>();
     private List<ClubSlot> unseededClubSlots = new ArrayList<>();
+    // Scratch lists of the draw, kept to be reused by the next draw.
+    private final List<ClubSlot> remainingSeeded = new ArrayList<>();
+    private final List<ClubSlot> remainingUnseeded = new ArrayList<>();
+    // Scratch arrays picking the ties that skip the secondary round.
+    private boolean[] skipsSecondary = new boolean[0];
+    private int[] tieOrder = new int[0];
+    // The real ties of the round, or null if the round is not drawn yet.
+    private List<RealResults.PinnedTie> pinnedTies;
 
     /**
      * Constructs a qualifying round for the specified tournament and round type,
@@ -34,19 +41,28 @@ public class QRound extends Round {
      */
     public QRound(CompetitionData.Tournament tournament, CompetitionData.RoundType roundType,
             CompetitionData.PathType pathType) {
-        super(tournament, roundType);
+        super(CompetitionData.RoundId.of(tournament, roundType, pathType));
         this.pathType = pathType;
     }
 
+    public CompetitionData.PathType getPathType() {
+        return pathType;
+    }
+
     /**
-     * {@inheritDoc}
-     * <p>
-     * Returns a string representation of the qualifying round, including the
-     * tournament, round type, and path type.
+     * Pins the real draw of the round, and the results of its legs played so
+     * far. The round is then drawn into the real ties, and the legs with
+     * results are set to them instead of being played.
+     *
+     * @param pinnedTies the real ties in the order to draw them, or null to draw
+     *                   and play the round at random.
      */
-    @Override
-    public String getName() {
-        return super.getName() + " " + roundType + " " + pathType;
+    public void setPinnedTies(List<RealResults.PinnedTie> pinnedTies) {
+        this.pinnedTies = pinnedTies;
+    }
+
+    public boolean isPinned() {
+        return pinnedTies != null;
     }
 
     /**
@@ -62,21 +78,20 @@ public class QRound extends Round {
         }
 
         // If round that clubs has skipped to, fix the club slots for those clubs
-        if (getName().equals(ROUND_CLUBS_SKIP_TO)) { // Todo: make this false if UCLQ1CP's clubSlots.length ==
-                                                     // UCL_Q1_CP_TIES_NO_REBALANCE;
-            updateClubSlotsIfClubHasSkipped(true); // Only to avoid incorrect printing of clubs that have skipped a
-                                                   // round
+        // Todo: make this false if UCLQ1CP's clubSlots.length == UCL_Q1_CP_TIES_NO_REBALANCE;
+        if (roundId == ROUND_CLUBS_SKIP_TO) {
+            updateClubSlotsIfClubHasSkipped(); // Only to avoid incorrect printing of clubs that have skipped a round
         }
 
-        clubSlots.sort((c1, c2) -> Float.compare(c1.getRanking(), c2.getRanking()));
+        sortClubSlotsByRanking(0);
         int halfSize = clubSlots.size() / 2;
 
         seededClubSlots = clubSlots.subList(0, halfSize);
         unseededClubSlots = clubSlots.subList(halfSize, clubSlots.size());
-        // System.out.println("\n" + getName() + ", seeded clubs:");
-        printClubSlotList(seededClubSlots);
-        // System.out.println("\n" + getName() + ", unseeded clubs:");
-        printClubSlotList(unseededClubSlots);
+        if (trace.isEnabled(Trace.Level.ALL)) {
+            trace.seeding(this, true, seededClubSlots);
+            trace.seeding(this, false, unseededClubSlots);
+        }
     }
 
     /**
@@ -87,45 +102,187 @@ public class QRound extends Round {
      * First, it pairs seeded clubs that have at least one club from the same
      * country among the unseeded.
      * Then, it pairs the remaining seeded clubs with the remaining unseeded clubs.
+     * If a seeded club is left without a legal opponent, the round is drawn
+     * again.
+     *
+     * @throws IllegalStateException if no legal draw is found in
+     *                               {@value #MAX_DRAW_ATTEMPTS} attempts.
      */
     @Override
     public void draw() {
-        List<ClubSlot> remainingSeeded = new ArrayList<>(seededClubSlots);
-        List<ClubSlot> remainingUnseeded = new ArrayList<>(unseededClubSlots);
+        if (pinnedTies != null) {
+            drawPinned();
+            return;
+        }
+        int tiePoolMark = tiePool.getDoubleLeggedMark();
+        int attempts = 0;
+        while (!tryDraw()) {
+            // Drawing the constrained clubs first can still leave a club without a
+            // legal opponent. Release the ties of the attempt and draw again.
+            tiePool.releaseDoubleLeggedTies(tiePoolMark);
+            if (++attempts == MAX_DRAW_ATTEMPTS) {
+                throw new IllegalStateException(
+                        "No legal draw of " + getName() + " found in " + MAX_DRAW_ATTEMPTS + " attempts.");
+            }
+        }
+
+        if (trace.isEnabled(Trace.Level.TIES)) {
+            trace.drawn(this);
+        }
+    }
+
+    /**
+     * Draws the seeded club slots against the unseeded club slots once.
+     *
+     * @return false if a seeded club slot was left without a legal opponent, in
+     *         which case the ties of the round are incomplete.
+     */
+    private boolean tryDraw() {
+        remainingSeeded.clear();
+        remainingUnseeded.clear();
+        remainingUnseeded.addAll(unseededClubSlots);
         ties.clear();
 
         // First, draw opponents for seeded clubs that have at least one club that it's
-        // illegal to meet
-        seededClubSlots.stream()
-                .filter(seeded -> remainingUnseeded.stream().anyMatch(unseeded -> isIllegalTie(seeded, unseeded)))
-                .forEach(seeded -> {
-                    ClubSlot opponent;
-                    do {
-                        opponent = remainingUnseeded.get((int) (Math.random() * remainingUnseeded.size()));
-                    } while (isIllegalTie(seeded, opponent));
-                    remainingSeeded.remove(seeded);
-                    remainingUnseeded.remove(opponent);
-                    ties.add(Math.random() < 0.5 ? new DoubleLeggedTie(seeded, opponent)
-                            : new DoubleLeggedTie(opponent, seeded));
-                });
+        // illegal to meet. The other seeded clubs are kept in order to be drawn after.
+        for (ClubSlot seeded : seededClubSlots) {
+            int legal = countLegalOpponents(seeded);
+            if (legal == remainingUnseeded.size()) {
+                remainingSeeded.add(seeded);
+                continue;
+            }
+            if (legal == 0) {
+                return false;
+            }
+            int pick = random.nextInt(legal);
+            int index = 0;
+            while (isIllegalTie(seeded, remainingUnseeded.get(index)) || pick-- > 0) {
+                index++;
+            }
+            addDrawnTie(seeded, swapRemove(remainingUnseeded, index));
+        }
 
         // Then, draw opponents for the remaining seeded clubs
-        remainingSeeded.forEach(seeded -> {
-            ClubSlot opponent = remainingUnseeded.remove((int) (Math.random() * remainingUnseeded.size()));
-            ties.add(Math.random() < 0.5 ? new DoubleLeggedTie(seeded, opponent)
-                    : new DoubleLeggedTie(opponent, seeded));
-        });
+        for (ClubSlot seeded : remainingSeeded) {
+            addDrawnTie(seeded, swapRemove(remainingUnseeded, random.nextInt(remainingUnseeded.size())));
+        }
+        return true;
+    }
+
+    /**
+     * Draws the real ties of the round. Each club of a real tie is matched to the
+     * club slot standing for it, which may be the winner or loser of a tie of an
+     * earlier round.
+     *
+     * @throws IllegalStateException if the real ties do not match the club slots
+     *                               of the round.
+     */
+    private void drawPinned() {
+        ties.clear();
+        if (pinnedTies.size() * 2 != clubSlots.size()) {
+            throw new IllegalStateException(getName() + " has " + clubSlots.size() + " club slots, but "
+                    + pinnedTies.size() + " real ties.");
+        }
+        remainingUnseeded.clear();
+        remainingUnseeded.addAll(clubSlots);
+        for (RealResults.PinnedTie pinnedTie : pinnedTies) {
+            ClubSlot clubSlot1 = removePinnedSlot(pinnedTie.getClub1Id());
+            ClubSlot clubSlot2 = removePinnedSlot(pinnedTie.getClub2Id());
+            ties.add(tiePool.acquireDoubleLeggedTie(clubSlot1, clubSlot2));
+        }
+        if (trace.isEnabled(Trace.Level.TIES)) {
+            trace.drawn(this);
+        }
+    }
+
+    /**
+     * Removes the club slot standing for a club from the slots still to be drawn
+     * into real ties.
+     */
+    private ClubSlot removePinnedSlot(int clubId) {
+        for (int i = 0; i < remainingUnseeded.size(); i++) {
+            if (standsFor(remainingUnseeded.get(i), clubId)) {
+                return swapRemove(remainingUnseeded, i);
+            }
+        }
+        throw new IllegalStateException(
+                clubRepository.getClub(clubId).getName() + " of a real tie is not in " + getName() + ".");
+    }
+
+    /**
+     * Checks if a club slot is a club, or the winner or loser of a tie the club
+     * plays in.
+     */
+    private static boolean standsFor(ClubSlot clubSlot, int clubId) {
+        ClubSlot resolved = clubSlot.resolve();
+        if (resolved instanceof ClubIdWrapper club) {
+            return club.getId() == clubId;
+        }
+        if (resolved instanceof DoubleLeggedTieWrapper wrapper) {
+            Tie tie = wrapper.getTie();
+            return standsFor(tie.getClubSlot1(), clubId) || standsFor(tie.getClubSlot2(), clubId);
+        }
+        return false;
+    }
+
+    /**
+     * Checks if a club slot is drawn into one of the real ties of the round.
+     */
+    private boolean isPinnedEntrant(ClubSlot clubSlot) {
+        for (RealResults.PinnedTie pinnedTie : pinnedTies) {
+            if (standsFor(clubSlot, pinnedTie.getClub1Id()) || standsFor(clubSlot, pinnedTie.getClub2Id())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts the unseeded club slots still to be drawn that a seeded club slot
+     * may meet.
+     */
+    private int countLegalOpponents(ClubSlot seeded) {
+        int legal = 0;
+        for (int i = 0; i < remainingUnseeded.size(); i++) {
+            if (!isIllegalTie(seeded, remainingUnseeded.get(i))) {
+                legal++;
+            }
+        }
+        return legal;
+    }
+
+    /**
+     * Adds a drawn tie, with a random club slot playing the first leg at home.
+     */
+    private void addDrawnTie(ClubSlot seeded, ClubSlot unseeded) {
+        ties.add(random.nextBoolean() ? tiePool.acquireDoubleLeggedTie(seeded, unseeded)
+                : tiePool.acquireDoubleLeggedTie(unseeded, seeded));
+    }
 
-        // System.out.println("\n" + getName() + ", ties:");
-        // ties.forEach(tie -> System.out.println(tie.getName()));
+    /**
+     * Removes an element by moving the last element into its place, so the
+     * removal takes constant time. The order of the list is not kept.
+     *
+     * @return the removed element.
+     */
+    private static ClubSlot swapRemove(List<ClubSlot> list, int index) {
+        ClubSlot removed = list.get(index);
+        ClubSlot last = list.remove(list.size() - 1);
+        if (index < list.size()) {
+            list.set(index, last);
+        }
+        return removed;
     }
 
     /**
      * Registers ties for the next rounds.
      * <p>
-     * If there are clubs that must skip the secondary round, the ties are shuffled
-     * to randomize which ties get to skip. Then, ties are added to the next primary
-     * round and, if applicable, to the next secondary round.
+     * If there are clubs that must skip the secondary round, the ties that get to
+     * skip are picked at random by a partial shuffle of the tie indices, or, if
+     * the secondary round is drawn for real, they are the ties whose losers are
+     * not in its real draw. Then, in
+     * one pass over the ties, they are added to the next primary round and, if
+     * applicable, to the next secondary round.
      * </p>
      * <p>
      * For each tie:
@@ -142,28 +299,48 @@ public class QRound extends Round {
      * </p>
      */
     public void regTiesForNextRounds() {
-        // If ties must skip the secondary round, shuffle the ties to randomize which
-        // ties get to skip
-        int noOfClubsToSkipSecondary = noOfClubsCanSkipSecondary();
-        if (noOfClubsToSkipSecondary > 0) {
-            Collections.shuffle(ties);
+        int tieCount = ties.size();
+        int noOfClubsToSkipSecondary = Math.min(noOfClubsCanSkipSecondary(), tieCount);
+        if (skipsSecondary.length < tieCount) {
+            skipsSecondary = new boolean[tieCount];
+            tieOrder = new int[tieCount];
+        }
+        Arrays.fill(skipsSecondary, 0, tieCount, false);
+        // Shuffle only as many tie indices as there are ties that must skip the
+        // secondary round
+        if (noOfClubsToSkipSecondary > 0 && ((QRound) nextSecondaryRnd).isPinned()) {
+            QRound secondary = (QRound) nextSecondaryRnd;
+            for (int i = 0; i < tieCount; i++) {
+                skipsSecondary[i] = !secondary.isPinnedEntrant(((DoubleLeggedTie) ties.get(i)).getWrapper(true));
+            }
+        } else if (noOfClubsToSkipSecondary > 0) {
+            for (int i = 0; i < tieCount; i++) {
+                tieOrder[i] = i;
+            }
+            for (int i = 0; i < noOfClubsToSkipSecondary; i++) {
+                int j = i + random.nextInt(tieCount - i);
+                int picked = tieOrder[j];
+                tieOrder[j] = tieOrder[i];
+                tieOrder[i] = picked;
+                skipsSecondary[picked] = true;
+            }
         }
         // Add ties to the next primary round and the next secondary round if applicable
-        ties.forEach(tie -> {
+        for (int i = 0; i < tieCount; i++) {
+            DoubleLeggedTie tie = (DoubleLeggedTie) ties.get(i);
             // Add tie to the next primary round
-            this.nextPrimaryRnd.addClubSlot(new DoubleLeggedTieWrapper((DoubleLeggedTie) tie, false));
+            this.nextPrimaryRnd.addClubSlot(tie.getWrapper(false));
             // Add tie to the next secondary round if applicable
             if (this.nextSecondaryRnd != null) {
                 // Add tie to the next primary round of the secondary round if it can skip,
                 // otherwise add to the secondary round
-                if (ties.indexOf(tie) < noOfClubsToSkipSecondary) {
-                    this.nextSecondaryRnd.nextPrimaryRnd
-                            .addClubSlot(new DoubleLeggedTieWrapper((DoubleLeggedTie) tie, true));
+                if (skipsSecondary[i]) {
+                    this.nextSecondaryRnd.nextPrimaryRnd.addClubSlot(tie.getWrapper(true));
                 } else {
-                    this.nextSecondaryRnd.addClubSlot(new DoubleLeggedTieWrapper((DoubleLeggedTie) tie, true));
+                    this.nextSecondaryRnd.addClubSlot(tie.getWrapper(true));
                 }
             }
-        });
+        }
     }
 
     /**
@@ -172,12 +349,35 @@ public class QRound extends Round {
      * @return the number of clubs that can skip the secondary round.
      */
     private int noOfClubsCanSkipSecondary() {
+        return noOfClubsCanSkipSecondary(ties.size());
+    }
+
+    /**
+     * Determines the number of clubs that can skip the secondary round when the
+     * round is drawn into the given number of ties.
+     *
+     * @param tieCount the number of ties in the round.
+     * @return the number of clubs that can skip the secondary round.
+     */
+    public int noOfClubsCanSkipSecondary(int tieCount) {
         int noOfClubsToSkip = (tournament == CompetitionData.Tournament.CHAMPIONS_LEAGUE
                 && roundType == CompetitionData.RoundType.Q1
-                && pathType == CompetitionData.PathType.CHAMPIONS_PATH) ? UCL_Q1_CP_TIES_NO_REBALANCE - ties.size() : 0;
+                && pathType == CompetitionData.PathType.CHAMPIONS_PATH) ? UCL_Q1_CP_TIES_NO_REBALANCE - tieCount : 0;
         return noOfClubsToSkip;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Also forgets the seeding, which refers to the cleared club slots.
+     */
+    @Override
+    public void reset() {
+        super.reset();
+        seededClubSlots = List.of();
+        unseededClubSlots = List.of();
+    }
+
     /**
      * Registers clubs for the league phase.
      */
@@ -193,15 +393,41 @@ public class QRound extends Round {
     /**
      * {@inheritDoc}
      * <p>
-     * Plays the ties in the qualifying round.
+     * Plays the ties in the qualifying round and updates the Elo ratings with
+     * the results. Legs with real results are set to them instead.
      */
     @Override
-    public void play(ClubEloDataLoader clubEloDataLoader) {
-        // System.out.println("\n" + getName());
-        for (Tie tie : ties) {
-            tie.play();
+    public void play(EloRatings eloRatings) {
+        boolean traced = trace.isEnabled(Trace.Level.TIES);
+        for (int i = 0; i < ties.size(); i++) {
+            DoubleLeggedTie tie = (DoubleLeggedTie) ties.get(i);
+            if (pinnedTies == null || !tie.playPinned(pinnedTies.get(i))) {
+                tie.play(random, matchModel, eloRatings);
+            }
+            eloRatings.update(tie);
+            if (traced) {
+                trace.played(this, tie);
+            }
+        }
+    }
+
+    /**
+     * Settles all ties in the qualifying round at once, without playing the legs.
+     * Ties with a real winner are settled with it.
+     *
+     * @param tieProbabilities the probabilities to settle the ties with.
+     */
+    public void playFastOutcome(TieProbabilities tieProbabilities) {
+        boolean traced = trace.isEnabled(Trace.Level.TIES);
+        for (int i = 0; i < ties.size(); i++) {
+            DoubleLeggedTie tie = (DoubleLeggedTie) ties.get(i);
+            if (pinnedTies == null || !tie.settlePinned(pinnedTies.get(i))) {
+                tie.playFastOutcome(tieProbabilities, random);
+            }
+            if (traced) {
+                trace.settled(this, tie);
+            }
         }
-        // Todo: Update the clubEloDataLoader with the new Elo ratings after the matches
     }
 
     @Override
@@ -0,0 +1,153 @@
+package com.github.jkaste03.uefa_cc_sim.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.jkaste03.uefa_cc_sim.enums.CompetitionData.RoundId;
+
+/**
+ * The real draws and results of the qualifying rounds played so far, pinned so
+ * that every iteration starts from them and only simulates what is still to
+ * come.
+ * <p>
+ * A round with pinned ties is drawn into exactly those ties instead of being
+ * drawn at random. Each pinned tie may also have the results of its legs, in
+ * which case those legs are not played but set to the real scores. The real
+ * results still update the Elo ratings of the iteration like played legs do.
+ */
+public class RealResults implements Serializable {
+    private final Map<RoundId, List<PinnedTie>> tiesByRound = new EnumMap<>(RoundId.class);
+
+    /**
+     * A real tie of a qualifying round, with the results of the legs played so
+     * far.
+     */
+    public static final class PinnedTie implements Serializable {
+        private final int club1Id;
+        private final int club2Id;
+        private final int club1GoalsLeg1;
+        private final int club2GoalsLeg1;
+        private final int club1GoalsLeg2;
+        private final int club2GoalsLeg2;
+        private final int winnerId;
+
+        /**
+         * Constructs a pinned tie.
+         *
+         * @param club1Id        the id of the club playing the first leg at home.
+         * @param club2Id        the id of the club playing the second leg at home.
+         * @param club1GoalsLeg1 the goals of club 1 in the first leg, or -1 if it is
+         *                       not played yet.
+         * @param club2GoalsLeg1 the goals of club 2 in the first leg, or -1.
+         * @param club1GoalsLeg2 the goals of club 1 in the second leg including
+         *                       extra time, or -1 if it is not played yet.
+         * @param club2GoalsLeg2 the goals of club 2 in the second leg, or -1.
+         * @param winnerId       the id of the club that advanced, or -1 to take it
+         *                       from the aggregate. Needed when a shootout decided
+         *                       the tie.
+         * @throws IllegalArgumentException if the second leg is given without the
+         *                                  first, or a level tie has no winner.
+         */
+        public PinnedTie(int club1Id, int club2Id, int club1GoalsLeg1, int club2GoalsLeg1, int club1GoalsLeg2,
+                int club2GoalsLeg2, int winnerId) {
+            if ((club1GoalsLeg1 < 0) != (club2GoalsLeg1 < 0) || (club1GoalsLeg2 < 0) != (club2GoalsLeg2 < 0)
+                    || (club1GoalsLeg1 < 0 && club1GoalsLeg2 >= 0)) {
+                throw new IllegalArgumentException("A leg needs the goals of both clubs, and the first leg of a "
+                        + "tie must be played before the second.");
+            }
+            if (winnerId == -1 && club1GoalsLeg2 >= 0) {
+                int aggregate = club1GoalsLeg1 + club1GoalsLeg2 - club2GoalsLeg1 - club2GoalsLeg2;
+                if (aggregate == 0) {
+                    throw new IllegalArgumentException("A level tie needs the winner of its shootout.");
+                }
+                winnerId = aggregate > 0 ? club1Id : club2Id;
+            }
+            if (winnerId != -1 && winnerId != club1Id && winnerId != club2Id) {
+                throw new IllegalArgumentException("The winner of a tie must be one of its clubs.");
+            }
+            this.club1Id = club1Id;
+            this.club2Id = club2Id;
+            this.club1GoalsLeg1 = club1GoalsLeg1;
+            this.club2GoalsLeg1 = club2GoalsLeg1;
+            this.club1GoalsLeg2 = club1GoalsLeg2;
+            this.club2GoalsLeg2 = club2GoalsLeg2;
+            this.winnerId = winnerId;
+        }
+
+        public int getClub1Id() {
+            return club1Id;
+        }
+
+        public int getClub2Id() {
+            return club2Id;
+        }
+
+        public boolean isLeg1Played() {
+            return club1GoalsLeg1 >= 0;
+        }
+
+        public boolean isLeg2Played() {
+            return club1GoalsLeg2 >= 0;
+        }
+
+        public int getClub1GoalsLeg1() {
+            return club1GoalsLeg1;
+        }
+
+        public int getClub2GoalsLeg1() {
+            return club2GoalsLeg1;
+        }
+
+        public int getClub1GoalsLeg2() {
+            return club1GoalsLeg2;
+        }
+
+        public int getClub2GoalsLeg2() {
+            return club2GoalsLeg2;
+        }
+
+        /**
+         * Returns the club that advanced from the tie.
+         *
+         * @return the id of the club, or -1 if the tie is not decided yet.
+         */
+        public int getWinnerId() {
+            return winnerId;
+        }
+    }
+
+    /**
+     * Pins a real tie of a round. The ties of a round are drawn in the order
+     * they are pinned.
+     *
+     * @param roundId the id of the round.
+     * @param tie     the real tie.
+     */
+    public void addTie(RoundId roundId, PinnedTie tie) {
+        tiesByRound.computeIfAbsent(roundId, id -> new ArrayList<>()).add(tie);
+    }
+
+    /**
+     * Returns the pinned ties of a round.
+     *
+     * @param roundId the id of the round.
+     * @return the ties, or null if the round is not drawn yet.
+     */
+    public List<PinnedTie> getTies(RoundId roundId) {
+        List<PinnedTie> ties = tiesByRound.get(roundId);
+        return ties != null ? Collections.unmodifiableList(ties) : null;
+    }
+
+    /**
+     * Returns the rounds with pinned ties.
+     *
+     * @return the ids of the rounds, in their order.
+     */
+    public List<RoundId> getRoundIds() {
+        return new ArrayList<>(tiesByRound.keySet());
+    }
+}
@@ -1,10 +1,11 @@
 package com.github.jkaste03.uefa_cc_sim.model;
 
+import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
+import java.util.Random;
 
+import com.github.jkaste03.uefa_cc_sim.engine.MatchModel;
 import com.github.jkaste03.uefa_cc_sim.enums.CompetitionData;
-import com.github.jkaste03.uefa_cc_sim.service.ClubEloDataLoader;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -13,26 +14,50 @@ import java.util.ArrayList;
  * Abstract class representing a round in the UEFA competitions.
  */
 public abstract class Round implements Serializable {
+    protected final CompetitionData.RoundId roundId;
     protected CompetitionData.Tournament tournament;
     protected CompetitionData.RoundType roundType;
     protected Round nextPrimaryRnd;
     protected Round nextSecondaryRnd;
     protected List<ClubSlot> clubSlots = new ArrayList<>();
     protected List<Tie> ties = new ArrayList<>();
+    // The club slots the round starts with, restored by reset().
+    protected List<ClubSlot> entrantSlots = new ArrayList<>();
+    protected TiePool tiePool = new TiePool();
+    protected Trace trace = new Trace();
+    protected ClubRepository clubRepository;
+    // The random numbers of the draws and matches, shared by all rounds.
+    protected Random random = new Random();
+    // The model the matches are played with, or null for uniform scorelines.
+    protected MatchModel matchModel;
+    // Scratch of sortClubSlotsByRanking, kept to be reused by the next sort.
+    private long[] sortEntries = new long[0];
+    private final List<ClubSlot> sortedSlots = new ArrayList<>();
 
     /**
-     * Constructor that initializes the round with a tournament and round type.
+     * Constructor that initializes the round with its id, which gives its
+     * tournament and round type.
      * 
-     * @param tournament the tournament of the round.
-     * @param roundType  the type of the round.
+     * @param roundId the id of the round.
      */
-    public Round(CompetitionData.Tournament tournament, CompetitionData.RoundType roundType) {
-        this.tournament = tournament;
-        this.roundType = roundType;
+    public Round(CompetitionData.RoundId roundId) {
+        this.roundId = roundId;
+        this.tournament = roundId.getTournament();
+        this.roundType = roundId.getRoundType();
     }
 
+    /**
+     * Returns the name of the round, which is built once by its
+     * {@link CompetitionData.RoundId}.
+     *
+     * @return the name of the round, e.g. "CHAMPIONS_LEAGUE Q1 CHAMPIONS_PATH".
+     */
     public String getName() {
-        return tournament + "";
+        return roundId.getName();
+    }
+
+    public CompetitionData.RoundId getRoundId() {
+        return roundId;
     }
 
     public CompetitionData.Tournament getTournament() {
@@ -68,6 +93,26 @@ public abstract class Round implements Serializable {
         this.clubSlots = clubSlots;
     }
 
+    public void setClubRepository(ClubRepository clubRepository) {
+        this.clubRepository = clubRepository;
+    }
+
+    public void setTiePool(TiePool tiePool) {
+        this.tiePool = tiePool;
+    }
+
+    public void setRandom(Random random) {
+        this.random = random;
+    }
+
+    public void setTrace(Trace trace) {
+        this.trace = trace;
+    }
+
+    public void setMatchModel(MatchModel matchModel) {
+        this.matchModel = matchModel;
+    }
+
     public List<Tie> getTies() {
         return ties;
     }
@@ -85,6 +130,26 @@ public abstract class Round implements Serializable {
         clubSlots.add(clubSlot);
     }
 
+    /**
+     * Records the current club slots as the entrants of the round, that is the
+     * club slots {@link #reset()} restores.
+     */
+    public void saveEntrants() {
+        entrantSlots.clear();
+        entrantSlots.addAll(clubSlots);
+    }
+
+    /**
+     * Resets the round to its state before the simulation: the club slots are
+     * replaced by the entrants and the ties are cleared. The lists keep their
+     * capacity, so a reset round can be run again without allocating them anew.
+     */
+    public void reset() {
+        clubSlots.clear();
+        clubSlots.addAll(entrantSlots);
+        ties.clear();
+    }
+
     /**
      * Checks if a tie between two club slots is illegal based on political and
      * other restrictions.
@@ -112,16 +177,6 @@ public abstract class Round implements Serializable {
         return clubSlot1.getCountries().stream().anyMatch(clubSlot2.getCountries()::contains);
     }
 
-    /**
-     * Prints the names of the clubs in the provided list of ClubSlot objects.
-     *
-     * @param clubSlotList the list of ClubSlot objects whose names are to be
-     *                     printed
-     */
-    protected static void printClubSlotList(List<ClubSlot> clubSlotList) {
-        // clubSlotList.forEach(clubSlot -> System.out.println(clubSlot.getName()));
-    }
-
     /**
      * Updates the club slots in all ties.
      * <p>
@@ -146,6 +201,16 @@ public abstract class Round implements Serializable {
         draw();
     }
 
+    /**
+     * Draws the ties again from the seeding of the last {@link #seedDraw()},
+     * replacing the ties of the previous draw. Used by draw-only runs, which
+     * draw the same pots many times without playing any matches.
+     */
+    public void redraw() {
+        ties.clear();
+        draw();
+    }
+
     /**
      * Seeds the clubs for the round.
      * <p>
@@ -164,26 +229,58 @@ public abstract class Round implements Serializable {
      */
     protected abstract void draw();
 
+    /**
+     * Sorts the club slots from an index to the end in ascending order of
+     * ranking, keeping the order of slots with equal rankings.
+     * <p>
+     * The ranking of each slot is read once. It is packed with the slot's index
+     * into a long that orders like the ranking and then the index, so a
+     * primitive sort of the longs gives the permutation to rearrange the slots
+     * by, without calling a comparator.
+     *
+     * @param from the index of the first slot to sort.
+     */
+    protected void sortClubSlotsByRanking(int from) {
+        int n = clubSlots.size() - from;
+        if (sortEntries.length < n) {
+            sortEntries = new long[n];
+        }
+        for (int i = 0; i < n; i++) {
+            int bits = Float.floatToIntBits(clubSlots.get(from + i).getRanking());
+            // Flip the magnitude bits of negative floats so the bits order like the floats.
+            bits ^= (bits >> 31) & 0x7fffffff;
+            sortEntries[i] = (long) bits << 32 | i;
+        }
+        Arrays.sort(sortEntries, 0, n);
+
+        sortedSlots.clear();
+        for (int i = 0; i < n; i++) {
+            sortedSlots.add(clubSlots.get(from + (int) sortEntries[i]));
+        }
+        for (int i = 0; i < n; i++) {
+            clubSlots.set(from + i, sortedSlots.get(i));
+        }
+    }
+
     /**
      * Updates club slots if a club has skipped a round. This avoids having a
      * DoubleLeggedTieWrapper when a ClubIdWrapper is needed.
-     * If the club slot is a DoubleLeggedTieWrapper, it will be replaced with
-     * either the winner or the loser of the tie, based on the useWinner parameter.
-     * If the winner or loser is null, the original club slot is kept.
-     *
-     * @param useWinner true to use the winner, false to use the loser of the tie
+     * Each club slot is replaced with the club it resolves to, see
+     * {@link ClubSlot#resolve()}, so the winner or loser of a played tie becomes
+     * that club, and the slots of unplayed ties are kept.
      */
-    protected void updateClubSlotsIfClubHasSkipped(boolean useWinner) {
-        clubSlots.replaceAll(clubSlot -> clubSlot instanceof DoubleLeggedTieWrapper wrapper
-                ? Optional.ofNullable(useWinner ? wrapper.getTie().getWinner() : wrapper.getTie().getLoser())
-                        .orElse(clubSlot)
-                : clubSlot);
+    protected void updateClubSlotsIfClubHasSkipped() {
+        for (int i = 0; i < clubSlots.size(); i++) {
+            clubSlots.set(i, clubSlots.get(i).resolve());
+        }
     }
 
     /**
      * Plays the round.
+     *
+     * @param eloRatings the ratings of the iteration, updated with the results.
      */
-    public abstract void play(ClubEloDataLoader clubEloDataLoader);
+    public abstract void play(EloRatings eloRatings);
 
     @Override
     public String toString() {
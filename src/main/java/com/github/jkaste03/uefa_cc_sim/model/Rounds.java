@@ -1,14 +1,27 @@
 package com.github.jkaste03.uefa_cc_sim.model;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 import com.github.jkaste03.uefa_cc_sim.enums.CompetitionData.PathType;
 import com.github.jkaste03.uefa_cc_sim.enums.CompetitionData.RoundType;
 import com.github.jkaste03.uefa_cc_sim.enums.CompetitionData.Tournament;
+import com.github.jkaste03.uefa_cc_sim.engine.CounterRandom;
+import com.github.jkaste03.uefa_cc_sim.engine.MatchModel;
+import com.github.jkaste03.uefa_cc_sim.engine.ReachCounter;
+import com.github.jkaste03.uefa_cc_sim.engine.TieProbabilities;
 import com.github.jkaste03.uefa_cc_sim.service.ClubEloDataLoader;
+import com.github.jkaste03.uefa_cc_sim.service.EloRatingProvider;
+import com.github.jkaste03.uefa_cc_sim.service.EloSnapshot;
 import com.github.jkaste03.uefa_cc_sim.service.JsonDataLoader;
+import com.google.gson.JsonObject;
 
 /**
  * The Rounds class is responsible for initializing, linking, and executing all
@@ -16,24 +29,92 @@ import com.github.jkaste03.uefa_cc_sim.service.JsonDataLoader;
  * define the progression sequence. This detailed simulation ensures that
  * seeding, draws, tie registrations, and match play are executed in an
  * organized manner.
+ * <p>
+ * The club data and the Elo ratings are read on virtual threads while the
+ * rounds are constructed. The ratings are joined to the clubs once both are
+ * in, which may finish after the constructor returns, so the rounds can be
+ * compiled into a plan meanwhile. Running or copying the rounds waits for the
+ * ratings first.
  */
 public class Rounds implements Serializable {
+    // Starts each loading task on a virtual thread of its own.
+    private static final Executor VIRTUAL_THREADS = task -> Thread.ofVirtual().start(task);
+
     // Declare qualifying rounds and league rounds for all competitions.
     private QRound uclQ1CP, uclQ2CP, uclQ2LP, uclQ3CP, uclQ3LP, uclPoCP, uclPoLP;
     private QRound uelQ1MP, uelQ2MP, uelQ3MP, uelQ3CP, uelPo;
     private QRound ueclQ1MP, ueclQ2MP, ueclQ2CP, ueclQ3MP, ueclQ3CP, ueclPoMP, ueclPoCP;
     private LeaguePhaseRound uclLP, uelLP, ueclLP;
     private List<Round> rounds;
+    // Ties and wrappers shared by all rounds and reused between iterations.
+    private final TiePool tiePool = new TiePool();
+    // The random numbers of all draws and matches, seeded per iteration.
+    private final Random random = new Random();
+    // The recent events of the runs, recorded when turned on.
+    private final Trace trace = new Trace();
+    // The entrant slot of each club by id, and the ties of a restored snapshot in
+    // its order, used to restore snapshots.
+    private ClubIdWrapper[] clubSlotsById;
+    private final List<DoubleLeggedTie> restoredTies = new ArrayList<>();
 
-    // Map to hold club Elo ratings for each club.
+    // The clubs of the simulation, shared by all rounds.
+    private final ClubRepository clubRepository;
+
+    // The loaded club Elo ratings, read-only.
     private ClubEloDataLoader clubEloDataLoader;
+    // The Elo ratings as changed by the matches of the current iteration.
+    private EloRatings eloRatings;
+
+    // Tie probabilities for the fast outcome mode, or null to play every leg.
+    // Not serialized, so deep copies must have it set again.
+    private transient TieProbabilities tieProbabilities;
+
+    // Receives the events of a run, or null. Not serialized either.
+    private transient SimulationListener listener;
+
+    // Completes when the Elo ratings have been joined to the clubs. Null in
+    // deep copies, which are only made once it has completed.
+    private transient CompletableFuture<Void> eloLoaded;
+
+    /**
+     * Constructs all rounds for UEFA competitions with a club repository of their
+     * own.
+     *
+     * @see #Rounds(ClubRepository)
+     */
+    public Rounds() {
+        this(new ClubRepository());
+    }
 
     /**
      * Constructs all rounds for UEFA competitions, initializes club Elo API,
      * and sets up the interlink between rounds. This constructor prepares the
      * simulation by creating each qualifying and league phase round instance.
+     *
+     * @param clubRepository the empty repository to load the clubs into.
+     * @see #Rounds(ClubRepository, EloRatingProvider)
      */
-    public Rounds() {
+    public Rounds(ClubRepository clubRepository) {
+        this(clubRepository, EloRatingProvider.defaultProvider());
+    }
+
+    /**
+     * Constructs all rounds for UEFA competitions, reading the club Elo ratings
+     * from the given provider, and sets up the interlink between rounds.
+     *
+     * @param clubRepository    the empty repository to load the clubs into.
+     * @param eloRatingProvider the provider of the club Elo ratings.
+     */
+    public Rounds(ClubRepository clubRepository, EloRatingProvider eloRatingProvider) {
+        this.clubRepository = clubRepository;
+
+        // Read the club data and the Elo ratings while the rounds are created.
+        CompletableFuture<JsonObject> clubData = CompletableFuture.supplyAsync(JsonDataLoader::readData,
+                VIRTUAL_THREADS);
+        clubEloDataLoader = new ClubEloDataLoader(eloRatingProvider);
+        CompletableFuture<EloSnapshot> eloData = CompletableFuture
+                .supplyAsync(clubEloDataLoader::readRatings, VIRTUAL_THREADS);
+
         // Create instances for Champions League qualifier rounds.
         uclQ1CP = new QRound(Tournament.CHAMPIONS_LEAGUE, RoundType.Q1, PathType.CHAMPIONS_PATH);
         uclQ2CP = new QRound(Tournament.CHAMPIONS_LEAGUE, RoundType.Q2, PathType.CHAMPIONS_PATH);
@@ -68,12 +149,28 @@ public class Rounds implements Serializable {
                         uclQ3LP, uelQ3MP, uelQ3CP, ueclQ3MP, ueclQ3CP, uclPoCP, uclPoLP, uelPo, ueclPoMP, ueclPoCP,
                         uclLP, uelLP, ueclLP));
 
-        // Initialize data for each round.
-        JsonDataLoader.loadDataForRounds(rounds);
+        // The ids of the rounds are declared in the order of the list.
+        for (int i = 0; i < rounds.size(); i++) {
+            if (rounds.get(i).getRoundId().ordinal() != i) {
+                throw new IllegalStateException(rounds.get(i).getName() + " is not at the index of its id.");
+            }
+        }
 
-        // Initialize external service to fetch club elo ratings
-        clubEloDataLoader = new ClubEloDataLoader();
-        clubEloDataLoader.init();
+        // Initialize data for each round, and remember the clubs each round starts
+        // with so that reset() can restore them.
+        JsonDataLoader.loadDataForRounds(rounds, clubData.join(), clubRepository);
+        rounds.forEach(round -> {
+            round.saveEntrants();
+            round.setTiePool(tiePool);
+            round.setRandom(random);
+            round.setTrace(trace);
+            round.setClubRepository(clubRepository);
+        });
+
+        // Join the Elo ratings to the clubs once they are read, without waiting
+        // for them here.
+        eloRatings = new EloRatings(clubEloDataLoader, clubRepository.getClubCount());
+        eloLoaded = eloData.thenAccept(ratings -> clubEloDataLoader.setRatings(clubRepository, ratings));
 
         // Link rounds to define the progression flow.
         linkRounds();
@@ -83,6 +180,128 @@ public class Rounds implements Serializable {
         return rounds;
     }
 
+    public ClubRepository getClubRepository() {
+        return clubRepository;
+    }
+
+    public ClubEloDataLoader getClubEloDataLoader() {
+        awaitLoaded();
+        return clubEloDataLoader;
+    }
+
+    public EloRatings getEloRatings() {
+        awaitLoaded();
+        return eloRatings;
+    }
+
+    /**
+     * Waits until the Elo ratings have been joined to the clubs.
+     */
+    public void awaitLoaded() {
+        if (eloLoaded != null) {
+            eloLoaded.join();
+        }
+    }
+
+    /**
+     * Waits for the Elo ratings before writing, so a copy is never made of
+     * rounds that are still loading.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        awaitLoaded();
+        out.defaultWriteObject();
+    }
+
+    public TiePool getTiePool() {
+        return tiePool;
+    }
+
+    public TieProbabilities getTieProbabilities() {
+        return tieProbabilities;
+    }
+
+    /**
+     * Enables or disables the fast outcome mode. In fast outcome mode, each
+     * qualifying tie is settled with a single random number compared to the
+     * probability that its first-leg home club advances, instead of playing
+     * both legs. Use it when only who advances is needed, not the scorelines.
+     *
+     * @param tieProbabilities the tie probabilities to settle ties with, or null
+     *                         to play the legs.
+     */
+    public void setFastOutcome(TieProbabilities tieProbabilities) {
+        this.tieProbabilities = tieProbabilities;
+    }
+
+    /**
+     * Sets the model the legs of the ties are played with. Each leg's goals are
+     * then drawn from the Elo ratings of the clubs as changed so far in the
+     * iteration. Without a model, every scoreline from 0-0 to 3-3 is equally
+     * likely. The fast outcome mode is not affected.
+     *
+     * @param matchModel the calibrated model, or null for uniform scorelines.
+     */
+    public void setMatchModel(MatchModel matchModel) {
+        rounds.forEach(round -> round.setMatchModel(matchModel));
+    }
+
+    /**
+     * Pins the real draws and results of the qualifying rounds played so far.
+     * Every following run draws those rounds into their real ties and sets the
+     * legs with real results to them, so only the rest of the season is
+     * simulated. The league phase is always drawn at random.
+     *
+     * @param realResults the real draws and results, or null to simulate every
+     *                    round.
+     */
+    public void setRealResults(RealResults realResults) {
+        for (Round round : rounds) {
+            if (round instanceof QRound qRound) {
+                qRound.setPinnedTies(realResults != null ? realResults.getTies(round.getRoundId()) : null);
+            }
+        }
+    }
+
+    /**
+     * Returns the trace the rounds record their events to. It is off until a
+     * level is set on it.
+     *
+     * @return the trace of these rounds.
+     */
+    public Trace getTrace() {
+        return trace;
+    }
+
+    public SimulationListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Sets the listener to receive the draws and results of the following runs.
+     *
+     * @param listener the listener, or null to stop sending events.
+     */
+    public void setListener(SimulationListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Seeds the random numbers of all draws and matches for an iteration. The
+     * seed is derived from the master seed and the iteration index alone, so a
+     * run started after this call is the same as any other run of the same
+     * iteration, and a single iteration of a long run can be replayed on its
+     * own.
+     *
+     * @param seed      the master seed.
+     * @param iteration the iteration index.
+     */
+    public void seedIteration(long seed, long iteration) {
+        random.setSeed(CounterRandom.iterationSeed(seed, iteration));
+        if (trace.isEnabled(Trace.Level.TIES)) {
+            trace.iteration(iteration);
+        }
+    }
+
     /**
      * Establishes connections between rounds by assigning the next primary and
      * secondary rounds. These links define the simulation flow from initial
@@ -120,10 +339,11 @@ public class Rounds implements Serializable {
      * This method drives the simulation from qualifiers through league matches.
      */
     public void run(String threadName) {
+        awaitLoaded();
         // long startTime = System.currentTimeMillis();
 
         // Start by processing the qualifying rounds.
-        runQRounds();
+        runQRounds(null, null);
         // Proceed to the league phase rounds.
         runLeagueRounds();
 
@@ -132,26 +352,132 @@ public class Rounds implements Serializable {
         // + " milliseconds.");
     }
 
+    /**
+     * Runs the qualifying rounds and registers their clubs for the league phase,
+     * without drawing the league phase. This is all that decides which club
+     * reaches which round.
+     */
+    public void runQualifyingRounds() {
+        awaitLoaded();
+        runQRounds(null, null);
+    }
+
+    /**
+     * Runs the qualifying rounds until the rounds of a type have been drawn, and
+     * captures their state in a snapshot to run continuations from. The rounds
+     * are left part-way through the run, and must be reset before they run
+     * again.
+     *
+     * @param roundType the type of the rounds to stop after the draw of.
+     * @return the snapshot.
+     * @throws IllegalArgumentException if the round type is not a qualifying
+     *                                  round.
+     */
+    public RoundsSnapshot captureSnapshot(RoundType roundType) {
+        if (roundType.compareTo(RoundType.LEAGUE_PHASE) >= 0) {
+            throw new IllegalArgumentException("Snapshots can only be captured at a qualifying round draw.");
+        }
+        awaitLoaded();
+        runQRounds(null, roundType);
+        return RoundsSnapshot.of(roundType, rounds, eloRatings);
+    }
+
+    /**
+     * Restores the state of the rounds at a snapshot, replacing their current
+     * state, and runs the rest of the qualifying rounds from it like
+     * {@link #runQualifyingRounds()}. The rounds before the snapshot are not
+     * run again. The random numbers after the snapshot still come from the
+     * seed of the iteration, so the continuations of different snapshots with
+     * the same iteration index share them. The rounds must be reset before they
+     * run again.
+     *
+     * @param snapshot the snapshot, captured from rounds of the same dataset and
+     *                 real results.
+     */
+    public void continueQualifyingRounds(RoundsSnapshot snapshot) {
+        awaitLoaded();
+        if (clubSlotsById == null) {
+            clubSlotsById = new ClubIdWrapper[clubRepository.getClubCount()];
+            for (Round round : rounds) {
+                for (ClubSlot clubSlot : round.entrantSlots) {
+                    clubSlotsById[((ClubIdWrapper) clubSlot).getId()] = (ClubIdWrapper) clubSlot;
+                }
+            }
+        }
+        tiePool.releaseAll();
+        restoredTies.clear();
+        snapshot.restore(rounds, tiePool, eloRatings, clubSlotsById, restoredTies);
+        runQRounds(snapshot.getRoundType(), null);
+    }
+
+    /**
+     * Counts the clubs of every round of the last run as one iteration.
+     *
+     * @param reachCounter the counts to add the clubs of the run to.
+     */
+    public void recordReach(ReachCounter reachCounter) {
+        for (int r = 0; r < rounds.size(); r++) {
+            for (ClubSlot clubSlot : rounds.get(r).getClubSlots()) {
+                reachCounter.increment(r, ((ClubIdWrapper) clubSlot.resolve()).getId());
+            }
+        }
+        reachCounter.addIterations(1);
+    }
+
+    /**
+     * Resets all rounds to their state before the simulation, so that the same
+     * rounds object can run another iteration. Ties and wrappers created by the
+     * previous iteration are released to be reused by the next one, and the
+     * changes of the Elo ratings are cleared.
+     */
+    public void reset() {
+        rounds.forEach(Round::reset);
+        tiePool.releaseAll();
+        eloRatings.clear();
+    }
+
     /**
      * Processes each qualifying round by iterating over all round types,
      * performing seeding, tie registration, and match play. The progression
      * for each round type is handled sequentially.
+     *
+     * @param resumeAfterDraw the round type the rounds have been drawn up to by
+     *                        a restored snapshot, or null to process all
+     *                        qualifying rounds from the start.
+     * @param stopAfterDraw   the round type to stop after the draw of, or null
+     *                        to process all qualifying rounds.
      */
-    private void runQRounds() {
+    private void runQRounds(RoundType resumeAfterDraw, RoundType stopAfterDraw) {
         // Retrieve all defined round types
         RoundType[] roundTypes = RoundType.values();
         List<Round> roundsOfType = null;
-        // Execute seeding and draws for Q1 round type.
-        seedDrawQRounds(getRoundsOfType(RoundType.Q1));
+        if (resumeAfterDraw == null) {
+            // Execute seeding and draws for Q1 round type.
+            seedDrawQRounds(getRoundsOfType(RoundType.Q1));
+            if (stopAfterDraw == RoundType.Q1) {
+                return;
+            }
+        }
         for (int i = 0; roundTypes[i] != RoundType.LEAGUE_PHASE; i++) {
             // Filter rounds by the current round type.
             roundsOfType = getRoundsOfType(roundTypes[i]);
-            // Update club slots in ties for the current round type.
-            updateClubSlotsInTies(roundsOfType);
-            // Register ties for the next round type.
-            regTiesForNextQRounds(roundsOfType);
-            // Execute seeding and draws for next round type.
-            seedDrawQRounds(getRoundsOfType(roundTypes[i + 1]));
+            // A restored snapshot has drawn the rounds up to its round type, and
+            // played the rounds of the types before the last one drawn.
+            int afterResume = resumeAfterDraw == null ? 1 : roundTypes[i + 1].compareTo(resumeAfterDraw);
+            if (afterResume < 0) {
+                continue;
+            }
+            if (afterResume > 0) {
+                // Update club slots in ties for the current round type.
+                updateClubSlotsInTies(roundsOfType);
+                // Register ties for the next round type.
+                regTiesForNextQRounds(roundsOfType);
+                // Execute seeding and draws for next round type.
+                seedDrawQRounds(getRoundsOfType(roundTypes[i + 1]));
+                if (roundTypes[i + 1] == stopAfterDraw) {
+                    return;
+                }
+            }
             // Play the matches of the round type.
             playRounds(roundsOfType);
         }
@@ -180,10 +506,23 @@ public class Rounds implements Serializable {
      */
     private void seedDrawQRounds(List<Round> roundsOfType) {
         if (roundsOfType.get(0) instanceof QRound) {
-            roundsOfType.forEach(round -> {
-                round.seedDraw();
-            });
+            roundsOfType.forEach(this::seedDraw);
+        }
+    }
+
+    /**
+     * Seeds and draws a round, telling the listener if there is one.
+     *
+     * @param round the round to draw.
+     */
+    private void seedDraw(Round round) {
+        if (listener == null) {
+            round.seedDraw();
+            return;
         }
+        long start = System.nanoTime();
+        round.seedDraw();
+        listener.roundDrawn(round, System.nanoTime() - start);
     }
 
     /** Updates club slots in ties for all rounds in the list. */
@@ -211,15 +550,22 @@ public class Rounds implements Serializable {
     /**
      * Executes the match play sequence for each round twice. The first execution
      * simulates the initial contest and the second ensures proper tie-break
-     * registration.
+     * registration. In fast outcome mode, each tie is settled at once instead.
      *
      * @param roundsOfType list of rounds to simulate matches on
      */
     private void playRounds(List<Round> roundsOfType) {
-        // First legs of play
-        roundsOfType.forEach(r -> r.play(clubEloDataLoader));
-        // Second legs of play to determine tie outcomes.
-        roundsOfType.forEach(r -> r.play(clubEloDataLoader));
+        if (tieProbabilities != null && roundsOfType.get(0) instanceof QRound) {
+            roundsOfType.forEach(r -> ((QRound) r).playFastOutcome(tieProbabilities));
+        } else {
+            // First legs of play
+            roundsOfType.forEach(r -> r.play(eloRatings));
+            // Second legs of play to determine tie outcomes.
+            roundsOfType.forEach(r -> r.play(eloRatings));
+        }
+        if (listener != null) {
+            roundsOfType.forEach(listener::roundPlayed);
+        }
     }
 
     /**
@@ -245,9 +591,7 @@ public class Rounds implements Serializable {
     private void seedDrawLeagueRounds() {
         // Extract all league phase rounds
         List<Round> roundsOfType = getRoundsOfType(RoundType.LEAGUE_PHASE);
-        roundsOfType.forEach(round -> {
-            round.seedDraw();
-        });
+        roundsOfType.forEach(this::seedDraw);
     }
 
     /**
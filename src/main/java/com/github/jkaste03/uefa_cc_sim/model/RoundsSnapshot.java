@@ -0,0 +1,164 @@
+package com.github.jkaste03.uefa_cc_sim.model;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.jkaste03.uefa_cc_sim.enums.CompetitionData.RoundType;
+
+/**
+ * The state of the rounds once the rounds of a type have been drawn, captured
+ * by {@link Rounds#captureSnapshot(RoundType)} to run many continuations from.
+ * <p>
+ * The state of the rounds at a qualifying draw is the club slots of every
+ * round, the ties drawn so far with the results of their legs played so far,
+ * and the changes of the Elo ratings. A snapshot packs the club slots and the
+ * ties into one int array per round, and copies the rating changes. A club
+ * slot is packed as the id of its club, or as a reference to the tie it is
+ * the winner or loser of. {@link Rounds#continueQualifyingRounds} writes this
+ * state back into the rounds, reusing their tie pool, and runs the rest of
+ * the qualifying rounds from it, so a fork costs no copy of the object graph
+ * and nothing before the snapshot is run again. Any number of threads can
+ * restore the same snapshot, which is immutable.
+ */
+public final class RoundsSnapshot {
+    // The ints of a tie: the packed club slots 1 and 2, the goals of each club in
+    // the first leg and on aggregate, or -1 for a leg not played, and the winner:
+    // 0 if not decided, else 1 or 2.
+    private static final int TIE_INTS = 7;
+
+    private final RoundType roundType;
+    // The packed club slots of each round, indexed like Rounds.getRounds().
+    private final int[][] clubSlots;
+    // The packed ties of each round, indexed like Rounds.getRounds().
+    private final int[][] ties;
+    private final float[] eloDeltas;
+
+    private RoundsSnapshot(RoundType roundType, int[][] clubSlots, int[][] ties, float[] eloDeltas) {
+        this.roundType = roundType;
+        this.clubSlots = clubSlots;
+        this.ties = ties;
+        this.eloDeltas = eloDeltas;
+    }
+
+    /**
+     * Captures the club slots and ties of the rounds and the changes of the Elo
+     * ratings.
+     *
+     * @param roundType  the type of the rounds drawn last.
+     * @param rounds     the rounds, indexed by their ids.
+     * @param eloRatings the ratings of the iteration.
+     * @return the snapshot.
+     */
+    static RoundsSnapshot of(RoundType roundType, List<Round> rounds, EloRatings eloRatings) {
+        // Number the ties in the order of the rounds, which is the order they are
+        // restored in
+        Map<Tie, Integer> tieIndices = new IdentityHashMap<>();
+        for (Round round : rounds) {
+            for (Tie tie : round.getTies()) {
+                tieIndices.put(tie, tieIndices.size());
+            }
+        }
+        int[][] clubSlots = new int[rounds.size()][];
+        int[][] ties = new int[rounds.size()][];
+        for (int r = 0; r < rounds.size(); r++) {
+            Round round = rounds.get(r);
+            clubSlots[r] = new int[round.getClubSlots().size()];
+            for (int i = 0; i < clubSlots[r].length; i++) {
+                clubSlots[r][i] = pack(round.getClubSlots().get(i), tieIndices);
+            }
+            ties[r] = packTies(round.getTies(), tieIndices);
+        }
+        return new RoundsSnapshot(roundType, clubSlots, ties, eloRatings.getDeltas());
+    }
+
+    /**
+     * Returns the type of the rounds drawn last before the snapshot.
+     *
+     * @return the round type.
+     */
+    public RoundType getRoundType() {
+        return roundType;
+    }
+
+    /**
+     * Returns the number of ties captured, over all rounds.
+     *
+     * @return the number of ties.
+     */
+    public int getTieCount() {
+        int count = 0;
+        for (int[] roundTies : ties) {
+            count += roundTies.length / TIE_INTS;
+        }
+        return count;
+    }
+
+    /**
+     * Writes the state of the snapshot back into rounds of the same dataset,
+     * replacing their club slots, ties and rating changes. The ties are taken
+     * from the released tie pool in the order they were numbered.
+     *
+     * @param rounds        the rounds, indexed by their ids.
+     * @param tiePool       the tie pool of the rounds, with all ties released.
+     * @param eloRatings    the ratings of the iteration.
+     * @param clubSlotsById the club slot of each club, by club id.
+     * @param restoredTies  an empty list to collect the restored ties in.
+     */
+    void restore(List<Round> rounds, TiePool tiePool, EloRatings eloRatings, ClubIdWrapper[] clubSlotsById,
+            List<DoubleLeggedTie> restoredTies) {
+        for (int r = 0; r < rounds.size(); r++) {
+            Round round = rounds.get(r);
+            List<ClubSlot> roundSlots = round.getClubSlots();
+            roundSlots.clear();
+            for (int packed : clubSlots[r]) {
+                roundSlots.add(unpack(packed, clubSlotsById, restoredTies));
+            }
+            List<Tie> roundTies = round.getTies();
+            roundTies.clear();
+            int[] packed = ties[r];
+            for (int i = 0; i < packed.length; i += TIE_INTS) {
+                DoubleLeggedTie tie = tiePool.acquireDoubleLeggedTie(unpack(packed[i], clubSlotsById, restoredTies),
+                        unpack(packed[i + 1], clubSlotsById, restoredTies));
+                tie.restore(packed[i + 2], packed[i + 3], packed[i + 4], packed[i + 5], packed[i + 6]);
+                roundTies.add(tie);
+                restoredTies.add(tie);
+            }
+        }
+        eloRatings.setDeltas(eloDeltas);
+    }
+
+    private static int[] packTies(List<Tie> ties, Map<Tie, Integer> tieIndices) {
+        int[] packed = new int[ties.size() * TIE_INTS];
+        for (int t = 0, i = 0; t < ties.size(); t++, i += TIE_INTS) {
+            DoubleLeggedTie tie = (DoubleLeggedTie) ties.get(t);
+            packed[i] = pack(tie.getClubSlot1(), tieIndices);
+            packed[i + 1] = pack(tie.getClubSlot2(), tieIndices);
+            packed[i + 2] = tie.getClub1GoalsLeg1();
+            packed[i + 3] = tie.getClub2GoalsLeg1();
+            packed[i + 4] = tie.club1Goals;
+            packed[i + 5] = tie.club2Goals;
+            packed[i + 6] = tie.getWinner() == null ? 0 : tie.getWinner() == tie.getClubSlot1() ? 1 : 2;
+        }
+        return packed;
+    }
+
+    /**
+     * Packs a club slot: the id of a club, or -2 - (2 * the index of a tie + 1
+     * for its loser) for the winner or loser of a tie.
+     */
+    private static int pack(ClubSlot clubSlot, Map<Tie, Integer> tieIndices) {
+        if (clubSlot instanceof DoubleLeggedTieWrapper wrapper) {
+            return -2 - (2 * tieIndices.get(wrapper.getTie()) + (wrapper.isWorstRankForSeeding() ? 1 : 0));
+        }
+        return ((ClubIdWrapper) clubSlot).getId();
+    }
+
+    private static ClubSlot unpack(int packed, ClubIdWrapper[] clubSlotsById, List<DoubleLeggedTie> restoredTies) {
+        if (packed >= 0) {
+            return clubSlotsById[packed];
+        }
+        int wrapper = -2 - packed;
+        return restoredTies.get(wrapper / 2).getWrapper(wrapper % 2 == 1);
+    }
+}
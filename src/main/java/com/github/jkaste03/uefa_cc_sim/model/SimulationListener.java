@@ -0,0 +1,28 @@
+package com.github.jkaste03.uefa_cc_sim.model;
+
+/**
+ * Receives the events of a simulation run of {@link Rounds}.
+ * <p>
+ * A listener is only called when one is set with
+ * {@link Rounds#setListener(SimulationListener)}, so runs without a listener
+ * do no extra work. The rounds passed to a listener are live and are changed
+ * by the rest of the run, so a listener must copy what it wants to keep.
+ */
+public interface SimulationListener {
+    /**
+     * Called after a round has been seeded and drawn.
+     *
+     * @param round     the round, holding the drawn ties.
+     * @param drawNanos the time the seeding and draw took, in nanoseconds.
+     */
+    default void roundDrawn(Round round, long drawNanos) {
+    }
+
+    /**
+     * Called after all ties of a round have been settled.
+     *
+     * @param round the round, holding the played ties.
+     */
+    default void roundPlayed(Round round) {
+    }
+}
@@ -1,5 +1,7 @@
 package com.github.jkaste03.uefa_cc_sim.model;
 
+import java.util.Random;
+
 /**
  * SingleLeggedTie is a specialized implementation of the Tie class that
  * represents a single-legged tie between two clubs.
@@ -19,7 +21,7 @@ public class SingleLeggedTie extends Tie {
     }
 
     @Override
-    public void play() {
+    public void play(Random random) {
         // TODO Auto-generated method stub
         throw new UnsupportedOperationException("Unimplemented method 'play'");
     }
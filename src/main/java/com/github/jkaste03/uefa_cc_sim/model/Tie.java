@@ -1,6 +1,7 @@
 package com.github.jkaste03.uefa_cc_sim.model;
 
 import java.util.List;
+import java.util.Random;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -32,6 +33,21 @@ public abstract class Tie implements ClubSlot {
         this.clubSlot2 = clubSlot2;
     }
 
+    /**
+     * Resets the tie to an unplayed tie between the given club slots, so the
+     * instance can be reused in another iteration.
+     *
+     * @param clubSlot1 the first club slot participating in the tie.
+     * @param clubSlot2 the second club slot participating in the tie.
+     */
+    public void reset(ClubSlot clubSlot1, ClubSlot clubSlot2) {
+        this.clubSlot1 = clubSlot1;
+        this.clubSlot2 = clubSlot2;
+        this.club1Goals = -1;
+        this.club2Goals = -1;
+        this.winner = null;
+    }
+
     public ClubSlot getClubSlot1() {
         return clubSlot1;
     }
@@ -98,8 +114,10 @@ public abstract class Tie implements ClubSlot {
      * <p>
      * Implementing methods should perform the match, update the results,
      * and set the winner based on the match outcome.
+     *
+     * @param random the random numbers to play the match with.
      */
-    public abstract void play();
+    public abstract void play(Random random);
 
     /**
      * Generates a random scoreline for the match.
@@ -107,12 +125,13 @@ public abstract class Tie implements ClubSlot {
      * The method simulates goal scoring by generating random integers between 0 and
      * 3 for each club.
      *
+     * @param random the random numbers to generate the scoreline with.
      * @return an array where the first element is the goals for club 1 and the
      *         second element is the goals for club 2.
      */
-    protected int[] genScoreline() {
-        int club1Goals = (int) (Math.random() * 4);
-        int club2Goals = (int) (Math.random() * 4);
+    protected int[] genScoreline(Random random) {
+        int club1Goals = random.nextInt(4);
+        int club2Goals = random.nextInt(4);
         return new int[] { club1Goals, club2Goals };
     }
 
@@ -124,12 +143,8 @@ public abstract class Tie implements ClubSlot {
      * further use.
      */
     public void updateClubSlotsIfTie() {
-        if (clubSlot1 instanceof DoubleLeggedTieWrapper) {
-            clubSlot1 = ((DoubleLeggedTieWrapper) clubSlot1).getCorrectClub();
-        }
-        if (clubSlot2 instanceof DoubleLeggedTieWrapper) {
-            clubSlot2 = ((DoubleLeggedTieWrapper) clubSlot2).getCorrectClub();
-        }
+        clubSlot1 = clubSlot1.resolve();
+        clubSlot2 = clubSlot2.resolve();
     }
 
     @Override
@@ -0,0 +1,107 @@
+package com.github.jkaste03.uefa_cc_sim.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A pool of tie instances reused from one simulation iteration to the next.
+ * The winner and loser slots of a double-legged tie are created with the tie
+ * and reused with it.
+ * <p>
+ * Each kind of instance is handed out in order from its own list, and the list
+ * only grows when an iteration needs more instances than any iteration before
+ * it. {@link #releaseAll()} makes every instance available again. A pool is
+ * owned by one {@link Rounds} object and must not be shared between threads.
+ */
+public class TiePool implements Serializable {
+    private final List<DoubleLeggedTie> doubleLeggedTies = new ArrayList<>();
+    private final List<SingleLeggedTie> singleLeggedTies = new ArrayList<>();
+    private int doubleLeggedTiesUsed;
+    private int singleLeggedTiesUsed;
+
+    /**
+     * Returns a double-legged tie between the given club slots, reusing a
+     * released instance when there is one.
+     *
+     * @param club1 the first club slot participating in the tie.
+     * @param club2 the second club slot participating in the tie.
+     * @return an unplayed double-legged tie.
+     */
+    public DoubleLeggedTie acquireDoubleLeggedTie(ClubSlot club1, ClubSlot club2) {
+        if (doubleLeggedTiesUsed == doubleLeggedTies.size()) {
+            doubleLeggedTies.add(new DoubleLeggedTie(club1, club2));
+            return doubleLeggedTies.get(doubleLeggedTiesUsed++);
+        }
+        DoubleLeggedTie tie = doubleLeggedTies.get(doubleLeggedTiesUsed++);
+        tie.reset(club1, club2);
+        return tie;
+    }
+
+    /**
+     * Returns a single-legged tie between the given club slots, reusing a
+     * released instance when there is one.
+     *
+     * @param club1 the home club slot.
+     * @param club2 the away club slot.
+     * @return an unplayed single-legged tie.
+     */
+    public SingleLeggedTie acquireSingleLeggedTie(ClubSlot club1, ClubSlot club2) {
+        if (singleLeggedTiesUsed == singleLeggedTies.size()) {
+            singleLeggedTies.add(new SingleLeggedTie(club1, club2));
+            return singleLeggedTies.get(singleLeggedTiesUsed++);
+        }
+        SingleLeggedTie tie = singleLeggedTies.get(singleLeggedTiesUsed++);
+        tie.reset(club1, club2);
+        return tie;
+    }
+
+    /**
+     * Returns a mark of the double-legged ties handed out so far, to be passed to
+     * {@link #releaseDoubleLeggedTies(int)}.
+     *
+     * @return the number of double-legged ties in use.
+     */
+    public int getDoubleLeggedMark() {
+        return doubleLeggedTiesUsed;
+    }
+
+    /**
+     * Releases the double-legged ties handed out after the given mark. The caller
+     * must no longer use them.
+     *
+     * @param mark a mark returned by {@link #getDoubleLeggedMark()}.
+     */
+    public void releaseDoubleLeggedTies(int mark) {
+        doubleLeggedTiesUsed = mark;
+    }
+
+    /**
+     * Returns a mark of the single-legged ties handed out so far, to be passed to
+     * {@link #releaseSingleLeggedTies(int)} when a draw backtracks.
+     *
+     * @return the number of single-legged ties in use.
+     */
+    public int getSingleLeggedMark() {
+        return singleLeggedTiesUsed;
+    }
+
+    /**
+     * Releases the single-legged ties handed out after the given mark. The caller
+     * must no longer use them.
+     *
+     * @param mark a mark returned by {@link #getSingleLeggedMark()}.
+     */
+    public void releaseSingleLeggedTies(int mark) {
+        singleLeggedTiesUsed = mark;
+    }
+
+    /**
+     * Releases every instance handed out by the pool, so the next iteration
+     * reuses them.
+     */
+    public void releaseAll() {
+        doubleLeggedTiesUsed = 0;
+        singleLeggedTiesUsed = 0;
+    }
+}
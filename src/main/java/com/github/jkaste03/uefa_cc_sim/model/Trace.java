@@ -0,0 +1,300 @@
+package com.github.jkaste03.uefa_cc_sim.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.jkaste03.uefa_cc_sim.enums.CompetitionData.RoundId;
+
+/**
+ * A ring buffer of the most recent events of a simulation, such as the ties
+ * drawn and the goals scored, for debugging.
+ * <p>
+ * Events are recorded as a few ints each: the kind, the round id, the club
+ * slots as ids and the goals. No strings are built while recording, and the buffer
+ * never grows, so the oldest events are overwritten. The events are only
+ * turned into text by {@link #format(ClubRepository)}.
+ * <p>
+ * The buffer is allocated when a level other than {@link Level#OFF} is set.
+ * Code that records an event checks {@link #isEnabled(Level)} first, so a
+ * trace that is off costs one field read per check. A trace is owned by one
+ * {@link Rounds} object, so each simulation thread has its own, and it must
+ * not be shared between threads.
+ */
+public class Trace implements Serializable {
+    /**
+     * How much is recorded. Each level records everything the levels before it
+     * record.
+     */
+    public enum Level {
+        /**
+         * Records nothing.
+         */
+        OFF,
+        /**
+         * Records the start of each iteration, the ties drawn and their results.
+         */
+        TIES,
+        /**
+         * Also records the seeding of the qualifying rounds and the pots of the
+         * league phase.
+         */
+        ALL
+    }
+
+    /**
+     * The default number of events kept.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 14;
+
+    // The kinds of events.
+    private static final byte ITERATION = 0;
+    private static final byte SEEDED = 1;
+    private static final byte UNSEEDED = 2;
+    private static final byte POT = 3;
+    private static final byte DRAWN = 4;
+    private static final byte FIRST_LEG = 5;
+    private static final byte RESULT = 6;
+    private static final byte SETTLED = 7;
+
+    // The number of ints of each event in the data array.
+    private static final int STRIDE = 4;
+    // Flags an unplayed tie in a slot id, see slotId(ClubSlot).
+    private static final int LOSER_OF = 1 << 30;
+    private static final int CLUB_BITS = 15;
+    private static final int CLUB_MASK = (1 << CLUB_BITS) - 1;
+    // The round id of events that belong to no round.
+    private static final byte NO_ROUND = -1;
+    // A slot id for club slots that cannot be told by club ids.
+    private static final int UNKNOWN_SLOT = Integer.MIN_VALUE;
+
+    private final int capacity;
+    private int level;
+    private byte[] kinds;
+    private byte[] roundIds;
+    private int[] data;
+    private long count;
+
+    /**
+     * Constructs a trace that is off and keeps the default number of events
+     * once turned on.
+     */
+    public Trace() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a trace that is off.
+     *
+     * @param capacity the number of events kept once turned on, a power of two.
+     */
+    public Trace(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("The capacity must be a power of two.");
+        }
+        this.capacity = capacity;
+    }
+
+    public Level getLevel() {
+        return Level.values()[level];
+    }
+
+    /**
+     * Sets what is recorded from now on, allocating the buffer the first time
+     * the trace is turned on.
+     *
+     * @param level the level to record at.
+     */
+    public void setLevel(Level level) {
+        if (level != Level.OFF && kinds == null) {
+            kinds = new byte[capacity];
+            roundIds = new byte[capacity];
+            data = new int[capacity * STRIDE];
+        }
+        this.level = level.ordinal();
+    }
+
+    /**
+     * Checks if events of a level are recorded.
+     *
+     * @param level the level of the events.
+     * @return true if the events are to be recorded.
+     */
+    public boolean isEnabled(Level level) {
+        return this.level >= level.ordinal();
+    }
+
+    /**
+     * Returns the number of events recorded since the trace was last cleared,
+     * including those that have been overwritten.
+     *
+     * @return the number of events recorded.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Forgets all recorded events.
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * Records the start of an iteration.
+     *
+     * @param iteration the iteration index.
+     */
+    void iteration(long iteration) {
+        add(ITERATION, null, (int) (iteration >>> 32), (int) iteration, 0, 0);
+    }
+
+    /**
+     * Records the seeded and unseeded club slots of a qualifying round.
+     *
+     * @param round    the round.
+     * @param seeded   true for the seeded club slots.
+     * @param slotList the club slots.
+     */
+    void seeding(Round round, boolean seeded, List<ClubSlot> slotList) {
+        for (ClubSlot slot : slotList) {
+            add(seeded ? SEEDED : UNSEEDED, round, slotId(slot), 0, 0, 0);
+        }
+    }
+
+    /**
+     * Records a pot of a league phase round.
+     *
+     * @param round    the round.
+     * @param pot      the index of the pot, from 0.
+     * @param slotList the club slots of the pot.
+     */
+    void pot(Round round, int pot, List<ClubSlot> slotList) {
+        for (ClubSlot slot : slotList) {
+            add(POT, round, slotId(slot), pot, 0, 0);
+        }
+    }
+
+    /**
+     * Records the ties drawn in a round.
+     *
+     * @param round the round holding the drawn ties.
+     */
+    void drawn(Round round) {
+        for (Tie tie : round.getTies()) {
+            add(DRAWN, round, slotId(tie.getClubSlot1()), slotId(tie.getClubSlot2()), 0, 0);
+        }
+    }
+
+    /**
+     * Records the first leg or the result of a played double-legged tie.
+     *
+     * @param round the round of the tie.
+     * @param tie   the tie, after a leg has been played.
+     */
+    void played(Round round, DoubleLeggedTie tie) {
+        if (tie.getWinner() == null) {
+            add(FIRST_LEG, round, slotId(tie.clubSlot1), slotId(tie.clubSlot2), tie.getClub1GoalsLeg1(),
+                    tie.getClub2GoalsLeg1());
+        } else {
+            // The sign of the away goals tells the winner: negative if club 1 won.
+            add(RESULT, round, slotId(tie.clubSlot1), slotId(tie.clubSlot2), tie.club1Goals,
+                    tie.winner == tie.clubSlot1 ? -1 - tie.club2Goals : tie.club2Goals);
+        }
+    }
+
+    /**
+     * Records a tie settled in the fast outcome mode.
+     *
+     * @param round the round of the tie.
+     * @param tie   the settled tie.
+     */
+    void settled(Round round, Tie tie) {
+        add(SETTLED, round, slotId(tie.clubSlot1), slotId(tie.clubSlot2), tie.winner == tie.clubSlot1 ? 1 : 2, 0);
+    }
+
+    private void add(byte kind, Round round, int a, int b, int c, int d) {
+        int i = (int) (count++ & (capacity - 1));
+        kinds[i] = kind;
+        roundIds[i] = round == null ? NO_ROUND : (byte) round.getRoundId().ordinal();
+        int offset = i * STRIDE;
+        data[offset] = a;
+        data[offset + 1] = b;
+        data[offset + 2] = c;
+        data[offset + 3] = d;
+    }
+
+    /**
+     * Returns the id a club slot is recorded as: the club id of a club, or the
+     * club ids of both clubs of an unplayed tie packed into a negative number.
+     */
+    private static int slotId(ClubSlot slot) {
+        if (slot instanceof ClubIdWrapper club) {
+            return club.getId();
+        }
+        if (slot instanceof DoubleLeggedTieWrapper wrapper) {
+            if (wrapper.getCorrectClub() != null) {
+                return slotId(wrapper.getCorrectClub());
+            }
+            int id1 = slotId(wrapper.getTie().getClubSlot1());
+            int id2 = slotId(wrapper.getTie().getClubSlot2());
+            if (id1 >= 0 && id2 >= 0) {
+                return ~((wrapper.isWorstRankForSeeding() ? LOSER_OF : 0) | id1 << CLUB_BITS | id2);
+            }
+        }
+        return UNKNOWN_SLOT;
+    }
+
+    /**
+     * Formats the events still in the buffer, oldest first.
+     *
+     * @param clubRepository the repository naming the clubs.
+     * @return one line of text per event.
+     */
+    public List<String> format(ClubRepository clubRepository) {
+        List<String> lines = new ArrayList<>();
+        RoundId[] ids = RoundId.values();
+        for (long n = Math.max(0, count - capacity); n < count; n++) {
+            int i = (int) (n & (capacity - 1));
+            int offset = i * STRIDE;
+            int a = data[offset];
+            int b = data[offset + 1];
+            int c = data[offset + 2];
+            int d = data[offset + 3];
+            String round = roundIds[i] == NO_ROUND ? "" : ids[roundIds[i]].getName() + ": ";
+            lines.add(switch (kinds[i]) {
+                case ITERATION -> "Iteration " + ((long) a << 32 | (b & 0xffffffffL));
+                case SEEDED -> round + "seeded " + name(a, clubRepository);
+                case UNSEEDED -> round + "unseeded " + name(a, clubRepository);
+                case POT -> round + "pot " + (b + 1) + " " + name(a, clubRepository);
+                case DRAWN -> round + name(a, clubRepository) + " vs " + name(b, clubRepository);
+                case FIRST_LEG -> round + name(a, clubRepository) + " " + c + " - " + d + " "
+                        + name(b, clubRepository) + ". First leg played.";
+                case RESULT -> round + name(a, clubRepository) + " " + c + " - " + (d < 0 ? -1 - d : d) + " "
+                        + name(b, clubRepository) + " on aggregate. Winner: "
+                        + name(d < 0 ? a : b, clubRepository);
+                case SETTLED -> round + name(a, clubRepository) + " vs " + name(b, clubRepository) + ". Winner: "
+                        + name(c == 1 ? a : b, clubRepository);
+                default -> throw new IllegalStateException("Unknown event kind " + kinds[i]);
+            });
+        }
+        return lines;
+    }
+
+    /**
+     * Returns the name of a recorded club slot.
+     */
+    private static String name(int slotId, ClubRepository clubRepository) {
+        if (slotId == UNKNOWN_SLOT) {
+            return "?";
+        }
+        if (slotId >= 0) {
+            return clubRepository.getClub(slotId).getName();
+        }
+        int packed = ~slotId;
+        return clubRepository.getClub(packed >>> CLUB_BITS & CLUB_MASK).getName() + " vs "
+                + clubRepository.getClub(packed & CLUB_MASK).getName()
+                + ((packed & LOSER_OF) != 0 ? " (loser of)" : " (winner of)");
+    }
+}
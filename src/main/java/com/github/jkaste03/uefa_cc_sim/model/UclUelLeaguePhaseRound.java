@@ -6,7 +6,6 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.Set;
 
 import com.github.jkaste03.uefa_cc_sim.enums.CompetitionData;
@@ -20,12 +19,20 @@ import com.github.jkaste03.uefa_cc_sim.enums.Country;
  */
 public class UclUelLeaguePhaseRound extends LeaguePhaseRound {
     // Constant for clubs skipping a round (e.g., UCL Q3 LP to UEL LP)
-    private final static String ROUND_CLUBS_SKIP_TO = Tournament.EUROPA_LEAGUE + " "
-            + CompetitionData.RoundType.LEAGUE_PHASE;
+    private final static CompetitionData.RoundId ROUND_CLUBS_SKIP_TO = CompetitionData.RoundId.UEL_LP;
     private final static int POT_COUNT = 4;
 
     private final static int MAX_RESTART_ATTEMPTS = 100000;
 
+    // Scratch structures of the draw, kept to be reused by the next draw.
+    private final List<ClubSlot> allClubs = new ArrayList<>();
+    private final Map<ClubSlot, int[][]> currentReq = new HashMap<>();
+    private final Map<ClubSlot, Set<ClubSlot>> currentAssigned = new HashMap<>();
+    private final Map<ClubSlot, Map<Country, Integer>> countryCounters = new HashMap<>();
+    private final List<ClubSlot> clubsInPot = new ArrayList<>();
+    private final List<ClubSlot> clubsCandidatePool = new ArrayList<>();
+    private final List<ClubSlot> candidates = new ArrayList<>();
+
     /**
      * Constructs a ConferenceLeaguePhaseRound with the specified tournament.
      *
@@ -65,8 +72,8 @@ public class UclUelLeaguePhaseRound extends LeaguePhaseRound {
 
         // If round that clubs has skipped QRound to, fix club slot for those clubs.
         // This applies to Europa League as clubs skip from UCL Q3 LP to UEL LP.
-        if (getName().equals(ROUND_CLUBS_SKIP_TO)) {
-            updateClubSlotsIfClubHasSkipped(false); // Prevent skipped clubs from being DoubleLeggedTieWrapper
+        if (roundId == ROUND_CLUBS_SKIP_TO) {
+            updateClubSlotsIfClubHasSkipped(); // Prevent skipped clubs from being DoubleLeggedTieWrapper
         }
 
         sortClubSlots();
@@ -74,8 +81,9 @@ public class UclUelLeaguePhaseRound extends LeaguePhaseRound {
         // Divide the club slots into pots for the league phase.
         for (int i = 0; i < POT_COUNT; i++) {
             pots.add(clubSlots.subList(i * clubSlots.size() / POT_COUNT, (i + 1) * clubSlots.size() / POT_COUNT));
-            // System.out.println("\n" + getName() + ", pot " + (i + 1) + ":");
-            printClubSlotList(pots.get(i));
+            if (trace.isEnabled(Trace.Level.ALL)) {
+                trace.pot(this, i, pots.get(i));
+            }
         }
     }
 
@@ -95,8 +103,9 @@ public class UclUelLeaguePhaseRound extends LeaguePhaseRound {
                                                      // to allow modification inside the lambda below.
         // Check if the UCL winner is present in the club slots and move them to the top
         if (tournament == Tournament.CHAMPIONS_LEAGUE) {
+            int lastUclWinnerId = clubRepository.getLastUclWinnerId();
             clubSlots.stream()
-                    .filter(c -> c.getName().equals(ClubRepository.getLastUclWinnerName()))
+                    .filter(c -> c instanceof ClubIdWrapper club && club.getId() == lastUclWinnerId)
                     .findFirst()
                     .ifPresent(c -> {
                         Collections.swap(clubSlots, 0, clubSlots.indexOf(c));
@@ -106,45 +115,25 @@ public class UclUelLeaguePhaseRound extends LeaguePhaseRound {
 
         // Sort the club slots based on their ranking. Leave the UCL winner at the top
         // if present.
-        clubSlots.subList(isUclWinnerHere[0] ? 1 : 0, clubSlots.size())
-                .sort((c1, c2) -> Float.compare(c1.getRanking(), c2.getRanking()));
+        sortClubSlotsByRanking(isUclWinnerHere[0] ? 1 : 0);
     }
 
     @Override
     protected void draw() {
-        // Lag mapping fra klubb til pot og samlet liste over klubber.
-        Map<ClubSlot, Integer> clubToPot = new HashMap<>();
-        List<ClubSlot> allClubs = new ArrayList<>();
-        for (int i = 0; i < pots.size(); i++) {
-            for (ClubSlot club : pots.get(i)) {
-                clubToPot.put(club, i);
-                allClubs.add(club);
-            }
-        }
-
-        // Opprett krav for hver klubb: For hver pot må hver klubb spille nøyaktig 2
-        // oppgjør –
-        // én hjemmekamp og én bortekamp.
-        Map<ClubSlot, int[][]> requirements = new HashMap<>();
-        for (ClubSlot club : allClubs) {
-            int[][] arr = new int[POT_COUNT][2];
-            for (int p = 0; p < POT_COUNT; p++) {
-                arr[p][0] = 1; // Hjemmekamp-krav mot pot p
-                arr[p][1] = 1; // Bortekamp-krav mot pot p
-            }
-            requirements.put(club, arr);
-        }
-
-        // Holder oversikt over allerede tildelte oppgjør for å unngå duplikater.
-        Map<ClubSlot, Set<ClubSlot>> assignedOpponents = new HashMap<>();
-        for (ClubSlot club : allClubs) {
-            assignedOpponents.put(club, new HashSet<>());
+        // Samlet liste over klubber. Krav, tildelte oppgjør og utenlandsteller for
+        // hver klubb gjenbrukes fra forrige trekning; klubber som ikke lenger er med
+        // fjernes.
+        allClubs.clear();
+        for (List<ClubSlot> pot : pots) {
+            allClubs.addAll(pot);
         }
-
-        // Teller for antall oppgjør mot "utenlandske" land per klubb.
-        Map<ClubSlot, Map<Country, Integer>> countryCounters = new HashMap<>();
+        currentReq.keySet().retainAll(allClubs);
+        currentAssigned.keySet().retainAll(allClubs);
+        countryCounters.keySet().retainAll(allClubs);
         for (ClubSlot club : allClubs) {
-            countryCounters.put(club, new HashMap<>());
+            currentReq.computeIfAbsent(club, c -> new int[POT_COUNT][2]);
+            currentAssigned.computeIfAbsent(club, c -> new HashSet<>());
+            countryCounters.computeIfAbsent(club, c -> new HashMap<>());
         }
 
         // Hjelpeklasse for å sjekke og oppdatere utenlandstak.
@@ -172,38 +161,32 @@ public class UclUelLeaguePhaseRound extends LeaguePhaseRound {
         }
         Helper helper = new Helper();
 
-        List<Tie> tempTies = new ArrayList<>();
-        Random random = new Random();
+        int tiePoolMark = tiePool.getSingleLeggedMark();
         final int MAX_ATTEMPTS = 1000000;
         boolean success = false;
 
         attemptLoop: for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
             // Nullstill krav, tildelte oppgjør og utenlandsteller for hver ny trekning.
-            Map<ClubSlot, int[][]> currentReq = new HashMap<>();
+            // For hver pot må hver klubb spille nøyaktig 2 oppgjør – én hjemmekamp og
+            // én bortekamp.
             for (ClubSlot club : allClubs) {
-                int[][] arr = new int[POT_COUNT][2];
-                for (int p = 0; p < POT_COUNT; p++) {
-                    arr[p][0] = 1;
-                    arr[p][1] = 1;
+                for (int[] req : currentReq.get(club)) {
+                    req[0] = 1; // Hjemmekamp-krav mot pot p
+                    req[1] = 1; // Bortekamp-krav mot pot p
                 }
-                currentReq.put(club, arr);
-            }
-            Map<ClubSlot, Set<ClubSlot>> currentAssigned = new HashMap<>();
-            for (ClubSlot club : allClubs) {
-                currentAssigned.put(club, new HashSet<>());
-            }
-            // Nullstill countryCounters.
-            for (ClubSlot club : allClubs) {
+                currentAssigned.get(club).clear();
                 countryCounters.get(club).clear();
             }
-            tempTies.clear();
+            ties.clear();
+            tiePool.releaseSingleLeggedTies(tiePoolMark);
             boolean failed = false;
 
             // --- Pot–for–pot trekning ---
             // For hver pot (0..POT_COUNT-1) trekkes alle oppgjør for klubbene i den potten.
             for (int currentPot = 0; currentPot < POT_COUNT; currentPot++) {
                 // Hent og bland klubbene i den nåværende potten.
-                List<ClubSlot> clubsInPot = new ArrayList<>(pots.get(currentPot));
+                clubsInPot.clear();
+                clubsInPot.addAll(pots.get(currentPot));
                 Collections.shuffle(clubsInPot, random);
 
                 for (ClubSlot club : clubsInPot) {
@@ -213,9 +196,10 @@ public class UclUelLeaguePhaseRound extends LeaguePhaseRound {
                         // Så lenge kravene for kamp (hjem og/eller borte) mot opponentPot ikke er
                         // oppfylt:
                         while (currentReq.get(club)[opponentPot][0] + currentReq.get(club)[opponentPot][1] > 0) {
-                            List<ClubSlot> candidates = new ArrayList<>();
+                            candidates.clear();
                             // Finn kandidater i pot opponentPot:
-                            List<ClubSlot> clubsCandidatePool = new ArrayList<>(pots.get(opponentPot));
+                            clubsCandidatePool.clear();
+                            clubsCandidatePool.addAll(pots.get(opponentPot));
                             Collections.shuffle(clubsCandidatePool, random);
                             for (ClubSlot candidate : clubsCandidatePool) {
                                 // Unngå kamp mot seg selv ved intra–pot trekk:
@@ -268,11 +252,11 @@ public class UclUelLeaguePhaseRound extends LeaguePhaseRound {
                                 break;
                             }
                             if (chooseOption1) {
-                                tempTies.add(new SingleLeggedTie(club, selectedCandidate));
+                                ties.add(tiePool.acquireSingleLeggedTie(club, selectedCandidate));
                                 currentReq.get(club)[opponentPot][0]--; // club spiller hjemme mot opponentPot
                                 candidateReq[currentPot][1]--; // selectedCandidate spiller borte mot currentPot
                             } else {
-                                tempTies.add(new SingleLeggedTie(selectedCandidate, club));
+                                ties.add(tiePool.acquireSingleLeggedTie(selectedCandidate, club));
                                 currentReq.get(club)[opponentPot][1]--; // club spiller borte mot opponentPot
                                 candidateReq[currentPot][0]--; // selectedCandidate spiller hjemme mot currentPot
                             }
@@ -317,11 +301,8 @@ public class UclUelLeaguePhaseRound extends LeaguePhaseRound {
             throw new RuntimeException("Kunne ikke fullføre trekningen uten deadlock etter maks antall forsøk.");
         }
 
-        // Overfør de trukkede oppgjørene til ties-variabelen.
-        ties = tempTies;
-
-        // for (Tie tie : ties) {
-        // System.out.println(tie.getName());
-        // }
+        if (trace.isEnabled(Trace.Level.TIES)) {
+            trace.drawn(this);
+        }
     }
 }
\ No newline at end of file
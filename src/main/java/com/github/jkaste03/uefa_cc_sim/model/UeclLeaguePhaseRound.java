@@ -6,7 +6,6 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.Set;
 
 import org.drools.modelcompiler.consequence.FactHandleLookup.Single;
@@ -25,6 +24,13 @@ public class UeclLeaguePhaseRound extends LeaguePhaseRound {
     // Mapping fra klubb til pot (0-indexert) – fylles ved init.
     private Map<ClubSlot, Integer> clubToPot;
 
+    // Scratch structures of the draw, kept to be reused by the next draw.
+    private final Map<ClubSlot, Map<Country, Integer>> countryCounters = new HashMap<>();
+    private final List<ClubSlot> homeList = new ArrayList<>();
+    private final List<ClubSlot> awayList = new ArrayList<>();
+    // One list of away candidates per recursion depth of pairClubs.
+    private final List<List<ClubSlot>> awayCandidateLists = new ArrayList<>();
+
     /**
      * Constructs a ConferenceLeaguePhaseRound with the specified tournament.
      *
@@ -57,13 +63,14 @@ public class UeclLeaguePhaseRound extends LeaguePhaseRound {
         }
 
         // Sort the club slots based on their ranking.
-        clubSlots.sort((c1, c2) -> Float.compare(c1.getRanking(), c2.getRanking()));
+        sortClubSlotsByRanking(0);
 
         // Divide the club slots into pots for the league phase.
         for (int i = 0; i < POT_COUNT; i++) {
             pots.add(clubSlots.subList(i * clubSlots.size() / POT_COUNT, (i + 1) * clubSlots.size() / POT_COUNT));
-            // System.out.println("\n" + getName() + ", pot " + (i + 1) + ":");
-            printClubSlotList(pots.get(i));
+            if (trace.isEnabled(Trace.Level.ALL)) {
+                trace.pot(this, i, pots.get(i));
+            }
         }
     }
 
@@ -90,6 +97,15 @@ public class UeclLeaguePhaseRound extends LeaguePhaseRound {
                 }
             }
         }
+
+        public void undoCountryCounters(ClubSlot club, ClubSlot opponent,
+                Map<ClubSlot, Map<Country, Integer>> countryCounters) {
+            for (Country oppCountry : opponent.getCountries()) {
+                if (!club.getCountries().contains(oppCountry)) {
+                    countryCounters.get(club).merge(oppCountry, -1, Integer::sum);
+                }
+            }
+        }
     }
 
     /**
@@ -109,35 +125,42 @@ public class UeclLeaguePhaseRound extends LeaguePhaseRound {
      */
     @Override
     protected void draw() {
-        // Oppsett for å telle antall "utenlandsoppgjør" for hver klubb.
-        Map<ClubSlot, Map<Country, Integer>> countryCounters = new HashMap<>();
+        // Oppsett for å telle antall "utenlandsoppgjør" for hver klubb. Tellerne
+        // gjenbrukes fra forrige trekning.
+        countryCounters.keySet().retainAll(clubSlots);
         for (ClubSlot club : clubSlots) {
-            countryCounters.put(club, new HashMap<>());
+            countryCounters.computeIfAbsent(club, c -> new HashMap<>()).clear();
         }
         Helper helper = new Helper();
-        Random rnd = new Random();
 
         // For hver underpot: (pot 0/1, 2/3, 4/5)
         for (int up = 0; up < 3; up++) {
             int potA = up * 2;
             int potB = up * 2 + 1;
             // Leg 1: klubbene i potA er hjemme, potB er borte.
-            List<ClubSlot> homeList = new ArrayList<>(pots.get(potA));
-            List<ClubSlot> awayList = new ArrayList<>(pots.get(potB));
-            Collections.shuffle(homeList, rnd);
-            Collections.shuffle(awayList, rnd);
-            if (!pairClubs(homeList, awayList, countryCounters, helper, rnd)) {
+            homeList.clear();
+            homeList.addAll(pots.get(potA));
+            awayList.clear();
+            awayList.addAll(pots.get(potB));
+            Collections.shuffle(homeList, random);
+            Collections.shuffle(awayList, random);
+            if (!pairClubs(homeList, awayList, countryCounters, helper)) {
                 throw new IllegalStateException("Deadlock i trekk for underpot " + up + " leg 1.");
             }
             // Leg 2: bytt roller – potB hjemme, potA borte.
-            homeList = new ArrayList<>(pots.get(potB));
-            awayList = new ArrayList<>(pots.get(potA));
-            Collections.shuffle(homeList, rnd);
-            Collections.shuffle(awayList, rnd);
-            if (!pairClubs(homeList, awayList, countryCounters, helper, rnd)) {
+            homeList.clear();
+            homeList.addAll(pots.get(potB));
+            awayList.clear();
+            awayList.addAll(pots.get(potA));
+            Collections.shuffle(homeList, random);
+            Collections.shuffle(awayList, random);
+            if (!pairClubs(homeList, awayList, countryCounters, helper)) {
                 throw new IllegalStateException("Deadlock i trekk for underpot " + up + " leg 2.");
             }
         }
+        if (trace.isEnabled(Trace.Level.TIES)) {
+            trace.drawn(this);
+        }
     }
 
     /**
@@ -149,19 +172,19 @@ public class UeclLeaguePhaseRound extends LeaguePhaseRound {
      * @param awayList        listen med borteklubber
      * @param countryCounters teller for antall utenlandsoppgjør for hver klubb
      * @param helper          instans av hjelpeklasse for sjekk og oppdatering
-     * @param rnd             Random-instans for shuffling
      * @return true om parringen lykkes, false ellers.
      */
     private boolean pairClubs(List<ClubSlot> homeList, List<ClubSlot> awayList,
             Map<ClubSlot, Map<Country, Integer>> countryCounters,
-            Helper helper, Random rnd) {
+            Helper helper) {
         if (homeList.isEmpty()) {
             return true;
         }
         // Velg den første hjemmeklubben (rekkefølge er tilfeldig pga. shuffling)
         ClubSlot homeClub = homeList.remove(0);
-        List<ClubSlot> awayCandidates = new ArrayList<>(awayList);
-        Collections.shuffle(awayCandidates, rnd);
+        List<ClubSlot> awayCandidates = awayCandidates(homeList.size());
+        awayCandidates.addAll(awayList);
+        Collections.shuffle(awayCandidates, random);
 
         for (ClubSlot awayClub : awayCandidates) {
             // Sjekk om tie-en er lovlig for begge retninger
@@ -172,36 +195,47 @@ public class UeclLeaguePhaseRound extends LeaguePhaseRound {
                     || !helper.canAddOpponent(awayClub, homeClub, countryCounters)) {
                 continue;
             }
-            // Forbered backup av countrystatistikken
-            Map<Country, Integer> homeBackup = new HashMap<>(countryCounters.get(homeClub));
-            Map<Country, Integer> awayBackup = new HashMap<>(countryCounters.get(awayClub));
-
             // Oppdater countrystatistikken for begge klubber
             helper.updateCountryCounters(homeClub, awayClub, countryCounters);
             helper.updateCountryCounters(awayClub, homeClub, countryCounters);
 
             // Legg til tie-en globalt
-            Tie tie = new SingleLeggedTie(homeClub, awayClub);
+            int tiePoolMark = tiePool.getSingleLeggedMark();
+            Tie tie = tiePool.acquireSingleLeggedTie(homeClub, awayClub);
             ties.add(tie);
 
             // Fjern valgt awayClub fra available-listen
             awayList.remove(awayClub);
 
             // Prøv å parre resten rekursivt
-            if (pairClubs(homeList, awayList, countryCounters, helper, rnd)) {
+            if (pairClubs(homeList, awayList, countryCounters, helper)) {
                 return true;
             }
             // Backtracking: fjern tie-en, gjenopprett countrystatistikk og legg tilbake
             // awayClub.
             ties.remove(tie);
-            countryCounters.put(homeClub, homeBackup);
-            countryCounters.put(awayClub, awayBackup);
+            tiePool.releaseSingleLeggedTies(tiePoolMark);
+            helper.undoCountryCounters(homeClub, awayClub, countryCounters);
+            helper.undoCountryCounters(awayClub, homeClub, countryCounters);
             awayList.add(awayClub);
             // Gjenopprett rekkefølgen ved å shufflere bortelisten
-            Collections.shuffle(awayList, rnd);
+            Collections.shuffle(awayList, random);
         }
         // Legg tilbake homeClub før vi returnerer false (backtracking)
         homeList.add(0, homeClub);
         return false;
     }
+
+    /**
+     * Returnerer en tom liste for bortekandidatene på en gitt rekursjonsdybde.
+     * Listene gjenbrukes mellom trekninger.
+     */
+    private List<ClubSlot> awayCandidates(int depth) {
+        while (awayCandidateLists.size() <= depth) {
+            awayCandidateLists.add(new ArrayList<>());
+        }
+        List<ClubSlot> awayCandidates = awayCandidateLists.get(depth);
+        awayCandidates.clear();
+        return awayCandidates;
+    }
 }
\ No newline at end of file
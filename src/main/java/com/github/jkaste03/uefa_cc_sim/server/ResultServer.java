@@ -0,0 +1,332 @@
+package com.github.jkaste03.uefa_cc_sim.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.github.jkaste03.uefa_cc_sim.SimulationContext;
+import com.github.jkaste03.uefa_cc_sim.engine.PairingMatrix;
+import com.github.jkaste03.uefa_cc_sim.engine.ReachCounter;
+import com.github.jkaste03.uefa_cc_sim.engine.SimulationPlan;
+import com.github.jkaste03.uefa_cc_sim.threads.SimulationThread;
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A lightweight local HTTP service answering queries from the latest
+ * published {@link ResultSnapshot}, so dashboards can read simulation results
+ * without running a simulation of their own.
+ * <p>
+ * The server is built on the JDK's {@link HttpServer} and handles each request
+ * on a virtual thread. A new snapshot is swapped in atomically by
+ * {@link #publish(ResultSnapshot)}, so a request always sees one consistent
+ * snapshot. Serialized responses are kept in an LRU cache keyed by the
+ * snapshot version and the request, so repeated queries are answered without
+ * touching the counters again.
+ * <p>
+ * All responses are JSON. The endpoints are:
+ * <ul>
+ * <li>{@code GET /status}: the snapshot version, iterations and round names.</li>
+ * <li>{@code GET /club?name=<club>}: the probability of the club reaching each
+ * round.</li>
+ * <li>{@code GET /round?name=<round>}: the probability of each club reaching
+ * the round.</li>
+ * <li>{@code GET /pairings?round=<round>&club=<club>}: the probability of the
+ * club being drawn against each opponent in the round.</li>
+ * </ul>
+ */
+public class ResultServer {
+    private static final int DEFAULT_CACHE_SIZE = 1024;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicReference<Published> current = new AtomicReference<>();
+    private final Map<String, byte[]> cache;
+    private final Gson gson = new Gson();
+
+    /**
+     * A snapshot together with the version it was published as.
+     */
+    private static final class Published {
+        final long version;
+        final ResultSnapshot snapshot;
+
+        Published(long version, ResultSnapshot snapshot) {
+            this.version = version;
+            this.snapshot = snapshot;
+        }
+    }
+
+    /**
+     * Constructs a server on the given port of the loopback address with the
+     * default cache size. The server does not accept requests until
+     * {@link #start()} is called.
+     *
+     * @param port the port to listen on, or 0 for any free port.
+     * @throws IOException if the port cannot be bound.
+     */
+    public ResultServer(int port) throws IOException {
+        this(new InetSocketAddress("127.0.0.1", port), DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Constructs a server on the given address.
+     *
+     * @param address   the address to listen on.
+     * @param cacheSize the maximum number of serialized responses to cache.
+     * @throws IOException if the address cannot be bound.
+     */
+    public ResultServer(InetSocketAddress address, int cacheSize) throws IOException {
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops the server, letting requests in progress finish for up to the given
+     * delay, and waits for their threads to end.
+     *
+     * @param delaySeconds the maximum time to wait for requests in progress.
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.close();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Makes a snapshot the one all following requests are answered from.
+     *
+     * @param snapshot the snapshot to publish.
+     */
+    public void publish(ResultSnapshot snapshot) {
+        current.getAndUpdate(previous -> new Published(previous == null ? 1 : previous.version + 1, snapshot));
+    }
+
+    /**
+     * Returns the snapshot requests are currently answered from.
+     *
+     * @return the latest published snapshot, or null if none has been published.
+     */
+    public ResultSnapshot getSnapshot() {
+        Published published = current.get();
+        return published == null ? null : published.snapshot;
+    }
+
+    /**
+     * Runs the simulation threads of a context and publishes their results. While
+     * the threads count reach, a snapshot of their interim reach counts is
+     * published at the given interval. Once all threads are done, the final
+     * results are published as a complete snapshot.
+     *
+     * @param context        the simulation to run.
+     * @param threadCount    the number of simulation threads.
+     * @param intervalMillis the time between two interim snapshots.
+     * @return the finished simulation threads.
+     * @throws InterruptedException if interrupted while waiting for the threads.
+     */
+    public SimulationThread[] runAndPublish(SimulationContext context, int threadCount, long intervalMillis)
+            throws InterruptedException {
+        SimulationPlan plan = context.getPlan();
+        SimulationThread[] threads = new SimulationThread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new SimulationThread("SimulationThread-" + (i + 1), context);
+            threads[i].start();
+        }
+
+        for (SimulationThread thread : threads) {
+            while (thread.isAlive()) {
+                thread.join(intervalMillis);
+                if (thread.isAlive() && !context.isDrawOnly()) {
+                    ReachCounter interim = new ReachCounter(plan);
+                    for (SimulationThread other : threads) {
+                        if (other.getInterimReachCounter() != null) {
+                            interim.merge(other.getInterimReachCounter());
+                        }
+                    }
+                    publish(new ResultSnapshot(plan, context.getClubRepository(), interim, null, false));
+                }
+            }
+        }
+
+        ReachCounter reachCounter = null;
+        PairingMatrix pairingMatrix = null;
+        for (SimulationThread thread : threads) {
+            if (thread.getReachCounter() != null) {
+                if (reachCounter == null) {
+                    reachCounter = new ReachCounter(plan);
+                }
+                reachCounter.merge(thread.getReachCounter());
+            }
+            if (thread.getPairingMatrix() != null) {
+                if (pairingMatrix == null) {
+                    pairingMatrix = new PairingMatrix(plan.getRoundCount(), plan.getClubCount());
+                }
+                pairingMatrix.merge(thread.getPairingMatrix());
+            }
+        }
+        publish(new ResultSnapshot(plan, context.getClubRepository(), reachCounter, pairingMatrix, true));
+        return threads;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, error("Only GET is supported."));
+                return;
+            }
+            Published published = current.get();
+            if (published == null) {
+                send(exchange, 503, error("No results have been published yet."));
+                return;
+            }
+            String key = published.version + " " + exchange.getRequestURI();
+            byte[] body;
+            synchronized (cache) {
+                body = cache.get(key);
+            }
+            if (body == null) {
+                try {
+                    body = gson.toJson(answer(exchange.getRequestURI().getPath(),
+                            parseQuery(exchange.getRequestURI().getRawQuery()), published))
+                            .getBytes(StandardCharsets.UTF_8);
+                } catch (IllegalArgumentException e) {
+                    send(exchange, 400, error(e.getMessage()));
+                    return;
+                }
+                synchronized (cache) {
+                    cache.put(key, body);
+                }
+            }
+            send(exchange, 200, body);
+        }
+    }
+
+    /**
+     * Builds the response of a query from a snapshot.
+     *
+     * @throws IllegalArgumentException if the query is not valid.
+     */
+    private Object answer(String path, Map<String, String> query, Published published) {
+        ResultSnapshot snapshot = published.snapshot;
+        switch (path) {
+            case "/status": {
+                Map<String, Object> status = new LinkedHashMap<>();
+                status.put("version", published.version);
+                status.put("complete", snapshot.isComplete());
+                status.put("createdAt", snapshot.getCreatedAt());
+                if (snapshot.getReachCounter() != null) {
+                    status.put("iterations", snapshot.getReachCounter().getIterations());
+                }
+                String[] rounds = new String[snapshot.getRoundCount()];
+                for (int r = 0; r < rounds.length; r++) {
+                    rounds[r] = snapshot.getRoundName(r);
+                }
+                status.put("rounds", List.of(rounds));
+                return status;
+            }
+            case "/club": {
+                ReachCounter reachCounter = requireReachCounter(snapshot);
+                int clubId = snapshot.getClubId(require(query, "name"));
+                Map<String, Double> probabilities = new LinkedHashMap<>();
+                for (int r = 0; r < snapshot.getRoundCount(); r++) {
+                    probabilities.put(snapshot.getRoundName(r), reachCounter.getProbability(r, clubId));
+                }
+                return probabilities;
+            }
+            case "/round": {
+                ReachCounter reachCounter = requireReachCounter(snapshot);
+                int round = snapshot.getRoundIndex(require(query, "name"));
+                Map<String, Double> probabilities = new LinkedHashMap<>();
+                for (int id = 0; id < snapshot.getClubCount(); id++) {
+                    if (reachCounter.getCount(round, id) > 0) {
+                        probabilities.put(snapshot.getClubName(id), reachCounter.getProbability(round, id));
+                    }
+                }
+                return probabilities;
+            }
+            case "/pairings": {
+                PairingMatrix pairingMatrix = snapshot.getPairingMatrix();
+                if (pairingMatrix == null) {
+                    throw new IllegalArgumentException("The snapshot has no pairing counts.");
+                }
+                int round = snapshot.getRoundIndex(require(query, "round"));
+                int clubId = snapshot.getClubId(require(query, "club"));
+                Map<String, Double> probabilities = new LinkedHashMap<>();
+                for (int id = 0; id < snapshot.getClubCount(); id++) {
+                    if (pairingMatrix.getCount(round, clubId, id) > 0) {
+                        probabilities.put(snapshot.getClubName(id), pairingMatrix.getProbability(round, clubId, id));
+                    }
+                }
+                return probabilities;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown path: " + path);
+        }
+    }
+
+    private static ReachCounter requireReachCounter(ResultSnapshot snapshot) {
+        if (snapshot.getReachCounter() == null) {
+            throw new IllegalArgumentException("The snapshot has no reach counts.");
+        }
+        return snapshot.getReachCounter();
+    }
+
+    private static String require(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing query parameter: " + name);
+        }
+        return value;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private byte[] error(String message) {
+        return gson.toJson(Map.of("error", message)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.jkaste03.uefa_cc_sim.server;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.github.jkaste03.uefa_cc_sim.engine.PairingMatrix;
+import com.github.jkaste03.uefa_cc_sim.engine.ReachCounter;
+import com.github.jkaste03.uefa_cc_sim.engine.SimulationPlan;
+import com.github.jkaste03.uefa_cc_sim.model.ClubRepository;
+
+/**
+ * An immutable view of the results of a simulation run, served by the
+ * {@link ResultServer}.
+ * <p>
+ * A snapshot holds the names of the rounds and clubs together with the merged
+ * reach counts and, for draw-only runs, the merged pairing matrix. It takes
+ * ownership of the counters it is constructed with, which must not be changed
+ * afterwards. Snapshots of a run in progress are marked as not complete.
+ */
+public final class ResultSnapshot {
+    private final String[] roundNames;
+    private final String[] clubNames;
+    private final Map<String, Integer> roundIndex = new HashMap<>();
+    private final Map<String, Integer> clubIndex = new HashMap<>();
+    private final ReachCounter reachCounter;
+    private final PairingMatrix pairingMatrix;
+    private final boolean complete;
+    private final long createdAt;
+
+    /**
+     * Constructs a snapshot of the results of a run.
+     *
+     * @param plan           the plan the run was simulated on, naming the rounds.
+     * @param clubRepository the repository naming the clubs.
+     * @param reachCounter   the merged reach counts, or null if the run did not
+     *                       count them.
+     * @param pairingMatrix  the merged pairing counts, or null if the run did not
+     *                       count them.
+     * @param complete       false if the run is still in progress.
+     */
+    public ResultSnapshot(SimulationPlan plan, ClubRepository clubRepository, ReachCounter reachCounter,
+            PairingMatrix pairingMatrix, boolean complete) {
+        roundNames = new String[plan.getRoundCount()];
+        for (int r = 0; r < roundNames.length; r++) {
+            roundNames[r] = plan.getRoundName(r);
+            roundIndex.put(roundNames[r], r);
+        }
+        clubNames = new String[clubRepository.getClubCount()];
+        for (int id = 0; id < clubNames.length; id++) {
+            clubNames[id] = clubRepository.getClub(id).getName();
+            clubIndex.put(clubNames[id], id);
+        }
+        this.reachCounter = reachCounter;
+        this.pairingMatrix = pairingMatrix;
+        this.complete = complete;
+        this.createdAt = System.currentTimeMillis();
+    }
+
+    public int getRoundCount() {
+        return roundNames.length;
+    }
+
+    public String getRoundName(int round) {
+        return roundNames[round];
+    }
+
+    public int getClubCount() {
+        return clubNames.length;
+    }
+
+    public String getClubName(int clubId) {
+        return clubNames[clubId];
+    }
+
+    /**
+     * Returns the index of the round with the given name.
+     *
+     * @param name the name of the round.
+     * @return the round index.
+     * @throws IllegalArgumentException if there is no such round.
+     */
+    public int getRoundIndex(String name) {
+        Integer round = roundIndex.get(name);
+        if (round == null) {
+            throw new IllegalArgumentException("Unknown round: " + name);
+        }
+        return round;
+    }
+
+    /**
+     * Returns the id of the club with the given name.
+     *
+     * @param name the name of the club.
+     * @return the club id.
+     * @throws IllegalArgumentException if there is no such club.
+     */
+    public int getClubId(String name) {
+        Integer id = clubIndex.get(name);
+        if (id == null) {
+            throw new IllegalArgumentException("Unknown club: " + name);
+        }
+        return id;
+    }
+
+    public ReachCounter getReachCounter() {
+        return reachCounter;
+    }
+
+    public PairingMatrix getPairingMatrix() {
+        return pairingMatrix;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -1,10 +1,7 @@
 package com.github.jkaste03.uefa_cc_sim.service;
 
-import java.io.*;
-import java.net.URI;
-import java.nio.file.*;
+import java.io.Serializable;
 import java.time.LocalDate;
-import java.util.*;
 
 import com.github.jkaste03.uefa_cc_sim.model.ClubRepository;
 
@@ -14,9 +11,9 @@ import com.github.jkaste03.uefa_cc_sim.model.ClubRepository;
  * <p>
  * This service acts as a centralized utility to obtain Elo ratings, which are
  * used to gauge
- * the strength of clubs in simulations and competitions. The ratings may be
- * fetched from external
- * data sources or local caches depending on the implementation.
+ * the strength of clubs in simulations and competitions. The ratings are read
+ * from an {@link EloRatingProvider}, which may fetch them from the ClubElo API,
+ * a local file or a stand-in.
  * <p>
  * Usage example for retrieving the Elo rating of the club with id 32:
  * 
@@ -25,75 +22,98 @@ import com.github.jkaste03.uefa_cc_sim.model.ClubRepository;
  * </pre>
  * <p>
  * If a club's Elo rating is not found, the service returns 0.0 by default.
+ * <p>
+ * The ratings are kept in a float array indexed by club id, which is not
+ * changed once set, so it can be read by any number
+ * of simulations at once. Changes to the ratings during a simulation are kept
+ * apart from it, see {@link com.github.jkaste03.uefa_cc_sim.model.EloRatings}.
+ * <p>
+ * The ratings array is not serialized, so a copy of the rounds made for a
+ * worker thread does not clone it. The copy is handed the array of the loader
+ * it was copied from with {@link #shareRatings(ClubEloDataLoader)}, which
+ * {@code UefaCCSim.deepCopy} does for copies of the rounds.
  */
 public class ClubEloDataLoader implements Serializable {
-    private static final String BASE_URL = "http://api.clubelo.com/";
-    private static final String DATA_FOLDER = "src/main/java/com/github/jkaste03/uefa_cc_sim/data/";
-    private static String filePath = DATA_FOLDER + LocalDate.now() + ".csv";
-    private final Map<Integer, Double> eloMap = new HashMap<>();
+    // Where the ratings are read from. Not serialized, as copies only read the
+    // ratings already set.
+    private final transient EloRatingProvider provider;
+    // The date the ratings stood on, or null if unknown.
+    private LocalDate date;
+    // The Elo rating of each club, indexed by club id. Read-only once loaded, and
+    // shared with copies. Null in a copy until shareRatings is called.
+    private transient float[] ratings = new float[0];
 
     /**
-     * Initializes the Elo ratings by downloading the latest data if not already
-     * present.
+     * Constructs a loader reading from the default provider.
+     *
+     * @see EloRatingProvider#defaultProvider()
      */
-    public void init() {
-        // Download file if it does not exist
-        if (!Files.exists(Path.of(filePath))) {
-            deleteExistingCSVFiles();
-            downloadCSV(LocalDate.now());
-        }
-        loadEloRatings();
+    public ClubEloDataLoader() {
+        this(EloRatingProvider.defaultProvider());
     }
 
     /**
-     * Deletes all existing CSV files in the data package.
+     * Constructs a loader reading from the given provider.
+     *
+     * @param provider the provider of the ratings.
      */
-    private void deleteExistingCSVFiles() {
-        try (DirectoryStream<Path> stream = Files.newDirectoryStream(Path.of(DATA_FOLDER), "*.csv")) {
-            for (Path entry : stream) {
-                Files.delete(entry);
-            }
-            System.out.println("Deleted old API data");
-        } catch (IOException e) {
-            System.err.println("Could not delete existing CSV files: " + e.getMessage());
-        }
+    public ClubEloDataLoader(EloRatingProvider provider) {
+        this.provider = provider;
     }
 
     /**
-     * Downloads the CSV file for the given date from the API.
-     * 
-     * @param date the date for which to download the CSV file.
+     * Initializes the Elo ratings from the provider.
+     *
+     * @param clubRepository the repository to look up the clubs of the ratings in.
      */
-    private void downloadCSV(LocalDate date) {
-        String urlString = BASE_URL + date;
-        try (InputStream in = new URI(urlString).toURL().openStream()) {
-            Files.createDirectories(Path.of(DATA_FOLDER));
-            Files.copy(in, Path.of(filePath), StandardCopyOption.REPLACE_EXISTING);
-            System.out.println("Downloaded API data for " + date);
-        } catch (Exception e) {
-            System.err.println("Could not download API data from " + urlString + ": " + e.getMessage());
-        }
+    public void init(ClubRepository clubRepository) {
+        setRatings(clubRepository, readRatings());
     }
 
     /**
-     * Loads Elo ratings from the CSV file into memory.
+     * Reads the Elo ratings by club name from the provider. This does not touch
+     * the clubs, so it can run while they are being loaded.
+     *
+     * @return the ratings of the provider.
      */
-    private void loadEloRatings() {
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            String line = br.readLine(); // Skip header
-            while ((line = br.readLine()) != null) {
-                String[] values = line.split(",");
-                if (values.length < 5)
-                    continue;
-                String clubName = values[1].trim();
-                int clubid = ClubRepository.getIdByName(clubName);
-                double elo = Double.parseDouble(values[4].trim());
+    public EloSnapshot readRatings() {
+        return provider.load();
+    }
 
-                eloMap.put(clubid, elo);
-            }
-        } catch (IOException e) {
-            System.err.println("Could not read API data: " + e.getMessage());
+    /**
+     * Sets the Elo ratings of the clubs of a repository from a snapshot of
+     * ratings by club name. Clubs without a rating get 0.0.
+     *
+     * @param clubRepository the repository holding all clubs of the simulation.
+     * @param snapshot       the ratings read by {@link #readRatings()}.
+     */
+    public void setRatings(ClubRepository clubRepository, EloSnapshot snapshot) {
+        float[] loaded = new float[clubRepository.getClubCount()];
+        for (int id = 0; id < loaded.length; id++) {
+            loaded[id] = snapshot.getRating(clubRepository.getClub(id).getName());
         }
+        date = snapshot.getDate();
+        ratings = loaded;
+    }
+
+    /**
+     * Makes this loader, a copy of another, read the ratings of the other
+     * loader. The ratings array is shared, not cloned, as it is read-only.
+     *
+     * @param original the loader this one was copied from.
+     */
+    public void shareRatings(ClubEloDataLoader original) {
+        date = original.date;
+        ratings = original.ratings;
+    }
+
+    /**
+     * Returns the date the ratings stood on.
+     *
+     * @return the date, or null if unknown.
+     */
+    public LocalDate getDate() {
+        return date;
     }
 
     /**
@@ -103,16 +123,16 @@ public class ClubEloDataLoader implements Serializable {
      * @return the Elo rating for the club if available, or 0.0 if not found
      */
     public double getEloRating(int clubId) {
-        return eloMap.getOrDefault(clubId, 0.0);
+        return clubId < ratings.length ? ratings[clubId] : 0.0;
     }
 
     /**
-     * Sets the Elo rating for a specified club id.
-     * 
-     * @param clubId
-     * @param elo
+     * Returns the number of clubs that have a rating slot, which is the number
+     * of clubs in the repository when the ratings were loaded.
+     *
+     * @return the number of rating slots.
      */
-    public void setEloRating(int clubId, double elo) {
-        eloMap.put(clubId, elo);
+    public int getClubCount() {
+        return ratings.length;
     }
 }
@@ -0,0 +1,209 @@
+package com.github.jkaste03.uefa_cc_sim.service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A date-indexed archive of historical club Elo ratings, compacted from many
+ * dated ClubElo CSV files into one binary file that is memory-mapped when
+ * opened.
+ * <p>
+ * The file holds a header, the dates in ascending order as epoch days, the
+ * club names, and then one column of floats per date with the rating of every
+ * club, NaN for clubs without a rating on that date:
+ *
+ * <pre>
+ * int magic, int version, int clubCount, int dateCount
+ * int[dateCount] epochDays
+ * clubCount x (unsigned short length, UTF-8 bytes) names, padded to 4 bytes
+ * float[dateCount][clubCount] ratings
+ * </pre>
+ * <p>
+ * A snapshot of a date reads its column of the mapped file in place, so any
+ * number of simulations can read the ratings of different dates at once
+ * without copying them. An archive is read-only and can be shared between
+ * threads.
+ */
+public class EloArchive {
+    private static final int MAGIC = 0x454C4F41; // "ELOA"
+    private static final int VERSION = 1;
+
+    private final int[] epochDays;
+    private final Map<String, Integer> clubIndex;
+    private final FloatBuffer ratings;
+    private final int clubCount;
+
+    private EloArchive(int[] epochDays, Map<String, Integer> clubIndex, FloatBuffer ratings) {
+        this.epochDays = epochDays;
+        this.clubIndex = clubIndex;
+        this.ratings = ratings;
+        this.clubCount = clubIndex.size();
+    }
+
+    /**
+     * Compacts the dated CSV files of a directory, named like
+     * {@code 2024-07-15.csv}, into an archive file. Files with other names are
+     * ignored. The archive is written under a temporary name and then moved
+     * into place.
+     *
+     * @param csvDirectory the directory of CSV files in the format of the ClubElo
+     *                     API.
+     * @param archiveFile  the archive file to write.
+     * @throws IOException if a file cannot be read or the archive written.
+     */
+    public static void build(Path csvDirectory, Path archiveFile) throws IOException {
+        // Read the files in date order, giving each club an index when first seen.
+        TreeMap<LocalDate, Map<String, Float>> dated = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(csvDirectory, "*.csv")) {
+            for (Path entry : stream) {
+                LocalDate date = EloSnapshot.dateOf(entry);
+                if (date != null) {
+                    dated.put(date, EloSnapshot.readCsvRatings(entry));
+                }
+            }
+        }
+        Map<String, Integer> index = new LinkedHashMap<>();
+        dated.values().forEach(ratingsByName -> ratingsByName.keySet()
+                .forEach(name -> index.putIfAbsent(name, index.size())));
+
+        Path parent = archiveFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temporary = Files.createTempFile(parent, archiveFile.getFileName().toString(), ".part");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(index.size());
+                out.writeInt(dated.size());
+                for (LocalDate date : dated.keySet()) {
+                    out.writeInt((int) date.toEpochDay());
+                }
+                for (String name : index.keySet()) {
+                    byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                    out.writeShort(bytes.length);
+                    out.write(bytes);
+                }
+                while (out.size() % Float.BYTES != 0) {
+                    out.writeByte(0);
+                }
+                float[] column = new float[index.size()];
+                for (Map<String, Float> ratingsByName : dated.values()) {
+                    Arrays.fill(column, Float.NaN);
+                    ratingsByName.forEach((name, rating) -> column[index.get(name)] = rating);
+                    for (float rating : column) {
+                        out.writeFloat(rating);
+                    }
+                }
+            }
+            Files.move(temporary, archiveFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Opens an archive file by mapping it into memory.
+     *
+     * @param archiveFile the archive file, written by {@link #build(Path, Path)}.
+     * @return the archive.
+     * @throws IOException if the file cannot be read or is not an archive.
+     */
+    public static EloArchive open(Path archiveFile) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(archiveFile, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < 4 * Integer.BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException(archiveFile + " is not an Elo archive.");
+        }
+        int clubCount = buffer.getInt();
+        int dateCount = buffer.getInt();
+        int[] epochDays = new int[dateCount];
+        for (int d = 0; d < dateCount; d++) {
+            epochDays[d] = buffer.getInt();
+        }
+        Map<String, Integer> index = new HashMap<>();
+        for (int c = 0; c < clubCount; c++) {
+            byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+            buffer.get(bytes);
+            index.put(new String(bytes, StandardCharsets.UTF_8), c);
+        }
+        buffer.position((buffer.position() + Float.BYTES - 1) / Float.BYTES * Float.BYTES);
+        FloatBuffer ratings = buffer.slice().asFloatBuffer();
+        if (ratings.remaining() < (long) clubCount * dateCount) {
+            throw new IOException(archiveFile + " is truncated.");
+        }
+        return new EloArchive(epochDays, Collections.unmodifiableMap(index), ratings);
+    }
+
+    /**
+     * Returns the dates of the archive.
+     *
+     * @return the dates in ascending order.
+     */
+    public List<LocalDate> getDates() {
+        List<LocalDate> dates = new ArrayList<>();
+        for (int epochDay : epochDays) {
+            dates.add(LocalDate.ofEpochDay(epochDay));
+        }
+        return dates;
+    }
+
+    public int getClubCount() {
+        return clubCount;
+    }
+
+    /**
+     * Returns the ratings as they stood on a date, which are those of the latest
+     * date of the archive on or before it. The snapshot reads the archive in
+     * place.
+     *
+     * @param date the date.
+     * @return the ratings of the date.
+     * @throws IllegalArgumentException if the archive has no date on or before
+     *                                  the given one.
+     */
+    public EloSnapshot snapshotAt(LocalDate date) {
+        int d = Arrays.binarySearch(epochDays, (int) date.toEpochDay());
+        if (d < 0) {
+            d = -d - 2; // The latest date before it
+        }
+        if (d < 0) {
+            throw new IllegalArgumentException("The Elo archive has no ratings on or before " + date + ".");
+        }
+        return new EloSnapshot(LocalDate.ofEpochDay(epochDays[d]), clubIndex,
+                ratings.slice(d * clubCount, clubCount));
+    }
+
+    /**
+     * Returns a provider handing out the ratings as they stood on a date.
+     *
+     * @param date the date.
+     * @return the provider.
+     * @see #snapshotAt(LocalDate)
+     */
+    public EloRatingProvider providerAt(LocalDate date) {
+        EloSnapshot snapshot = snapshotAt(date);
+        return () -> snapshot;
+    }
+}
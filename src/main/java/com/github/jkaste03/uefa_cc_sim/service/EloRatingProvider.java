@@ -0,0 +1,56 @@
+package com.github.jkaste03.uefa_cc_sim.service;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * A source of club Elo ratings.
+ * <p>
+ * Implementations are {@link HttpEloProvider}, which fetches the ratings from
+ * the ClubElo API into an on-disk cache, {@link FileEloProvider}, which reads
+ * a local CSV file, and {@link #fixed(Map)}, a stand-in for offline and test
+ * runs.
+ */
+public interface EloRatingProvider {
+    /**
+     * Returns the latest ratings the provider has. The call may block while the
+     * ratings are read, but a provider must not fail: if no ratings are
+     * available, it reports why and returns an empty snapshot.
+     *
+     * @return the ratings.
+     */
+    EloSnapshot load();
+
+    /**
+     * Waits for a refresh of the ratings that the provider runs in the
+     * background to finish, so it is not cut off when the JVM exits. Does
+     * nothing by default.
+     */
+    default void awaitRefresh() {
+    }
+
+    /**
+     * Returns the default provider, which fetches the ratings from the ClubElo
+     * API into the cache directory given by the system property
+     * {@code uefa_cc_sim.elo.cache}, or {@code .uefa-cc-sim/elo} in the user's
+     * home directory.
+     *
+     * @return the default provider.
+     */
+    static EloRatingProvider defaultProvider() {
+        String cacheDirectory = System.getProperty("uefa_cc_sim.elo.cache");
+        return new HttpEloProvider(cacheDirectory != null ? Path.of(cacheDirectory)
+                : Path.of(System.getProperty("user.home"), ".uefa-cc-sim", "elo"));
+    }
+
+    /**
+     * Returns a provider that always hands out the same ratings.
+     *
+     * @param ratingsByName the rating of each club name.
+     * @return the provider.
+     */
+    static EloRatingProvider fixed(Map<String, Float> ratingsByName) {
+        EloSnapshot snapshot = new EloSnapshot(null, ratingsByName);
+        return () -> snapshot;
+    }
+}
@@ -0,0 +1,162 @@
+package com.github.jkaste03.uefa_cc_sim.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The Elo ratings of the clubs by name as they stood on one date, as handed
+ * out by an {@link EloRatingProvider}.
+ * <p>
+ * A snapshot never changes once constructed. A provider that refreshes its
+ * data hands out a new snapshot, so simulations reading an older one are
+ * never disturbed. The ratings are read through a float buffer indexed by a
+ * map of club names, so a snapshot of an {@link EloArchive} reads its column
+ * of the memory-mapped archive in place.
+ */
+public final class EloSnapshot {
+    private final LocalDate date;
+    private final Map<String, Integer> clubIndex;
+    // The rating of each club of the index, NaN for clubs without a rating.
+    private final FloatBuffer ratings;
+    private final int size;
+
+    /**
+     * Constructs a snapshot.
+     *
+     * @param date          the date the ratings stood on, or null if unknown.
+     * @param ratingsByName the rating of each club name, copied.
+     */
+    public EloSnapshot(LocalDate date, Map<String, Float> ratingsByName) {
+        Map<String, Integer> index = new HashMap<>();
+        float[] values = new float[ratingsByName.size()];
+        ratingsByName.forEach((name, rating) -> {
+            values[index.size()] = rating;
+            index.put(name, index.size());
+        });
+        this.date = date;
+        this.clubIndex = Collections.unmodifiableMap(index);
+        this.ratings = FloatBuffer.wrap(values).asReadOnlyBuffer();
+        this.size = values.length;
+    }
+
+    /**
+     * Constructs a snapshot reading the ratings in place.
+     *
+     * @param date      the date the ratings stood on.
+     * @param clubIndex the index of each club name in the ratings, not copied.
+     * @param ratings   the ratings, NaN for clubs without one, not copied.
+     */
+    EloSnapshot(LocalDate date, Map<String, Integer> clubIndex, FloatBuffer ratings) {
+        this.date = date;
+        this.clubIndex = clubIndex;
+        this.ratings = ratings;
+        int rated = 0;
+        for (int i = 0; i < ratings.limit(); i++) {
+            if (!Float.isNaN(ratings.get(i))) {
+                rated++;
+            }
+        }
+        this.size = rated;
+    }
+
+    /**
+     * Returns a snapshot without any ratings.
+     *
+     * @return an empty snapshot of an unknown date.
+     */
+    public static EloSnapshot empty() {
+        return new EloSnapshot(null, Map.of());
+    }
+
+    /**
+     * Reads a snapshot from a CSV file in the format of the ClubElo API, with the
+     * club name in the second column and the rating in the fifth.
+     *
+     * @param file the CSV file.
+     * @param date the date the ratings stood on, or null if unknown.
+     * @return the ratings of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    public static EloSnapshot readCsv(Path file, LocalDate date) throws IOException {
+        return new EloSnapshot(date, readCsvRatings(file));
+    }
+
+    /**
+     * Reads the ratings by club name from a CSV file in the format of the
+     * ClubElo API, in the order of the file.
+     */
+    static Map<String, Float> readCsvRatings(Path file) throws IOException {
+        Map<String, Float> ratingsByName = new LinkedHashMap<>();
+        try (BufferedReader br = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = br.readLine(); // Skip header
+            while ((line = br.readLine()) != null) {
+                String[] values = line.split(",");
+                if (values.length < 5)
+                    continue;
+                try {
+                    ratingsByName.put(values[1].trim(), Float.parseFloat(values[4].trim()));
+                } catch (NumberFormatException e) {
+                    // Skip lines without a rating
+                }
+            }
+        }
+        return ratingsByName;
+    }
+
+    /**
+     * Returns the date of a file named after it, like {@code 2024-07-15.csv}.
+     *
+     * @return the date, or null if the name is not a date.
+     */
+    static LocalDate dateOf(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return LocalDate.parse(name.substring(0, name.length() - ".csv".length()));
+        } catch (DateTimeParseException | StringIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the date the ratings stood on.
+     *
+     * @return the date, or null if unknown.
+     */
+    public LocalDate getDate() {
+        return date;
+    }
+
+    /**
+     * Returns the rating of a club.
+     *
+     * @param clubName the name of the club.
+     * @return the rating, or 0.0 if the club has none.
+     */
+    public float getRating(String clubName) {
+        Integer i = clubIndex.get(clubName);
+        if (i == null) {
+            return 0f;
+        }
+        float rating = ratings.get(i);
+        return Float.isNaN(rating) ? 0f : rating;
+    }
+
+    /**
+     * Returns the number of clubs with a rating.
+     *
+     * @return the number of ratings.
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.jkaste03.uefa_cc_sim.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Reads the Elo ratings from a local CSV file in the format of the ClubElo
+ * API, for runs without network access.
+ */
+public class FileEloProvider implements EloRatingProvider {
+    private final Path file;
+
+    /**
+     * Constructs a provider reading the given file.
+     *
+     * @param file the CSV file.
+     */
+    public FileEloProvider(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public EloSnapshot load() {
+        try {
+            return EloSnapshot.readCsv(file, null);
+        } catch (IOException e) {
+            System.err.println("Could not read Elo ratings from " + file + ": " + e.getMessage());
+            return EloSnapshot.empty();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.jkaste03.uefa_cc_sim.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+import com.github.jkaste03.uefa_cc_sim.engine.MatchCalibrator;
+
+/**
+ * Utility class for loading historical match results to calibrate the match
+ * model on.
+ * <p>
+ * The results are read from a CSV file with the columns
+ * {@code date,home,away,home_goals,away_goals,shootout_winner} and a header
+ * line. The shootout winner is empty unless the match was a second leg that
+ * ended in a penalty shootout, in which case it names the club that won it.
+ * The ratings of both clubs are looked up in an {@link EloArchive} as they
+ * stood on the match day.
+ */
+public class HistoricalMatchLoader {
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private HistoricalMatchLoader() {
+    }
+
+    /**
+     * Adds the matches of a file to a calibrator. Matches of clubs without a
+     * rating on the match day are left out.
+     *
+     * @param path       the CSV file.
+     * @param archive    the archive of historical ratings.
+     * @param calibrator the calibrator to add the matches to.
+     * @return the number of matches left out.
+     * @throws IOException              if the file cannot be read.
+     * @throws IllegalArgumentException if a line is not a valid match, or the
+     *                                  archive has no ratings before a match.
+     */
+    public static int load(Path path, EloArchive archive, MatchCalibrator calibrator) throws IOException {
+        int skipped = 0;
+        try (BufferedReader br = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line = br.readLine(); // Skip header
+            int lineNumber = 1;
+            while ((line = br.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank())
+                    continue;
+                String[] values = line.split(",", -1);
+                if (values.length < 5) {
+                    throw new IllegalArgumentException("Line " + lineNumber + " of " + path + " has too few columns.");
+                }
+                LocalDate date;
+                int homeGoals;
+                int awayGoals;
+                try {
+                    date = LocalDate.parse(values[0].trim());
+                    homeGoals = Integer.parseInt(values[3].trim());
+                    awayGoals = Integer.parseInt(values[4].trim());
+                } catch (DateTimeParseException | NumberFormatException e) {
+                    throw new IllegalArgumentException("Line " + lineNumber + " of " + path + " is not a valid match.");
+                }
+                String home = values[1].trim();
+                String away = values[2].trim();
+                EloSnapshot snapshot = archive.snapshotAt(date);
+                float homeRating = snapshot.getRating(home);
+                float awayRating = snapshot.getRating(away);
+                if (homeRating == 0 || awayRating == 0) {
+                    skipped++;
+                    continue;
+                }
+                calibrator.addMatch(homeRating, awayRating, homeGoals, awayGoals);
+                String shootoutWinner = values.length > 5 ? values[5].trim() : "";
+                if (!shootoutWinner.isEmpty()) {
+                    calibrator.addShootout(shootoutWinner.equals(home));
+                }
+            }
+        }
+        return skipped;
+    }
+}
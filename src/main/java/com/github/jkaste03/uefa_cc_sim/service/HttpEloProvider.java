@@ -0,0 +1,224 @@
+package com.github.jkaste03.uefa_cc_sim.service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fetches the Elo ratings of the day from the ClubElo API into an on-disk
+ * cache of one CSV file per date, named {@code clubelo-<date>.csv}.
+ * <p>
+ * When the cache holds ratings, they are returned at once, and the ratings of
+ * the day are fetched on a virtual thread in the background for the next
+ * load. Only when the cache is empty does a load wait for the network. A
+ * fetch sends the time of the cached file of the day as
+ * {@code If-Modified-Since}, so unchanged ratings are not downloaded again. A
+ * downloaded file is written under a temporary name and then moved into
+ * place, and older files of the provider are deleted from the cache afterwards, so a fetch
+ * that is cut off never leaves a partial file in place of the ratings. The
+ * temporary files of fetches cut off by the JVM exiting are deleted by a later
+ * fetch once they are stale. Only files named like those the provider writes
+ * are read or deleted, so the cache directory may hold other files, such as a
+ * ClubElo history of files named by date alone.
+ */
+public class HttpEloProvider implements EloRatingProvider {
+    private static final URI DEFAULT_BASE_URI = URI.create("http://api.clubelo.com/");
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    // A temporary file not moved into place within this time was left by a
+    // fetch that was cut off, not by one still running in another process.
+    private static final Duration STALE_DOWNLOAD_AGE = Duration.ofHours(1);
+    // The start of the names of the files the provider writes.
+    private static final String FILE_PREFIX = "clubelo-";
+
+    private final URI baseUri;
+    private final Path cacheDirectory;
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NORMAL).build();
+    // Set while a background fetch runs, so only one runs at a time.
+    private final AtomicBoolean fetching = new AtomicBoolean();
+    // The thread of the latest background fetch, or null if none was started.
+    private volatile Thread refresh;
+
+    /**
+     * Constructs a provider fetching from the ClubElo API.
+     *
+     * @param cacheDirectory the directory to cache the CSV files in.
+     */
+    public HttpEloProvider(Path cacheDirectory) {
+        this(DEFAULT_BASE_URI, cacheDirectory);
+    }
+
+    /**
+     * Constructs a provider fetching from the given API.
+     *
+     * @param baseUri        the URI the date is appended to.
+     * @param cacheDirectory the directory to cache the CSV files in.
+     */
+    public HttpEloProvider(URI baseUri, Path cacheDirectory) {
+        this.baseUri = baseUri;
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    @Override
+    public EloSnapshot load() {
+        LocalDate today = LocalDate.now();
+        Path cached = latestCachedFile();
+        if (cached == null) {
+            fetch(today);
+            cached = latestCachedFile();
+        } else if (fetching.compareAndSet(false, true)) {
+            refresh = Thread.ofVirtual().start(() -> {
+                try {
+                    fetch(today);
+                } finally {
+                    fetching.set(false);
+                }
+            });
+        }
+        if (cached == null) {
+            return EloSnapshot.empty();
+        }
+        try {
+            return EloSnapshot.readCsv(cached, dateOf(cached));
+        } catch (IOException e) {
+            System.err.println("Could not read cached Elo ratings " + cached + ": " + e.getMessage());
+            return EloSnapshot.empty();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Waits for the background fetch for at most twice the timeout of a request.
+     */
+    @Override
+    public void awaitRefresh() {
+        Thread thread = refresh;
+        if (thread == null) {
+            return;
+        }
+        try {
+            thread.join(TIMEOUT.multipliedBy(2));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Fetches the ratings of a date into the cache, unless the cached file of the
+     * date is up to date.
+     */
+    private void fetch(LocalDate date) {
+        Path file = cacheDirectory.resolve(FILE_PREFIX + date + ".csv");
+        URI uri = baseUri.resolve(date.toString());
+        try {
+            Files.createDirectories(cacheDirectory);
+            deleteStaleDownloads();
+            HttpRequest.Builder request = HttpRequest.newBuilder(uri).timeout(TIMEOUT);
+            if (Files.exists(file)) {
+                request.header("If-Modified-Since", DateTimeFormatter.RFC_1123_DATE_TIME
+                        .format(Files.getLastModifiedTime(file).toInstant().atOffset(ZoneOffset.UTC)));
+            }
+            Path download = Files.createTempFile(cacheDirectory, FILE_PREFIX + date, ".part");
+            try {
+                HttpResponse<Path> response = client.send(request.build(),
+                        HttpResponse.BodyHandlers.ofFile(download));
+                if (response.statusCode() == 304) {
+                    return;
+                }
+                if (response.statusCode() != 200) {
+                    System.err.println("Could not download Elo ratings from " + uri + ": HTTP "
+                            + response.statusCode());
+                    return;
+                }
+                Files.move(download, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(download);
+            }
+            deleteOlderFiles(file);
+        } catch (IOException e) {
+            System.err.println("Could not download Elo ratings from " + uri + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the cached file of the latest date, or null if the cache is empty.
+     */
+    private Path latestCachedFile() {
+        Path latest = null;
+        LocalDate latestDate = null;
+        if (!Files.isDirectory(cacheDirectory)) {
+            return null;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDirectory, FILE_PREFIX + "*.csv")) {
+            for (Path entry : stream) {
+                LocalDate date = dateOf(entry);
+                if (date != null && (latestDate == null || date.isAfter(latestDate))) {
+                    latest = entry;
+                    latestDate = date;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not list cached Elo ratings: " + e.getMessage());
+        }
+        return latest;
+    }
+
+    /**
+     * Deletes the temporary files of fetches that were cut off.
+     */
+    private void deleteStaleDownloads() throws IOException {
+        long staleBefore = System.currentTimeMillis() - STALE_DOWNLOAD_AGE.toMillis();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDirectory, FILE_PREFIX + "*.part")) {
+            for (Path entry : stream) {
+                if (Files.getLastModifiedTime(entry).toMillis() < staleBefore) {
+                    Files.deleteIfExists(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes all cached files of the provider but the given one.
+     */
+    private void deleteOlderFiles(Path keep) throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDirectory, FILE_PREFIX + "*.csv")) {
+            for (Path entry : stream) {
+                if (!entry.equals(keep) && dateOf(entry) != null) {
+                    Files.delete(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the date of a cached file of the provider.
+     *
+     * @return the date, or null if the name is not the prefix and a date.
+     */
+    private static LocalDate dateOf(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(FILE_PREFIX) || !name.endsWith(".csv")) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(name.substring(FILE_PREFIX.length(), name.length() - ".csv".length()));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -33,48 +33,61 @@ public class JsonDataLoader {
      */
     private static final String DATA_FILE = "src/main/java/com/github/jkaste03/uefa_cc_sim/data/data.json";
 
+    /**
+     * Reads and parses the JSON file. This does not touch any rounds or clubs, so
+     * it can run while the rounds are being constructed.
+     *
+     * @return the root object of the JSON data, or an empty object if the file
+     *         cannot be read.
+     */
+    public static JsonObject readData() {
+        try (Reader reader = new FileReader(DATA_FILE)) {
+            return JsonParser.parseReader(reader).getAsJsonObject();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new JsonObject();
+        }
+    }
+
     /**
      * Loads club data from the JSON file and assigns clubs to corresponding rounds.
      *
-     * @param rounds List of rounds to update with club data.
+     * @param rounds         List of rounds to update with club data.
+     * @param clubRepository the repository to add the clubs to.
+     */
+    public static void loadDataForRounds(List<Round> rounds, ClubRepository clubRepository) {
+        loadDataForRounds(rounds, readData(), clubRepository);
+    }
+
+    /**
+     * Assigns the clubs of parsed JSON data to the corresponding rounds.
+     *
+     * @param rounds         List of rounds to update with club data.
+     * @param jsonData       the root object of the JSON data, see
+     *                       {@link #readData()}.
+     * @param clubRepository the repository to add the clubs to.
      */
-    public static void loadDataForRounds(List<Round> rounds) {
+    public static void loadDataForRounds(List<Round> rounds, JsonObject jsonData, ClubRepository clubRepository) {
         Gson gson = new Gson();
-        try (Reader reader = new FileReader(DATA_FILE)) {
-            JsonObject roundsData = JsonParser.parseReader(reader)
-                    .getAsJsonObject()
-                    .getAsJsonObject(DATA_MAIN_ROOT);
+        JsonObject roundsData = jsonData.getAsJsonObject(DATA_MAIN_ROOT);
+        if (roundsData != null) {
             for (Round round : rounds) {
-                JsonArray clubsJson = roundsData.getAsJsonArray(round.getName());
+                JsonArray clubsJson = roundsData.getAsJsonArray(round.getRoundId().getName());
                 if (clubsJson == null)
                     continue;
                 clubsJson.forEach(jsonElement -> {
                     // Deserialize JSON into a Club instance.
                     // Note: Gson will bypass the Club constructor.
                     Club club = gson.fromJson(jsonElement, Club.class);
-                    club.setId();
-                    ClubRepository.addClub(club);
-                    round.addClubSlot(new ClubIdWrapper(club.getId()));
+                    clubRepository.addClub(club);
+                    round.addClubSlot(new ClubIdWrapper(club.getId(), clubRepository));
                 });
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
         // Set the previous Champions League winner from the JSON data in
         // ClubRepository.
-        setPreviousChampionsLeagueWinner();
-    }
-
-    /**
-     * Fetches the value of previous_champions_league_winner from the JSON data, and
-     * sets that club's ID as the last UCL winner ID in ClubRepository.
-     */
-    private static void setPreviousChampionsLeagueWinner() {
-        try (Reader reader = new FileReader(DATA_FILE)) {
-            JsonObject jsonData = JsonParser.parseReader(reader).getAsJsonObject();
-            ClubRepository.setLastUclWinnerName(jsonData.get(PREVIOUS_UCL_WINNER).getAsString());
-        } catch (IOException e) {
-            e.printStackTrace();
+        if (jsonData.has(PREVIOUS_UCL_WINNER)) {
+            clubRepository.setLastUclWinnerName(jsonData.get(PREVIOUS_UCL_WINNER).getAsString());
         }
     }
 }
@@ -0,0 +1,62 @@
+package com.github.jkaste03.uefa_cc_sim.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.github.jkaste03.uefa_cc_sim.engine.MatchModel;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+/**
+ * Utility class for reading and writing the parameters of a
+ * {@link MatchModel} as JSON, so a calibrated model can be loaded at startup.
+ */
+public class MatchModelFile {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private MatchModelFile() {
+    }
+
+    /**
+     * Reads the parameters of a match model.
+     *
+     * @param path the JSON file.
+     * @return the model.
+     * @throws IOException if the file cannot be read or does not hold valid
+     *                     parameters.
+     */
+    public static MatchModel read(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            MatchModel model = GSON.fromJson(reader, MatchModel.class);
+            if (model == null) {
+                throw new IOException(path + " is empty.");
+            }
+            // Gson bypasses the constructor, so check the parameters through it.
+            return new MatchModel(model.getHomeAdvantage(), model.getGoalRatePerEloPoint(),
+                    model.getBaseGoalRate(), model.getShootoutHomeBias());
+        } catch (JsonParseException | IllegalArgumentException e) {
+            throw new IOException(path + " does not hold valid match model parameters: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes the parameters of a match model.
+     *
+     * @param path  the JSON file to write.
+     * @param model the model.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(Path path, MatchModel model) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            GSON.toJson(model, writer);
+        }
+    }
+}
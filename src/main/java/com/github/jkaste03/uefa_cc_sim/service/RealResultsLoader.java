@@ -0,0 +1,111 @@
+package com.github.jkaste03.uefa_cc_sim.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.github.jkaste03.uefa_cc_sim.enums.CompetitionData.RoundId;
+import com.github.jkaste03.uefa_cc_sim.enums.CompetitionData.RoundType;
+import com.github.jkaste03.uefa_cc_sim.model.ClubRepository;
+import com.github.jkaste03.uefa_cc_sim.model.RealResults;
+
+/**
+ * Utility class for loading the real draws and results of the qualifying
+ * rounds played so far.
+ * <p>
+ * The ties are read from a CSV file with the columns
+ * {@code round,club1,club2,club1_leg1,club2_leg1,club1_leg2,club2_leg2,winner}
+ * and a header line. The round is the id of a qualifying round, such as
+ * {@code UCL_Q1_CP}, and club 1 plays the first leg at home. The goals of a leg
+ * not played yet are left empty, and so is the winner unless the tie was
+ * decided by a penalty shootout. A round is drawn for real once its ties are in
+ * the file, so all of them must be listed at once.
+ */
+public class RealResultsLoader {
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private RealResultsLoader() {
+    }
+
+    /**
+     * Reads the real ties of a file.
+     *
+     * @param path           the CSV file.
+     * @param clubRepository the clubs the names of the file refer to.
+     * @return the real draws and results.
+     * @throws IOException              if the file cannot be read.
+     * @throws IllegalArgumentException if a line is not a valid tie.
+     */
+    public static RealResults load(Path path, ClubRepository clubRepository) throws IOException {
+        RealResults realResults = new RealResults();
+        try (BufferedReader br = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line = br.readLine(); // Skip header
+            int lineNumber = 1;
+            while ((line = br.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank())
+                    continue;
+                String[] values = line.split(",", -1);
+                if (values.length < 3) {
+                    throw new IllegalArgumentException("Line " + lineNumber + " of " + path + " has too few columns.");
+                }
+                String where = "Line " + lineNumber + " of " + path;
+                RoundId roundId;
+                try {
+                    roundId = RoundId.valueOf(values[0].trim().toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException(where + " has no valid round: " + values[0].trim() + ".");
+                }
+                if (roundId.getRoundType() == RoundType.LEAGUE_PHASE) {
+                    throw new IllegalArgumentException(where + ": only qualifying rounds can be pinned.");
+                }
+                int club1Id = clubId(clubRepository, values[1], where);
+                int club2Id = clubId(clubRepository, values[2], where);
+                String winner = column(values, 7);
+                try {
+                    realResults.addTie(roundId, new RealResults.PinnedTie(club1Id, club2Id,
+                            goals(values, 3, where), goals(values, 4, where), goals(values, 5, where),
+                            goals(values, 6, where), winner.isEmpty() ? -1 : clubId(clubRepository, winner, where)));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException(where + ": " + e.getMessage());
+                }
+            }
+        }
+        return realResults;
+    }
+
+    private static String column(String[] values, int index) {
+        return index < values.length ? values[index].trim() : "";
+    }
+
+    private static int clubId(ClubRepository clubRepository, String name, String where) {
+        int id = clubRepository.getIdByName(name.trim());
+        if (id == -1) {
+            throw new IllegalArgumentException(where + " has an unknown club: " + name.trim() + ".");
+        }
+        return id;
+    }
+
+    /**
+     * Returns the goals of a column, or -1 if it is empty.
+     */
+    private static int goals(String[] values, int index, String where) {
+        String value = column(values, index);
+        if (value.isEmpty()) {
+            return -1;
+        }
+        try {
+            int goals = Integer.parseInt(value);
+            if (goals >= 0) {
+                return goals;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException(where + " has invalid goals: " + value + ".");
+    }
+}
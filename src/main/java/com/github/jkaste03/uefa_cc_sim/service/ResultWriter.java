@@ -0,0 +1,344 @@
+package com.github.jkaste03.uefa_cc_sim.service;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.github.jkaste03.uefa_cc_sim.CommandLineOptions.Format;
+import com.github.jkaste03.uefa_cc_sim.engine.PairedDifference;
+import com.github.jkaste03.uefa_cc_sim.engine.PairingMatrix;
+import com.github.jkaste03.uefa_cc_sim.engine.ReachCounter;
+import com.github.jkaste03.uefa_cc_sim.engine.ReachProbabilities;
+import com.github.jkaste03.uefa_cc_sim.engine.ScenarioResult;
+import com.github.jkaste03.uefa_cc_sim.engine.SimulationPlan;
+import com.github.jkaste03.uefa_cc_sim.engine.WeightedReachCounter;
+import com.github.jkaste03.uefa_cc_sim.model.ClubRepository;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Utility class for writing simulation results to a file as CSV or JSON.
+ * Only non-zero probabilities are written.
+ * <p>
+ * Reach probabilities are written as the columns {@code round,club,probability}
+ * in CSV, or as an object of rounds mapping club names to probabilities in
+ * JSON. The reach probabilities of several snapshots are written with a
+ * leading {@code snapshot} column in CSV, or as an array of such objects in
+ * JSON, and those of several scenarios with a leading {@code scenario} column
+ * in CSV, or as an object of scenario names mapping to such objects in JSON.
+ * Paired differences are written as
+ * {@code scenario,round,club,difference,half_width} in CSV, or as an object of
+ * scenarios mapping rounds to clubs to both values in JSON. Importance-sampled
+ * reach probabilities are written the same way, as
+ * {@code scenario,round,club,probability,standard_error}.
+ * Pairing probabilities are written as
+ * {@code round,club,opponent,probability} in CSV, or as an object of rounds
+ * mapping club names to objects of opponents in JSON.
+ */
+public class ResultWriter {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private ResultWriter() {
+    }
+
+    /**
+     * Writes the probability of each club reaching each round.
+     *
+     * @param path           the file to write.
+     * @param format         the format of the file.
+     * @param plan           the plan naming the rounds.
+     * @param clubRepository the repository naming the clubs.
+     * @param reachCounter   the reach counts to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void writeReach(Path path, Format format, SimulationPlan plan, ClubRepository clubRepository,
+            ReachCounter reachCounter) throws IOException {
+        writeReach(path, format, reachProbabilities(plan, clubRepository, reachCounter));
+    }
+
+    /**
+     * Writes the probability of each club reaching each round, as computed by
+     * the analytic engine.
+     *
+     * @param path               the file to write.
+     * @param format             the format of the file.
+     * @param plan               the plan naming the rounds.
+     * @param clubRepository     the repository naming the clubs.
+     * @param reachProbabilities the reach probabilities to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void writeReach(Path path, Format format, SimulationPlan plan, ClubRepository clubRepository,
+            ReachProbabilities reachProbabilities) throws IOException {
+        Map<String, Map<String, Double>> rounds = new LinkedHashMap<>();
+        for (int r = 0; r < plan.getRoundCount(); r++) {
+            Map<String, Double> clubs = new LinkedHashMap<>();
+            for (int id = 0; id < plan.getClubCount(); id++) {
+                if (reachProbabilities.getProbability(r, id) > 0) {
+                    clubs.put(clubRepository.getClub(id).getName(), reachProbabilities.getProbability(r, id));
+                }
+            }
+            rounds.put(plan.getRoundName(r), clubs);
+        }
+        writeReach(path, format, rounds);
+    }
+
+    private static void writeReach(Path path, Format format, Map<String, Map<String, Double>> rounds)
+            throws IOException {
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            if (format == Format.JSON) {
+                GSON.toJson(rounds, writer);
+                return;
+            }
+            PrintWriter out = new PrintWriter(writer);
+            out.println("round,club,probability");
+            rounds.forEach((round, clubs) -> clubs.forEach((club, probability) -> out
+                    .println(csv(round) + "," + csv(club) + "," + String.format(Locale.ROOT, "%.6f", probability))));
+            out.flush();
+        }
+    }
+
+    /**
+     * Writes the probability of each club reaching each round, separately for
+     * the continuations of each snapshot.
+     *
+     * @param path           the file to write.
+     * @param format         the format of the file.
+     * @param plan           the plan naming the rounds.
+     * @param clubRepository the repository naming the clubs.
+     * @param reachCounters  the reach counts of each snapshot, numbered from 0
+     *                       in the file.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void writeSnapshotReach(Path path, Format format, SimulationPlan plan,
+            ClubRepository clubRepository, List<ReachCounter> reachCounters) throws IOException {
+        List<Map<String, Map<String, Double>>> snapshots = new ArrayList<>();
+        for (ReachCounter reachCounter : reachCounters) {
+            snapshots.add(reachProbabilities(plan, clubRepository, reachCounter));
+        }
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            if (format == Format.JSON) {
+                GSON.toJson(snapshots, writer);
+                return;
+            }
+            PrintWriter out = new PrintWriter(writer);
+            out.println("snapshot,round,club,probability");
+            for (int s = 0; s < snapshots.size(); s++) {
+                int snapshot = s;
+                snapshots.get(s).forEach((round, clubs) -> clubs.forEach((club, probability) -> out.println(snapshot
+                        + "," + csv(round) + "," + csv(club) + "," + String.format(Locale.ROOT, "%.6f", probability))));
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Writes the probability of each club reaching each round, separately for
+     * each scenario.
+     *
+     * @param path           the file to write.
+     * @param format         the format of the file.
+     * @param clubRepository the repository naming the clubs.
+     * @param results        the results of the scenarios.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void writeScenarioReach(Path path, Format format, ClubRepository clubRepository,
+            List<ScenarioResult> results) throws IOException {
+        Map<String, Map<String, Map<String, Double>>> scenarios = new LinkedHashMap<>();
+        for (ScenarioResult result : results) {
+            scenarios.put(result.getScenario().getName(),
+                    reachProbabilities(result.getPlan(), clubRepository, result.getReachCounter()));
+        }
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            if (format == Format.JSON) {
+                GSON.toJson(scenarios, writer);
+                return;
+            }
+            PrintWriter out = new PrintWriter(writer);
+            out.println("scenario,round,club,probability");
+            scenarios.forEach((scenario, rounds) -> rounds.forEach((round, clubs) -> clubs
+                    .forEach((club, probability) -> out.println(csv(scenario) + "," + csv(round) + "," + csv(club)
+                            + "," + String.format(Locale.ROOT, "%.6f", probability)))));
+            out.flush();
+        }
+    }
+
+    /**
+     * Writes the importance-sampled probability of each club reaching each
+     * round, with its standard error, separately for each scenario.
+     *
+     * @param path           the file to write.
+     * @param format         the format of the file.
+     * @param plan           the plan naming the rounds.
+     * @param clubRepository the repository naming the clubs.
+     * @param scenarioNames  the names of the scenarios.
+     * @param counters       the weighted reach counts of each scenario.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void writeWeightedReach(Path path, Format format, SimulationPlan plan,
+            ClubRepository clubRepository, List<String> scenarioNames, List<WeightedReachCounter> counters)
+            throws IOException {
+        Map<String, Map<String, Map<String, Map<String, Double>>>> scenarios = new LinkedHashMap<>();
+        for (int s = 0; s < counters.size(); s++) {
+            WeightedReachCounter counter = counters.get(s);
+            Map<String, Map<String, Map<String, Double>>> rounds = new LinkedHashMap<>();
+            for (int r = 0; r < plan.getRoundCount(); r++) {
+                Map<String, Map<String, Double>> clubs = new LinkedHashMap<>();
+                for (int id = 0; id < plan.getClubCount(); id++) {
+                    if (counter.getProbability(r, id) > 0) {
+                        Map<String, Double> values = new LinkedHashMap<>();
+                        values.put("probability", counter.getProbability(r, id));
+                        values.put("standard_error", counter.getStandardError(r, id));
+                        clubs.put(clubRepository.getClub(id).getName(), values);
+                    }
+                }
+                rounds.put(plan.getRoundName(r), clubs);
+            }
+            scenarios.put(scenarioNames.get(s), rounds);
+        }
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            if (format == Format.JSON) {
+                GSON.toJson(scenarios, writer);
+                return;
+            }
+            PrintWriter out = new PrintWriter(writer);
+            out.println("scenario,round,club,probability,standard_error");
+            scenarios.forEach((scenario, rounds) -> rounds.forEach((round, clubs) -> clubs
+                    .forEach((club, values) -> out.println(csv(scenario) + "," + csv(round) + "," + csv(club) + ","
+                            + String.format(Locale.ROOT, "%.6f,%.6f", values.get("probability"),
+                                    values.get("standard_error"))))));
+            out.flush();
+        }
+    }
+
+    /**
+     * Writes the paired difference in each club's probability of reaching each
+     * round from a baseline to each of its variants, with the half-width of its
+     * 95% confidence interval. Clubs whose paths never differed are left out.
+     *
+     * @param path           the file to write.
+     * @param format         the format of the file.
+     * @param plan           the plan naming the rounds.
+     * @param clubRepository the repository naming the clubs.
+     * @param variantNames   the names of the variants.
+     * @param differences    the paired difference of each variant.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void writeDifferences(Path path, Format format, SimulationPlan plan, ClubRepository clubRepository,
+            List<String> variantNames, List<PairedDifference> differences) throws IOException {
+        Map<String, Map<String, Map<String, Map<String, Double>>>> variants = new LinkedHashMap<>();
+        for (int v = 0; v < differences.size(); v++) {
+            PairedDifference difference = differences.get(v);
+            Map<String, Map<String, Map<String, Double>>> rounds = new LinkedHashMap<>();
+            for (int r = 0; r < plan.getRoundCount(); r++) {
+                Map<String, Map<String, Double>> clubs = new LinkedHashMap<>();
+                for (int id = 0; id < plan.getClubCount(); id++) {
+                    double halfWidth = difference.getConfidenceHalfWidth(r, id);
+                    if (difference.getDifference(r, id) != 0 || halfWidth > 0) {
+                        Map<String, Double> values = new LinkedHashMap<>();
+                        values.put("difference", difference.getDifference(r, id));
+                        values.put("half_width", halfWidth);
+                        clubs.put(clubRepository.getClub(id).getName(), values);
+                    }
+                }
+                rounds.put(plan.getRoundName(r), clubs);
+            }
+            variants.put(variantNames.get(v), rounds);
+        }
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            if (format == Format.JSON) {
+                GSON.toJson(variants, writer);
+                return;
+            }
+            PrintWriter out = new PrintWriter(writer);
+            out.println("scenario,round,club,difference,half_width");
+            variants.forEach((variant, rounds) -> rounds.forEach((round, clubs) -> clubs
+                    .forEach((club, values) -> out.println(csv(variant) + "," + csv(round) + "," + csv(club) + ","
+                            + String.format(Locale.ROOT, "%.6f,%.6f", values.get("difference"),
+                                    values.get("half_width"))))));
+            out.flush();
+        }
+    }
+
+    /**
+     * Returns the non-zero reach probabilities of each round by club name.
+     */
+    private static Map<String, Map<String, Double>> reachProbabilities(SimulationPlan plan,
+            ClubRepository clubRepository, ReachCounter reachCounter) {
+        Map<String, Map<String, Double>> rounds = new LinkedHashMap<>();
+        for (int r = 0; r < plan.getRoundCount(); r++) {
+            Map<String, Double> clubs = new LinkedHashMap<>();
+            for (int id = 0; id < plan.getClubCount(); id++) {
+                if (reachCounter.getCount(r, id) > 0) {
+                    clubs.put(clubRepository.getClub(id).getName(), reachCounter.getProbability(r, id));
+                }
+            }
+            rounds.put(plan.getRoundName(r), clubs);
+        }
+        return rounds;
+    }
+
+    /**
+     * Writes the probability of each pair of clubs being drawn against each other
+     * in each round.
+     *
+     * @param path           the file to write.
+     * @param format         the format of the file.
+     * @param plan           the plan naming the rounds.
+     * @param clubRepository the repository naming the clubs.
+     * @param pairingMatrix  the pairing counts to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void writePairings(Path path, Format format, SimulationPlan plan, ClubRepository clubRepository,
+            PairingMatrix pairingMatrix) throws IOException {
+        Map<String, Map<String, Map<String, Double>>> rounds = new LinkedHashMap<>();
+        for (int r = 0; r < plan.getRoundCount(); r++) {
+            Map<String, Map<String, Double>> clubs = new LinkedHashMap<>();
+            for (int id = 0; id < plan.getClubCount(); id++) {
+                Map<String, Double> opponents = new LinkedHashMap<>();
+                for (int opponent = 0; opponent < plan.getClubCount(); opponent++) {
+                    if (pairingMatrix.getCount(r, id, opponent) > 0) {
+                        opponents.put(clubRepository.getClub(opponent).getName(),
+                                pairingMatrix.getProbability(r, id, opponent));
+                    }
+                }
+                if (!opponents.isEmpty()) {
+                    clubs.put(clubRepository.getClub(id).getName(), opponents);
+                }
+            }
+            rounds.put(plan.getRoundName(r), clubs);
+        }
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            if (format == Format.JSON) {
+                GSON.toJson(rounds, writer);
+                return;
+            }
+            PrintWriter out = new PrintWriter(writer);
+            out.println("round,club,opponent,probability");
+            rounds.forEach((round, clubs) -> clubs.forEach((club, opponents) -> opponents
+                    .forEach((opponent, probability) -> out.println(csv(round) + "," + csv(club) + ","
+                            + csv(opponent) + "," + String.format(Locale.ROOT, "%.6f", probability)))));
+            out.flush();
+        }
+    }
+
+    /**
+     * Quotes a CSV field if it contains a separator or a quote.
+     */
+    private static String csv(String field) {
+        if (field.contains(",") || field.contains("\"")) {
+            return "\"" + field.replace("\"", "\"\"") + "\"";
+        }
+        return field;
+    }
+}
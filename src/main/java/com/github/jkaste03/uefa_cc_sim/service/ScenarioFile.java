@@ -0,0 +1,85 @@
+package com.github.jkaste03.uefa_cc_sim.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.github.jkaste03.uefa_cc_sim.engine.Scenario;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * Utility class for reading what-if {@link Scenario}s from a JSON file.
+ * <p>
+ * The file holds an array of scenarios, each with a name and optionally an
+ * object of club rankings and an object of clubs moved to another round:
+ *
+ * <pre>
+ * [
+ *   { "name": "Base" },
+ *   { "name": "Molde in Q3",
+ *     "rankings": { "Molde": 40 },
+ *     "moves": { "Molde": "EUROPA_LEAGUE Q3 MAIN_PATH" } }
+ * ]
+ * </pre>
+ *
+ * Clubs and rounds are named as in the JSON data.
+ */
+public class ScenarioFile {
+    private static final Gson GSON = new Gson();
+
+    /**
+     * The JSON form of a scenario.
+     */
+    private static class ScenarioJson {
+        String name;
+        Map<String, Float> rankings;
+        Map<String, String> moves;
+    }
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private ScenarioFile() {
+    }
+
+    /**
+     * Reads the scenarios of a file.
+     *
+     * @param path the JSON file.
+     * @return the scenarios, in the order of the file.
+     * @throws IOException if the file cannot be read or does not hold valid
+     *                     scenarios.
+     */
+    public static List<Scenario> read(Path path) throws IOException {
+        ScenarioJson[] scenarioJsons;
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            scenarioJsons = GSON.fromJson(reader, ScenarioJson[].class);
+        } catch (JsonParseException e) {
+            throw new IOException(path + " does not hold valid scenarios: " + e.getMessage(), e);
+        }
+        if (scenarioJsons == null || scenarioJsons.length == 0) {
+            throw new IOException(path + " holds no scenarios.");
+        }
+        List<Scenario> scenarios = new ArrayList<>();
+        for (ScenarioJson scenarioJson : scenarioJsons) {
+            if (scenarioJson == null || scenarioJson.name == null) {
+                throw new IOException(path + " has a scenario without a name.");
+            }
+            Scenario scenario = new Scenario(scenarioJson.name);
+            if (scenarioJson.rankings != null) {
+                scenarioJson.rankings.forEach(scenario::setRanking);
+            }
+            if (scenarioJson.moves != null) {
+                scenarioJson.moves.forEach(scenario::moveClub);
+            }
+            scenarios.add(scenario);
+        }
+        return scenarios;
+    }
+}
@@ -0,0 +1,284 @@
+package com.github.jkaste03.uefa_cc_sim.threads;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.github.jkaste03.uefa_cc_sim.engine.MatchModel;
+import com.github.jkaste03.uefa_cc_sim.service.EloArchive;
+import com.github.jkaste03.uefa_cc_sim.service.EloSnapshot;
+
+/**
+ * Validates the Elo ratings against past seasons by scoring the predicted
+ * probability of each club advancing from a tie against the actual outcome.
+ * <p>
+ * Each tie is predicted from the ratings as they stood on its draw day, read
+ * from an {@link EloArchive}, as the probability that the first club advances
+ * from the whole double-legged tie under a {@link MatchModel}, with the first
+ * club playing the first leg at home. The outcomes are grouped by draw day, and the
+ * draw days are scored in parallel on a pool of worker threads, each reading
+ * its day's column of the archive in place. Predictions are scored by the
+ * Brier score and the log loss; lower is better for both, and always
+ * predicting 0.5 gives a Brier score of 0.25.
+ */
+public class BacktestRunner {
+    // Predictions are kept this far from 0 and 1, so the log loss stays finite.
+    private static final double EPSILON = 1e-6;
+
+    private final EloArchive archive;
+    private final MatchModel matchModel;
+    private final int workerCount;
+
+    /**
+     * The actual outcome of a tie.
+     */
+    public static final class Outcome {
+        private final LocalDate drawDate;
+        private final String club1;
+        private final String club2;
+        private final boolean club1Advanced;
+
+        /**
+         * Constructs an outcome.
+         *
+         * @param drawDate      the day the tie was drawn.
+         * @param club1         the name of the first club.
+         * @param club2         the name of the second club.
+         * @param club1Advanced true if the first club advanced.
+         */
+        public Outcome(LocalDate drawDate, String club1, String club2, boolean club1Advanced) {
+            this.drawDate = drawDate;
+            this.club1 = club1;
+            this.club2 = club2;
+            this.club1Advanced = club1Advanced;
+        }
+
+        public LocalDate getDrawDate() {
+            return drawDate;
+        }
+
+        public String getClub1() {
+            return club1;
+        }
+
+        public String getClub2() {
+            return club2;
+        }
+
+        public boolean isClub1Advanced() {
+            return club1Advanced;
+        }
+    }
+
+    /**
+     * The score of the predictions of a set of ties.
+     */
+    public static final class Score {
+        private final LocalDate drawDate;
+        private final LocalDate ratingsDate;
+        private int ties;
+        private int skipped;
+        private double brierSum;
+        private double logLossSum;
+
+        /**
+         * Constructs an empty score.
+         *
+         * @param drawDate    the draw day of the ties, or null for ties of several
+         *                    days.
+         * @param ratingsDate the date of the ratings the ties were predicted from,
+         *                    or null for several dates.
+         */
+        public Score(LocalDate drawDate, LocalDate ratingsDate) {
+            this.drawDate = drawDate;
+            this.ratingsDate = ratingsDate;
+        }
+
+        /**
+         * Adds a predicted tie.
+         *
+         * @param probability the predicted probability of the outcome being true.
+         * @param outcome     the actual outcome.
+         */
+        public void add(double probability, boolean outcome) {
+            double p = Math.min(1 - EPSILON, Math.max(EPSILON, probability));
+            double error = (outcome ? 1 : 0) - p;
+            brierSum += error * error;
+            logLossSum -= Math.log(outcome ? p : 1 - p);
+            ties++;
+        }
+
+        /**
+         * Counts a tie that could not be predicted, because a club had no rating.
+         */
+        public void skip() {
+            skipped++;
+        }
+
+        /**
+         * Adds the ties of another score to this one.
+         *
+         * @param other the score to add.
+         */
+        public void merge(Score other) {
+            ties += other.ties;
+            skipped += other.skipped;
+            brierSum += other.brierSum;
+            logLossSum += other.logLossSum;
+        }
+
+        public LocalDate getDrawDate() {
+            return drawDate;
+        }
+
+        public LocalDate getRatingsDate() {
+            return ratingsDate;
+        }
+
+        public int getTies() {
+            return ties;
+        }
+
+        public int getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * Returns the mean squared error of the predictions.
+         *
+         * @return the Brier score, or NaN if no tie was predicted.
+         */
+        public double getBrierScore() {
+            return ties == 0 ? Double.NaN : brierSum / ties;
+        }
+
+        /**
+         * Returns the mean negative log likelihood of the outcomes.
+         *
+         * @return the log loss, or NaN if no tie was predicted.
+         */
+        public double getLogLoss() {
+            return ties == 0 ? Double.NaN : logLossSum / ties;
+        }
+    }
+
+    /**
+     * Constructs a runner predicting from an archive.
+     *
+     * @param archive     the archive of historical ratings.
+     * @param matchModel  the model to predict the ties with.
+     * @param workerCount the number of worker threads.
+     */
+    public BacktestRunner(EloArchive archive, MatchModel matchModel, int workerCount) {
+        this.archive = archive;
+        this.matchModel = matchModel;
+        this.workerCount = workerCount;
+    }
+
+    /**
+     * Reads the outcomes of past ties from a CSV file with the columns
+     * {@code date,club1,club2,winner}, where the date is the draw day, club 1
+     * played the first leg at home and the winner is the name of one of the
+     * clubs. The first line is a header.
+     *
+     * @param file the CSV file.
+     * @return the outcomes in the order of the file.
+     * @throws IOException              if the file cannot be read.
+     * @throws IllegalArgumentException if a line is not a valid outcome.
+     */
+    public static List<Outcome> readOutcomes(Path file) throws IOException {
+        List<Outcome> outcomes = new ArrayList<>();
+        try (BufferedReader br = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = br.readLine(); // Skip header
+            int lineNumber = 1;
+            while ((line = br.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank())
+                    continue;
+                String[] values = line.split(",");
+                if (values.length < 4) {
+                    throw new IllegalArgumentException("Line " + lineNumber + " of " + file + " has no winner.");
+                }
+                String club1 = values[1].trim();
+                String club2 = values[2].trim();
+                String winner = values[3].trim();
+                if (!winner.equals(club1) && !winner.equals(club2)) {
+                    throw new IllegalArgumentException(
+                            "Line " + lineNumber + " of " + file + ": " + winner + " is not in the tie.");
+                }
+                try {
+                    outcomes.add(new Outcome(LocalDate.parse(values[0].trim()), club1, club2, winner.equals(club1)));
+                } catch (DateTimeParseException e) {
+                    throw new IllegalArgumentException("Line " + lineNumber + " of " + file + " has no valid date.");
+                }
+            }
+        }
+        return outcomes;
+    }
+
+    /**
+     * Scores the predictions of the outcomes of each draw day.
+     *
+     * @param outcomes the actual outcomes.
+     * @return the score of each draw day, in date order.
+     * @throws IllegalArgumentException if the archive has no ratings on or before
+     *                                  a draw day.
+     */
+    public List<Score> run(List<Outcome> outcomes) {
+        Map<LocalDate, List<Outcome>> byDrawDate = new TreeMap<>();
+        for (Outcome outcome : outcomes) {
+            byDrawDate.computeIfAbsent(outcome.getDrawDate(), date -> new ArrayList<>()).add(outcome);
+        }
+
+        ExecutorService workers = Executors.newFixedThreadPool(workerCount);
+        try {
+            List<Future<Score>> futures = new ArrayList<>();
+            byDrawDate.forEach((date, dayOutcomes) -> futures.add(workers.submit(() -> score(date, dayOutcomes))));
+            List<Score> scores = new ArrayList<>();
+            for (Future<Score> future : futures) {
+                scores.add(future.get());
+            }
+            return scores;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while running the backtest", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IllegalArgumentException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Backtest failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Scores the outcomes of one draw day against the ratings of that day.
+     */
+    private Score score(LocalDate drawDate, List<Outcome> outcomes) {
+        EloSnapshot snapshot = archive.snapshotAt(drawDate);
+        Score score = new Score(drawDate, snapshot.getDate());
+        for (Outcome outcome : outcomes) {
+            float rating1 = snapshot.getRating(outcome.getClub1());
+            float rating2 = snapshot.getRating(outcome.getClub2());
+            if (rating1 == 0 || rating2 == 0) {
+                score.skip();
+                continue;
+            }
+            score.add(matchModel.club1Advances(rating1, rating2), outcome.isClub1Advanced());
+        }
+        return score;
+    }
+}
@@ -0,0 +1,259 @@
+package com.github.jkaste03.uefa_cc_sim.threads;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.github.jkaste03.uefa_cc_sim.SimulationContext;
+import com.github.jkaste03.uefa_cc_sim.engine.BatchSimulator;
+import com.github.jkaste03.uefa_cc_sim.engine.PairedDifference;
+import com.github.jkaste03.uefa_cc_sim.engine.ReachCounter;
+import com.github.jkaste03.uefa_cc_sim.engine.Scenario;
+import com.github.jkaste03.uefa_cc_sim.engine.ScenarioResult;
+import com.github.jkaste03.uefa_cc_sim.engine.SimulationPlan;
+import com.github.jkaste03.uefa_cc_sim.engine.WeightedReachCounter;
+
+/**
+ * Runs many what-if {@link Scenario}s of one base dataset in a single JVM.
+ * <p>
+ * The dataset is loaded and compiled once, in the {@link SimulationContext}.
+ * Each scenario is compiled into a cheap overlay of the base plan, and the
+ * iterations of all scenarios are split into tasks that are scheduled on one
+ * pool of worker threads, so small and large scenarios share the workers.
+ * Each task runs a {@link BatchSimulator} and counts into its own
+ * {@link ReachCounter}; the counters are merged per scenario at the end.
+ * <p>
+ * All scenarios use the seed and fast outcome mode of the context, so the
+ * same iteration index gets the same random numbers in every scenario. This
+ * is what {@link #compare(Scenario, Scenario, long)} relies on to measure the
+ * effect of a variant with paired differences.
+ */
+public class ScenarioRunner {
+    private static final int DEFAULT_BATCH_SIZE = 64;
+    private static final int BATCHES_PER_TASK = 64;
+
+    private final SimulationContext context;
+    private final int workerCount;
+
+    /**
+     * Constructs a runner for scenarios of the context's dataset.
+     *
+     * @param context     the base dataset, with its simulation settings.
+     * @param workerCount the number of worker threads.
+     */
+    public ScenarioRunner(SimulationContext context, int workerCount) {
+        this.context = context;
+        this.workerCount = workerCount;
+    }
+
+    /**
+     * Simulates every scenario for the given number of iterations.
+     *
+     * @param scenarios  the scenarios to simulate.
+     * @param iterations the number of iterations per scenario.
+     * @return the result of each scenario, in the order of the scenarios.
+     * @throws IllegalArgumentException if a scenario refers to an unknown club or
+     *                                  round.
+     * @throws IllegalStateException    if a scenario leaves a qualifying round
+     *                                  with an odd number of clubs.
+     */
+    public List<ScenarioResult> run(List<Scenario> scenarios, long iterations) {
+        // Compile every scenario up front, so a bad delta fails before any work is
+        // scheduled.
+        SimulationPlan base = context.getPlan();
+        List<SimulationPlan> plans = new ArrayList<>();
+        for (Scenario scenario : scenarios) {
+            plans.add(scenario.compile(base, context.getClubRepository()));
+        }
+
+        List<ScenarioResult> results = new ArrayList<>();
+        List<List<ReachCounter>> counters = runRanges(plans.size(), iterations,
+                (s, first, count) -> runTask(plans.get(s), first, count));
+        for (int s = 0; s < scenarios.size(); s++) {
+            ReachCounter reachCounter = new ReachCounter(plans.get(s));
+            for (ReachCounter part : counters.get(s)) {
+                reachCounter.merge(part);
+            }
+            results.add(new ScenarioResult(scenarios.get(s), plans.get(s), reachCounter));
+        }
+        return results;
+    }
+
+    /**
+     * Estimates how a variant changes the reach probabilities of a baseline,
+     * with common random numbers. Every iteration is simulated for both
+     * scenarios with the same random numbers, and the paired differences are
+     * accumulated, which needs far fewer iterations for a given precision than
+     * comparing two independent runs.
+     *
+     * @param baseline   the baseline scenario.
+     * @param variant    the variant scenario.
+     * @param iterations the number of paired iterations.
+     * @return the paired difference from the baseline to the variant.
+     * @throws IllegalArgumentException if a scenario refers to an unknown club or
+     *                                  round.
+     * @throws IllegalStateException    if a scenario leaves a qualifying round
+     *                                  with an odd number of clubs.
+     */
+    public PairedDifference compare(Scenario baseline, Scenario variant, long iterations) {
+        SimulationPlan base = context.getPlan();
+        SimulationPlan baselinePlan = baseline.compile(base, context.getClubRepository());
+        SimulationPlan variantPlan = variant.compile(base, context.getClubRepository());
+
+        PairedDifference difference = new PairedDifference(baselinePlan);
+        List<List<PairedDifference>> parts = runRanges(1, iterations,
+                (s, first, count) -> runPairedTask(baselinePlan, variantPlan, first, count));
+        for (PairedDifference part : parts.get(0)) {
+            difference.merge(part);
+        }
+        return difference;
+    }
+
+    /**
+     * Estimates the reach probabilities of a scenario with importance sampling,
+     * for questions about rare paths of a few target clubs. Ties of the target
+     * clubs are tilted in their favour, and each iteration is weighted by its
+     * likelihood ratio. Requires the fast outcome mode of the context.
+     *
+     * @param scenario       the scenario to simulate.
+     * @param targetNames    the names of the target clubs.
+     * @param targetAdvances the probability, below 1, that a target club is
+     *                       tilted to advance from a tie.
+     * @param iterations     the number of iterations.
+     * @return the weighted reach counts of the scenario.
+     * @throws IllegalArgumentException if a club or round is unknown.
+     * @throws IllegalStateException    if the fast outcome mode is not enabled.
+     */
+    public WeightedReachCounter runImportanceSampled(Scenario scenario, List<String> targetNames,
+            double targetAdvances, long iterations) {
+        if (context.getTieProbabilities() == null) {
+            throw new IllegalStateException("Importance sampling requires the fast outcome mode.");
+        }
+        SimulationPlan plan = scenario.compile(context.getPlan(), context.getClubRepository());
+        int[] targets = new int[targetNames.size()];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = context.getClubRepository().getIdByName(targetNames.get(i));
+            if (targets[i] < 0) {
+                throw new IllegalArgumentException("Unknown club: " + targetNames.get(i));
+            }
+        }
+
+        WeightedReachCounter counter = new WeightedReachCounter(plan);
+        List<List<WeightedReachCounter>> parts = runRanges(1, iterations,
+                (s, first, count) -> runWeightedTask(plan, targets, targetAdvances, first, count));
+        for (WeightedReachCounter part : parts.get(0)) {
+            counter.merge(part);
+        }
+        return counter;
+    }
+
+    /**
+     * A task simulating a range of iterations of one of several scenarios.
+     */
+    private interface RangeTask<T> {
+        T run(int scenario, long first, long count);
+    }
+
+    /**
+     * Splits the iterations of each scenario into ranges and runs them on one
+     * pool of worker threads.
+     *
+     * @return the results of the ranges of each scenario, in iteration order.
+     */
+    private <T> List<List<T>> runRanges(int scenarioCount, long iterations, RangeTask<T> task) {
+        long rangeSize = (long) getBatchSize() * BATCHES_PER_TASK;
+        ExecutorService workers = Executors.newFixedThreadPool(workerCount);
+        try {
+            List<List<Future<T>>> futures = new ArrayList<>();
+            for (int s = 0; s < scenarioCount; s++) {
+                int scenario = s;
+                List<Future<T>> scenarioFutures = new ArrayList<>();
+                for (long first = 0; first < iterations; first += rangeSize) {
+                    long start = first;
+                    long count = Math.min(rangeSize, iterations - first);
+                    scenarioFutures.add(workers.submit(() -> task.run(scenario, start, count)));
+                }
+                futures.add(scenarioFutures);
+            }
+
+            List<List<T>> results = new ArrayList<>();
+            for (List<Future<T>> scenarioFutures : futures) {
+                List<T> scenarioResults = new ArrayList<>();
+                for (Future<T> future : scenarioFutures) {
+                    scenarioResults.add(future.get());
+                }
+                results.add(scenarioResults);
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while running scenarios", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Scenario run failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private int getBatchSize() {
+        return context.isBatchMode() ? context.getBatchSize() : DEFAULT_BATCH_SIZE;
+    }
+
+    private BatchSimulator createSimulator(SimulationPlan plan) {
+        BatchSimulator simulator = new BatchSimulator(plan, getBatchSize(), context.getSeed());
+        simulator.setFastOutcome(context.getTieProbabilities());
+        return simulator;
+    }
+
+    /**
+     * Simulates a range of iterations of one scenario.
+     */
+    private ReachCounter runTask(SimulationPlan plan, long first, long count) {
+        BatchSimulator simulator = createSimulator(plan);
+        int batchSize = simulator.getLanes();
+        ReachCounter reachCounter = new ReachCounter(plan);
+        for (long done = 0; done < count; done += batchSize) {
+            simulator.runBatch(first + done, (int) Math.min(batchSize, count - done));
+            simulator.record(reachCounter);
+        }
+        return reachCounter;
+    }
+
+    /**
+     * Simulates a range of iterations of two scenarios with the same random
+     * numbers.
+     */
+    private PairedDifference runPairedTask(SimulationPlan baselinePlan, SimulationPlan variantPlan, long first,
+            long count) {
+        BatchSimulator baseline = createSimulator(baselinePlan);
+        BatchSimulator variant = createSimulator(variantPlan);
+        int batchSize = baseline.getLanes();
+        PairedDifference difference = new PairedDifference(baselinePlan);
+        for (long done = 0; done < count; done += batchSize) {
+            int laneCount = (int) Math.min(batchSize, count - done);
+            baseline.runBatch(first + done, laneCount);
+            variant.runBatch(first + done, laneCount);
+            difference.record(baseline, variant);
+        }
+        return difference;
+    }
+
+    /**
+     * Simulates a range of iterations of one scenario with importance sampling.
+     */
+    private WeightedReachCounter runWeightedTask(SimulationPlan plan, int[] targets, double targetAdvances,
+            long first, long count) {
+        BatchSimulator simulator = createSimulator(plan);
+        simulator.setImportanceSampling(targets, targetAdvances);
+        int batchSize = simulator.getLanes();
+        WeightedReachCounter counter = new WeightedReachCounter(plan);
+        for (long done = 0; done < count; done += batchSize) {
+            simulator.runBatch(first + done, (int) Math.min(batchSize, count - done));
+            simulator.record(counter);
+        }
+        return counter;
+    }
+}
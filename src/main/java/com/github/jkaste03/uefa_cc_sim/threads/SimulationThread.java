@@ -1,64 +1,232 @@
 package com.github.jkaste03.uefa_cc_sim.threads;
 
+import java.util.List;
+
+import com.github.jkaste03.uefa_cc_sim.SimulationContext;
 import com.github.jkaste03.uefa_cc_sim.UefaCCSim;
+import com.github.jkaste03.uefa_cc_sim.engine.BatchSimulator;
+import com.github.jkaste03.uefa_cc_sim.engine.PairingMatrix;
+import com.github.jkaste03.uefa_cc_sim.engine.ReachCounter;
+import com.github.jkaste03.uefa_cc_sim.engine.SimulationPlan;
+import com.github.jkaste03.uefa_cc_sim.model.ClubIdWrapper;
+import com.github.jkaste03.uefa_cc_sim.model.ClubRepository;
+import com.github.jkaste03.uefa_cc_sim.model.Round;
 import com.github.jkaste03.uefa_cc_sim.model.Rounds;
-
-import java.util.concurrent.atomic.AtomicInteger;
+import com.github.jkaste03.uefa_cc_sim.model.TiePool;
+import com.github.jkaste03.uefa_cc_sim.model.Trace;
 
 /**
  * The SimulationThread class extends the Thread class to run a simulation
  * multiple times in a separate thread. It uses a deep copy of the rounds
  * object to ensure that the same data can be reused without interacting
- * with JSON.
+ * with JSON. The copy is made once per thread and reset between iterations.
  *
  * <p>
  * This class is designed to measure the performance of the simulation
  * by running it multiple times.
+ * <p>
+ * In draw-only mode, the thread draws every round again and again from the
+ * fixed pots of the context, skipping the matches, and counts the pairings in
+ * a {@link PairingMatrix}.
+ * <p>
+ * Otherwise the thread counts how often each club reaches each round in a
+ * {@link ReachCounter}.
+ * <p>
+ * In batch mode, the thread instead runs the qualifying rounds with a
+ * {@link BatchSimulator}, advancing a whole batch of iterations per pass.
+ * <p>
+ * Every iteration derives its random numbers from the master seed of the
+ * context and its iteration index, whichever thread runs it, so a run with
+ * the same settings gives the same results and any iteration can be replayed
+ * with {@link SimulationContext#replay}.
+ * <p>
+ * The rounds, settings and iteration counter are taken from the
+ * {@link SimulationContext} the thread is constructed with, and are shared
+ * only by the threads of that context.
  */
 public class SimulationThread extends Thread {
-    private static Rounds rounds;
-    private static AtomicInteger totalIterations = new AtomicInteger(0);
-    private static final int MAX_ITERATIONS = 1;
+    private final SimulationContext context;
+    // Time between two copies of the reach counts published for interim results.
+    private static final long INTERIM_NANOS = 100_000_000L;
+
+    private ReachCounter reachCounter;
+    private volatile ReachCounter interimReachCounter;
+    private PairingMatrix pairingMatrix;
+    private Trace trace;
 
     /**
-     * Default constructor for the SimulationThread class.
+     * Constructs a simulation thread for the given context.
      * It sets the thread name.
+     *
+     * @param name    the name of the thread.
+     * @param context the simulation to run iterations of.
      */
-    public SimulationThread(String name) {
+    public SimulationThread(String name, SimulationContext context) {
         super(name);
+        this.context = context;
     }
 
     /**
      * The run method is overridden to perform the simulation in a separate thread.
-     * It creates a deep copy of the rounds object and runs the simulation with it.
+     * It creates a deep copy of the rounds object and runs the simulation with it,
+     * resetting the copy after each iteration.
      */
     @Override
     public void run() {
+        if (context.isDrawOnly()) {
+            runDraws();
+            return;
+        }
+        if (context.isBatchMode()) {
+            runBatches();
+            return;
+        }
+
         // Get the name of the current thread
         String threadName = Thread.currentThread().getName();
 
-        // Run the simulation until the total iterations reach MAX_ITERATIONS
-        while (totalIterations.getAndIncrement() < MAX_ITERATIONS) {
-            // Create a deep copy of the rounds object to reuse the same data without
-            // interacting with json
-            Rounds roundsCopy = UefaCCSim.deepCopy(rounds);
-            // Run the simulation with the copied rounds object
+        // Create a deep copy of the rounds object to reuse the same data without
+        // interacting with json
+        Rounds roundsCopy = UefaCCSim.deepCopy(context.getRounds());
+        roundsCopy.setFastOutcome(context.getTieProbabilities());
+        trace = roundsCopy.getTrace();
+        trace.setLevel(context.getTraceLevel());
+
+        // Run the simulation until the total iterations reach the maximum. Each
+        // iteration is seeded from its index, so it can be replayed on its own.
+        SimulationPlan plan = context.getPlan();
+        reachCounter = new ReachCounter(plan);
+        long nextInterim = System.nanoTime() + INTERIM_NANOS;
+        long iteration;
+        while ((iteration = context.claimIterations(1)) < context.getMaxIterations()) {
+            // Run the simulation with the copied rounds object, count the clubs of
+            // each round, then reset it for the next iteration
+            roundsCopy.seedIteration(context.getSeed(), iteration);
             roundsCopy.run(threadName);
-            // System.out.println("Thread " + threadName + " completed iteration " +
-            // totalIterations.get());
+            roundsCopy.recordReach(reachCounter);
+            roundsCopy.reset();
+            if (System.nanoTime() - nextInterim >= 0) {
+                publishInterim(plan);
+                nextInterim = System.nanoTime() + INTERIM_NANOS;
+            }
+        }
+        publishInterim(plan);
+    }
+
+    /**
+     * Runs batches of iterations until the total iterations reach the maximum.
+     * Each pass claims up to batchSize iterations and simulates them in lockstep.
+     */
+    private void runBatches() {
+        SimulationPlan plan = context.getPlan();
+        int batchSize = context.getBatchSize();
+        long maxIterations = context.getMaxIterations();
+        BatchSimulator simulator = new BatchSimulator(plan, batchSize, context.getSeed());
+        simulator.setFastOutcome(context.getTieProbabilities());
+        reachCounter = new ReachCounter(plan);
+        long first;
+        long nextInterim = System.nanoTime() + INTERIM_NANOS;
+        while ((first = context.claimIterations(batchSize)) < maxIterations) {
+            int laneCount = (int) Math.min(batchSize, maxIterations - first);
+            simulator.runBatch(first, laneCount);
+            simulator.record(reachCounter);
+            if (System.nanoTime() - nextInterim >= 0) {
+                publishInterim(plan);
+                nextInterim = System.nanoTime() + INTERIM_NANOS;
+            }
+        }
+        publishInterim(plan);
+    }
+
+    /**
+     * Publishes a copy of the reach counts so far, which other threads may read
+     * while this thread keeps counting.
+     */
+    private void publishInterim(SimulationPlan plan) {
+        ReachCounter copy = new ReachCounter(plan);
+        copy.merge(reachCounter);
+        interimReachCounter = copy;
+    }
+
+    /**
+     * Returns a copy of the reach counts recorded by this thread so far in full
+     * or batch mode. Unlike {@link #getReachCounter()}, this may be called while the
+     * thread is running. The copy is refreshed about every 100 milliseconds.
+     *
+     * @return the latest copy of the reach counts, or null if none has been
+     *         published yet.
+     */
+    public ReachCounter getInterimReachCounter() {
+        return interimReachCounter;
+    }
 
-            if (totalIterations.get() >= MAX_ITERATIONS) {
-                break;
+    /**
+     * Draws every round until the total iterations reach the maximum, counting
+     * the pairings of each draw. The rounds are first filled with the fixed clubs
+     * of the context and seeded once. The ties of the previous draws are released
+     * to the tie pool before each draw.
+     */
+    private void runDraws() {
+        Rounds roundsCopy = UefaCCSim.deepCopy(context.getRounds());
+        trace = roundsCopy.getTrace();
+        trace.setLevel(context.getTraceLevel());
+        ClubRepository clubRepository = roundsCopy.getClubRepository();
+        List<Round> rounds = roundsCopy.getRounds();
+        int[][] drawEntrants = context.getDrawEntrants();
+        for (int r = 0; r < rounds.size(); r++) {
+            Round round = rounds.get(r);
+            round.reset();
+            round.getClubSlots().clear();
+            for (int id : drawEntrants[r]) {
+                round.addClubSlot(new ClubIdWrapper(id, clubRepository));
             }
+            round.seedDraw();
         }
+
+        TiePool tiePool = roundsCopy.getTiePool();
+        int doubleLeggedMark = tiePool.getDoubleLeggedMark();
+        int singleLeggedMark = tiePool.getSingleLeggedMark();
+        pairingMatrix = new PairingMatrix(rounds.size(), clubRepository.getClubCount());
+        long iteration;
+        while ((iteration = context.claimIterations(1)) < context.getMaxIterations()) {
+            roundsCopy.seedIteration(context.getSeed(), iteration);
+            for (int r = 0; r < rounds.size(); r++) {
+                tiePool.releaseDoubleLeggedTies(doubleLeggedMark);
+                tiePool.releaseSingleLeggedTies(singleLeggedMark);
+                rounds.get(r).redraw();
+                pairingMatrix.record(r, rounds.get(r).getTies());
+            }
+        }
+    }
+
+    /**
+     * Returns the pairing counts recorded by this thread in draw-only mode, or
+     * null if the thread has not run in draw-only mode.
+     *
+     * @return the pairing counts of this thread.
+     */
+    public PairingMatrix getPairingMatrix() {
+        return pairingMatrix;
+    }
+
+    /**
+     * Returns the trace of the rounds of this thread, holding its most recent
+     * events if the context has a trace level, or null if the thread has run in
+     * batch mode.
+     *
+     * @return the trace of this thread.
+     */
+    public Trace getTrace() {
+        return trace;
     }
 
     /**
-     * Sets the rounds object to be used in the simulation thread.
+     * Returns the reach counts recorded by this thread in full or batch mode, or
+     * null if the thread has run in draw-only mode.
      *
-     * @param rounds The rounds object to be set.
+     * @return the reach counts of this thread.
      */
-    public static void setRounds(Rounds rounds) {
-        SimulationThread.rounds = rounds;
+    public ReachCounter getReachCounter() {
+        return reachCounter;
     }
-}
\ No newline at end of file
+}
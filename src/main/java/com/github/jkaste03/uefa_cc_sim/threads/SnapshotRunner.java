@@ -0,0 +1,167 @@
+package com.github.jkaste03.uefa_cc_sim.threads;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.github.jkaste03.uefa_cc_sim.SimulationContext;
+import com.github.jkaste03.uefa_cc_sim.UefaCCSim;
+import com.github.jkaste03.uefa_cc_sim.engine.ReachCounter;
+import com.github.jkaste03.uefa_cc_sim.engine.SimulationPlan;
+import com.github.jkaste03.uefa_cc_sim.enums.CompetitionData.RoundType;
+import com.github.jkaste03.uefa_cc_sim.model.Rounds;
+import com.github.jkaste03.uefa_cc_sim.model.RoundsSnapshot;
+
+/**
+ * Branches the object model from mid-season states: captures
+ * {@link RoundsSnapshot}s at a qualifying round draw, and runs many
+ * continuations of each.
+ * <p>
+ * The continuations of all snapshots are split into tasks that are scheduled
+ * on one pool of worker threads. Each worker copies the rounds of the context
+ * once, and forks a task's snapshot by restoring it on its copy before each
+ * continuation. Each task counts how often each club reaches each round into
+ * its own {@link ReachCounter}; the counters are merged per snapshot at the
+ * end.
+ * Continuations stop once the clubs of the league phase are known, without
+ * drawing it.
+ * <p>
+ * Continuation {@code i} of every snapshot gets the random numbers of
+ * iteration {@code i} of the context's seed, so the snapshots are compared
+ * with common random numbers.
+ */
+public class SnapshotRunner {
+    private static final int CONTINUATIONS_PER_TASK = 64;
+
+    private final SimulationContext context;
+    private final int workerCount;
+
+    /**
+     * Constructs a runner for the rounds of a context.
+     *
+     * @param context     the rounds to branch, with their simulation settings.
+     * @param workerCount the number of worker threads.
+     */
+    public SnapshotRunner(SimulationContext context, int workerCount) {
+        this.context = context;
+        this.workerCount = workerCount;
+    }
+
+    /**
+     * Captures snapshots after the draw of the rounds of a type. Snapshot
+     * {@code k} is iteration {@code k} of the context's seed, run up to the
+     * draw.
+     *
+     * @param roundType the type of the rounds to capture after the draw of.
+     * @param count     the number of snapshots.
+     * @return the snapshots, in iteration order.
+     * @throws IllegalArgumentException if the round type is not a qualifying
+     *                                  round.
+     */
+    public List<RoundsSnapshot> capture(RoundType roundType, int count) {
+        if (roundType.compareTo(RoundType.LEAGUE_PHASE) >= 0) {
+            throw new IllegalArgumentException("Snapshots can only be captured at a qualifying round draw.");
+        }
+        ThreadLocal<Rounds> workerRounds = ThreadLocal.withInitial(this::copyRounds);
+        List<Callable<RoundsSnapshot>> tasks = new ArrayList<>();
+        for (int k = 0; k < count; k++) {
+            long iteration = k;
+            tasks.add(() -> {
+                Rounds rounds = workerRounds.get();
+                rounds.seedIteration(context.getSeed(), iteration);
+                RoundsSnapshot snapshot = rounds.captureSnapshot(roundType);
+                rounds.reset();
+                return snapshot;
+            });
+        }
+        return runTasks(tasks);
+    }
+
+    /**
+     * Runs continuations of every snapshot.
+     *
+     * @param snapshots     the snapshots to continue from.
+     * @param continuations the number of continuations per snapshot.
+     * @return the reach counts of the continuations of each snapshot, in the
+     *         order of the snapshots.
+     */
+    public List<ReachCounter> run(List<RoundsSnapshot> snapshots, long continuations) {
+        SimulationPlan plan = context.getPlan();
+        ThreadLocal<Rounds> workerRounds = ThreadLocal.withInitial(this::copyRounds);
+        List<Callable<ReachCounter>> tasks = new ArrayList<>();
+        List<Integer> taskSnapshots = new ArrayList<>();
+        for (int s = 0; s < snapshots.size(); s++) {
+            RoundsSnapshot snapshot = snapshots.get(s);
+            for (long first = 0; first < continuations; first += CONTINUATIONS_PER_TASK) {
+                long start = first;
+                long count = Math.min(CONTINUATIONS_PER_TASK, continuations - first);
+                tasks.add(() -> runContinuations(workerRounds.get(), plan, snapshot, start, count));
+                taskSnapshots.add(s);
+            }
+        }
+
+        List<ReachCounter> counters = new ArrayList<>();
+        for (int s = 0; s < snapshots.size(); s++) {
+            counters.add(new ReachCounter(plan));
+        }
+        List<ReachCounter> parts = runTasks(tasks);
+        for (int t = 0; t < parts.size(); t++) {
+            counters.get(taskSnapshots.get(t)).merge(parts.get(t));
+        }
+        return counters;
+    }
+
+    /**
+     * Returns a copy of the context's rounds for a worker to run.
+     */
+    private Rounds copyRounds() {
+        Rounds rounds = UefaCCSim.deepCopy(context.getRounds());
+        rounds.setFastOutcome(context.getTieProbabilities());
+        return rounds;
+    }
+
+    /**
+     * Runs a range of continuations of a snapshot on a worker's rounds.
+     */
+    private ReachCounter runContinuations(Rounds rounds, SimulationPlan plan, RoundsSnapshot snapshot, long first,
+            long count) {
+        ReachCounter reachCounter = new ReachCounter(plan);
+        for (long iteration = first; iteration < first + count; iteration++) {
+            rounds.seedIteration(context.getSeed(), iteration);
+            rounds.continueQualifyingRounds(snapshot);
+            rounds.recordReach(reachCounter);
+            rounds.reset();
+        }
+        return reachCounter;
+    }
+
+    /**
+     * Runs tasks on a pool of worker threads.
+     *
+     * @return the results of the tasks, in the order of the tasks.
+     */
+    private <T> List<T> runTasks(List<Callable<T>> tasks) {
+        ExecutorService workers = Executors.newFixedThreadPool(workerCount);
+        try {
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : workers.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while running snapshots", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Snapshot run failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+}
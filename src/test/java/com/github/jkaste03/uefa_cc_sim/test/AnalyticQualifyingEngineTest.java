@@ -0,0 +1,112 @@
+package com.github.jkaste03.uefa_cc_sim.test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.jkaste03.uefa_cc_sim.SimulationContext;
+import com.github.jkaste03.uefa_cc_sim.engine.AnalyticQualifyingEngine;
+import com.github.jkaste03.uefa_cc_sim.engine.BatchSimulator;
+import com.github.jkaste03.uefa_cc_sim.engine.GoalTable;
+import com.github.jkaste03.uefa_cc_sim.engine.ReachCounter;
+import com.github.jkaste03.uefa_cc_sim.engine.ReachProbabilities;
+import com.github.jkaste03.uefa_cc_sim.engine.SimulationPlan;
+import com.github.jkaste03.uefa_cc_sim.engine.TieProbabilities;
+import com.github.jkaste03.uefa_cc_sim.service.EloRatingProvider;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * This class contains unit tests for the AnalyticQualifyingEngine class.
+ */
+public class AnalyticQualifyingEngineTest {
+    private static final long ITERATIONS = 100_000;
+    private static final int LANES = 64;
+    private static final long SEED = 3;
+    private static final double[][] PMF_ROWS = {
+            { 0.4, 0.3, 0.2, 0.1 },
+            { 0.1, 0.2, 0.3, 0.4 } };
+
+    /**
+     * Tests that with coin-flip ties, the reach probabilities of every round of
+     * a small tree agree with the batch engine within sampling error. The tree
+     * has pending ties in its draws and losers skipping a round.
+     */
+    @Test
+    public void testAgreesWithMonteCarloForCoinFlips() {
+        SimulationPlan plan = smallTree();
+        TieProbabilities tieProbabilities = new TieProbabilities(plan.getClubCount());
+
+        assertAgrees(plan, tieProbabilities, plan.getQualifyingStages().length);
+    }
+
+    /**
+     * Tests that when the better ranked club mostly advances, the reach
+     * probabilities of the rounds of the first two stages of a small tree agree
+     * with the batch engine within sampling error. Further down the tree, the
+     * engine is biased.
+     */
+    @Test
+    public void testAgreesWithMonteCarloForRankedTies() {
+        SimulationPlan plan = smallTree();
+        TieProbabilities tieProbabilities = new TieProbabilities(plan.getClubCount(), new GoalTable(PMF_ROWS), 0.5) {
+            @Override
+            protected int legRow(int club, int opponent, boolean home) {
+                return plan.getRanking(club) < plan.getRanking(opponent) ? 1 : 0;
+            }
+        };
+
+        assertAgrees(plan, tieProbabilities, 2);
+    }
+
+    /**
+     * Asserts that the engine agrees with the batch engine within five standard
+     * errors in the rounds of the given number of stages, and that every round
+     * holds as many clubs as it has slots.
+     */
+    private static void assertAgrees(SimulationPlan plan, TieProbabilities tieProbabilities, int stages) {
+        ReachProbabilities analytic = new AnalyticQualifyingEngine(plan, tieProbabilities).run();
+        BatchSimulator simulator = new BatchSimulator(plan, LANES, SEED);
+        simulator.setFastOutcome(tieProbabilities);
+        ReachCounter reachCounter = new ReachCounter(plan);
+        for (long first = 0; first < ITERATIONS; first += LANES) {
+            simulator.runBatch(first, LANES);
+            simulator.record(reachCounter);
+        }
+
+        for (int r = 0; r < plan.getRoundCount(); r++) {
+            assertEquals(plan.getSlotCount(r), analytic.getExpectedClubCount(r), 1e-9, plan.getRoundName(r));
+        }
+        for (int s = 0; s < stages; s++) {
+            for (int r : plan.getQualifyingStages()[s]) {
+                for (int id = 0; id < plan.getClubCount(); id++) {
+                    double expected = reachCounter.getProbability(r, id);
+                    double standardError = Math.sqrt(expected * (1 - expected) / reachCounter.getIterations());
+                    assertEquals(expected, analytic.getProbability(r, id), 5 * standardError + 1e-3,
+                            plan.getRoundName(r) + " club " + id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the plan of the loaded dataset with only 8 clubs entering the
+     * first and 4 the second qualifying round of the Champions League champions
+     * path, all from different countries so that every draw is legal.
+     */
+    private static SimulationPlan smallTree() {
+        SimulationPlan plan = new SimulationContext(EloRatingProvider.fixed(Map.of())).getPlan();
+        int[][] entrants = new int[plan.getRoundCount()][0];
+        Set<Integer> countries = new HashSet<>();
+        int q1 = plan.getRoundIndex("CHAMPIONS_LEAGUE Q1 CHAMPIONS_PATH");
+        int q2 = plan.getRoundIndex("CHAMPIONS_LEAGUE Q2 CHAMPIONS_PATH");
+        entrants[q1] = Arrays.stream(plan.getEntrants(q1)).filter(id -> countries.add(plan.getCountry(id))).limit(8)
+                .toArray();
+        entrants[q2] = Arrays.stream(plan.getEntrants(q2)).filter(id -> countries.add(plan.getCountry(id))).limit(4)
+                .toArray();
+        return plan.overlay(entrants, null);
+    }
+}
@@ -0,0 +1,80 @@
+package com.github.jkaste03.uefa_cc_sim.test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import com.github.jkaste03.uefa_cc_sim.engine.MatchModel;
+import com.github.jkaste03.uefa_cc_sim.service.EloArchive;
+import com.github.jkaste03.uefa_cc_sim.threads.BacktestRunner;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This class contains unit tests for the BacktestRunner class.
+ */
+public class BacktestRunnerTest {
+    private static final String HEADER = "Rank,Club,Country,Level,Elo,From,To\n";
+    private static final MatchModel MODEL = new MatchModel(60, 0.002, 1.3, 0);
+
+    /**
+     * Tests that the outcomes of a small results file are scored per draw day
+     * against the tie probabilities of the match model from the ratings of that
+     * day, and that ties of clubs without a rating are skipped.
+     */
+    @Test
+    public void testScoresTiesFromRatingsOfDrawDay() throws IOException {
+        Path directory = Files.createTempDirectory("backtest");
+        Files.writeString(directory.resolve("2023-07-01.csv"), HEADER + "1,A,ENG,1,1800,x,y\n2,B,ESP,1,1500,x,y\n");
+        Files.writeString(directory.resolve("2024-07-01.csv"), HEADER + "1,A,ENG,1,1600,x,y\n2,B,ESP,1,1600,x,y\n");
+        Path archiveFile = directory.resolve("elo.bin");
+        EloArchive.build(directory, archiveFile);
+        Path results = directory.resolve("results.csv");
+        Files.writeString(results, "date,club1,club2,winner\n"
+                + "2023-07-10,A,B,A\n"
+                + "2023-07-10,B,A,A\n"
+                + "2023-07-10,A,C,C\n"
+                + "\n"
+                + "2024-07-10,A,B,B\n");
+
+        List<BacktestRunner.Outcome> outcomes = BacktestRunner.readOutcomes(results);
+        assertEquals(4, outcomes.size());
+        assertTrue(!outcomes.get(1).isClub1Advanced());
+        List<BacktestRunner.Score> scores = new BacktestRunner(EloArchive.open(archiveFile), MODEL, 2).run(outcomes);
+
+        assertEquals(2, scores.size());
+        BacktestRunner.Score first = scores.get(0);
+        assertEquals(LocalDate.of(2023, 7, 10), first.getDrawDate());
+        assertEquals(LocalDate.of(2023, 7, 1), first.getRatingsDate());
+        assertEquals(2, first.getTies());
+        assertEquals(1, first.getSkipped());
+        double favouriteAtHome = MODEL.club1Advances(1800, 1500);
+        double underdogAtHome = MODEL.club1Advances(1500, 1800);
+        assertTrue(favouriteAtHome > 0.5 && underdogAtHome < 0.5);
+        double brier = (Math.pow(1 - favouriteAtHome, 2) + Math.pow(underdogAtHome, 2)) / 2;
+        assertEquals(brier, first.getBrierScore(), 1e-12);
+        double logLoss = -(Math.log(favouriteAtHome) + Math.log(1 - underdogAtHome)) / 2;
+        assertEquals(logLoss, first.getLogLoss(), 1e-12);
+
+        // Equally rated clubs advance with equal probability over both legs
+        BacktestRunner.Score second = scores.get(1);
+        assertEquals(1, second.getTies());
+        assertEquals(0.25, second.getBrierScore(), 1e-12);
+    }
+
+    /**
+     * Tests that a results line naming a winner outside the tie is rejected.
+     */
+    @Test
+    public void testRejectsWinnerOutsideTie() throws IOException {
+        Path results = Files.createTempFile("results", ".csv");
+        Files.writeString(results, "date,club1,club2,winner\n2023-07-10,A,B,C\n");
+        assertThrows(IllegalArgumentException.class, () -> BacktestRunner.readOutcomes(results));
+    }
+}
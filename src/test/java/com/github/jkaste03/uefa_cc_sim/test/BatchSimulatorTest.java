@@ -0,0 +1,51 @@
+package com.github.jkaste03.uefa_cc_sim.test;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.jkaste03.uefa_cc_sim.SimulationContext;
+import com.github.jkaste03.uefa_cc_sim.engine.BatchSimulator;
+import com.github.jkaste03.uefa_cc_sim.engine.SimulationPlan;
+import com.github.jkaste03.uefa_cc_sim.service.EloRatingProvider;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This class contains unit tests for the BatchSimulator class.
+ */
+public class BatchSimulatorTest {
+    private static final int LANES = 16;
+    private static final long SEED = 42;
+
+    /**
+     * Tests that every lane of a batch fills each qualifying round with distinct
+     * clubs, and that the clubs of an iteration do not depend on the lane it is
+     * simulated in or on the other lanes of its batch.
+     */
+    @Test
+    public void testLanesAreCompleteAndIndependent() {
+        SimulationPlan plan = new SimulationContext(EloRatingProvider.fixed(Map.of())).getPlan();
+        BatchSimulator batch = new BatchSimulator(plan, LANES, SEED);
+        BatchSimulator single = new BatchSimulator(plan, 1, SEED);
+        batch.runBatch(100, LANES);
+
+        for (int k = 0; k < LANES; k++) {
+            single.runBatch(100 + k, 1);
+            for (int[] stage : plan.getQualifyingStages()) {
+                for (int r : stage) {
+                    Set<Integer> clubs = new HashSet<>();
+                    for (int i = 0; i < plan.getSlotCount(r); i++) {
+                        int club = batch.getClub(r, k, i);
+                        assertTrue(club >= 0 && club < plan.getClubCount(), plan.getRoundName(r) + " has " + club);
+                        assertTrue(clubs.add(club), plan.getRoundName(r) + " has club " + club + " twice");
+                        assertEquals(single.getClub(r, 0, i), club, plan.getRoundName(r) + " differs in lane " + k);
+                    }
+                }
+            }
+        }
+    }
+}
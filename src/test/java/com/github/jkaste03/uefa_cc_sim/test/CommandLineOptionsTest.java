@@ -0,0 +1,32 @@
+package com.github.jkaste03.uefa_cc_sim.test;
+
+import com.github.jkaste03.uefa_cc_sim.CommandLineOptions;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * This class contains unit tests for the CommandLineOptions class.
+ */
+public class CommandLineOptionsTest {
+
+    /**
+     * Tests that an iteration can only be replayed in the full mode, since the
+     * other modes do not draw their iterations from the object model's random
+     * numbers.
+     */
+    @Test
+    public void testReplayRequiresFullMode() {
+        assertEquals(3, CommandLineOptions.parse(new String[] { "--replay", "3" }).getReplay());
+        for (String mode : new String[] { "qualifiers", "draws", "backtest", "scenarios", "branch",
+                "analytic" }) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> CommandLineOptions.parse(new String[] { "--mode", mode, "--replay", "3",
+                            "--scenarios", "scenarios.json" }),
+                    mode);
+            assertEquals("--replay is only supported in full mode.", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.jkaste03.uefa_cc_sim.test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import com.github.jkaste03.uefa_cc_sim.service.EloArchive;
+import com.github.jkaste03.uefa_cc_sim.service.EloSnapshot;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * This class contains unit tests for the EloArchive class.
+ */
+public class EloArchiveTest {
+    private static final String HEADER = "Rank,Club,Country,Level,Elo,From,To\n";
+
+    /**
+     * Tests that an archive built from dated CSV files gives the ratings of the
+     * latest date on or before the requested one, and no rating for clubs
+     * missing on that date.
+     */
+    @Test
+    public void testSnapshotAtReadsLatestDate() throws IOException {
+        Path directory = Files.createTempDirectory("elo-archive");
+        Files.writeString(directory.resolve("2023-07-01.csv"), HEADER + "1,A,ENG,1,2000.5,x,y\n2,B,ESP,1,1800,x,y\n");
+        Files.writeString(directory.resolve("2024-07-01.csv"), HEADER + "1,Ä,NOR,1,1500,x,y\n2,B,ESP,1,1850,x,y\n");
+        Files.writeString(directory.resolve("notes.csv"), HEADER + "1,A,ENG,1,1,x,y\n");
+        Path file = directory.resolve("elo.bin");
+        EloArchive.build(directory, file);
+        EloArchive archive = EloArchive.open(file);
+
+        assertEquals(2, archive.getDates().size());
+        assertEquals(3, archive.getClubCount());
+
+        EloSnapshot first = archive.snapshotAt(LocalDate.of(2024, 6, 30));
+        assertEquals(LocalDate.of(2023, 7, 1), first.getDate());
+        assertEquals(2000.5f, first.getRating("A"));
+        assertEquals(0f, first.getRating("Ä"));
+        assertEquals(2, first.size());
+
+        EloSnapshot second = archive.snapshotAt(LocalDate.of(2024, 7, 1));
+        assertEquals(0f, second.getRating("A"));
+        assertEquals(1500f, second.getRating("Ä"));
+        assertEquals(1850f, second.getRating("B"));
+
+        assertThrows(IllegalArgumentException.class, () -> archive.snapshotAt(LocalDate.of(2023, 6, 30)));
+    }
+}
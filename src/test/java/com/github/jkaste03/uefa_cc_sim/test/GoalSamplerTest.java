@@ -0,0 +1,70 @@
+package com.github.jkaste03.uefa_cc_sim.test;
+
+import java.util.Arrays;
+
+import com.github.jkaste03.uefa_cc_sim.engine.GoalSampler;
+import com.github.jkaste03.uefa_cc_sim.engine.GoalTable;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * This class contains unit tests for the GoalSampler class and its vector
+ * implementation.
+ */
+public class GoalSamplerTest {
+    private static final double[][] PMF_ROWS = {
+            { 0.4, 0.3, 0.2, 0.1 },
+            { 0.1, 0.2, 0.3, 0.4 },
+            { 0.25, 0.25, 0.25, 0.25 } };
+    private static final long KEY = 0x5eed_0000_5eedL;
+
+    /**
+     * Tests that the vector sampler gives exactly the goals of the scalar
+     * sampler, for a single-row and a multi-row table, and for runs that do not
+     * fill the last vector. Runs only when the JVM has the Vector API module,
+     * as with the {@code vector} Maven profile.
+     */
+    @Test
+    public void testVectorSamplerMatchesScalar() {
+        GoalSampler vector = GoalSampler.create();
+        assumeTrue(vector.getClass() != GoalSampler.class, "The vector goal sampler is not available.");
+        GoalSampler scalar = new GoalSampler();
+
+        for (GoalTable table : new GoalTable[] { GoalTable.uniform(3), new GoalTable(PMF_ROWS) }) {
+            for (int count : new int[] { 1, 7, 64, 101 }) {
+                int[] rows = new int[count + 3];
+                for (int i = 0; i < rows.length; i++) {
+                    rows[i] = i % table.getRowCount();
+                }
+                int[] expected = new int[count + 2];
+                int[] actual = new int[count + 2];
+                scalar.sample(table, KEY, 1000, count, rows, 3, expected, 2);
+                vector.sample(table, KEY, 1000, count, rows, 3, actual, 2);
+                assertArrayEquals(expected, actual, count + " positions of a " + table.getRowCount() + "-row table");
+            }
+        }
+    }
+
+    /**
+     * Tests that keys differing only in their upper 32 bits, or in the lowest
+     * bit, give different goals, so the streams of distinct iterations do not
+     * collide.
+     */
+    @Test
+    public void testKeysUseAllBits() {
+        GoalSampler sampler = new GoalSampler();
+        GoalTable table = GoalTable.uniform(9);
+        int[] rows = new int[64];
+        int[] goals = new int[64];
+        sampler.sample(table, KEY, 0, 64, rows, 0, goals, 0);
+        for (long other : new long[] { KEY ^ 1L << 32, KEY ^ 1L << 63, KEY ^ 1 }) {
+            int[] otherGoals = new int[64];
+            sampler.sample(table, other, 0, 64, rows, 0, otherGoals, 0);
+            assertTrue(!Arrays.equals(goals, otherGoals), Long.toHexString(other));
+        }
+    }
+}
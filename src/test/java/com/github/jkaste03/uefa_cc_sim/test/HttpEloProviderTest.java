@@ -0,0 +1,70 @@
+package com.github.jkaste03.uefa_cc_sim.test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import com.github.jkaste03.uefa_cc_sim.service.EloSnapshot;
+import com.github.jkaste03.uefa_cc_sim.service.HttpEloProvider;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This class contains unit tests for the HttpEloProvider class.
+ */
+public class HttpEloProviderTest {
+    private static final String HEADER = "Rank,Club,Country,Level,Elo,From,To\n";
+
+    /**
+     * Tests that a fetch caches the ratings of the day and deletes the older
+     * files of the provider, but keeps other files named by date in the cache
+     * directory, such as a ClubElo history.
+     */
+    @Test
+    public void testPrunesOnlyItsOwnFiles() throws IOException {
+        LocalDate today = LocalDate.now();
+        byte[] body = (HEADER + "1,A,ENG,1,1700,x,y\n").getBytes(StandardCharsets.UTF_8);
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        try {
+            Path cache = Files.createTempDirectory("elo-cache");
+            Path history = cache.resolve("2023-07-01.csv");
+            Files.writeString(history, HEADER + "1,A,ENG,1,1500,x,y\n");
+            Path older = cache.resolve("clubelo-2023-07-02.csv");
+            Files.writeString(older, HEADER + "1,A,ENG,1,1600,x,y\n");
+            HttpEloProvider provider = new HttpEloProvider(
+                    URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/"), cache);
+
+            // The cached file is used at once, and the ratings of the day fetched
+            // in the background
+            EloSnapshot cached = provider.load();
+            assertEquals(1600, cached.getRating("A"), 0);
+            provider.awaitRefresh();
+
+            assertTrue(Files.exists(cache.resolve("clubelo-" + today + ".csv")));
+            assertTrue(!Files.exists(older), older + " was kept");
+            assertTrue(Files.exists(history), history + " was deleted");
+            EloSnapshot fetched = provider.load();
+            provider.awaitRefresh();
+            assertEquals(today, fetched.getDate());
+            assertEquals(1700, fetched.getRating("A"), 0);
+        } finally {
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.jkaste03.uefa_cc_sim.test;
+
+import java.util.Random;
+
+import com.github.jkaste03.uefa_cc_sim.engine.MatchCalibrator;
+import com.github.jkaste03.uefa_cc_sim.engine.MatchModel;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * This class contains unit tests for the MatchCalibrator class.
+ */
+public class MatchCalibratorTest {
+    private static final int MATCHES = 20000;
+    private static final int SHOOTOUTS = 4000;
+
+    /**
+     * Tests that calibrating on matches sampled from a known model recovers its
+     * parameters, starting from other parameters.
+     */
+    @Test
+    public void testRecoversParametersOfSyntheticMatches() {
+        MatchModel truth = new MatchModel(45, 0.003, 1.4, 0.1);
+        Random random = new Random(11);
+        MatchModel fitted;
+        try (MatchCalibrator calibrator = new MatchCalibrator(2)) {
+            for (int m = 0; m < MATCHES; m++) {
+                float homeRating = 1400 + 400 * random.nextFloat();
+                float awayRating = 1400 + 400 * random.nextFloat();
+                calibrator.addMatch(homeRating, awayRating,
+                        MatchModel.sampleGoals(random, truth.goalRate(homeRating, awayRating, true)),
+                        MatchModel.sampleGoals(random, truth.goalRate(awayRating, homeRating, false)));
+            }
+            for (int s = 0; s < SHOOTOUTS; s++) {
+                calibrator.addShootout(random.nextDouble() < truth.shootoutHomeWin());
+            }
+            fitted = calibrator.calibrate(new MatchModel(60, 0.002, 1.3, 0));
+        }
+
+        assertEquals(truth.getHomeAdvantage(), fitted.getHomeAdvantage(), 10);
+        assertEquals(truth.getGoalRatePerEloPoint(), fitted.getGoalRatePerEloPoint(), 0.0003);
+        assertEquals(truth.getBaseGoalRate(), fitted.getBaseGoalRate(), 0.04);
+        assertEquals(truth.getShootoutHomeBias(), fitted.getShootoutHomeBias(), 0.03);
+    }
+}
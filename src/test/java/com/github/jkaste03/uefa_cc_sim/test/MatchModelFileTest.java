@@ -0,0 +1,47 @@
+package com.github.jkaste03.uefa_cc_sim.test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.github.jkaste03.uefa_cc_sim.engine.MatchModel;
+import com.github.jkaste03.uefa_cc_sim.service.MatchModelFile;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * This class contains unit tests for the MatchModelFile class.
+ */
+public class MatchModelFileTest {
+
+    /**
+     * Tests that a written model is read back with the same parameters.
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        Path file = Files.createTempFile("match-model", ".json");
+        MatchModel model = new MatchModel(52.5, 0.0027, 1.35, -0.04);
+        MatchModelFile.write(file, model);
+        MatchModel read = MatchModelFile.read(file);
+
+        assertEquals(model.getHomeAdvantage(), read.getHomeAdvantage(), 0);
+        assertEquals(model.getGoalRatePerEloPoint(), read.getGoalRatePerEloPoint(), 0);
+        assertEquals(model.getBaseGoalRate(), read.getBaseGoalRate(), 0);
+        assertEquals(model.getShootoutHomeBias(), read.getShootoutHomeBias(), 0);
+    }
+
+    /**
+     * Tests that parameters the model constructor rejects are reported as an
+     * invalid file.
+     */
+    @Test
+    public void testRejectsInvalidParameters() throws IOException {
+        Path file = Files.createTempFile("match-model", ".json");
+        Files.writeString(file, "{\"homeAdvantage\": 50, \"goalRatePerEloPoint\": 0.002, \"baseGoalRate\": 0,"
+                + " \"shootoutHomeBias\": 0}");
+        assertThrows(IOException.class, () -> MatchModelFile.read(file));
+    }
+}
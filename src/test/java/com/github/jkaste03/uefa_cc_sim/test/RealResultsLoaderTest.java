@@ -0,0 +1,92 @@
+package com.github.jkaste03.uefa_cc_sim.test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import com.github.jkaste03.uefa_cc_sim.SimulationContext;
+import com.github.jkaste03.uefa_cc_sim.enums.CompetitionData.RoundId;
+import com.github.jkaste03.uefa_cc_sim.model.ClubRepository;
+import com.github.jkaste03.uefa_cc_sim.model.RealResults;
+import com.github.jkaste03.uefa_cc_sim.model.RealResults.PinnedTie;
+import com.github.jkaste03.uefa_cc_sim.service.EloRatingProvider;
+import com.github.jkaste03.uefa_cc_sim.service.RealResultsLoader;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This class contains unit tests for the RealResultsLoader class.
+ */
+public class RealResultsLoaderTest {
+    private static final String HEADER = "round,club1,club2,club1_leg1,club2_leg1,club1_leg2,club2_leg2,winner\n";
+
+    private final ClubRepository clubRepository = new SimulationContext(EloRatingProvider.fixed(Map.of()))
+            .getClubRepository();
+    private final String a = clubRepository.getClub(0).getName();
+    private final String b = clubRepository.getClub(1).getName();
+    private final String c = clubRepository.getClub(2).getName();
+    private final String d = clubRepository.getClub(3).getName();
+
+    /**
+     * Tests that the ties of a file are read by club name into their rounds,
+     * with the winner taken from the aggregate unless a shootout winner is given,
+     * and with unplayed legs left out.
+     */
+    @Test
+    public void testReadsTiesByRound() throws IOException {
+        Path path = write(HEADER
+                + "ucl_q1_cp," + a + "," + b + ",2,0,1,1,\n"
+                + "UCL_Q1_CP," + c + "," + d + ",1,0,0,1," + d + "\n"
+                + "\n"
+                + "UECL_Q2_CP," + a + "," + c + ",3,1,,,\n"
+                + "UECL_Q2_CP," + b + "," + d + ",,,,\n");
+
+        RealResults realResults = RealResultsLoader.load(path, clubRepository);
+
+        assertEquals(List.of(RoundId.UCL_Q1_CP, RoundId.UECL_Q2_CP), realResults.getRoundIds());
+        List<PinnedTie> q1Ties = realResults.getTies(RoundId.UCL_Q1_CP);
+        assertEquals(2, q1Ties.size());
+        PinnedTie aggregate = q1Ties.get(0);
+        assertEquals(0, aggregate.getClub1Id());
+        assertEquals(1, aggregate.getClub2Id());
+        assertEquals(2, aggregate.getClub1GoalsLeg1());
+        assertEquals(1, aggregate.getClub2GoalsLeg2());
+        assertEquals(0, aggregate.getWinnerId());
+        assertEquals(3, q1Ties.get(1).getWinnerId());
+
+        List<PinnedTie> q2Ties = realResults.getTies(RoundId.UECL_Q2_CP);
+        assertTrue(q2Ties.get(0).isLeg1Played() && !q2Ties.get(0).isLeg2Played());
+        assertEquals(-1, q2Ties.get(0).getWinnerId());
+        assertTrue(!q2Ties.get(1).isLeg1Played());
+        assertNull(realResults.getTies(RoundId.UCL_Q2_CP));
+    }
+
+    /**
+     * Tests that lines with an unknown club, a league phase round, a level tie
+     * without a shootout winner or negative goals are rejected.
+     */
+    @Test
+    public void testRejectsInvalidTies() throws IOException {
+        for (String line : new String[] {
+                "UCL_Q1_CP," + a + ",No Such Club,,,,,",
+                "UCL_LP," + a + "," + b + ",,,,,",
+                "UCL_Q1_CP," + a + "," + b + ",1,0,0,1,",
+                "UCL_Q1_CP," + a + "," + b + ",-1,0,,," }) {
+            Path path = write(HEADER + line + "\n");
+            assertThrows(IllegalArgumentException.class, () -> RealResultsLoader.load(path, clubRepository), line);
+        }
+    }
+
+    private static Path write(String content) throws IOException {
+        Path path = Files.createTempFile("real-results", ".csv");
+        Files.writeString(path, content);
+        return path;
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.jkaste03.uefa_cc_sim.test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import com.github.jkaste03.uefa_cc_sim.SimulationContext;
+import com.github.jkaste03.uefa_cc_sim.engine.ReachCounter;
+import com.github.jkaste03.uefa_cc_sim.engine.SimulationPlan;
+import com.github.jkaste03.uefa_cc_sim.server.ResultServer;
+import com.github.jkaste03.uefa_cc_sim.server.ResultSnapshot;
+import com.github.jkaste03.uefa_cc_sim.service.EloRatingProvider;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * This class contains unit tests for the ResultServer class.
+ */
+public class ResultServerTest {
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    /**
+     * Tests that the server refuses queries until a snapshot is published, then
+     * answers club and round queries from the latest snapshot and rejects
+     * unknown clubs.
+     */
+    @Test
+    public void testAnswersFromPublishedSnapshot() throws IOException, InterruptedException {
+        SimulationContext context = new SimulationContext(EloRatingProvider.fixed(Map.of()));
+        SimulationPlan plan = context.getPlan();
+        int round = plan.getQualifyingStages()[0][0];
+        int club = plan.getEntrants(round)[0];
+        String clubName = context.getClubRepository().getClub(club).getName();
+        String roundName = plan.getRoundName(round);
+        ReachCounter reachCounter = new ReachCounter(plan);
+        reachCounter.increment(round, club);
+        reachCounter.addIterations(4);
+
+        ResultServer server = new ResultServer(0);
+        server.start();
+        try {
+            assertEquals(503, get(server, "/status").statusCode());
+
+            server.publish(new ResultSnapshot(plan, context.getClubRepository(), reachCounter, null, true));
+            HttpResponse<String> status = get(server, "/status");
+            assertEquals(200, status.statusCode());
+            JsonObject statusJson = new Gson().fromJson(status.body(), JsonObject.class);
+            assertEquals(1, statusJson.get("version").getAsLong());
+            assertEquals(4, statusJson.get("iterations").getAsLong());
+
+            HttpResponse<String> clubResponse = get(server, "/club?name=" + encode(clubName));
+            assertEquals(200, clubResponse.statusCode());
+            JsonObject clubJson = new Gson().fromJson(clubResponse.body(), JsonObject.class);
+            assertEquals(0.25, clubJson.get(roundName).getAsDouble(), 0);
+
+            HttpResponse<String> roundResponse = get(server, "/round?name=" + encode(roundName));
+            JsonObject roundJson = new Gson().fromJson(roundResponse.body(), JsonObject.class);
+            assertEquals(1, roundJson.size());
+            assertEquals(0.25, roundJson.get(clubName).getAsDouble(), 0);
+
+            assertEquals(400, get(server, "/club?name=NoSuchClub").statusCode());
+            assertEquals(400, get(server, "/pairings?round=" + encode(roundName)).statusCode());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private HttpResponse<String> get(ResultServer server, String pathAndQuery)
+            throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + pathAndQuery))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
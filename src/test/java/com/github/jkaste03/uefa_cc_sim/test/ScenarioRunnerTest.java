@@ -0,0 +1,119 @@
+package com.github.jkaste03.uefa_cc_sim.test;
+
+import java.util.List;
+import java.util.Map;
+
+import com.github.jkaste03.uefa_cc_sim.SimulationContext;
+import com.github.jkaste03.uefa_cc_sim.engine.PairedDifference;
+import com.github.jkaste03.uefa_cc_sim.engine.Scenario;
+import com.github.jkaste03.uefa_cc_sim.engine.ScenarioResult;
+import com.github.jkaste03.uefa_cc_sim.engine.SimulationPlan;
+import com.github.jkaste03.uefa_cc_sim.engine.TieProbabilities;
+import com.github.jkaste03.uefa_cc_sim.engine.WeightedReachCounter;
+import com.github.jkaste03.uefa_cc_sim.model.ClubRepository;
+import com.github.jkaste03.uefa_cc_sim.service.EloRatingProvider;
+import com.github.jkaste03.uefa_cc_sim.threads.ScenarioRunner;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This class contains unit tests for the ScenarioRunner class.
+ */
+public class ScenarioRunnerTest {
+    private static final long ITERATIONS = 2000;
+
+    /**
+     * Tests that a scenario swapping a club of a first qualifying round with a
+     * club of the round its winners go to changes the reach counts: the moved
+     * clubs always take part in the round they were moved to.
+     */
+    @Test
+    public void testMovedClubsChangeReachCounts() {
+        SimulationContext context = createContext();
+        SimulationPlan plan = context.getPlan();
+        ClubRepository clubRepository = context.getClubRepository();
+        int first = plan.getQualifyingStages()[0][0];
+        int next = plan.getNextPrimary(first);
+        int early = plan.getEntrants(first)[0];
+        int late = plan.getEntrants(next)[0];
+        String earlyName = clubRepository.getClub(early).getName();
+        String lateName = clubRepository.getClub(late).getName();
+
+        Scenario base = new Scenario("Base");
+        Scenario swapped = new Scenario("Swapped")
+                .moveClub(earlyName, plan.getRoundName(next))
+                .moveClub(lateName, plan.getRoundName(first));
+        List<ScenarioResult> results = new ScenarioRunner(context, 2).run(List.of(base, swapped), ITERATIONS);
+
+        ScenarioResult baseResult = results.get(0);
+        ScenarioResult swappedResult = results.get(1);
+        assertEquals(ITERATIONS, baseResult.getReachCounter().getIterations());
+        assertEquals(ITERATIONS, swappedResult.getReachCounter().getIterations());
+        assertEquals(1.0, baseResult.getProbability(first, early), 0);
+        assertEquals(0.0, baseResult.getProbability(first, late), 0);
+        assertTrue(baseResult.getProbability(next, early) < 1.0, earlyName + " always won in the base scenario");
+        assertEquals(0.0, swappedResult.getProbability(first, early), 0);
+        assertEquals(1.0, swappedResult.getProbability(next, early), 0);
+        assertEquals(1.0, swappedResult.getProbability(first, late), 0);
+    }
+
+    /**
+     * Tests that comparing two separately built but identical scenarios gives a
+     * difference of exactly zero for every club and round, since both sides of
+     * each pair run on the same random numbers.
+     */
+    @Test
+    public void testIdenticalScenariosDifferByZero() {
+        SimulationContext context = createContext();
+        SimulationPlan plan = context.getPlan();
+        String clubName = context.getClubRepository().getClub(plan.getEntrants(0)[0]).getName();
+        Scenario baseline = new Scenario("Baseline").setRanking(clubName, 50);
+        Scenario variant = new Scenario("Variant").setRanking(clubName, 50);
+
+        PairedDifference difference = new ScenarioRunner(context, 2).compare(baseline, variant, ITERATIONS);
+
+        assertEquals(ITERATIONS, difference.getIterations());
+        for (int r = 0; r < plan.getRoundCount(); r++) {
+            for (int id = 0; id < plan.getClubCount(); id++) {
+                assertEquals(0.0, difference.getDifference(r, id), 0, plan.getRoundName(r) + " club " + id);
+                assertEquals(0.0, difference.getStandardError(r, id), 0, plan.getRoundName(r) + " club " + id);
+            }
+        }
+    }
+
+    /**
+     * Tests that importance sampling a club's path estimates the probability of
+     * it winning its first tie within four standard errors of plain sampling,
+     * for a target that is not rare.
+     */
+    @Test
+    public void testImportanceSamplingAgreesWithPlainSampling() {
+        SimulationContext context = createContext();
+        context.setFastOutcome(new TieProbabilities(context.getClubRepository().getClubCount()));
+        SimulationPlan plan = context.getPlan();
+        int first = plan.getQualifyingStages()[0][0];
+        int next = plan.getNextPrimary(first);
+        int target = plan.getEntrants(first)[0];
+        String targetName = context.getClubRepository().getClub(target).getName();
+        ScenarioRunner runner = new ScenarioRunner(context, 2);
+
+        ScenarioResult plain = runner.run(List.of(new Scenario("Plain")), ITERATIONS).get(0);
+        WeightedReachCounter weighted = runner.runImportanceSampled(new Scenario("Weighted"), List.of(targetName),
+                0.75, ITERATIONS);
+
+        double plainProbability = plain.getProbability(next, target);
+        double plainError = Math.sqrt(plainProbability * (1 - plainProbability) / ITERATIONS);
+        double error = Math.hypot(plainError, weighted.getStandardError(next, target));
+        assertTrue(plainProbability > 0.1 && plainProbability < 0.9, targetName + " is rare: " + plainProbability);
+        assertEquals(plainProbability, weighted.getProbability(next, target), 4 * error);
+    }
+
+    static SimulationContext createContext() {
+        SimulationContext context = new SimulationContext(EloRatingProvider.fixed(Map.of()));
+        context.setSeed(7);
+        return context;
+    }
+}
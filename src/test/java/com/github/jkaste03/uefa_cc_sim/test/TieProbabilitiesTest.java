@@ -0,0 +1,69 @@
+package com.github.jkaste03.uefa_cc_sim.test;
+
+import com.github.jkaste03.uefa_cc_sim.engine.GoalTable;
+import com.github.jkaste03.uefa_cc_sim.engine.TieProbabilities;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * This class contains unit tests for the TieProbabilities class.
+ */
+public class TieProbabilitiesTest {
+    private static final double[][] PMF_ROWS = {
+            { 0.4, 0.3, 0.2, 0.1 },
+            { 0.1, 0.2, 0.3, 0.4 } };
+    private static final double SHOOTOUT_HOME_WIN = 0.6;
+
+    /**
+     * Tests that the convolved probability equals the probability found by
+     * enumerating every scoreline of both legs, when club 0 is weak and club 1
+     * is strong.
+     */
+    @Test
+    public void testClub1AdvancesMatchesEnumeration() {
+        GoalTable goalTable = new GoalTable(PMF_ROWS);
+        TieProbabilities tieProbabilities = new TieProbabilities(2, goalTable, SHOOTOUT_HOME_WIN) {
+            @Override
+            protected int legRow(int club, int opponent, boolean home) {
+                return club;
+            }
+        };
+
+        for (int club1 = 0; club1 < 2; club1++) {
+            int club2 = 1 - club1;
+            double expected = 0;
+            for (int a = 0; a < 4; a++) {
+                for (int b = 0; b < 4; b++) {
+                    for (int c = 0; c < 4; c++) {
+                        for (int d = 0; d < 4; d++) {
+                            double p = goalTable.getProbability(club1, a) * goalTable.getProbability(club2, b)
+                                    * goalTable.getProbability(club1, c) * goalTable.getProbability(club2, d);
+                            if (a + c > b + d) {
+                                expected += p;
+                            } else if (a + c == b + d) {
+                                expected += p * (1 - SHOOTOUT_HOME_WIN);
+                            }
+                        }
+                    }
+                }
+            }
+            // Computed once, then read from the cache.
+            assertEquals(expected, tieProbabilities.club1Advances(club1, club2), 1e-6);
+            assertEquals(expected, tieProbabilities.club1Advances(club1, club2), 1e-6);
+        }
+    }
+
+    /**
+     * Tests that a tie between equally strong clubs with a fair shootout is a
+     * coin flip.
+     */
+    @Test
+    public void testUniformGoalsAreEven() {
+        TieProbabilities tieProbabilities = new TieProbabilities(3);
+        assertEquals(0.5, tieProbabilities.club1Advances(0, 2), 1e-9);
+        // Ids outside the cache are computed without caching.
+        assertEquals(0.5, tieProbabilities.club1Advances(5, 1), 1e-9);
+    }
+}
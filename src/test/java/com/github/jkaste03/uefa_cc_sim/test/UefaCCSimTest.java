@@ -1,23 +1,39 @@
 package com.github.jkaste03.uefa_cc_sim.test;
 
-import com.github.jkaste03.uefa_cc_sim.threads.SimulationThread;
+import com.github.jkaste03.uefa_cc_sim.SimulationContext;
 import com.github.jkaste03.uefa_cc_sim.UefaCCSim;
+import com.github.jkaste03.uefa_cc_sim.engine.PairingMatrix;
+import com.github.jkaste03.uefa_cc_sim.engine.TieProbabilities;
+import com.github.jkaste03.uefa_cc_sim.enums.CompetitionData.RoundId;
 import com.github.jkaste03.uefa_cc_sim.enums.CompetitionData.RoundType;
 import com.github.jkaste03.uefa_cc_sim.enums.Country;
+import com.github.jkaste03.uefa_cc_sim.model.ClubIdWrapper;
+import com.github.jkaste03.uefa_cc_sim.model.ClubRepository;
 import com.github.jkaste03.uefa_cc_sim.model.ClubSlot;
 import com.github.jkaste03.uefa_cc_sim.model.LeaguePhaseRound;
 import com.github.jkaste03.uefa_cc_sim.model.QRound;
+import com.github.jkaste03.uefa_cc_sim.model.RealResults;
+import com.github.jkaste03.uefa_cc_sim.model.RealResults.PinnedTie;
 import com.github.jkaste03.uefa_cc_sim.model.Round;
 import com.github.jkaste03.uefa_cc_sim.model.Rounds;
+import com.github.jkaste03.uefa_cc_sim.model.RoundsSnapshot;
+import com.github.jkaste03.uefa_cc_sim.model.SimulationListener;
 import com.github.jkaste03.uefa_cc_sim.model.Tie;
 import com.github.jkaste03.uefa_cc_sim.model.UeclLeaguePhaseRound;
+import com.github.jkaste03.uefa_cc_sim.service.EloRatingProvider;
+import com.github.jkaste03.uefa_cc_sim.threads.SimulationThread;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -33,8 +49,7 @@ public class UefaCCSimTest {
      * This test performs the following steps:
      * </p>
      * <ul>
-     * <li>Creates a new instance of {@code Rounds} and sets it in the
-     * {@code SimulationThread}.</li>
+     * <li>Creates a new instance of {@code Rounds}.</li>
      * <li>Runs the simulation 3000 times using a deep copy of the {@code Rounds}
      * object to ensure data consistency.</li>
      * <li>For each iteration, it tests all qualifying rounds ({@code QRound}) to
@@ -52,8 +67,7 @@ public class UefaCCSimTest {
     public void testDrawMethod() {
 
         // Create a new instance of Rounds
-        Rounds rounds = new Rounds();
-        SimulationThread.setRounds(rounds);
+        Rounds rounds = offlineRounds();
 
         Rounds roundsCopy = null;
         for (int i = 0; i < 3; i++) {
@@ -90,6 +104,178 @@ public class UefaCCSimTest {
         }
     }
 
+    /**
+     * Tests that a rounds object reset after a run can run again, with every
+     * round starting from its entrants and drawing legal ties into full league
+     * phases.
+     */
+    @Test
+    public void testResetRunsAgain() {
+        Rounds roundsCopy = UefaCCSim.deepCopy(offlineRounds());
+        List<Integer> entrantCounts = roundsCopy.getRounds().stream()
+                .map(r -> r.getClubSlots().size())
+                .toList();
+
+        for (int i = 0; i < 3; i++) {
+            roundsCopy.run("threadName");
+
+            roundsCopy.getRounds().stream()
+                    .filter(r -> r instanceof QRound)
+                    .forEach(r -> checkNoIllegalTies(r, r.getTies()));
+            for (Round r : roundsCopy.getRoundsOfType(RoundType.LEAGUE_PHASE)) {
+                assertEquals(36, r.getClubSlots().size(), r.getName() + " is not full after run " + i);
+            }
+
+            roundsCopy.reset();
+            for (int r = 0; r < entrantCounts.size(); r++) {
+                Round round = roundsCopy.getRounds().get(r);
+                assertEquals((int) entrantCounts.get(r), round.getClubSlots().size(), round.getName() + " not reset");
+                assertTrue(round.getTies().isEmpty(), round.getName() + " still has ties after reset");
+            }
+        }
+    }
+
+    /**
+     * Tests that the clubs skipping from the UCL Q1 Champions Path to the UECL Q3
+     * Champions Path enter it as the losers of their ties, and that no winner of
+     * the UCL Q1 Champions Path is placed there.
+     */
+    @Test
+    public void testSkippingClubsEnterAsLosers() {
+        Rounds roundsCopy = UefaCCSim.deepCopy(offlineRounds());
+        for (int i = 0; i < 3; i++) {
+            roundsCopy.run("threadName");
+
+            Round uclQ1Cp = roundOf(roundsCopy, RoundId.UCL_Q1_CP);
+            Round ueclQ3Cp = roundOf(roundsCopy, RoundId.UECL_Q3_CP);
+            List<ClubSlot> winners = uclQ1Cp.getTies().stream().map(Tie::getWinner).toList();
+            List<ClubSlot> losers = uclQ1Cp.getTies().stream().map(Tie::getLoser).toList();
+            assertTrue(ueclQ3Cp.getClubSlots().stream().anyMatch(losers::contains),
+                    "No loser of " + uclQ1Cp.getName() + " skipped to " + ueclQ3Cp.getName());
+            for (ClubSlot clubSlot : ueclQ3Cp.getClubSlots()) {
+                assertTrue(!winners.contains(clubSlot),
+                        clubSlot + " won in " + uclQ1Cp.getName() + " but entered " + ueclQ3Cp.getName());
+            }
+            roundsCopy.reset();
+        }
+    }
+
+    private static Round roundOf(Rounds rounds, RoundId roundId) {
+        return rounds.getRounds().stream().filter(r -> r.getRoundId() == roundId).findFirst().orElseThrow();
+    }
+
+    /**
+     * Tests that real results taken from one run are reproduced by a run of
+     * another iteration, in both the normal and the fast outcome mode: the
+     * played UCL Q1 Champions Path keeps its ties and winners, decided on
+     * aggregate or by a shootout, the drawn but unplayed UECL Q2 Champions Path
+     * keeps its ties, and exactly the UCL Q1 losers missing from that draw skip
+     * to the UECL Q3 Champions Path.
+     */
+    @Test
+    public void testRealResultsArePinned() {
+        Rounds template = offlineRounds();
+        Rounds season = UefaCCSim.deepCopy(template);
+        season.seedIteration(0, 3);
+        season.runQualifyingRounds();
+        List<Tie> q1Ties = roundOf(season, RoundId.UCL_Q1_CP).getTies();
+        List<Tie> q2Ties = roundOf(season, RoundId.UECL_Q2_CP).getTies();
+        RealResults realResults = new RealResults();
+        for (Tie tie : q1Ties) {
+            int club1Id = idOf(tie.getClubSlot1());
+            int club2Id = idOf(tie.getClubSlot2());
+            realResults.addTie(RoundId.UCL_Q1_CP, idOf(tie.getWinner()) == club1Id
+                    ? new PinnedTie(club1Id, club2Id, 2, 0, 1, 1, -1)
+                    : new PinnedTie(club1Id, club2Id, 1, 0, 0, 1, club2Id));
+        }
+        for (Tie tie : q2Ties) {
+            realResults.addTie(RoundId.UECL_Q2_CP,
+                    new PinnedTie(idOf(tie.getClubSlot1()), idOf(tie.getClubSlot2()), -1, -1, -1, -1, -1));
+        }
+        Set<Integer> q2Clubs = new HashSet<>();
+        q2Ties.forEach(tie -> {
+            q2Clubs.add(idOf(tie.getClubSlot1()));
+            q2Clubs.add(idOf(tie.getClubSlot2()));
+        });
+        List<Integer> skipping = q1Ties.stream().map(tie -> idOf(tie.getLoser()))
+                .filter(id -> !q2Clubs.contains(id)).toList();
+        assertTrue(!skipping.isEmpty(), "No loser of the UCL Q1 Champions Path skipped its secondary round");
+
+        for (boolean fast : new boolean[] { false, true }) {
+            Rounds pinned = UefaCCSim.deepCopy(template);
+            pinned.setRealResults(realResults);
+            if (fast) {
+                pinned.setFastOutcome(new TieProbabilities(pinned.getClubRepository().getClubCount()));
+            }
+            pinned.seedIteration(0, 4);
+            pinned.runQualifyingRounds();
+
+            List<Tie> pinnedQ1Ties = roundOf(pinned, RoundId.UCL_Q1_CP).getTies();
+            assertEquals(q1Ties.size(), pinnedQ1Ties.size());
+            for (int i = 0; i < q1Ties.size(); i++) {
+                Tie tie = q1Ties.get(i);
+                Tie pinnedTie = pinnedQ1Ties.get(i);
+                assertEquals(idOf(tie.getClubSlot1()), idOf(pinnedTie.getClubSlot1()), tie.getName());
+                assertEquals(idOf(tie.getClubSlot2()), idOf(pinnedTie.getClubSlot2()), tie.getName());
+                assertEquals(idOf(tie.getWinner()), idOf(pinnedTie.getWinner()), tie.getName() + ", fast " + fast);
+            }
+            List<Tie> pinnedQ2Ties = roundOf(pinned, RoundId.UECL_Q2_CP).getTies();
+            assertEquals(q2Ties.size(), pinnedQ2Ties.size());
+            for (int i = 0; i < q2Ties.size(); i++) {
+                assertEquals(idOf(q2Ties.get(i).getClubSlot1()), idOf(pinnedQ2Ties.get(i).getClubSlot1()));
+                assertEquals(idOf(q2Ties.get(i).getClubSlot2()), idOf(pinnedQ2Ties.get(i).getClubSlot2()));
+            }
+            Set<Integer> q1Losers = new HashSet<>();
+            pinnedQ1Ties.forEach(tie -> q1Losers.add(idOf(tie.getLoser())));
+            List<Integer> skipped = roundOf(pinned, RoundId.UECL_Q3_CP).getClubSlots().stream()
+                    .map(UefaCCSimTest::idOf).filter(id -> q1Losers.contains(id) && !q2Clubs.contains(id))
+                    .toList();
+            assertEquals(new HashSet<>(skipping), new HashSet<>(skipped), "fast " + fast);
+            assertEquals(skipping.size(), skipped.size(), "fast " + fast);
+        }
+    }
+
+    /**
+     * Tests that a round with fewer real ties than the draw needs is rejected
+     * when it is drawn.
+     */
+    @Test
+    public void testIncompleteRealDrawIsRejected() {
+        Rounds season = UefaCCSim.deepCopy(offlineRounds());
+        season.runQualifyingRounds();
+        Tie tie = roundOf(season, RoundId.UCL_Q1_CP).getTies().get(0);
+        RealResults realResults = new RealResults();
+        realResults.addTie(RoundId.UCL_Q1_CP,
+                new PinnedTie(idOf(tie.getClubSlot1()), idOf(tie.getClubSlot2()), -1, -1, -1, -1, -1));
+
+        Rounds pinned = UefaCCSim.deepCopy(offlineRounds());
+        pinned.setRealResults(realResults);
+        assertThrows(IllegalStateException.class, pinned::runQualifyingRounds);
+    }
+
+    private static int idOf(ClubSlot clubSlot) {
+        return ((ClubIdWrapper) clubSlot.resolve()).getId();
+    }
+
+    /**
+     * Tests that two simulation contexts in one JVM each get their own clubs, with
+     * the same ids assigned from the same data.
+     */
+    @Test
+    public void testContextsAreIndependent() {
+        SimulationContext context1 = offlineContext();
+        SimulationContext context2 = offlineContext();
+        ClubRepository clubRepository1 = context1.getClubRepository();
+        ClubRepository clubRepository2 = context2.getClubRepository();
+
+        assertTrue(clubRepository1 != clubRepository2, "Contexts share a club repository");
+        assertEquals(clubRepository1.getClubCount(), clubRepository2.getClubCount());
+        for (int id = 0; id < clubRepository1.getClubCount(); id++) {
+            assertEquals(id, clubRepository1.getClub(id).getId());
+            assertEquals(clubRepository1.getClub(id).getName(), clubRepository2.getClub(id).getName());
+        }
+    }
+
     /**
      * Checks that each club meets exactly one club from each pot at home and one
      * away, with specific rules for 6 pots.
@@ -230,4 +416,181 @@ public class UefaCCSimTest {
             }
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testDrawOnlyCountsEveryPairing() throws InterruptedException {
+        SimulationContext context = offlineContext();
+        context.setDrawOnly(true);
+        context.setMaxIterations(4);
+        SimulationThread thread = new SimulationThread("DrawThread", context);
+        thread.start();
+        thread.join();
+
+        PairingMatrix pairingMatrix = thread.getPairingMatrix();
+        List<Round> rounds = context.getRounds().getRounds();
+        int clubCount = context.getClubRepository().getClubCount();
+        for (int r = 0; r < rounds.size(); r++) {
+            assertEquals(4, pairingMatrix.getDraws(r));
+            if (!(rounds.get(r) instanceof QRound)) {
+                continue;
+            }
+            // Every club of a qualifying round is drawn against exactly one opponent per
+            // draw, and a pairing is counted from both sides.
+            long total = 0;
+            for (int a = 0; a < clubCount; a++) {
+                for (int b = 0; b < clubCount; b++) {
+                    assertEquals(pairingMatrix.getCount(r, a, b), pairingMatrix.getCount(r, b, a));
+                    total += pairingMatrix.getCount(r, a, b);
+                }
+            }
+            assertEquals(4L * context.getDrawEntrants()[r].length, total, rounds.get(r).getName());
+        }
+    }
+
+    /**
+     * Tests that replaying an iteration gives the same draws and results as the
+     * iteration had in a run of several iterations on one rounds object.
+     */
+    @Test
+    public void testReplayMatchesRun() {
+        SimulationContext context = offlineContext();
+        context.setSeed(42);
+
+        List<String> runEvents = new ArrayList<>();
+        Rounds roundsCopy = UefaCCSim.deepCopy(context.getRounds());
+        for (long iteration = 0; iteration < 3; iteration++) {
+            roundsCopy.setListener(iteration == 2 ? recordTies(runEvents) : null);
+            roundsCopy.seedIteration(context.getSeed(), iteration);
+            roundsCopy.run("threadName");
+            roundsCopy.reset();
+        }
+
+        List<String> replayEvents = new ArrayList<>();
+        context.replay(2, recordTies(replayEvents));
+        assertTrue(!runEvents.isEmpty());
+        assertEquals(runEvents, replayEvents);
+    }
+
+    /**
+     * Tests that a continuation of a snapshot taken after the Q3 draws starts
+     * from the ties drawn, the results played and the Elo ratings of the run the
+     * snapshot was captured from, without drawing or playing them again, and
+     * simulates the rest with its own random numbers.
+     */
+    @Test
+    public void testSnapshotContinuesCapturedRun() {
+        SimulationContext context = offlineContext();
+        List<String> runEvents = new ArrayList<>();
+        Rounds runRounds = UefaCCSim.deepCopy(context.getRounds());
+        runRounds.setListener(recordTies(runEvents));
+        runRounds.seedIteration(0, 7);
+        runRounds.runQualifyingRounds();
+
+        Rounds captureRounds = UefaCCSim.deepCopy(context.getRounds());
+        captureRounds.seedIteration(0, 7);
+        RoundsSnapshot snapshot = captureRounds.captureSnapshot(RoundType.Q3);
+
+        List<String> continuationEvents = new ArrayList<>();
+        Rounds continuationRounds = UefaCCSim.deepCopy(context.getRounds());
+        continuationRounds.setListener(recordTies(continuationEvents));
+        continuationRounds.seedIteration(0, 8);
+        continuationRounds.continueQualifyingRounds(snapshot);
+
+        // Q1 and Q2 are drawn, Q1 is played and Q3 is drawn before Q2 is played
+        int q3Drawn = firstIndexOf(runEvents, "CHAMPIONS_LEAGUE Q3 CHAMPIONS_PATH", 0);
+        int prefix = firstIndexOf(runEvents, "CHAMPIONS_LEAGUE Q2 CHAMPIONS_PATH", q3Drawn);
+        assertTrue(q3Drawn > 0 && prefix > q3Drawn);
+        assertEquals(runEvents.size() - prefix, continuationEvents.size());
+        assertTrue(continuationEvents.get(0).startsWith("CHAMPIONS_LEAGUE Q2 CHAMPIONS_PATH: "));
+        assertTrue(!runEvents.subList(prefix, runEvents.size()).equals(continuationEvents));
+        // The Q3 ties are drawn against the winners of Q2 ties, which the
+        // continuation plays with its own random numbers
+        for (Round round : runRounds.getRoundsOfType(RoundType.Q1, RoundType.Q2)) {
+            List<Tie> ties = round.getTies();
+            List<Tie> continuationTies = roundOf(continuationRounds, round.getRoundId()).getTies();
+            assertEquals(ties.size(), continuationTies.size(), round.getName());
+            for (int i = 0; i < ties.size(); i++) {
+                assertEquals(ties.get(i).getName(), continuationTies.get(i).getName(), round.getName());
+                if (round.getRoundType() == RoundType.Q1) {
+                    assertEquals(ties.get(i).getWinner().getName(), continuationTies.get(i).getWinner().getName(),
+                            round.getName());
+                }
+            }
+        }
+
+        // The fast outcome mode does not change the ratings after the snapshot
+        Rounds fastRounds = UefaCCSim.deepCopy(context.getRounds());
+        fastRounds.setFastOutcome(new TieProbabilities(fastRounds.getClubRepository().getClubCount()));
+        fastRounds.continueQualifyingRounds(snapshot);
+        boolean changed = false;
+        for (int id = 0; id < fastRounds.getClubRepository().getClubCount(); id++) {
+            float delta = captureRounds.getEloRatings().getDelta(id);
+            assertEquals(delta, fastRounds.getEloRatings().getDelta(id), 0f);
+            changed |= delta != 0f;
+        }
+        assertTrue(changed, "No rating changed before the snapshot");
+    }
+
+    /**
+     * Returns the index of the first event of a round from an index on.
+     */
+    private static int firstIndexOf(List<String> events, String roundName, int from) {
+        for (int i = from; i < events.size(); i++) {
+            if (events.get(i).startsWith(roundName + ": ")) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a listener adding the ties of each drawn round and the winners of
+     * each played round to the list.
+     */
+    private SimulationListener recordTies(List<String> events) {
+        return new SimulationListener() {
+            @Override
+            public void roundDrawn(Round round, long drawNanos) {
+                round.getTies().forEach(tie -> events.add(round.getName() + ": " + tie.getName()));
+            }
+
+            @Override
+            public void roundPlayed(Round round) {
+                round.getTies().forEach(tie -> events.add(round.getName() + ": " + tie.getWinner().getName()));
+            }
+        };
+    }
+
+    /**
+     * Tests that deep copies of the rounds, which do not serialize the loaded Elo
+     * ratings, read the ratings of the rounds they were copied from.
+     */
+    @Test
+    public void testCopiesReadLoadedEloRatings() {
+        String name = offlineContext().getClubRepository().getClub(0).getName();
+        Rounds rounds = new Rounds(new ClubRepository(), EloRatingProvider.fixed(Map.of(name, 1850f)));
+
+        Rounds roundsCopy = UefaCCSim.deepCopy(rounds);
+        Rounds copyOfCopy = UefaCCSim.deepCopy(roundsCopy);
+        for (Rounds copy : List.of(roundsCopy, copyOfCopy)) {
+            assertEquals(1850, copy.getClubEloDataLoader().getEloRating(0), 0);
+            assertEquals(1850, copy.getEloRatings().getRating(0), 0);
+            assertEquals(rounds.getClubEloDataLoader().getClubCount(), copy.getClubEloDataLoader().getClubCount());
+        }
+    }
+
+    /**
+     * Returns rounds with fixed empty Elo ratings, so no test reaches the network
+     * or the rating cache.
+     */
+    private static Rounds offlineRounds() {
+        return new Rounds(new ClubRepository(), EloRatingProvider.fixed(Map.of()));
+    }
+
+    /**
+     * Returns a context with fixed empty Elo ratings.
+     */
+    private static SimulationContext offlineContext() {
+        return new SimulationContext(EloRatingProvider.fixed(Map.of()));
+    }
+}